@@ -0,0 +1,16 @@
+package datadog.communication.serialization;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Takes ownership of full buffers instead of reading them in place, so that writing can carry on
+ * into another buffer while they are consumed.
+ */
+public interface ByteBufferExchanger {
+
+  /**
+   * @param buffer the full buffer, flipped, which must not be written to by the caller anymore
+   * @return an empty buffer with the same capacity to write to next
+   */
+  ByteBuffer exchange(int messageCount, ByteBuffer buffer);
+}
@@ -4,8 +4,10 @@ import java.nio.ByteBuffer;
 
 public final class FlushingBuffer implements StreamingBuffer {
 
-  private final ByteBuffer buffer;
   private final ByteBufferConsumer consumer;
+  private final ByteBufferExchanger exchanger;
+
+  private ByteBuffer buffer;
 
   private int messageCount;
   private int mark;
@@ -13,6 +15,14 @@ public final class FlushingBuffer implements StreamingBuffer {
   public FlushingBuffer(int capacity, ByteBufferConsumer consumer) {
     this.buffer = ByteBuffer.allocate(capacity);
     this.consumer = consumer;
+    this.exchanger = null;
+  }
+
+  /** Creates a buffer which hands itself over when flushed, and carries on in a fresh buffer. */
+  public FlushingBuffer(int capacity, ByteBufferExchanger exchanger) {
+    this.buffer = ByteBuffer.allocate(capacity);
+    this.consumer = null;
+    this.exchanger = exchanger;
   }
 
   @Override
@@ -38,8 +48,12 @@ public final class FlushingBuffer implements StreamingBuffer {
     }
     buffer.limit(mark);
     buffer.flip();
-    ByteBuffer toPublish = buffer.slice();
-    consumer.accept(messageCount, toPublish);
+    if (null != exchanger) {
+      buffer = exchanger.exchange(messageCount, buffer);
+    } else {
+      ByteBuffer toPublish = buffer.slice();
+      consumer.accept(messageCount, toPublish);
+    }
     reset();
     return true;
   }
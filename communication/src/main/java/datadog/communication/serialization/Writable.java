@@ -17,6 +17,13 @@ public interface Writable {
 
   void writeString(CharSequence s, EncodingCache encodingCache);
 
+  /**
+   * Writes a string which is shared by many messages, such as a service name or a tag key, from a
+   * global table of pre-encoded strings. Strings with unbounded cardinality, like resource names or
+   * tag values, should be written with {@link #writeString(CharSequence, EncodingCache)} instead.
+   */
+  void writeCachedString(CharSequence s);
+
   void writeUTF8(byte[] string, int offset, int length);
 
   void writeUTF8(byte[] string);
@@ -8,6 +8,9 @@ import datadog.communication.serialization.Mapper;
 import datadog.communication.serialization.StreamingBuffer;
 import datadog.communication.serialization.ValueWriter;
 import datadog.communication.serialization.WritableFormatter;
+import datadog.trace.api.cache.DDCache;
+import datadog.trace.api.cache.DDCaches;
+import datadog.trace.api.function.Function;
 import datadog.trace.bootstrap.instrumentation.api.UTF8BytesString;
 import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
@@ -58,6 +61,37 @@ public class MsgPackWriter implements WritableFormatter {
   public static final int FIXARRAY = 0x90;
   public static final int FIXMAP = 0x80;
 
+  // longer strings are unlikely to be shared by many spans
+  static final int MAX_CACHED_STRING_LENGTH = 128;
+
+  // strings encoded with their msgpack header, shared by all writers
+  private static final DDCache<CharSequence, byte[]> ENCODED_STRINGS =
+      DDCaches.newFixedSizeCache(1024);
+  private static final Function<CharSequence, byte[]> ENCODE_STRING =
+      new Function<CharSequence, byte[]>() {
+        @Override
+        public byte[] apply(CharSequence s) {
+          byte[] utf8 =
+              s instanceof UTF8BytesString
+                  ? ((UTF8BytesString) s).getUtf8Bytes()
+                  : String.valueOf(s).getBytes(UTF_8);
+          int headerLength = utf8.length < 0x10 ? 1 : utf8.length < 0x100 ? 2 : 3;
+          byte[] encoded = new byte[headerLength + utf8.length];
+          if (headerLength == 1) {
+            encoded[0] = (byte) (FIXSTR | utf8.length);
+          } else if (headerLength == 2) {
+            encoded[0] = STR8;
+            encoded[1] = (byte) utf8.length;
+          } else {
+            encoded[0] = STR16;
+            encoded[1] = (byte) (utf8.length >>> 8);
+            encoded[2] = (byte) utf8.length;
+          }
+          System.arraycopy(utf8, 0, encoded, headerLength, utf8.length);
+          return encoded;
+        }
+      };
+
   private final Codec codec;
 
   private final StreamingBuffer buffer;
@@ -183,6 +217,19 @@ public class MsgPackWriter implements WritableFormatter {
     }
   }
 
+  @Override
+  public void writeCachedString(CharSequence s) {
+    if (null == s) {
+      writeNull();
+    } else if (s.length() > MAX_CACHED_STRING_LENGTH
+        || !(s instanceof String || s instanceof UTF8BytesString)) {
+      // other char sequences may be mutable, so can't be used as keys
+      writeString(s, null);
+    } else {
+      buffer.put(ENCODED_STRINGS.computeIfAbsent(s, ENCODE_STRING));
+    }
+  }
+
   @Override
   public void writeUTF8(byte[] string, int offset, int length) {
     writeStringHeader(length);
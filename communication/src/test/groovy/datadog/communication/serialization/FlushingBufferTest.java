@@ -1,6 +1,8 @@
 package datadog.communication.serialization;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 
 import java.nio.ByteBuffer;
 import org.junit.Test;
@@ -19,4 +21,35 @@ public class FlushingBufferTest {
                 })
             .capacity());
   }
+
+  @Test
+  public void testExchangeBufferOnFlush() {
+    final ByteBuffer spare = ByteBuffer.allocate(5);
+    final ByteBuffer[] exchanged = new ByteBuffer[1];
+    FlushingBuffer buffer =
+        new FlushingBuffer(
+            5,
+            new ByteBufferExchanger() {
+              @Override
+              public ByteBuffer exchange(int messageCount, ByteBuffer full) {
+                assertEquals(1, messageCount);
+                exchanged[0] = full;
+                return spare;
+              }
+            });
+    buffer.putShort((short) 1);
+    buffer.mark();
+    buffer.put((byte) 2);
+    buffer.flush();
+    assertEquals(0, exchanged[0].position());
+    assertEquals(2, exchanged[0].limit());
+    assertNotSame(spare, exchanged[0]);
+    // writing carries on in the spare buffer without touching the one handed over
+    buffer.putShort((short) 3);
+    assertEquals(2, spare.position());
+    assertEquals(1, exchanged[0].getShort(0));
+    buffer.mark();
+    buffer.flush();
+    assertSame(spare, exchanged[0]);
+  }
 }
@@ -1067,6 +1067,64 @@ public class MsgPackWriterTest {
     writer.writeStringHeader(0x10000);
   }
 
+  @Test
+  public void testWriteCachedString() {
+    StringBuilder longString = new StringBuilder();
+    for (int i = 0; i <= MsgPackWriter.MAX_CACHED_STRING_LENGTH; ++i) {
+      longString.append((char) ('a' + i % 26));
+    }
+    StringBuilder wideString = new StringBuilder();
+    for (int i = 0; i < MsgPackWriter.MAX_CACHED_STRING_LENGTH; ++i) {
+      wideString.append('道');
+    }
+    final List<CharSequence> strings = new ArrayList<>();
+    strings.add("service");
+    strings.add("a tag key longer than sixteen bytes");
+    strings.add(UTF8BytesString.create("operation.name"));
+    strings.add(wideString.toString());
+    strings.add(longString.toString());
+    strings.add(new StringBuilder("mutable"));
+    strings.add(null);
+    MessageFormatter messageFormatter =
+        new MsgPackWriter(
+            newBuffer(
+                10 << 10,
+                new ByteBufferConsumer() {
+                  @Override
+                  public void accept(int messageCount, ByteBuffer buffy) {
+                    MessageUnpacker unpacker = MessagePack.newDefaultUnpacker(buffy);
+                    try {
+                      // each string is written twice, the second time from the table
+                      for (int i = 0; i < 2; ++i) {
+                        assertEquals(strings.size(), unpacker.unpackArrayHeader());
+                        for (CharSequence s : strings) {
+                          if (null == s) {
+                            unpacker.unpackNil();
+                          } else {
+                            assertEquals(s.toString(), unpacker.unpackString());
+                          }
+                        }
+                      }
+                    } catch (IOException e) {
+                      Assert.fail(e.getMessage());
+                    }
+                  }
+                }));
+    Mapper<List<CharSequence>> mapper =
+        new Mapper<List<CharSequence>>() {
+          @Override
+          public void map(List<CharSequence> data, Writable writable) {
+            writable.startArray(data.size());
+            for (CharSequence s : data) {
+              writable.writeCachedString(s);
+            }
+          }
+        };
+    messageFormatter.format(strings, mapper);
+    messageFormatter.format(strings, mapper);
+    messageFormatter.flush();
+  }
+
   private StreamingBuffer newBuffer(int capacity, ByteBufferConsumer consumer) {
     return new FlushingBuffer(capacity, consumer);
   }
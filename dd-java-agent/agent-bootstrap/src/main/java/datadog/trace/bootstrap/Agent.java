@@ -656,8 +656,8 @@ public class Agent {
     try {
       final Class<?> appSecSysClass = AGENT_CLASSLOADER.loadClass("com.datadog.iast.IastSystem");
       final Method iastInstallerMethod =
-          appSecSysClass.getMethod("start", SubscriptionService.class);
-      iastInstallerMethod.invoke(null, ss);
+          appSecSysClass.getMethod("start", SubscriptionService.class, scoClass);
+      iastInstallerMethod.invoke(null, ss, sco);
     } catch (final Throwable e) {
       log.warn("Not starting IAST subsystem", e);
     }
@@ -347,12 +347,25 @@ public abstract class HttpServerDecorator<REQUEST, CONNECTION, RESPONSE, REQUEST
   private Flow<Void> callIGCallbackURI(
       @Nonnull final AgentSpan span, @Nonnull final URIDataAdapter url, final String method) {
     // TODO:appsec there must be some better way to do this?
-    CallbackProvider cbp = tracer().getCallbackProvider(RequestContextSlot.APPSEC);
     RequestContext requestContext = span.getRequestContext();
-    if (requestContext == null || cbp == null) {
+    if (requestContext == null) {
       return Flow.ResultFlow.empty();
     }
 
+    // IAST only uses the endpoint to decide whether to analyze the request, it never blocks
+    CallbackProvider cbpIast = tracer().getCallbackProvider(RequestContextSlot.IAST);
+    if (cbpIast != null) {
+      TriFunction<RequestContext, String, URIDataAdapter, Flow<Void>> callbackIast =
+          cbpIast.getCallback(EVENTS.requestMethodUriRaw());
+      if (callbackIast != null) {
+        callbackIast.apply(requestContext, method, url);
+      }
+    }
+
+    CallbackProvider cbp = tracer().getCallbackProvider(RequestContextSlot.APPSEC);
+    if (cbp == null) {
+      return Flow.ResultFlow.empty();
+    }
     TriFunction<RequestContext, String, URIDataAdapter, Flow<Void>> callback =
         cbp.getCallback(EVENTS.requestMethodUriRaw());
     if (callback != null) {
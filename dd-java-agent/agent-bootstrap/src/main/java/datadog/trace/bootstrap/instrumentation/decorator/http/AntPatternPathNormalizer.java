@@ -16,7 +16,7 @@ final class AntPatternPathNormalizer extends PathNormalizer {
   private final Map<String, String> resourceNameMatchers;
   private final AntPathMatcher matcher = new AntPathMatcher();
 
-  private final DDCache<String, String> cache = DDCaches.newFixedSizeCache(512);
+  private final DDCache<String, String> cache = DDCaches.newFixedSizeLfuCache(512);
   private final Function<String, String> cacheLoader =
       new Function<String, String>() {
         @Override
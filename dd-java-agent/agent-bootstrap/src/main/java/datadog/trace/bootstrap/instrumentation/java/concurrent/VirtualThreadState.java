@@ -0,0 +1,56 @@
+package datadog.trace.bootstrap.instrumentation.java.concurrent;
+
+import static datadog.trace.bootstrap.instrumentation.api.AgentTracer.activeScope;
+
+import datadog.trace.bootstrap.instrumentation.api.AgentScope;
+
+/**
+ * The context a virtual thread inherits from the thread which created it, held by a field injected
+ * into the virtual thread so that it's never looked up in a map. The continuation is captured when
+ * the virtual thread is created and activated when it's first mounted, after which the scope stays
+ * on the virtual thread's own stack while it parks and moves between carriers. The scope is closed
+ * when the virtual thread is unmounted for the last time.
+ *
+ * <p>Only the creating thread and then the virtual thread itself touch the state, and starting the
+ * thread orders the two, so there's no need for synchronization.
+ */
+public final class VirtualThreadState {
+
+  private AgentScope.Continuation continuation;
+  private AgentScope scope;
+
+  private VirtualThreadState(AgentScope.Continuation continuation) {
+    this.continuation = continuation;
+  }
+
+  /** @return the state of a new virtual thread, or {@code null} if there's nothing to propagate */
+  public static VirtualThreadState capture() {
+    AgentScope activeScope = activeScope();
+    if (null != activeScope && activeScope.isAsyncPropagating()) {
+      return new VirtualThreadState(activeScope.capture());
+    }
+    return null;
+  }
+
+  /** Called on the virtual thread each time it's mounted. */
+  public void onMount() {
+    AgentScope.Continuation continuation = this.continuation;
+    if (null != continuation) {
+      this.continuation = null;
+      scope = continuation.activate();
+      scope.setAsyncPropagation(true);
+    }
+  }
+
+  /** Called on the virtual thread when it's unmounted for the last time. */
+  public void onTerminate() {
+    AgentScope scope = this.scope;
+    if (null != scope) {
+      this.scope = null;
+      scope.close();
+    } else if (null != continuation) {
+      continuation.cancel();
+      continuation = null;
+    }
+  }
+}
@@ -11,7 +11,7 @@ public final class DBQueryInfo {
   private static final int MAX_SQL_LENGTH_TO_CACHE = 4096;
 
   private static final DDCache<String, DBQueryInfo> CACHED_PREPARED_STATEMENTS =
-      DDCaches.newFixedSizeCache(512);
+      DDCaches.newFixedSizeLfuCache(512);
   private static final Function<String, DBQueryInfo> NORMALIZE =
       new Function<String, DBQueryInfo>() {
 
@@ -3,6 +3,7 @@ package datadog.trace.agent.tooling;
 import static datadog.trace.agent.tooling.bytebuddy.matcher.GlobalIgnoresMatcher.globalIgnoresMatcher;
 import static net.bytebuddy.matcher.ElementMatchers.isDefaultFinalizer;
 
+import datadog.trace.agent.tooling.bytebuddy.ClassMatchingCache;
 import datadog.trace.agent.tooling.bytebuddy.DDCachingPoolStrategy;
 import datadog.trace.agent.tooling.bytebuddy.DDOutlinePoolStrategy;
 import datadog.trace.agent.tooling.bytebuddy.SharedTypePools;
@@ -13,6 +14,7 @@ import datadog.trace.api.ProductActivationConfig;
 import datadog.trace.bootstrap.FieldBackedContextAccessor;
 import datadog.trace.bootstrap.instrumentation.java.concurrent.ExcludeFilter;
 import java.lang.instrument.Instrumentation;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.EnumSet;
 import java.util.List;
@@ -115,6 +117,13 @@ public class AgentInstaller {
               .with(new TransformLoggingListener());
     }
 
+    // remembering which classes don't match only works with outline types, see TypeFactory
+    String classMatchingCacheDir =
+        Config.get().isResolverOutlinePoolEnabled() ? Config.get().getResolverCacheDir() : null;
+    if (null != classMatchingCacheDir) {
+      agentBuilder = agentBuilder.with(new ClassMatchingListener());
+    }
+
     for (final AgentBuilder.Listener listener : listeners) {
       agentBuilder = agentBuilder.with(listener);
     }
@@ -142,6 +151,8 @@ public class AgentInstaller {
 
     AgentTransformerBuilder transformerBuilder = new AgentTransformerBuilder(agentBuilder);
 
+    List<String> installedNames = new ArrayList<>();
+
     int installedCount = 0;
     Set<Instrumenter.TargetSystem> enabledSystems = getEnabledSystems();
     for (Instrumenter instrumenter : instrumenters) {
@@ -157,6 +168,9 @@ public class AgentInstaller {
       try {
         instrumenter.instrument(transformerBuilder);
         installedCount++;
+        if (null != classMatchingCacheDir) {
+          installedNames.add(instrumenter.getClass().getName());
+        }
       } catch (Exception | LinkageError e) {
         log.error(
             "Failed to load - instrumentation.class={}", instrumenter.getClass().getName(), e);
@@ -176,6 +190,10 @@ public class AgentInstaller {
           });
     }
 
+    if (null != classMatchingCacheDir) {
+      ClassMatchingCache.open(classMatchingCacheDir, installedNames);
+    }
+
     InstrumenterState.resetDefaultState();
     try {
       return transformerBuilder.installOn(inst);
@@ -390,5 +408,19 @@ public class AgentInstaller {
     }
   }
 
+  /** Remembers classes which no instrumentation matched, so they can be skipped next time. */
+  private static class ClassMatchingListener extends AgentBuilder.Listener.Adapter {
+    @Override
+    public void onIgnored(
+        final TypeDescription typeDescription,
+        final ClassLoader classLoader,
+        final JavaModule javaModule,
+        final boolean loaded) {
+      if (!loaded) {
+        ClassMatchingCache.recordIgnored(classLoader, typeDescription.getInternalName());
+      }
+    }
+  }
+
   private AgentInstaller() {}
 }
@@ -1,5 +1,6 @@
 package datadog.trace.agent.tooling.bytebuddy;
 
+import static datadog.trace.agent.tooling.bytebuddy.ClassMatchingCache.cacheableJar;
 import static datadog.trace.agent.tooling.bytebuddy.matcher.ClassLoaderMatchers.canSkipClassLoaderByName;
 
 import java.lang.instrument.IllegalClassFormatException;
@@ -40,6 +41,11 @@ public final class DDClassFileTransformer extends ResettableClassFileTransformer
       return null;
     }
 
+    String jar = null == classBeingRedefined ? cacheableJar(protectionDomain) : null;
+    if (null != jar && ClassMatchingCache.isUninteresting(jar, classLoader, internalClassName)) {
+      return null;
+    }
+
     try {
       return classFileTransformer.transform(
           classLoader, internalClassName, classBeingRedefined, protectionDomain, classFileBuffer);
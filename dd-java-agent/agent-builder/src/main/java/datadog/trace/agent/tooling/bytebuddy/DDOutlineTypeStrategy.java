@@ -26,7 +26,8 @@ public final class DDOutlineTypeStrategy
       ClassLoader classLoader,
       JavaModule module,
       ProtectionDomain protectionDomain) {
-    TypePoolFacade.beginTransform(name, binaryRepresentation);
+    TypePoolFacade.beginTransform(
+        name, binaryRepresentation, ClassMatchingCache.cacheableJar(protectionDomain));
     return ClassFileLocator.Simple.of(name, binaryRepresentation);
   }
 
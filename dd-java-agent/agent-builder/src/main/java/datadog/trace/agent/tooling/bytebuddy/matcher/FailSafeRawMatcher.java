@@ -1,5 +1,6 @@
 package datadog.trace.agent.tooling.bytebuddy.matcher;
 
+import datadog.trace.agent.tooling.bytebuddy.ClassMatchingCache;
 import java.security.ProtectionDomain;
 import java.util.Objects;
 import net.bytebuddy.agent.builder.AgentBuilder;
@@ -46,8 +47,14 @@ public class FailSafeRawMatcher implements AgentBuilder.RawMatcher {
       Class<?> classBeingRedefined,
       ProtectionDomain protectionDomain) {
     try {
-      return classLoaderMatcher.matches(classLoader) && typeMatcher.matches(typeDescription);
+      if (!classLoaderMatcher.matches(classLoader)) {
+        // rejected because of what else the class-loader has, not because of the type
+        ClassMatchingCache.matchingIncomplete();
+        return false;
+      }
+      return typeMatcher.matches(typeDescription);
     } catch (Exception e) {
+      ClassMatchingCache.matchingIncomplete();
       log.debug(description, e);
       return false;
     }
@@ -1,5 +1,6 @@
 package datadog.trace.agent.tooling.bytebuddy.matcher;
 
+import datadog.trace.agent.tooling.bytebuddy.ClassMatchingCache;
 import java.security.ProtectionDomain;
 import net.bytebuddy.agent.builder.AgentBuilder;
 import net.bytebuddy.description.type.TypeDescription;
@@ -29,6 +30,7 @@ public class GlobalIgnoresMatcher implements AgentBuilder.RawMatcher {
       Class<?> classBeingRedefined,
       ProtectionDomain protectionDomain) {
     if (ClassLoaderMatchers.skipClassLoader(classLoader)) {
+      ClassMatchingCache.matchingIncomplete();
       return true;
     }
     String name = typeDescription.getName();
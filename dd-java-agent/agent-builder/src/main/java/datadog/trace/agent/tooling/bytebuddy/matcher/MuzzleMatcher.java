@@ -2,6 +2,7 @@ package datadog.trace.agent.tooling.bytebuddy.matcher;
 
 import datadog.trace.agent.tooling.Instrumenter;
 import datadog.trace.agent.tooling.InstrumenterState;
+import datadog.trace.agent.tooling.bytebuddy.ClassMatchingCache;
 import java.security.ProtectionDomain;
 import net.bytebuddy.agent.builder.AgentBuilder;
 import net.bytebuddy.description.type.TypeDescription;
@@ -24,15 +25,18 @@ public final class MuzzleMatcher implements AgentBuilder.RawMatcher {
       Class<?> classBeingRedefined,
       ProtectionDomain protectionDomain) {
     Boolean applicable = InstrumenterState.isApplicable(classLoader, instrumentationId);
-    if (null != applicable) {
-      return applicable;
+    if (null == applicable) {
+      applicable = instrumenter.muzzleMatches(classLoader, classBeingRedefined);
+      if (applicable) {
+        InstrumenterState.applyInstrumentation(classLoader, instrumentationId);
+      } else {
+        InstrumenterState.blockInstrumentation(classLoader, instrumentationId);
+      }
     }
-    boolean muzzleMatches = instrumenter.muzzleMatches(classLoader, classBeingRedefined);
-    if (muzzleMatches) {
-      InstrumenterState.applyInstrumentation(classLoader, instrumentationId);
-    } else {
-      InstrumenterState.blockInstrumentation(classLoader, instrumentationId);
+    if (!applicable) {
+      // the type matched, but other classes visible to the class-loader didn't
+      ClassMatchingCache.matchingIncomplete();
     }
-    return muzzleMatches;
+    return applicable;
   }
 }
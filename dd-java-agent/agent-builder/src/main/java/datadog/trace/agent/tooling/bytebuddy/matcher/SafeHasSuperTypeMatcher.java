@@ -2,6 +2,7 @@ package datadog.trace.agent.tooling.bytebuddy.matcher;
 
 import static datadog.trace.agent.tooling.bytebuddy.matcher.DDElementMatchers.safeTypeDefinitionName;
 
+import datadog.trace.agent.tooling.bytebuddy.ClassMatchingCache;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -121,6 +122,7 @@ class SafeHasSuperTypeMatcher<T extends TypeDescription>
     try {
       return typeDefinition.isInterface();
     } catch (final Exception e) {
+      ClassMatchingCache.matchingIncomplete();
       if (log.isDebugEnabled()) {
         log.debug(
             "{} trying to check isInterface for target {}: {}",
@@ -136,6 +138,7 @@ class SafeHasSuperTypeMatcher<T extends TypeDescription>
     try {
       return typeDefinition.getSuperClass();
     } catch (final Exception e) {
+      ClassMatchingCache.matchingIncomplete();
       if (log.isDebugEnabled()) {
         log.debug(
             "{} trying to get super class for target {}: {}",
@@ -190,6 +193,7 @@ class SafeHasSuperTypeMatcher<T extends TypeDescription>
       try {
         it = typeDefinition.getInterfaces().iterator();
       } catch (Exception e) {
+        ClassMatchingCache.matchingIncomplete();
         logException(typeDefinition, e);
       }
       this.it = it;
@@ -202,6 +206,7 @@ class SafeHasSuperTypeMatcher<T extends TypeDescription>
           this.next = it.next();
           return true;
         } catch (Exception e) {
+          ClassMatchingCache.matchingIncomplete();
           logException(typeDefinition, e);
           return false;
         }
@@ -238,6 +243,7 @@ class SafeHasSuperTypeMatcher<T extends TypeDescription>
     try {
       return typeDefinition.asErasure();
     } catch (final Exception e) {
+      ClassMatchingCache.matchingIncomplete();
       if (log.isDebugEnabled()) {
         log.debug(
             "{} trying to get erasure for target {}: {}",
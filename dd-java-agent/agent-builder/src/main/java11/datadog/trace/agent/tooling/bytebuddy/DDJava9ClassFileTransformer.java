@@ -1,5 +1,6 @@
 package datadog.trace.agent.tooling.bytebuddy;
 
+import static datadog.trace.agent.tooling.bytebuddy.ClassMatchingCache.cacheableJar;
 import static datadog.trace.agent.tooling.bytebuddy.matcher.ClassLoaderMatchers.canSkipClassLoaderByName;
 
 import java.lang.instrument.IllegalClassFormatException;
@@ -41,6 +42,11 @@ public final class DDJava9ClassFileTransformer
       return null;
     }
 
+    String jar = null == classBeingRedefined ? cacheableJar(protectionDomain) : null;
+    if (null != jar && ClassMatchingCache.isUninteresting(jar, classLoader, internalClassName)) {
+      return null;
+    }
+
     try {
       return classFileTransformer.transform(
           classLoader, internalClassName, classBeingRedefined, protectionDomain, classFileBuffer);
@@ -63,6 +69,11 @@ public final class DDJava9ClassFileTransformer
       return null;
     }
 
+    String jar = null == classBeingRedefined ? cacheableJar(protectionDomain) : null;
+    if (null != jar && ClassMatchingCache.isUninteresting(jar, classLoader, internalClassName)) {
+      return null;
+    }
+
     try {
       return classFileTransformer.transform(
           module,
@@ -2,16 +2,20 @@ package com.datadog.iast.overhead;
 
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
+import datadog.communication.monitor.Monitoring;
 import datadog.trace.api.Config;
+import datadog.trace.api.time.SystemTimeSource;
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.BenchmarkMode;
 import org.openjdk.jmh.annotations.Level;
 import org.openjdk.jmh.annotations.Measurement;
 import org.openjdk.jmh.annotations.Mode;
 import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
 import org.openjdk.jmh.annotations.Scope;
 import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
 import org.openjdk.jmh.annotations.Warmup;
 
 @Warmup(iterations = 1, time = 1000, timeUnit = MILLISECONDS)
@@ -21,13 +25,28 @@ import org.openjdk.jmh.annotations.Warmup;
 @State(Scope.Benchmark)
 public class OverheadControllerBenchmark {
 
+  private static final String[] PATHS = {
+    "/", "/login", "/users/123", "/users/456/orders", "/products", "/products/789/reviews"
+  };
+
+  @Param({"default", "endpoint"})
+  String controller;
+
   private OverheadController overheadController;
 
   @Setup(Level.Trial)
   public void setup() {
-    System.setProperty("dd.iast.request-sampling", "100");
+    // the endpoint controller only samples once the endpoint is known, so give it a budget to share
+    final boolean endpoint = "endpoint".equals(controller);
+    System.setProperty("dd.iast.request-sampling", endpoint ? "30" : "100");
     System.setProperty("dd.iast.max-context-operations", "100000");
-    overheadController = new OverheadController(Config.get(), null);
+    if (endpoint) {
+      overheadController =
+          new EndpointOverheadController(
+              Config.get(), null, SystemTimeSource.INSTANCE, Monitoring.DISABLED);
+    } else {
+      overheadController = new OverheadController(Config.get(), null);
+    }
   }
 
   @Benchmark
@@ -39,8 +58,29 @@ public class OverheadControllerBenchmark {
     }
   }
 
+  @Benchmark
+  public boolean acquireEndpoint(final PathState state) {
+    return overheadController.acquireEndpoint("GET", state.nextPath());
+  }
+
+  @Benchmark
+  @Threads(8)
+  public boolean acquireEndpointConcurrently(final PathState state) {
+    return overheadController.acquireEndpoint("GET", state.nextPath());
+  }
+
   @Benchmark
   public void consumeQuota() {
     overheadController.consumeQuota(Operations.REPORT_VULNERABILITY, null);
   }
+
+  @State(Scope.Thread)
+  public static class PathState {
+    private int index;
+
+    String nextPath() {
+      index = (index + 1) % PATHS.length;
+      return PATHS[index];
+    }
+  }
 }
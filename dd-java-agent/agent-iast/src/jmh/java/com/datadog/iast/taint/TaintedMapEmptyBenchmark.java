@@ -11,6 +11,7 @@ import org.openjdk.jmh.annotations.Measurement;
 import org.openjdk.jmh.annotations.Mode;
 import org.openjdk.jmh.annotations.OperationsPerInvocation;
 import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
 import org.openjdk.jmh.annotations.Scope;
 import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
@@ -26,12 +27,17 @@ import org.openjdk.jmh.infra.Blackhole;
 public class TaintedMapEmptyBenchmark {
 
   private static final int OP_COUNT = 1024;
+
+  @Param({"default", "concurrent"})
+  String implementation;
+
   private TaintedMap map;
   private final Object anyObject = new Object();
 
   @Setup(Level.Iteration)
   public void setup() {
-    map = new DefaultTaintedMap();
+    map =
+        "concurrent".equals(implementation) ? new ConcurrentTaintedMap() : new DefaultTaintedMap();
   }
 
   @Benchmark
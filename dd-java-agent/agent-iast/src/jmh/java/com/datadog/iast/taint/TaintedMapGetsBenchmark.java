@@ -14,9 +14,11 @@ import org.openjdk.jmh.annotations.Measurement;
 import org.openjdk.jmh.annotations.Mode;
 import org.openjdk.jmh.annotations.OperationsPerInvocation;
 import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
 import org.openjdk.jmh.annotations.Scope;
 import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
 import org.openjdk.jmh.annotations.Warmup;
 import org.openjdk.jmh.infra.Blackhole;
 
@@ -31,13 +33,17 @@ public class TaintedMapGetsBenchmark {
   private static final int INITIAL_OP_COUNT = DefaultTaintedMap.DEFAULT_FLAT_MODE_THRESHOLD;
   private static final int OP_COUNT = 1024;
 
+  @Param({"default", "concurrent"})
+  String implementation;
+
   private TaintedMap map;
   private List<Object> objectList;
   private List<Object> initialObjectList;
 
   @Setup(Level.Iteration)
   public void setup() {
-    map = new DefaultTaintedMap();
+    map =
+        "concurrent".equals(implementation) ? new ConcurrentTaintedMap() : new DefaultTaintedMap();
     initialObjectList = new ArrayList<>(INITIAL_OP_COUNT);
     objectList = new ArrayList<>(OP_COUNT);
     for (int i = 0; i < INITIAL_OP_COUNT; i++) {
@@ -67,4 +73,13 @@ public class TaintedMapGetsBenchmark {
       bh.consume(map.get(objectList.get(i)));
     }
   }
+
+  @Benchmark
+  @OperationsPerInvocation(OP_COUNT)
+  @Threads(32)
+  public void getsConcurrently(final Blackhole bh) {
+    for (int i = 0; i < OP_COUNT; i++) {
+      bh.consume(map.get(objectList.get(i)));
+    }
+  }
 }
@@ -15,9 +15,11 @@ import org.openjdk.jmh.annotations.Measurement;
 import org.openjdk.jmh.annotations.Mode;
 import org.openjdk.jmh.annotations.OperationsPerInvocation;
 import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
 import org.openjdk.jmh.annotations.Scope;
 import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
 import org.openjdk.jmh.annotations.Timeout;
 import org.openjdk.jmh.annotations.Warmup;
 import org.openjdk.jmh.infra.Blackhole;
@@ -36,14 +38,22 @@ public class TaintedMapPutsBenchmark {
 
   private static final Range[] EMPTY_RANGES = new Range[0];
 
+  @Param({"default", "concurrent"})
+  String implementation;
+
   private TaintedMap map;
   private List<Object> initialObjectList;
-  private CircularBuffer<Object> objectBuffer;
+
+  /** Keeps the latest keys of each thread reachable. */
+  @State(Scope.Thread)
+  public static class ObjectBuffer {
+    final CircularBuffer<Object> objects = new CircularBuffer<>(OP_COUNT);
+  }
 
   @Setup(Level.Iteration)
   public void setup() {
-    map = new DefaultTaintedMap();
-    objectBuffer = new CircularBuffer<>(OP_COUNT);
+    map =
+        "concurrent".equals(implementation) ? new ConcurrentTaintedMap() : new DefaultTaintedMap();
     initialObjectList = new ArrayList<>(INITIAL_OP_COUNT);
     for (int i = 0; i < INITIAL_OP_COUNT; i++) {
       final Object k = new Object();
@@ -54,20 +64,31 @@ public class TaintedMapPutsBenchmark {
 
   @Benchmark
   @OperationsPerInvocation(OP_COUNT)
-  public void putsBaseline(final Blackhole bh) {
+  public void putsBaseline(final ObjectBuffer objectBuffer, final Blackhole bh) {
     for (int i = 0; i < OP_COUNT; i++) {
       final Object k = new Object();
-      objectBuffer.add(k);
+      objectBuffer.objects.add(k);
       bh.consume(new TaintedObject(k, EMPTY_RANGES, map.getReferenceQueue()));
     }
   }
 
   @Benchmark
   @OperationsPerInvocation(OP_COUNT)
-  public void puts() {
+  public void puts(final ObjectBuffer objectBuffer) {
+    doPuts(objectBuffer);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(OP_COUNT)
+  @Threads(32)
+  public void putsConcurrently(final ObjectBuffer objectBuffer) {
+    doPuts(objectBuffer);
+  }
+
+  private void doPuts(final ObjectBuffer objectBuffer) {
     for (int i = 0; i < OP_COUNT; i++) {
       final Object k = new Object();
-      objectBuffer.add(k);
+      objectBuffer.objects.add(k);
       map.put(new TaintedObject(k, EMPTY_RANGES, map.getReferenceQueue()));
     }
   }
@@ -0,0 +1,91 @@
+package com.datadog.iast.taint;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import com.datadog.iast.model.Range;
+import com.datadog.iast.model.Source;
+import com.datadog.iast.model.SourceType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Propagates taints through string concatenations, like {@code IastModuleImpl.onConcat} does. Run
+ * it with {@code -prof gc} to see how much each propagation allocates on top of the tainted object
+ * itself.
+ */
+@Warmup(iterations = 2, time = 1000, timeUnit = MILLISECONDS)
+@Measurement(iterations = 3, time = 1000, timeUnit = MILLISECONDS)
+@Fork(3)
+@OutputTimeUnit(NANOSECONDS)
+@BenchmarkMode(Mode.AverageTime)
+@State(Scope.Benchmark)
+public class TaintedObjectsConcatBenchmark {
+
+  private static final int OP_COUNT = 1024;
+
+  /** Which of the operands are tainted. */
+  @Param({"none", "left", "right", "both"})
+  String tainted;
+
+  /** Number of ranges of each tainted operand. */
+  @Param({"1", "2"})
+  int ranges;
+
+  private TaintedObjects taintedObjects;
+  private String left;
+  private String right;
+  private String[] results;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    left = new String("left-value");
+    right = new String("right-value");
+    results = new String[OP_COUNT];
+    for (int i = 0; i < OP_COUNT; i++) {
+      results[i] = left + right;
+    }
+  }
+
+  @Setup(Level.Invocation)
+  public void taintOperands() {
+    taintedObjects = new TaintedObjects();
+    if ("left".equals(tainted) || "both".equals(tainted)) {
+      taintedObjects.taint(left, ranges(left));
+    }
+    if ("right".equals(tainted) || "both".equals(tainted)) {
+      taintedObjects.taint(right, ranges(right));
+    }
+  }
+
+  private Range[] ranges(final String value) {
+    final Source source = new Source(SourceType.REQUEST_PARAMETER_VALUE, "param", value);
+    if (ranges == 1) {
+      return new Range[] {new Range(0, value.length(), source)};
+    }
+    return new Range[] {new Range(0, 2, source), new Range(4, 2, source)};
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(OP_COUNT)
+  public void concat() {
+    for (int i = 0; i < OP_COUNT; i++) {
+      final TaintedObject taintedLeft = taintedObjects.get(left);
+      final TaintedObject taintedRight = taintedObjects.get(right);
+      if (taintedLeft != null || taintedRight != null) {
+        taintedObjects.taintConcat(results[i], taintedLeft, left.length(), taintedRight);
+      }
+    }
+  }
+}
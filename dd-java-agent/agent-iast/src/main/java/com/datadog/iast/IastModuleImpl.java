@@ -2,14 +2,12 @@ package com.datadog.iast;
 
 import com.datadog.iast.model.Evidence;
 import com.datadog.iast.model.Location;
-import com.datadog.iast.model.Range;
 import com.datadog.iast.model.Source;
 import com.datadog.iast.model.SourceType;
 import com.datadog.iast.model.Vulnerability;
 import com.datadog.iast.model.VulnerabilityType;
 import com.datadog.iast.overhead.Operations;
 import com.datadog.iast.overhead.OverheadController;
-import com.datadog.iast.taint.Ranges;
 import com.datadog.iast.taint.TaintedObject;
 import com.datadog.iast.taint.TaintedObjects;
 import datadog.trace.api.Config;
@@ -23,6 +21,9 @@ import javax.annotation.Nullable;
 
 public final class IastModuleImpl implements IastModule {
 
+  /** Length of {@code "null"}, which is what a {@code null} operand is concatenated as. */
+  private static final int NULL_LENGTH = 4;
+
   private final Config config;
   private final Reporter reporter;
   private final OverheadController overheadController;
@@ -124,7 +125,7 @@ public final class IastModuleImpl implements IastModule {
 
   @Override
   public void onConcat(
-      @Nullable String left, @Nullable String right, final @Nullable String result) {
+      final @Nullable String left, final @Nullable String right, final @Nullable String result) {
     if (!canBeTainted(result)) {
       return;
     }
@@ -136,37 +137,18 @@ public final class IastModuleImpl implements IastModule {
       return;
     }
     final TaintedObjects taintedObjects = ctx.getTaintedObjects();
-    final Range[] rangesLeft;
-    if (left == null) {
-      rangesLeft = Ranges.EMPTY;
-      left = "null";
-    } else {
-      final TaintedObject to = taintedObjects.get(left);
-      rangesLeft = (to == null) ? Ranges.EMPTY : to.getRanges();
-    }
-    final Range[] rangesRight;
+    final TaintedObject taintedLeft = left == null ? null : taintedObjects.get(left);
+    final TaintedObject taintedRight;
     if (left == right) {
-      rangesRight = rangesLeft;
-    } else if (right == null) {
-      rangesRight = Ranges.EMPTY;
-      right = "null";
+      taintedRight = taintedLeft;
     } else {
-      final TaintedObject to = taintedObjects.get(right);
-      rangesRight = (to == null) ? Ranges.EMPTY : to.getRanges();
+      taintedRight = right == null ? null : taintedObjects.get(right);
     }
-    final int nRanges = rangesLeft.length + rangesRight.length;
-    if (nRanges == 0) {
+    if (taintedLeft == null && taintedRight == null) {
       return;
     }
-    final Range[] ranges = new Range[nRanges];
-    if (rangesLeft.length > 0) {
-      System.arraycopy(rangesLeft, 0, ranges, 0, rangesLeft.length);
-    }
-    if (rangesRight.length > 0) {
-      final int offset = left.length();
-      Ranges.copyShift(rangesRight, ranges, rangesLeft.length, offset);
-    }
-    taintedObjects.taint(result, ranges);
+    final int offset = left == null ? NULL_LENGTH : left.length();
+    taintedObjects.taintConcat(result, taintedLeft, offset, taintedRight);
   }
 
   private static boolean canBeTainted(final String s) {
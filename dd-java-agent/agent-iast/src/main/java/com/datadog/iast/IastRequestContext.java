@@ -16,6 +16,7 @@ public class IastRequestContext {
   private final AtomicBoolean spanDataIsSet;
   private final TaintedObjects taintedObjects;
   private final OverheadContext overheadContext;
+  private volatile boolean skipped;
 
   public IastRequestContext() {
     this.vulnerabilityBatch = new VulnerabilityBatch();
@@ -40,6 +41,18 @@ public class IastRequestContext {
     return taintedObjects;
   }
 
+  /**
+   * Stops analyzing the request, when the overhead controller decides against it after the request
+   * started. The context can no longer be looked up afterwards.
+   */
+  public void skip() {
+    skipped = true;
+  }
+
+  public boolean isSkipped() {
+    return skipped;
+  }
+
   @Nullable
   public static IastRequestContext get() {
     return get(AgentTracer.activeSpan());
@@ -58,6 +71,7 @@ public class IastRequestContext {
     if (reqCtx == null) {
       return null;
     }
-    return reqCtx.getData(RequestContextSlot.IAST);
+    final IastRequestContext ctx = reqCtx.getData(RequestContextSlot.IAST);
+    return ctx == null || ctx.skipped ? null : ctx;
   }
 }
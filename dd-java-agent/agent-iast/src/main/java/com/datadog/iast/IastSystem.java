@@ -1,9 +1,13 @@
 package com.datadog.iast;
 
+import com.datadog.iast.overhead.EndpointOverheadController;
 import com.datadog.iast.overhead.OverheadController;
+import datadog.communication.ddagent.SharedCommunicationObjects;
+import datadog.communication.monitor.Monitoring;
 import datadog.trace.api.Config;
 import datadog.trace.api.function.BiFunction;
 import datadog.trace.api.function.Supplier;
+import datadog.trace.api.function.TriFunction;
 import datadog.trace.api.gateway.EventType;
 import datadog.trace.api.gateway.Events;
 import datadog.trace.api.gateway.Flow;
@@ -12,7 +16,10 @@ import datadog.trace.api.gateway.RequestContext;
 import datadog.trace.api.gateway.SubscriptionService;
 import datadog.trace.api.iast.IastModule;
 import datadog.trace.api.iast.InstrumentationBridge;
+import datadog.trace.api.time.SystemTimeSource;
+import datadog.trace.bootstrap.instrumentation.api.URIDataAdapter;
 import datadog.trace.util.AgentTaskScheduler;
+import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -21,6 +28,11 @@ public class IastSystem {
   private static final Logger log = LoggerFactory.getLogger(IastSystem.class);
 
   public static void start(final SubscriptionService ss) {
+    start(ss, null);
+  }
+
+  public static void start(
+      final SubscriptionService ss, final @Nullable SharedCommunicationObjects sco) {
     final Config config = Config.get();
     if (!config.isIastEnabled()) {
       log.debug("IAST is disabled");
@@ -29,12 +41,23 @@ public class IastSystem {
     log.debug("IAST is starting");
 
     final Reporter reporter = new Reporter(config);
-    final OverheadController overheadController =
-        new OverheadController(config, AgentTaskScheduler.INSTANCE);
+    final OverheadController overheadController;
+    if (config.isIastEndpointSamplingEnabled()) {
+      final Monitoring monitoring =
+          sco != null && sco.monitoring != null ? sco.monitoring : Monitoring.DISABLED;
+      overheadController =
+          new EndpointOverheadController(
+              config, AgentTaskScheduler.INSTANCE, SystemTimeSource.INSTANCE, monitoring);
+    } else {
+      overheadController = new OverheadController(config, AgentTaskScheduler.INSTANCE);
+    }
     final IastModule iastModule = new IastModuleImpl(config, reporter, overheadController);
     InstrumentationBridge.registerIastModule(iastModule);
     registerRequestStartedCallback(ss, overheadController);
     registerRequestEndedCallback(ss, overheadController);
+    if (config.isIastEndpointSamplingEnabled()) {
+      registerRequestMethodUriRawCallback(ss, overheadController);
+    }
     log.debug("IAST started");
   }
 
@@ -50,4 +73,11 @@ public class IastSystem {
         Events.get().requestEnded();
     ss.registerCallback(event, new RequestEndedHandler(overheadController));
   }
+
+  private static void registerRequestMethodUriRawCallback(
+      final SubscriptionService ss, final OverheadController overheadController) {
+    final EventType<TriFunction<RequestContext, String, URIDataAdapter, Flow<Void>>> event =
+        Events.get().requestMethodUriRaw();
+    ss.registerCallback(event, new RequestMethodUriRawHandler(overheadController));
+  }
 }
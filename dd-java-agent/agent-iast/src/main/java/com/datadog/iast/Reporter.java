@@ -38,7 +38,7 @@ public class Reporter {
       return;
     }
     final IastRequestContext ctx = reqCtx.getData(RequestContextSlot.IAST);
-    if (ctx == null) {
+    if (ctx == null || ctx.isSkipped()) {
       return;
     }
     if (duplicated.test(vulnerability)) {
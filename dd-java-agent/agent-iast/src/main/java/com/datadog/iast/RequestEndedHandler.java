@@ -18,12 +18,18 @@ public class RequestEndedHandler implements BiFunction<RequestContext, IGSpanInf
 
   @Override
   public Flow<Void> apply(final RequestContext requestContext, final IGSpanInfo igSpanInfo) {
-    if (requestContext != null && requestContext.getData(RequestContextSlot.IAST) != null) {
-      final TraceSegment traceSeg = requestContext.getTraceSegment();
-      if (traceSeg != null) {
-        traceSeg.setTagTop("_dd.iast.enabled", 1);
+    // skipped requests were already released, but their taints still have to be
+    final IastRequestContext iastRequestContext =
+        requestContext == null ? null : requestContext.getData(RequestContextSlot.IAST);
+    if (iastRequestContext != null) {
+      if (!iastRequestContext.isSkipped()) {
+        final TraceSegment traceSeg = requestContext.getTraceSegment();
+        if (traceSeg != null) {
+          traceSeg.setTagTop("_dd.iast.enabled", 1);
+        }
+        overheadController.releaseRequest();
       }
-      overheadController.releaseRequest();
+      iastRequestContext.getTaintedObjects().release();
     }
     return Flow.ResultFlow.empty();
   }
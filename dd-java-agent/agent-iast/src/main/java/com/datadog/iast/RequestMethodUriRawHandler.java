@@ -0,0 +1,29 @@
+package com.datadog.iast;
+
+import com.datadog.iast.overhead.OverheadController;
+import datadog.trace.api.function.TriFunction;
+import datadog.trace.api.gateway.Flow;
+import datadog.trace.api.gateway.RequestContext;
+import datadog.trace.bootstrap.instrumentation.api.URIDataAdapter;
+
+public class RequestMethodUriRawHandler
+    implements TriFunction<RequestContext, String, URIDataAdapter, Flow<Void>> {
+
+  private final OverheadController overheadController;
+
+  public RequestMethodUriRawHandler(final OverheadController overheadController) {
+    this.overheadController = overheadController;
+  }
+
+  @Override
+  public Flow<Void> apply(
+      final RequestContext requestContext, final String method, final URIDataAdapter uri) {
+    final IastRequestContext iastRequestContext = IastRequestContext.get(requestContext);
+    if (iastRequestContext != null
+        && !overheadController.acquireEndpoint(method, uri == null ? null : uri.path())) {
+      iastRequestContext.skip();
+      overheadController.releaseRequest();
+    }
+    return Flow.ResultFlow.empty();
+  }
+}
@@ -0,0 +1,107 @@
+package com.datadog.iast.overhead;
+
+import datadog.communication.monitor.Counter;
+import datadog.communication.monitor.Monitoring;
+import datadog.trace.api.Config;
+import datadog.trace.api.cache.DDCache;
+import datadog.trace.api.cache.DDCaches;
+import datadog.trace.api.function.Function;
+import datadog.trace.api.time.TimeSource;
+import datadog.trace.util.AgentTaskScheduler;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link OverheadController} which shares the analysis budget between endpoints, instead of
+ * sampling requests regardless of what they hit.
+ *
+ * <p>Requests are only held to the concurrency limit when they start. Once their method and path
+ * are known, a request is analyzed if the share of analyzed requests of its endpoint over the last
+ * minute is below the configured sampling percentage. Endpoints that are seldom hit, or that have
+ * not been seen recently, get their next request analyzed, while busy endpoints are kept around
+ * the sampling percentage.
+ */
+public class EndpointOverheadController extends OverheadController {
+
+  static final int WINDOW_BUCKETS = 6;
+  static final long BUCKET_NANOS = TimeUnit.SECONDS.toNanos(10);
+  private static final int MAX_ENDPOINTS = 1024;
+
+  private static final Function<String, SlidingWindow> NEW_WINDOW =
+      new Function<String, SlidingWindow>() {
+        @Override
+        public SlidingWindow apply(final String endpoint) {
+          return new SlidingWindow(WINDOW_BUCKETS);
+        }
+      };
+
+  private final float targetShare;
+  private final TimeSource timeSource;
+  // busy endpoints keep their window even when many distinct endpoints are seen
+  private final DDCache<String, SlidingWindow> endpoints =
+      DDCaches.newFixedSizeLfuCache(MAX_ENDPOINTS);
+
+  private final Counter analyzedRequests;
+  private final Counter skippedRequests;
+
+  public EndpointOverheadController(
+      final Config config,
+      final AgentTaskScheduler taskScheduler,
+      final TimeSource timeSource,
+      final Monitoring monitoring) {
+    super(config, taskScheduler);
+    final float share = 1f / computeSamplingParameter(config.getIastRequestSampling());
+    // at 100% every request is analyzed, even though the analyzed share then stays at 1
+    this.targetShare = share >= 1 ? Float.MAX_VALUE : share;
+    this.timeSource = timeSource;
+    this.analyzedRequests = monitoring.newCounter("_dd.java.iast.endpoint_sampling.analyzed");
+    this.skippedRequests = monitoring.newCounter("_dd.java.iast.endpoint_sampling.skipped");
+  }
+
+  /** Requests are sampled per endpoint later on, so only the concurrency limit applies here. */
+  @Override
+  public boolean acquireRequest() {
+    return acquireConcurrentRequest();
+  }
+
+  @Override
+  public boolean acquireEndpoint(final String method, final String path) {
+    final int bucket = (int) (timeSource.getNanoTicks() / BUCKET_NANOS);
+    final SlidingWindow window = endpoints.computeIfAbsent(endpoint(method, path), NEW_WINDOW);
+    final boolean analyze = window.record(bucket, targetShare);
+    if (analyze) {
+      analyzedRequests.increment(1);
+    } else {
+      skippedRequests.increment(1);
+    }
+    return analyze;
+  }
+
+  /** Groups paths which only differ by identifiers, which are the segments with digits. */
+  static String endpoint(final String method, final String path) {
+    final StringBuilder endpoint = new StringBuilder(method == null ? "" : method).append(' ');
+    if (path == null || path.isEmpty()) {
+      return endpoint.append('/').toString();
+    }
+    int start = 0;
+    while (start < path.length()) {
+      int end = path.indexOf('/', start);
+      if (end < 0) {
+        end = path.length();
+      }
+      boolean identifier = false;
+      for (int i = start; i < end && !identifier; i++) {
+        identifier = Character.isDigit(path.charAt(i));
+      }
+      if (identifier) {
+        endpoint.append('?');
+      } else {
+        endpoint.append(path, start, end);
+      }
+      if (end < path.length()) {
+        endpoint.append('/');
+      }
+      start = end + 1;
+    }
+    return endpoint.toString();
+  }
+}
@@ -34,6 +34,19 @@ public class OverheadController {
       // Skipped by sampling
       return false;
     }
+    return acquireConcurrentRequest();
+  }
+
+  /**
+   * Decides whether an acquired request is analyzed, once its endpoint is known. Requests which are
+   * not must be released by the caller. Requests are already sampled when acquired, so this accepts
+   * all of them.
+   */
+  public boolean acquireEndpoint(final String method, final String path) {
+    return true;
+  }
+
+  final boolean acquireConcurrentRequest() {
     if (availableRequests.get() <= 0) {
       return false;
     }
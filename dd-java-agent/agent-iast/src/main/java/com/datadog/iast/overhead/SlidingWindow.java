@@ -0,0 +1,100 @@
+package com.datadog.iast.overhead;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts of seen and analyzed requests over the last few time buckets, updated without locks.
+ *
+ * <p>Each bucket is a single {@code long} holding its bucket number in the high 32 bits and its
+ * two counts in 16 bits each, so a bucket that is reused for a newer bucket number is reset and
+ * updated with the same CAS. Only the current bucket is ever updated, so a CAS on it also makes
+ * sure that the window hasn't changed since a decision was made from its counts.
+ */
+final class SlidingWindow {
+
+  private static final int MAX_COUNT = 0xFFFF;
+
+  private final AtomicLongArray buckets;
+
+  SlidingWindow(final int size) {
+    buckets = new AtomicLongArray(size);
+    // mark every bucket as stale, bucket numbers are relative to the current time
+    for (int i = 0; i < size; i++) {
+      buckets.set(i, pack(Integer.MIN_VALUE, 0, 0));
+    }
+  }
+
+  /**
+   * Records a request seen during the given bucket, which is analyzed if the share of analyzed
+   * requests in the window is below the target. The decision and the counts are updated with a
+   * single CAS, so concurrent requests can't all be analyzed on the same share.
+   *
+   * @return whether the request is analyzed
+   */
+  boolean record(final int bucket, final float targetShare) {
+    final int index = indexOf(bucket);
+    while (true) {
+      final long current = buckets.get(index);
+      final boolean analyze = analyzedShare(bucket, index, current) < targetShare;
+      int seen = 0;
+      int analyzed = 0;
+      if (bucketOf(current) == bucket) {
+        seen = seenOf(current);
+        analyzed = analyzedOf(current);
+        if (seen == MAX_COUNT) {
+          // saturated, halve both counts so that the share keeps following the decisions
+          seen >>>= 1;
+          analyzed >>>= 1;
+        }
+      }
+      final long updated = pack(bucket, seen + 1, analyze ? analyzed + 1 : analyzed);
+      if (buckets.compareAndSet(index, current, updated)) {
+        return analyze;
+      }
+    }
+  }
+
+  /**
+   * @return share of the requests seen in the window ending with the given bucket which were
+   *     analyzed, or {@code 0} if none was seen
+   */
+  float analyzedShare(final int bucket) {
+    final int index = indexOf(bucket);
+    return analyzedShare(bucket, index, buckets.get(index));
+  }
+
+  /** Same as {@link #analyzedShare(int)}, with the value of the current bucket already read. */
+  private float analyzedShare(final int bucket, final int index, final long current) {
+    int seen = 0;
+    int analyzed = 0;
+    for (int i = 0; i < buckets.length(); i++) {
+      final long packed = i == index ? current : buckets.get(i);
+      final int age = bucket - bucketOf(packed);
+      if (age >= 0 && age < buckets.length()) {
+        seen += seenOf(packed);
+        analyzed += analyzedOf(packed);
+      }
+    }
+    return seen == 0 ? 0 : (float) analyzed / seen;
+  }
+
+  private int indexOf(final int bucket) {
+    return Math.abs(bucket % buckets.length());
+  }
+
+  private static long pack(final int bucket, final int seen, final int analyzed) {
+    return ((long) bucket << 32) | ((long) seen << 16) | analyzed;
+  }
+
+  private static int bucketOf(final long packed) {
+    return (int) (packed >> 32);
+  }
+
+  private static int seenOf(final long packed) {
+    return (int) (packed >>> 16) & MAX_COUNT;
+  }
+
+  private static int analyzedOf(final long packed) {
+    return (int) packed & MAX_COUNT;
+  }
+}
@@ -0,0 +1,404 @@
+package com.datadog.iast.taint;
+
+import static com.datadog.iast.taint.DefaultTaintedMap.POSITIVE_MASK;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * {@link TaintedMap} for high concurrency scenarios, which grows with the number of entries instead
+ * of switching to a lossy mode.
+ *
+ * <p>The hash table is split in segments, each with its own lock and table. Puts and removals lock
+ * the segment they touch, so no put is lost, and a segment doubles its table when it gets too
+ * loaded, so resizing is incremental: it only ever blocks puts into a single segment. Gets don't
+ * lock. Entries are held in immutable chains of nodes, as in the JDK 7 {@code ConcurrentHashMap}:
+ * resizes and removals copy the nodes they would otherwise relink, so a get walking a chain never
+ * sees it change under it.
+ *
+ * <p>Memory is bounded by a <i>maximum capacity</i>. Once a segment has reached it, garbage
+ * collected entries are purged first, and if that's not enough then a put to a non-empty bucket
+ * evicts the oldest entry of that bucket.
+ *
+ * <p>Maps which only live as long as a request can do without a reference queue, see {@link
+ * #requestScoped()}.
+ */
+public final class ConcurrentTaintedMap implements TaintedMap {
+
+  /** Default initial capacity, for all the segments. It MUST be a power of 2. */
+  public static final int DEFAULT_INITIAL_CAPACITY = 1 << 8;
+  /** Default maximum capacity, for all the segments. It MUST be a power of 2. */
+  public static final int DEFAULT_MAX_CAPACITY = 1 << 17;
+  /** Number of segments, as a power of 2. */
+  private static final int SEGMENT_BITS = 4;
+  /** Periodicity of table purges, as number of put operations. It MUST be a power of two. */
+  private static final int PURGE_COUNT = 1 << 6;
+  /** Bitmask for fast modulo with PURGE_COUNT. */
+  private static final int PURGE_MASK = PURGE_COUNT - 1;
+
+  private final Segment[] segments;
+  /** Capacity of each segment's table after which it stops resizing. */
+  private final int maxSegmentCapacity;
+  /** Flag to ensure we do not run multiple purges concurrently. */
+  private final AtomicBoolean isPurging = new AtomicBoolean(false);
+  /** Reference queue for garbage-collected entries, or {@code null} if they aren't purged. */
+  @Nullable private final ReferenceQueue<Object> referenceQueue;
+
+  /**
+   * Default constructor. Uses {@link #DEFAULT_INITIAL_CAPACITY} and {@link #DEFAULT_MAX_CAPACITY}.
+   */
+  public ConcurrentTaintedMap() {
+    this(DEFAULT_INITIAL_CAPACITY, DEFAULT_MAX_CAPACITY);
+  }
+
+  /**
+   * Creates a map for the taints of a single request, which is cleared in bulk when the request
+   * ends. Its entries are not registered with a reference queue, which saves the garbage collector
+   * from enqueuing them and puts from polling them. Entries whose keys have been collected are
+   * still dropped when a segment resizes or evicts.
+   */
+  public static ConcurrentTaintedMap requestScoped() {
+    return new ConcurrentTaintedMap(DEFAULT_INITIAL_CAPACITY, DEFAULT_MAX_CAPACITY, false);
+  }
+
+  /**
+   * Create a new hash map with the given initial and maximum capacities.
+   *
+   * @param initialCapacity Initial capacity for all the segments. It must be a power of 2.
+   * @param maxCapacity Maximum capacity for all the segments. It must be a power of 2.
+   */
+  ConcurrentTaintedMap(final int initialCapacity, final int maxCapacity) {
+    this(initialCapacity, maxCapacity, true);
+  }
+
+  private ConcurrentTaintedMap(
+      final int initialCapacity, final int maxCapacity, final boolean purgeCollected) {
+    referenceQueue = purgeCollected ? new ReferenceQueue<>() : null;
+    segments = new Segment[1 << SEGMENT_BITS];
+    final int initialSegmentCapacity = Math.max(2, initialCapacity >> SEGMENT_BITS);
+    maxSegmentCapacity = Math.max(initialSegmentCapacity, maxCapacity >> SEGMENT_BITS);
+    for (int i = 0; i < segments.length; i++) {
+      segments[i] = new Segment(initialSegmentCapacity);
+    }
+  }
+
+  /**
+   * Returns the {@link TaintedObject} for the given input object.
+   *
+   * @param key Key object.
+   * @return The {@link TaintedObject} if it exists, {@code null} otherwise.
+   */
+  @Override
+  @Nullable
+  public TaintedObject get(final @Nonnull Object key) {
+    final int hash = System.identityHashCode(key) & POSITIVE_MASK;
+    final Segment segment = segmentFor(hash);
+    if (segment.count == 0) {
+      return null;
+    }
+    final Node[] table = segment.table;
+    for (Node node = table[hash & (table.length - 1)]; node != null; node = node.next) {
+      if (key == node.entry.get()) {
+        return node.entry;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Put a new {@link TaintedObject} in the hash table.
+   *
+   * @param entry Tainted object.
+   */
+  @Override
+  public void put(final @Nonnull TaintedObject entry) {
+    final int hash = entry.positiveHashCode;
+    final Segment segment = segmentFor(hash);
+    // purges lock other segments, so they must happen before locking this one
+    if (referenceQueue != null
+        && ((hash & PURGE_MASK) == 0 || segment.isFull(maxSegmentCapacity))) {
+      purge();
+    }
+    synchronized (segment) {
+      segment.put(entry, maxSegmentCapacity);
+    }
+  }
+
+  /**
+   * Purge entries that have been garbage collected. Only one concurrent call to this method is
+   * allowed, further concurrent calls will be ignored.
+   */
+  void purge() {
+    final ReferenceQueue<Object> queue = referenceQueue;
+    // Ensure we enter only once concurrently.
+    if (queue == null || !isPurging.compareAndSet(false, true)) {
+      return;
+    }
+
+    try {
+      // Remove GC'd entries.
+      Reference<?> ref;
+      while ((ref = queue.poll()) != null) {
+        if (!(ref instanceof TaintedObject)) {
+          continue;
+        }
+        final TaintedObject entry = (TaintedObject) ref;
+        final Segment segment = segmentFor(entry.positiveHashCode);
+        synchronized (segment) {
+          segment.remove(entry);
+        }
+      }
+    } finally {
+      // Reset purging flag.
+      isPurging.set(false);
+    }
+  }
+
+  /**
+   * Removes all the entries. The segments keep their tables, which are emptied in place rather
+   * than replaced, so clearing doesn't allocate.
+   */
+  @Override
+  public void clear() {
+    for (final Segment segment : segments) {
+      synchronized (segment) {
+        Arrays.fill(segment.table, null);
+        segment.count = 0;
+      }
+    }
+    if (referenceQueue != null) {
+      // the entries are gone already, and any collected later are no longer in a segment to purge
+      while (referenceQueue.poll() != null) {}
+    }
+  }
+
+  @Override
+  @Nullable
+  public ReferenceQueue<Object> getReferenceQueue() {
+    return referenceQueue;
+  }
+
+  private Segment segmentFor(final int hash) {
+    // use the high bits for segments, as tables are indexed with the low bits
+    return segments[(hash * 0x9E3779B9) >>> (32 - SEGMENT_BITS)];
+  }
+
+  @Override
+  public Iterator<TaintedObject> iterator() {
+    return new Iterator<TaintedObject>() {
+      int segmentIndex = 0;
+      Node[] table = segments[0].table;
+      int currentIndex = 0;
+      Node currentSubPos;
+
+      @Override
+      public boolean hasNext() {
+        if (currentSubPos != null) {
+          return true;
+        }
+        while (true) {
+          for (; currentIndex < table.length; currentIndex++) {
+            if (table[currentIndex] != null) {
+              return true;
+            }
+          }
+          if (segmentIndex + 1 >= segments.length) {
+            return false;
+          }
+          table = segments[++segmentIndex].table;
+          currentIndex = 0;
+        }
+      }
+
+      @Override
+      public TaintedObject next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        if (currentSubPos != null) {
+          final Node toReturn = currentSubPos;
+          currentSubPos = toReturn.next;
+          return toReturn.entry;
+        }
+        final Node node = table[currentIndex++];
+        currentSubPos = node.next;
+        return node.entry;
+      }
+    };
+  }
+
+  /** Testing only. */
+  int count() {
+    int count = 0;
+    for (final Segment segment : segments) {
+      count += segment.count;
+    }
+    return count;
+  }
+
+  /** Testing only. */
+  int capacity() {
+    int capacity = 0;
+    for (final Segment segment : segments) {
+      capacity += segment.table.length;
+    }
+    return capacity;
+  }
+
+  /**
+   * Link in the chain of a bucket. Chains are never changed in place, and the final fields make sure
+   * gets see whole nodes even though tables are written without synchronization.
+   */
+  private static final class Node {
+    final TaintedObject entry;
+    final Node next;
+
+    Node(final TaintedObject entry, final Node next) {
+      this.entry = entry;
+      this.next = next;
+    }
+  }
+
+  /** Hash table for a subset of the hashes. All changes happen while holding its lock. */
+  private static final class Segment {
+    volatile Node[] table;
+    /** Written after each change, so that gets which read it first see the changes. */
+    volatile int count;
+
+    Segment(final int capacity) {
+      table = new Node[capacity];
+    }
+
+    /** Is the table over its load factor of 3/4 and not allowed to grow? */
+    boolean isFull(final int maxCapacity) {
+      final int capacity = table.length;
+      return capacity >= maxCapacity && count >= capacity - (capacity >> 2);
+    }
+
+    void put(final TaintedObject entry, final int maxCapacity) {
+      Node[] tab = table;
+      int newCount = count + 1;
+      if (newCount > tab.length - (tab.length >> 2)) {
+        if (tab.length < maxCapacity) {
+          tab = resize(tab);
+          newCount = count + 1;
+        } else {
+          newCount -= evictFrom(tab, entry.positiveHashCode & (tab.length - 1));
+        }
+      }
+      // By default, add the new entry to the head of the chain.
+      // We do not control duplicate keys (although we expect they are generally not used).
+      final int index = entry.positiveHashCode & (tab.length - 1);
+      tab[index] = new Node(entry, tab[index]);
+      count = newCount;
+    }
+
+    /**
+     * Doubles the table, dropping garbage collected entries along the way. The nodes are copied,
+     * except for the tail of each chain which all goes to the same bucket, so gets still walking
+     * the old table find all of its entries.
+     */
+    private Node[] resize(final Node[] oldTable) {
+      final Node[] newTable = new Node[oldTable.length << 1];
+      final int mask = newTable.length - 1;
+      int removed = 0;
+      for (final Node head : oldTable) {
+        if (head == null) {
+          continue;
+        }
+        Node lastRun = head;
+        int lastRunIndex = head.entry.positiveHashCode & mask;
+        for (Node node = head.next; node != null; node = node.next) {
+          final int index = node.entry.positiveHashCode & mask;
+          if (index != lastRunIndex) {
+            lastRunIndex = index;
+            lastRun = node;
+          }
+        }
+        // each bucket of the new table only takes entries from a single bucket of the old one
+        newTable[lastRunIndex] = lastRun;
+        for (Node node = head; node != lastRun; node = node.next) {
+          if (node.entry.get() == null) {
+            removed++;
+          } else {
+            final int index = node.entry.positiveHashCode & mask;
+            newTable[index] = new Node(node.entry, newTable[index]);
+          }
+        }
+      }
+      table = newTable;
+      count -= removed;
+      return newTable;
+    }
+
+    /**
+     * Makes room in a bucket of a full table: drops its garbage collected entries, or if there are
+     * none, its oldest entry.
+     *
+     * @return Number of removed elements.
+     */
+    private static int evictFrom(final Node[] tab, final int index) {
+      final int removed = removeFrom(tab, index, null);
+      if (removed > 0 || tab[index] == null) {
+        return removed;
+      }
+      Node oldest = tab[index];
+      while (oldest.next != null) {
+        oldest = oldest.next;
+      }
+      return removeFrom(tab, index, oldest.entry);
+    }
+
+    void remove(final TaintedObject entry) {
+      final Node[] tab = table;
+      final int removed = removeFrom(tab, entry.positiveHashCode & (tab.length - 1), entry);
+      // If nothing was removed, the entry was already removed by a resize or an eviction.
+      if (removed > 0) {
+        count = count - removed;
+      }
+    }
+
+    /**
+     * Removes an entry from a bucket, or its garbage collected entries if the given entry is {@code
+     * null}. The nodes ahead of the last removed one are copied into a new chain, keeping their
+     * order, and the nodes after it are shared with the old chain.
+     *
+     * @return Number of removed elements.
+     */
+    private static int removeFrom(
+        final Node[] tab, final int index, @Nullable final TaintedObject entry) {
+      Node lastRemoved = null;
+      int ahead = 0;
+      int length = 0;
+      for (Node node = tab[index]; node != null; node = node.next) {
+        if (entry == null ? node.entry.get() == null : node.entry == entry) {
+          lastRemoved = node;
+          ahead = length;
+        }
+        length++;
+      }
+      if (lastRemoved == null) {
+        return 0;
+      }
+      final TaintedObject[] kept = new TaintedObject[ahead];
+      int keptCount = 0;
+      for (Node node = tab[index]; node != lastRemoved; node = node.next) {
+        if (entry == null ? node.entry.get() != null : node.entry != entry) {
+          kept[keptCount++] = node.entry;
+        }
+      }
+      Node chain = lastRemoved.next;
+      for (int i = keptCount - 1; i >= 0; i--) {
+        chain = new Node(kept[i], chain);
+      }
+      tab[index] = chain;
+      return 1 + ahead - keptCount;
+    }
+  }
+}
@@ -0,0 +1,76 @@
+package com.datadog.iast.taint;
+
+/**
+ * Utilities to work with ranges packed in a single {@code long}, which refer to their source by
+ * its index in the request's {@link TaintedSources}.
+ *
+ * <p>The start and the length take 26 bits each, so packed ranges cover the first 64M characters
+ * of a string, and the source index takes the remaining 12 bits.
+ */
+final class PackedRanges {
+
+  /** Returned instead of a range that cannot be packed. It is not a valid range itself. */
+  static final long INVALID = -1L;
+  /** Exclusive upper bound for the end of a range. */
+  static final int MAX_END = 1 << 26;
+  /** Exclusive upper bound for source indexes. */
+  static final int MAX_SOURCES = 1 << 12;
+
+  static final long[] EMPTY = new long[0];
+
+  private static final int START_SHIFT = 38;
+  private static final int LENGTH_SHIFT = 12;
+  private static final long LENGTH_MASK = MAX_END - 1;
+  private static final long SOURCE_MASK = MAX_SOURCES - 1;
+
+  private PackedRanges() {}
+
+  /** @return whether a range with this start and length can be packed */
+  static boolean fits(final int start, final int length) {
+    return start >= 0 && length >= 0 && length < MAX_END && start < MAX_END - length;
+  }
+
+  /** @return the packed range, or {@link #INVALID} if it cannot be packed */
+  static long pack(final int start, final int length, final int sourceIndex) {
+    if (!fits(start, length) || sourceIndex < 0 || sourceIndex >= MAX_SOURCES) {
+      return INVALID;
+    }
+    return ((long) start << START_SHIFT) | ((long) length << LENGTH_SHIFT) | sourceIndex;
+  }
+
+  static int start(final long range) {
+    return (int) (range >>> START_SHIFT);
+  }
+
+  static int length(final long range) {
+    return (int) ((range >>> LENGTH_SHIFT) & LENGTH_MASK);
+  }
+
+  static int sourceIndex(final long range) {
+    return (int) (range & SOURCE_MASK);
+  }
+
+  /** @return the range moved by the given offset, or {@link #INVALID} if it doesn't fit */
+  static long shift(final long range, final int offset) {
+    if (offset == 0) {
+      return range;
+    }
+    return pack(start(range) + offset, length(range), sourceIndex(range));
+  }
+
+  /**
+   * Copies the ranges moved by the given offset.
+   *
+   * @return {@code false} if any of the ranges doesn't fit once moved
+   */
+  static boolean copyShift(final long[] src, final long[] dst, final int dstPos, final int offset) {
+    for (int iSrc = 0, iDst = dstPos; iSrc < src.length; iSrc++, iDst++) {
+      final long shifted = shift(src[iSrc], offset);
+      if (shifted == INVALID) {
+        return false;
+      }
+      dst[iDst] = shifted;
+    }
+    return true;
+  }
+}
@@ -0,0 +1,68 @@
+package com.datadog.iast.taint;
+
+import com.datadog.iast.model.Range;
+import java.lang.ref.ReferenceQueue;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * {@link TaintedObject} which keeps its ranges packed, see {@link PackedRanges}. A single range is
+ * kept in a field, so that propagating it doesn't allocate any array. Range arrays are never
+ * mutated, so they are shared between objects whenever the ranges don't move.
+ */
+final class PackedTaintedObject extends TaintedObject {
+
+  /** The only range, unless {@link #packedRanges} is set. */
+  final long packedRange;
+  /** All the ranges, or {@code null} if there is only one. */
+  @Nullable final long[] packedRanges;
+
+  final TaintedSources sources;
+
+  PackedTaintedObject(
+      final @Nonnull Object obj,
+      final long packedRange,
+      final @Nonnull TaintedSources sources,
+      final @Nullable ReferenceQueue<Object> queue) {
+    super(obj, Ranges.EMPTY, queue);
+    this.packedRange = packedRange;
+    this.packedRanges = null;
+    this.sources = sources;
+  }
+
+  PackedTaintedObject(
+      final @Nonnull Object obj,
+      final @Nonnull long[] packedRanges,
+      final @Nonnull TaintedSources sources,
+      final @Nullable ReferenceQueue<Object> queue) {
+    super(obj, Ranges.EMPTY, queue);
+    this.packedRange = PackedRanges.INVALID;
+    this.packedRanges = packedRanges;
+    this.sources = sources;
+  }
+
+  int rangeCount() {
+    return packedRanges == null ? 1 : packedRanges.length;
+  }
+
+  /** Unpacks the ranges, which is only expected when reporting. */
+  @Nonnull
+  @Override
+  public Range[] getRanges() {
+    if (packedRanges == null) {
+      return new Range[] {unpack(packedRange)};
+    }
+    final Range[] unpacked = new Range[packedRanges.length];
+    for (int i = 0; i < packedRanges.length; i++) {
+      unpacked[i] = unpack(packedRanges[i]);
+    }
+    return unpacked;
+  }
+
+  private Range unpack(final long packed) {
+    return new Range(
+        PackedRanges.start(packed),
+        PackedRanges.length(packed),
+        sources.get(PackedRanges.sourceIndex(packed)));
+  }
+}
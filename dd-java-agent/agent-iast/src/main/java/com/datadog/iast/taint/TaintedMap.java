@@ -26,5 +26,10 @@ public interface TaintedMap extends Iterable<TaintedObject> {
 
   void clear();
 
+  /**
+   * Queue which entries must be registered with, so that they are purged once their keys have been
+   * garbage-collected. It is {@code null} when the map drops such entries by other means.
+   */
+  @Nullable
   ReferenceQueue<Object> getReferenceQueue();
 }
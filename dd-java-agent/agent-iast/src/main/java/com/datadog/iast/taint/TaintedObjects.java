@@ -3,13 +3,19 @@ package com.datadog.iast.taint;
 import com.datadog.iast.model.Range;
 import com.datadog.iast.model.Source;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
+/**
+ * Tainted objects of a request. Ranges are kept packed, with their sources interned in {@link
+ * TaintedSources}, unless they don't fit, see {@link PackedRanges}.
+ */
 public class TaintedObjects {
 
   private final TaintedMap map;
+  private final TaintedSources sources = new TaintedSources();
 
   public TaintedObjects() {
-    this(new DefaultTaintedMap());
+    this(ConcurrentTaintedMap.requestScoped());
   }
 
   public TaintedObjects(final @Nonnull TaintedMap map) {
@@ -17,14 +23,148 @@ public class TaintedObjects {
   }
 
   public void taintInputString(final @Nonnull String obj, final @Nonnull Source source) {
-    map.put(new TaintedObject(obj, Ranges.forString(obj, source), map.getReferenceQueue()));
+    final long range =
+        PackedRanges.fits(0, obj.length())
+            ? PackedRanges.pack(0, obj.length(), sources.intern(source))
+            : PackedRanges.INVALID;
+    if (range != PackedRanges.INVALID) {
+      map.put(new PackedTaintedObject(obj, range, sources, map.getReferenceQueue()));
+    } else {
+      map.put(new TaintedObject(obj, Ranges.forString(obj, source), map.getReferenceQueue()));
+    }
   }
 
   public void taint(final @Nonnull Object obj, final @Nonnull Range[] ranges) {
-    map.put(new TaintedObject(obj, ranges, map.getReferenceQueue()));
+    final long[] packed = pack(ranges);
+    if (packed == null) {
+      map.put(new TaintedObject(obj, ranges, map.getReferenceQueue()));
+    } else if (packed.length == 1) {
+      map.put(new PackedTaintedObject(obj, packed[0], sources, map.getReferenceQueue()));
+    } else {
+      map.put(new PackedTaintedObject(obj, packed, sources, map.getReferenceQueue()));
+    }
+  }
+
+  /**
+   * Taints the result of concatenating two objects, at least one of them tainted. This doesn't
+   * allocate any ranges when only the left object is tainted, or when only the right one is and it
+   * has a single range.
+   *
+   * @param offset length of the left object, by which the ranges of the right object move
+   */
+  public void taintConcat(
+      final @Nonnull Object result,
+      final @Nullable TaintedObject left,
+      final int offset,
+      final @Nullable TaintedObject right) {
+    if (left == null && right == null) {
+      return;
+    }
+    if (isPacked(left) && isPacked(right)) {
+      final PackedTaintedObject packedLeft = (PackedTaintedObject) left;
+      final PackedTaintedObject packedRight = (PackedTaintedObject) right;
+      if (packedRight == null) {
+        putPacked(result, packedLeft.packedRange, packedLeft.packedRanges);
+        return;
+      }
+      if (packedLeft == null && packedRight.packedRanges == null) {
+        final long shifted = PackedRanges.shift(packedRight.packedRange, offset);
+        if (shifted != PackedRanges.INVALID) {
+          putPacked(result, shifted, null);
+          return;
+        }
+      } else {
+        final int leftCount = packedLeft == null ? 0 : packedLeft.rangeCount();
+        final long[] ranges = new long[leftCount + packedRight.rangeCount()];
+        if (packedLeft != null) {
+          copy(packedLeft, ranges);
+        }
+        final boolean fits;
+        if (packedRight.packedRanges == null) {
+          ranges[leftCount] = PackedRanges.shift(packedRight.packedRange, offset);
+          fits = ranges[leftCount] != PackedRanges.INVALID;
+        } else {
+          fits = PackedRanges.copyShift(packedRight.packedRanges, ranges, leftCount, offset);
+        }
+        if (fits) {
+          putPacked(result, PackedRanges.INVALID, ranges);
+          return;
+        }
+      }
+    }
+    final Range[] rangesLeft = left == null ? Ranges.EMPTY : left.getRanges();
+    final Range[] rangesRight = right == null ? Ranges.EMPTY : right.getRanges();
+    final int nRanges = rangesLeft.length + rangesRight.length;
+    if (nRanges == 0) {
+      return;
+    }
+    final Range[] ranges = new Range[nRanges];
+    if (rangesLeft.length > 0) {
+      System.arraycopy(rangesLeft, 0, ranges, 0, rangesLeft.length);
+    }
+    if (rangesRight.length > 0) {
+      Ranges.copyShift(rangesRight, ranges, rangesLeft.length, offset);
+    }
+    map.put(new TaintedObject(result, ranges, map.getReferenceQueue()));
   }
 
   public TaintedObject get(final @Nonnull Object obj) {
     return map.get(obj);
   }
+
+  /**
+   * Drops all the taints at once, along with the sources of their packed ranges, when the request
+   * which they belong to has ended.
+   */
+  public void release() {
+    map.clear();
+    sources.clear();
+  }
+
+  /** Are the ranges of the object, if any, packed against the sources of this request? */
+  private boolean isPacked(final @Nullable TaintedObject tainted) {
+    return tainted == null
+        || (tainted instanceof PackedTaintedObject
+            && ((PackedTaintedObject) tainted).sources == sources);
+  }
+
+  private void putPacked(final Object obj, final long range, final @Nullable long[] ranges) {
+    if (ranges == null) {
+      map.put(new PackedTaintedObject(obj, range, sources, map.getReferenceQueue()));
+    } else {
+      map.put(new PackedTaintedObject(obj, ranges, sources, map.getReferenceQueue()));
+    }
+  }
+
+  private static void copy(final PackedTaintedObject tainted, final long[] dst) {
+    if (tainted.packedRanges == null) {
+      dst[0] = tainted.packedRange;
+    } else {
+      System.arraycopy(tainted.packedRanges, 0, dst, 0, tainted.packedRanges.length);
+    }
+  }
+
+  /** @return the packed ranges, or {@code null} if any of them cannot be packed */
+  @Nullable
+  private long[] pack(final Range[] ranges) {
+    if (ranges.length == 0) {
+      return null;
+    }
+    // don't intern any source until all the ranges are known to fit, so failures use up no index
+    for (final Range range : ranges) {
+      if (range.getSource() == null || !PackedRanges.fits(range.getStart(), range.getLength())) {
+        return null;
+      }
+    }
+    final long[] packed = new long[ranges.length];
+    for (int i = 0; i < ranges.length; i++) {
+      final Range range = ranges[i];
+      packed[i] =
+          PackedRanges.pack(range.getStart(), range.getLength(), sources.intern(range.getSource()));
+      if (packed[i] == PackedRanges.INVALID) {
+        return null; // too many sources
+      }
+    }
+    return packed;
+  }
 }
@@ -0,0 +1,47 @@
+package com.datadog.iast.taint;
+
+import com.datadog.iast.model.Source;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import javax.annotation.Nonnull;
+
+/**
+ * Sources of the taints of a single request, so that packed ranges can refer to them with a small
+ * index. Equal sources share the same index.
+ */
+final class TaintedSources {
+
+  private final Map<Source, Integer> indexes = new HashMap<>();
+  private Source[] sources = new Source[8];
+
+  /** @return the index of the source, or {@code -1} if there are too many sources to pack */
+  synchronized int intern(final @Nonnull Source source) {
+    final Integer index = indexes.get(source);
+    if (index != null) {
+      return index;
+    }
+    final int size = indexes.size();
+    if (size >= PackedRanges.MAX_SOURCES) {
+      return -1;
+    }
+    if (size == sources.length) {
+      final Source[] grown = new Source[size << 1];
+      System.arraycopy(sources, 0, grown, 0, size);
+      sources = grown;
+    }
+    sources[size] = source;
+    indexes.put(source, size);
+    return size;
+  }
+
+  synchronized Source get(final int index) {
+    return sources[index];
+  }
+
+  /** Forgets all the sources, once no range refers to them anymore. */
+  synchronized void clear() {
+    Arrays.fill(sources, 0, indexes.size(), null);
+    indexes.clear();
+  }
+}
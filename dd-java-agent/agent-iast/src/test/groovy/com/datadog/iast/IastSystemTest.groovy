@@ -19,6 +19,7 @@ class IastSystemTest extends DDSpecification {
     final traceSegment = Mock(TraceSegment)
     final RequestContext reqCtx = Stub(RequestContext) {
       getTraceSegment() >> traceSegment
+      getData(RequestContextSlot.IAST) >> new IastRequestContext()
     }
     final igSpanInfo = Mock(IGSpanInfo)
 
@@ -50,6 +51,25 @@ class IastSystemTest extends DDSpecification {
     noExceptionThrown()
   }
 
+  void 'start with endpoint sampling'() {
+    setup:
+    injectSysConfig('dd.iast.endpoint-sampling.enabled', 'true')
+    rebuildConfig()
+    final ig = new InstrumentationGateway()
+    final ss = Spy(ig.getSubscriptionService(RequestContextSlot.IAST))
+    final cbp = ig.getCallbackProvider(RequestContextSlot.IAST)
+
+    when:
+    IastSystem.start(ss)
+
+    then:
+    1 * ss.registerCallback(Events.get().requestStarted(), _)
+    1 * ss.registerCallback(Events.get().requestEnded(), _)
+    1 * ss.registerCallback(Events.get().requestMethodUriRaw(), _)
+    0 * _
+    cbp.getCallback(Events.get().requestMethodUriRaw()) != null
+  }
+
   void 'start disabled'() {
     setup:
     injectSysConfig('dd.iast.enabled', "false")
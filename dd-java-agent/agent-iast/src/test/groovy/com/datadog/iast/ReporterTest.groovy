@@ -192,6 +192,30 @@ class ReporterTest extends DDSpecification {
     0 * _
   }
 
+  void 'skipped IastRequestContext is not reported'() {
+    given:
+    final Reporter reporter = new Reporter()
+    final ctx = new IastRequestContext()
+    ctx.skip()
+    final reqCtx = Mock(RequestContext)
+    final spanId = DDId.from(123456)
+    final span = Mock(AgentSpan)
+    final v = new Vulnerability(
+      VulnerabilityType.WEAK_HASH,
+      Location.forSpanAndStack(spanId, new StackTraceElement("foo", "foo", "foo", 1)),
+      new Evidence("MD5")
+      )
+
+    when:
+    reporter.report(span, v)
+
+    then:
+    1 * span.getRequestContext() >> reqCtx
+    1 * reqCtx.getData(RequestContextSlot.IAST) >> ctx
+    ctx.getVulnerabilityBatch().getVulnerabilities() == null
+    0 * _
+  }
+
   void 'Vulnerabilities with same type and location are equals'() {
     given:
     final vulnerability1 = new Vulnerability(
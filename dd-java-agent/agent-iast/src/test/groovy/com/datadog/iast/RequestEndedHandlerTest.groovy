@@ -2,6 +2,7 @@ package com.datadog.iast
 
 
 import com.datadog.iast.overhead.OverheadController
+import com.datadog.iast.taint.TaintedObjects
 import datadog.trace.api.TraceSegment
 import datadog.trace.api.gateway.Flow
 import datadog.trace.api.gateway.IGSpanInfo
@@ -16,6 +17,7 @@ class RequestEndedHandlerTest extends DDSpecification {
     final OverheadController overheadController = Mock(OverheadController)
     final handler = new RequestEndedHandler(overheadController)
     final iastCtx = Mock(IastRequestContext)
+    final taintedObjects = Mock(TaintedObjects)
     final TraceSegment traceSegment = Mock(TraceSegment)
     final reqCtx = Mock(RequestContext)
     reqCtx.getTraceSegment() >> traceSegment
@@ -29,9 +31,35 @@ class RequestEndedHandlerTest extends DDSpecification {
     flow.getAction() == Flow.Action.Noop.INSTANCE
     flow.getResult() == null
     1 * reqCtx.getData(RequestContextSlot.IAST) >> iastCtx
+    1 * iastCtx.isSkipped() >> false
     1 * reqCtx.getTraceSegment() >> traceSegment
     1 * traceSegment.setTagTop("_dd.iast.enabled", 1)
     1 * overheadController.releaseRequest()
+    1 * iastCtx.getTaintedObjects() >> taintedObjects
+    1 * taintedObjects.release()
+    0 * _
+  }
+
+  void 'request ends with skipped IAST context'() {
+    given:
+    final OverheadController overheadController = Mock(OverheadController)
+    final handler = new RequestEndedHandler(overheadController)
+    final iastCtx = Mock(IastRequestContext)
+    final taintedObjects = Mock(TaintedObjects)
+    final reqCtx = Mock(RequestContext)
+    final spanInfo = Mock(IGSpanInfo)
+
+    when:
+    def flow = handler.apply(reqCtx, spanInfo)
+
+    then:
+    flow.getAction() == Flow.Action.Noop.INSTANCE
+    flow.getResult() == null
+    1 * reqCtx.getData(RequestContextSlot.IAST) >> iastCtx
+    1 * iastCtx.isSkipped() >> true
+    0 * overheadController.releaseRequest()
+    1 * iastCtx.getTaintedObjects() >> taintedObjects
+    1 * taintedObjects.release()
     0 * _
   }
 
@@ -54,4 +82,19 @@ class RequestEndedHandlerTest extends DDSpecification {
     0 * overheadController.releaseRequest()
     0 * _
   }
+
+  void 'request ends without request context'() {
+    given:
+    final OverheadController overheadController = Mock(OverheadController)
+    final handler = new RequestEndedHandler(overheadController)
+    final spanInfo = Mock(IGSpanInfo)
+
+    when:
+    def flow = handler.apply(null, spanInfo)
+
+    then:
+    flow.getAction() == Flow.Action.Noop.INSTANCE
+    flow.getResult() == null
+    0 * _
+  }
 }
@@ -0,0 +1,81 @@
+package com.datadog.iast
+
+import com.datadog.iast.overhead.OverheadController
+import datadog.trace.api.gateway.Flow
+import datadog.trace.api.gateway.RequestContext
+import datadog.trace.api.gateway.RequestContextSlot
+import datadog.trace.bootstrap.instrumentation.api.URIDataAdapter
+import datadog.trace.test.util.DDSpecification
+
+class RequestMethodUriRawHandlerTest extends DDSpecification {
+
+  void 'request is analyzed'() {
+    given:
+    final OverheadController overheadController = Mock(OverheadController)
+    final handler = new RequestMethodUriRawHandler(overheadController)
+    final iastCtx = new IastRequestContext()
+    final reqCtx = Mock(RequestContext)
+    final uri = Stub(URIDataAdapter) {
+      path() >> '/path'
+    }
+
+    when:
+    def flow = handler.apply(reqCtx, 'GET', uri)
+
+    then:
+    flow.getAction() == Flow.Action.Noop.INSTANCE
+    1 * reqCtx.getData(RequestContextSlot.IAST) >> iastCtx
+    1 * overheadController.acquireEndpoint('GET', '/path') >> true
+    0 * _
+
+    when:
+    def found = IastRequestContext.get(reqCtx)
+
+    then:
+    1 * reqCtx.getData(RequestContextSlot.IAST) >> iastCtx
+    found == iastCtx
+  }
+
+  void 'request is skipped'() {
+    given:
+    final OverheadController overheadController = Mock(OverheadController)
+    final handler = new RequestMethodUriRawHandler(overheadController)
+    final iastCtx = new IastRequestContext()
+    final reqCtx = Mock(RequestContext)
+    final uri = Stub(URIDataAdapter) {
+      path() >> '/path'
+    }
+
+    when:
+    def flow = handler.apply(reqCtx, 'GET', uri)
+
+    then:
+    flow.getAction() == Flow.Action.Noop.INSTANCE
+    1 * reqCtx.getData(RequestContextSlot.IAST) >> iastCtx
+    1 * overheadController.acquireEndpoint('GET', '/path') >> false
+    1 * overheadController.releaseRequest()
+    0 * _
+
+    when:
+    def found = IastRequestContext.get(reqCtx)
+
+    then:
+    1 * reqCtx.getData(RequestContextSlot.IAST) >> iastCtx
+    found == null
+  }
+
+  void 'request without IAST context'() {
+    given:
+    final OverheadController overheadController = Mock(OverheadController)
+    final handler = new RequestMethodUriRawHandler(overheadController)
+    final reqCtx = Mock(RequestContext)
+
+    when:
+    def flow = handler.apply(reqCtx, 'GET', Stub(URIDataAdapter))
+
+    then:
+    flow.getAction() == Flow.Action.Noop.INSTANCE
+    1 * reqCtx.getData(RequestContextSlot.IAST) >> null
+    0 * _
+  }
+}
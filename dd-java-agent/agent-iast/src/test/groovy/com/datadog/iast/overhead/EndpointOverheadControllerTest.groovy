@@ -0,0 +1,172 @@
+package com.datadog.iast.overhead
+
+import datadog.communication.monitor.Counter
+import datadog.communication.monitor.Monitoring
+import datadog.trace.api.Config
+import datadog.trace.api.time.ControllableTimeSource
+import datadog.trace.test.util.DDSpecification
+import datadog.trace.util.AgentTaskScheduler
+
+import java.util.concurrent.Callable
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+
+class EndpointOverheadControllerTest extends DDSpecification {
+
+  def timeSource = new ControllableTimeSource()
+
+  def 'requests are only sampled per endpoint'() {
+    given:
+    def overheadController = newController(30)
+    def maxRequests = Config.get().getIastMaxConcurrentRequests()
+
+    when:
+    def acquired = (1..maxRequests).collect { overheadController.acquireRequest() }
+
+    then:
+    acquired.every { it }
+    !overheadController.acquireRequest()
+  }
+
+  def 'busy endpoints are kept around the sampling percentage'() {
+    given:
+    def overheadController = newController(samplingPct)
+
+    when:
+    def analyzed = (1..300).count { overheadController.acquireEndpoint('GET', '/busy') }
+
+    then:
+    analyzed == expected
+
+    where:
+    samplingPct | expected
+    100         | 300
+    50          | 150
+    30          | 100
+  }
+
+  def 'seldom hit endpoints are analyzed next to busy ones'() {
+    given:
+    def overheadController = newController(30)
+    (1..300).each { overheadController.acquireEndpoint('GET', '/busy') }
+
+    when:
+    def analyzed = (1..3).collect {
+      timeSource.advance(EndpointOverheadController.BUCKET_NANOS)
+      overheadController.acquireEndpoint('POST', '/rare')
+    }
+
+    then:
+    analyzed == [true, false, false]
+    !overheadController.acquireEndpoint('GET', '/busy')
+  }
+
+  def 'endpoints are sampled again once their window has slid'() {
+    given:
+    def overheadController = newController(30)
+    (1..3).each { overheadController.acquireEndpoint('GET', '/path') }
+
+    expect:
+    !overheadController.acquireEndpoint('GET', '/path')
+
+    when:
+    timeSource.advance(EndpointOverheadController.BUCKET_NANOS * EndpointOverheadController.WINDOW_BUCKETS)
+
+    then:
+    overheadController.acquireEndpoint('GET', '/path')
+  }
+
+  def 'paths with identifiers share the same endpoint'() {
+    expect:
+    EndpointOverheadController.endpoint(method, path) == expected
+
+    where:
+    method | path                   | expected
+    'GET'  | null                   | 'GET /'
+    'GET'  | ''                     | 'GET /'
+    'GET'  | '/'                    | 'GET /'
+    'GET'  | '/users'               | 'GET /users'
+    'GET'  | '/users/123'           | 'GET /users/?'
+    'POST' | '/users/a1b2/orders/'  | 'POST /users/?/orders/'
+    null   | '/v2/items'            | ' /?/items'
+  }
+
+  def 'decisions are counted'() {
+    given:
+    def analyzed = Mock(Counter)
+    def skipped = Mock(Counter)
+    def monitoring = Stub(Monitoring) {
+      newCounter('_dd.java.iast.endpoint_sampling.analyzed') >> analyzed
+      newCounter('_dd.java.iast.endpoint_sampling.skipped') >> skipped
+    }
+    def overheadController = new EndpointOverheadController(
+      samplingConfig(50), Stub(AgentTaskScheduler), timeSource, monitoring)
+
+    when:
+    (1..4).each { overheadController.acquireEndpoint('GET', '/path') }
+
+    then:
+    2 * analyzed.increment(1)
+    2 * skipped.increment(1)
+  }
+
+  def 'concurrent requests are sampled on up to date counts'() {
+    given:
+    def window = new SlidingWindow(EndpointOverheadController.WINDOW_BUCKETS)
+    def nThreads = 16
+    def nRequests = 1000
+    def executorService = Executors.newFixedThreadPool(nThreads)
+    def startLatch = new CountDownLatch(nThreads)
+
+    when:
+    def futures = (1..nThreads).collect { thread ->
+      executorService.submit({
+        ->
+        startLatch.countDown()
+        startLatch.await()
+        return (1..nRequests).count { window.record(0, 0.5f) }
+      } as Callable<Integer>)
+    }
+    def analyzed = futures.sum { it.get() }
+
+    then:
+    analyzed == nThreads * nRequests / 2
+    window.analyzedShare(0) == 0.5f
+    window.analyzedShare(EndpointOverheadController.WINDOW_BUCKETS) == 0f
+
+    cleanup:
+    executorService?.shutdown()
+  }
+
+  def 'saturated buckets keep sampling around the target share'() {
+    given:
+    def window = new SlidingWindow(EndpointOverheadController.WINDOW_BUCKETS)
+    def nRequests = 200000 // more than a bucket can count
+
+    when:
+    def analyzed = (1..nRequests).count { window.record(0, 0.5f) }
+
+    then:
+    analyzed == nRequests / 2
+    window.analyzedShare(0) == 0.5f
+  }
+
+  def 'full percentage analyzes every request'() {
+    given:
+    def overheadController = newController(100)
+
+    expect:
+    (1..10).every { overheadController.acquireEndpoint('GET', '/path') }
+  }
+
+  private EndpointOverheadController newController(final float samplingPct) {
+    new EndpointOverheadController(
+      samplingConfig(samplingPct), Stub(AgentTaskScheduler), timeSource, Monitoring.DISABLED)
+  }
+
+  private Config samplingConfig(final float samplingPct) {
+    def config = Spy(Config.get())
+    config.getIastRequestSampling() >> samplingPct
+    return config
+  }
+}
@@ -0,0 +1,236 @@
+package com.datadog.iast.taint
+
+import com.datadog.iast.model.Range
+import datadog.trace.test.util.CircularBuffer
+import datadog.trace.test.util.DDSpecification
+
+import java.util.concurrent.Callable
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+
+class ConcurrentTaintedMapTest extends DDSpecification {
+
+  def 'simple workflow'() {
+    given:
+    def map = new ConcurrentTaintedMap()
+    final o = new Object()
+    final to = new TaintedObject(o, [] as Range[], map.getReferenceQueue())
+
+    expect:
+    map.count() == 0
+    map.toList().size() == 0
+    map.get(o) == null
+
+    when:
+    map.put(to)
+
+    then:
+    map.count() == 1
+    map.toList() == [to]
+    map.get(o) == to
+
+    when:
+    map.clear()
+
+    then:
+    map.count() == 0
+    map.toList().size() == 0
+    map.get(o) == null
+  }
+
+  def 'map grows instead of losing entries'() {
+    given:
+    int nTotalObjects = ConcurrentTaintedMap.DEFAULT_INITIAL_CAPACITY * 64
+    def map = new ConcurrentTaintedMap()
+    def objects = new IdentityHashMap<Object, TaintedObject>()
+
+    when:
+    (1..nTotalObjects).each {
+      final o = new Object()
+      final to = new TaintedObject(o, [] as Range[], map.getReferenceQueue())
+      objects.put(o, to)
+      map.put(to)
+    }
+
+    then:
+    map.capacity() > ConcurrentTaintedMap.DEFAULT_INITIAL_CAPACITY
+    map.count() == nTotalObjects
+    map.toList().size() == nTotalObjects
+    objects.every { map.get(it.key) == it.value }
+  }
+
+  def 'clear empties the tables in place'() {
+    given:
+    def map = ConcurrentTaintedMap.requestScoped()
+    def objects = (1..ConcurrentTaintedMap.DEFAULT_INITIAL_CAPACITY * 4).collect {
+      final o = new Object()
+      map.put(new TaintedObject(o, [] as Range[], map.getReferenceQueue()))
+      return o
+    }
+    final tables = map.segments.collect { it.table }
+    final capacity = map.capacity()
+
+    when:
+    map.clear()
+
+    then:
+    map.count() == 0
+    map.toList().isEmpty()
+    objects.every { map.get(it) == null }
+    map.capacity() == capacity
+    [map.segments.collect { it.table }, tables].transpose().every { it[0].is(it[1]) }
+  }
+
+  def 'gets do not miss entries while the map is resizing'() {
+    given:
+    def map = new ConcurrentTaintedMap()
+    def existing = (1..ConcurrentTaintedMap.DEFAULT_INITIAL_CAPACITY).collect {
+      final o = new Object()
+      map.put(new TaintedObject(o, [] as Range[], map.getReferenceQueue()))
+      return o
+    }
+    def executorService = Executors.newSingleThreadExecutor()
+
+    when: 'puts keep resizing the map while the existing entries are read'
+    def writer = executorService.submit({
+      ->
+      (1..ConcurrentTaintedMap.DEFAULT_INITIAL_CAPACITY * 256).each {
+        map.put(new TaintedObject(new Object(), [] as Range[], map.getReferenceQueue()))
+      }
+    } as Runnable)
+    int misses = 0
+    while (!writer.isDone()) {
+      misses += existing.count { map.get(it) == null }
+    }
+    writer.get()
+
+    then:
+    misses == 0
+
+    cleanup:
+    executorService?.shutdown()
+  }
+
+  def 'garbage-collected entries are purged'() {
+    given:
+    int nObjects = 1024
+    int nRetainedObjects = 8
+    def map = new ConcurrentTaintedMap()
+    def objectBuffer = new CircularBuffer<Object>(nRetainedObjects)
+
+    when:
+    (1..nRetainedObjects).each {
+      final o = new Object()
+      map.put(new TaintedObject(o, [] as Range[], map.getReferenceQueue()))
+      objectBuffer.add(o)
+    }
+    final refs = (1..nObjects).collect {
+      final to = new TaintedObject(new Object(), [] as Range[], map.getReferenceQueue())
+      map.put(to)
+      return to
+    }
+    refs.each { it.enqueue() }
+    map.purge()
+
+    then:
+    map.count() == nRetainedObjects
+    objectBuffer.every { map.get(it)?.get() == it }
+  }
+
+  def 'request scoped map drops collected entries when it resizes'() {
+    given:
+    def map = ConcurrentTaintedMap.requestScoped()
+    final o = new Object()
+    final to = new TaintedObject(o, [] as Range[], map.getReferenceQueue())
+    final collected = (1..1024).collect {
+      new TaintedObject(new Object(), [] as Range[], map.getReferenceQueue())
+    }
+
+    expect:
+    map.getReferenceQueue() == null
+
+    when:
+    map.put(to)
+    collected.each {
+      map.put(it)
+      it.clear()
+    }
+    (1..ConcurrentTaintedMap.DEFAULT_INITIAL_CAPACITY * 16).each {
+      map.put(new TaintedObject(o, [] as Range[], map.getReferenceQueue()))
+    }
+
+    then:
+    map.toList().count { it.get() == null } < collected.size()
+    map.get(o) != null
+  }
+
+  def 'map does not grow over its maximum capacity'() {
+    given:
+    int maxCapacity = 256
+    def map = new ConcurrentTaintedMap(16, maxCapacity)
+    def objectBuffer = new CircularBuffer<Object>(maxCapacity * 4)
+
+    when:
+    (1..maxCapacity * 4).each {
+      final o = new Object()
+      objectBuffer.add(o)
+      map.put(new TaintedObject(o, [] as Range[], map.getReferenceQueue()))
+    }
+
+    then:
+    map.capacity() == maxCapacity
+    map.count() <= maxCapacity * 1.5
+    map.count() == map.toList().size()
+  }
+
+  def 'multi-threaded puts are not lost under max capacity'() {
+    given:
+    int nThreads = 32
+    int nObjectsPerThread = 2500
+    int nTotalObjects = nThreads * nObjectsPerThread
+    assert nTotalObjects < ConcurrentTaintedMap.DEFAULT_MAX_CAPACITY * 0.75
+    def executorService = Executors.newFixedThreadPool(nThreads)
+    def startLatch = new CountDownLatch(nThreads)
+    def map = new ConcurrentTaintedMap()
+
+    // Holder to avoid objects being garbage collected
+    def objectHolder = new ConcurrentHashMap<Object, TaintedObject>()
+
+    when: 'perform a high amount of concurrent puts and gets'
+    def futures = (1..nThreads).collect { thread ->
+      executorService.submit({
+        ->
+        final tuples = new ArrayList<Tuple2<Object, TaintedObject>>(nObjectsPerThread)
+        for (int i = 1; i <= nObjectsPerThread; i++) {
+          final o = new Object()
+          final to = new TaintedObject(o, [] as Range[], map.getReferenceQueue())
+          tuples.add(new Tuple2<Object, TaintedObject>(o, to))
+          objectHolder.put(o, to)
+        }
+        startLatch.countDown()
+        startLatch.await()
+        int misses = 0
+        tuples.each {
+          map.put(it.get(1))
+          if (map.get(it.get(0)) != it.get(1)) {
+            misses++
+          }
+        }
+        return misses
+      } as Callable<Integer>)
+    }
+    def misses = futures.sum { it.get() }
+
+    then: 'every put was visible right away'
+    misses == 0
+
+    and: 'map contains all the objects'
+    map.count() == nTotalObjects
+    map.toList().size() == nTotalObjects
+    objectHolder.every { map.get(it.key) == it.value }
+
+    cleanup:
+    executorService?.shutdown()
+  }
+}
@@ -0,0 +1,78 @@
+package com.datadog.iast.taint
+
+import datadog.trace.test.util.DDSpecification
+
+class PackedRangesTest extends DDSpecification {
+
+  def 'pack and unpack'() {
+    when:
+    final range = PackedRanges.pack(start, length, source)
+
+    then:
+    range != PackedRanges.INVALID
+    PackedRanges.start(range) == start
+    PackedRanges.length(range) == length
+    PackedRanges.sourceIndex(range) == source
+
+    where:
+    start                    | length                   | source
+    0                        | 0                        | 0
+    1                        | 2                        | 3
+    PackedRanges.MAX_END - 2 | 1                        | PackedRanges.MAX_SOURCES - 1
+    0                        | PackedRanges.MAX_END - 1 | 0
+  }
+
+  def 'ranges which do not fit cannot be packed'() {
+    expect:
+    PackedRanges.pack(start, length, source) == PackedRanges.INVALID
+
+    where:
+    start                    | length                | source
+    -1                       | 1                     | 0
+    0                        | -1                    | 0
+    0                        | 1                     | -1
+    0                        | 1                     | PackedRanges.MAX_SOURCES
+    PackedRanges.MAX_END - 1 | 1                     | 0
+    0                        | PackedRanges.MAX_END  | 0
+    Integer.MAX_VALUE        | Integer.MAX_VALUE     | 0
+  }
+
+  def 'shift'() {
+    given:
+    final range = PackedRanges.pack(start, 2, 1)
+
+    when:
+    final shifted = PackedRanges.shift(range, offset)
+
+    then:
+    if (expected == null) {
+      assert shifted == PackedRanges.INVALID
+    } else {
+      assert shifted == PackedRanges.pack(expected, 2, 1)
+    }
+
+    where:
+    start                    | offset | expected
+    1                        | 0      | 1
+    1                        | 2      | 3
+    1                        | -1     | 0
+    1                        | -2     | null
+    PackedRanges.MAX_END - 3 | 1      | null
+  }
+
+  def 'copyShift'() {
+    given:
+    final src = [PackedRanges.pack(0, 1, 0), PackedRanges.pack(2, 1, 1)] as long[]
+    final dst = new long[3]
+
+    when:
+    final fits = PackedRanges.copyShift(src, dst, 1, 3)
+
+    then:
+    fits
+    dst == [0L, PackedRanges.pack(3, 1, 0), PackedRanges.pack(5, 1, 1)] as long[]
+
+    and: 'ranges moved too far do not fit'
+    !PackedRanges.copyShift(src, dst, 1, PackedRanges.MAX_END)
+  }
+}
@@ -0,0 +1,154 @@
+package com.datadog.iast.taint
+
+import com.datadog.iast.model.Range
+import com.datadog.iast.model.Source
+import com.datadog.iast.model.SourceType
+import datadog.trace.test.util.DDSpecification
+
+import static com.datadog.iast.taint.TaintUtils.*
+
+class TaintedObjectsTest extends DDSpecification {
+
+  def objectHolder = new ArrayList()
+
+  def 'input strings are tainted with a single packed range'() {
+    given:
+    final taintedObjects = new TaintedObjects()
+    final value = 'value'
+    final source = new Source(SourceType.REQUEST_PARAMETER_VALUE, 'name', value)
+
+    when:
+    taintedObjects.taintInputString(value, source)
+
+    then:
+    final to = taintedObjects.get(value)
+    to instanceof PackedTaintedObject
+    to.getRanges() == [new Range(0, value.length(), source)] as Range[]
+  }
+
+  def 'equal sources are interned'() {
+    given:
+    final taintedObjects = new TaintedObjects()
+    final first = new String('value')
+    final second = new String('value')
+
+    when:
+    taintedObjects.taintInputString(first, new Source(SourceType.REQUEST_PARAMETER_VALUE, 'name', 'value'))
+    taintedObjects.taintInputString(second, new Source(SourceType.REQUEST_PARAMETER_VALUE, 'name', 'value'))
+
+    then:
+    final firstTainted = taintedObjects.get(first) as PackedTaintedObject
+    final secondTainted = taintedObjects.get(second) as PackedTaintedObject
+    firstTainted.packedRange == secondTainted.packedRange
+    firstTainted.getRanges()[0].source.is(secondTainted.getRanges()[0].source)
+  }
+
+  def 'release drops the taints and their sources'() {
+    given:
+    final taintedObjects = new TaintedObjects()
+    final first = new String('first')
+    final firstSource = new Source(SourceType.REQUEST_PARAMETER_VALUE, 'first', 'first')
+    taintedObjects.taintInputString(first, firstSource)
+
+    when:
+    taintedObjects.release()
+
+    then:
+    taintedObjects.get(first) == null
+    taintedObjects.sources.indexes.isEmpty()
+    taintedObjects.sources.sources.every { it == null }
+
+    when:
+    final second = new String('second')
+    final secondSource = new Source(SourceType.REQUEST_PARAMETER_VALUE, 'second', 'second')
+    taintedObjects.taintInputString(second, secondSource)
+
+    then:
+    final to = taintedObjects.get(second) as PackedTaintedObject
+    PackedRanges.sourceIndex(to.packedRange) == 0
+    to.getRanges() == [new Range(0, second.length(), secondSource)] as Range[]
+  }
+
+  def 'taintConcat'() {
+    given:
+    final taintedObjects = new TaintedObjects()
+    left = addFromTaintFormat(taintedObjects, left)
+    objectHolder.add(left)
+    right = addFromTaintFormat(taintedObjects, right)
+    objectHolder.add(right)
+    final result = getStringFromTaintFormat(expected)
+    objectHolder.add(result)
+
+    when:
+    taintedObjects.taintConcat(result, taintedObjects.get(left), left.length(), taintedObjects.get(right))
+
+    then:
+    final to = taintedObjects.get(result)
+    to instanceof PackedTaintedObject
+    taintFormat(result, to.getRanges()) == expected
+
+    where:
+    left                  | right                 | expected
+    '==>123<=='           | '456'                 | '==>123<==456'
+    '123'                 | '==>456<=='           | '123==>456<=='
+    '==>123<=='           | '==>456<=='           | '==>123<====>456<=='
+    '==>1<==2==>3<=='     | '456'                 | '==>1<==2==>3<==456'
+    '123'                 | '==>4<==5==>6<=='     | '123==>4<==5==>6<=='
+    '==>1<==2==>3<=='     | '==>4<==5==>6<=='     | '==>1<==2==>3<====>4<==5==>6<=='
+  }
+
+  def 'taintConcat shares the ranges of the left object'() {
+    given:
+    final taintedObjects = new TaintedObjects()
+    final left = addFromTaintFormat(taintedObjects, spec)
+    final result = left + 'untainted'
+
+    when:
+    taintedObjects.taintConcat(result, taintedObjects.get(left), left.length(), null)
+
+    then:
+    final leftTainted = taintedObjects.get(left) as PackedTaintedObject
+    final resultTainted = taintedObjects.get(result) as PackedTaintedObject
+    resultTainted.packedRange == leftTainted.packedRange
+    resultTainted.packedRanges.is(leftTainted.packedRanges)
+
+    where:
+    spec                | _
+    '==>123<=='         | _
+    '==>1<==2==>3<=='   | _
+  }
+
+  def 'sources are not interned when the ranges cannot be packed'() {
+    given:
+    final taintedObjects = new TaintedObjects()
+    final value = 'value'
+    final source = new Source(SourceType.REQUEST_PARAMETER_VALUE, 'name', 'value')
+    final other = new Source(SourceType.REQUEST_PARAMETER_NAME, 'name', 'name')
+
+    when:
+    taintedObjects.taint(value, [new Range(0, 1, source), new Range(PackedRanges.MAX_END, 1, other)] as Range[])
+
+    then:
+    !(taintedObjects.get(value) instanceof PackedTaintedObject)
+    taintedObjects.sources.indexes.isEmpty()
+  }
+
+  def 'taintConcat falls back to unpacked ranges'() {
+    given:
+    final taintedObjects = new TaintedObjects()
+    final left = 'left'
+    final right = 'right'
+    final source = new Source(SourceType.NONE, null, null)
+    taintedObjects.taint(left, [new Range(PackedRanges.MAX_END, 1, source)] as Range[])
+    taintedObjects.taintInputString(right, source)
+    final result = left + right
+
+    when:
+    taintedObjects.taintConcat(result, taintedObjects.get(left), left.length(), taintedObjects.get(right))
+
+    then:
+    final to = taintedObjects.get(result)
+    !(to instanceof PackedTaintedObject)
+    to.getRanges() == [new Range(PackedRanges.MAX_END, 1, source), new Range(4, 5, source)] as Range[]
+  }
+}
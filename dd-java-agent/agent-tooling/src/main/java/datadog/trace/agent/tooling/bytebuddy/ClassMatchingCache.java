@@ -0,0 +1,488 @@
+package datadog.trace.agent.tooling.bytebuddy;
+
+import static datadog.trace.util.AgentThreadFactory.AGENT_THREAD_GROUP;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import datadog.trace.agent.tooling.WeakCaches;
+import datadog.trace.agent.tooling.bytebuddy.outline.TypePoolFacade;
+import datadog.trace.api.DDTraceApiInfo;
+import datadog.trace.api.cache.DDCache;
+import datadog.trace.api.cache.DDCaches;
+import datadog.trace.api.function.Function;
+import datadog.trace.bootstrap.WeakCache;
+import datadog.trace.util.AgentTaskScheduler;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.CodeSource;
+import java.security.ProtectionDomain;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Remembers across JVM restarts which classes didn't match any instrumentation, so later boots can
+ * skip parsing and matching them.
+ *
+ * <p>Classes are keyed by the jar they were loaded from, its size, last modified time and a
+ * checksum of its central directory (which lists the checksum of every entry), the jars
+ * seen by their class-loader beyond the class-path (such as {@code WEB-INF/lib}), and the class
+ * name. Only classes which every instrumentation's type matcher missed are recorded, and only when
+ * that matching didn't look outside their own jar and the JDK, because a change anywhere else could
+ * make them match. Classes turned down by a class-loader check, by muzzle or by an error aren't
+ * recorded. The cache file itself is named after a fingerprint of the agent, its configuration and
+ * the class-path, so a different set of instrumentations starts from an empty cache.
+ *
+ * <p>The file is a sorted array of 64-bit keys which is memory-mapped when the agent starts, and
+ * searched in place. Keys recorded during this run are merged in and the file is rewritten now and
+ * then, and when the JVM shuts down.
+ */
+public final class ClassMatchingCache {
+  private static final Logger log = LoggerFactory.getLogger(ClassMatchingCache.class);
+
+  private static final int MAGIC = 0xDDCA5E00;
+  private static final int VERSION = 2;
+  private static final int HEADER_SIZE = 16;
+  private static final int MAX_KEYS = 1 << 20;
+  private static final long SAVE_INTERVAL_SECONDS = 30;
+
+  private static final long NOT_A_JAR = 0;
+
+  private static final int END_OF_CENTRAL_DIRECTORY = 0x06054b50;
+  private static final int END_OF_CENTRAL_DIRECTORY_SIZE = 22;
+  private static final int MAX_ZIP_COMMENT_SIZE = 0xFFFF;
+
+  // the class-path is part of the fingerprint, so the system class-loaders don't change keys
+  private static final long SYSTEM_LOADERS = 0;
+  private static final long UNKNOWN_LOADER = 1;
+
+  private static volatile ClassMatchingCache INSTANCE;
+
+  private final File file;
+
+  // sorted keys from previous runs, searched in place
+  private final LongBuffer knownKeys;
+
+  private final Set<Long> newKeys =
+      Collections.newSetFromMap(new ConcurrentHashMap<Long, Boolean>());
+  private volatile boolean dirty;
+
+  // avoid hashing on the URL because that can be a blocking operation; stamping reads the jar's
+  // central directory, so keep the busy jars rather than let colliding ones evict each other
+  private final DDCache<String, Long> jarStamps = DDCaches.newFixedSizeLfuCache(256);
+
+  private final Function<String, Long> stampJar =
+      new Function<String, Long>() {
+        @Override
+        public Long apply(String path) {
+          return jarStamp(path);
+        }
+      };
+
+  // class-loaders whose jars we can't list are never cached
+  private final WeakCache<ClassLoader, Long> loaderStamps = WeakCaches.newWeakCache(64);
+
+  private final Function<ClassLoader, Long> stampLoader =
+      new Function<ClassLoader, Long>() {
+        @Override
+        public Long apply(ClassLoader classLoader) {
+          return stampLoader(classLoader);
+        }
+      };
+
+  ClassMatchingCache(File file) {
+    this.file = file;
+    this.knownKeys = load(file);
+  }
+
+  /**
+   * Opens the cache in the given directory for the agent's current setup.
+   *
+   * @param dir directory where the cache files are kept
+   * @param instrumentations names of the installed instrumentations
+   */
+  public static synchronized void open(String dir, Iterable<String> instrumentations) {
+    if (null != INSTANCE) {
+      return;
+    }
+    long fingerprint = fingerprint(instrumentations);
+    File cacheDir = new File(dir);
+    if (!cacheDir.isDirectory() && !cacheDir.mkdirs()) {
+      log.debug("Cannot create class matching cache directory {}", cacheDir);
+      return;
+    }
+    final ClassMatchingCache cache =
+        new ClassMatchingCache(
+            new File(cacheDir, "class-matching-" + Long.toHexString(fingerprint) + ".bin"));
+    AgentTaskScheduler.INSTANCE.scheduleAtFixedRate(
+        new Runnable() {
+          @Override
+          public void run() {
+            cache.save();
+          }
+        },
+        SAVE_INTERVAL_SECONDS,
+        SAVE_INTERVAL_SECONDS,
+        SECONDS);
+    try {
+      Runtime.getRuntime()
+          .addShutdownHook(
+              new Thread(AGENT_THREAD_GROUP, "dd-class-matching-cache-shutdown-hook") {
+                @Override
+                public void run() {
+                  cache.save();
+                }
+              });
+    } catch (IllegalStateException e) {
+      return; // JVM is shutting down
+    }
+    INSTANCE = cache;
+  }
+
+  /**
+   * @return path of the jar which the class is being loaded from, when the cache is open and the
+   *     jar can be cached; otherwise {@code null}
+   */
+  public static String cacheableJar(ProtectionDomain protectionDomain) {
+    ClassMatchingCache cache = INSTANCE;
+    if (null != cache && null != protectionDomain) {
+      CodeSource codeSource = protectionDomain.getCodeSource();
+      if (null != codeSource) {
+        URL location = codeSource.getLocation();
+        if (null != location && "file".equals(location.getProtocol())) {
+          String path = location.getPath();
+          if (NOT_A_JAR != cache.jarStamps.computeIfAbsent(path, cache.stampJar)) {
+            return path;
+          }
+        }
+      }
+    }
+    return null;
+  }
+
+  /** @return {@code true} if a previous run found the class didn't match any instrumentation */
+  public static boolean isUninteresting(
+      String jar, ClassLoader classLoader, String internalClassName) {
+    ClassMatchingCache cache = INSTANCE;
+    if (null != cache) {
+      long loaderStamp = cache.loaderStamp(classLoader);
+      return UNKNOWN_LOADER != loaderStamp
+          && cache.contains(cache.key(jar, loaderStamp, internalClassName));
+    }
+    return false;
+  }
+
+  /**
+   * Records that the class being transformed didn't match the type of any instrumentation, unless
+   * its matching was cut short or looked at class-files outside its jar and the JDK.
+   */
+  public static void recordIgnored(ClassLoader classLoader, String internalClassName) {
+    ClassMatchingCache cache = INSTANCE;
+    if (null != cache) {
+      String jar = TypePoolFacade.cacheableTargetJar(internalClassName);
+      if (null != jar) {
+        long loaderStamp = cache.loaderStamp(classLoader);
+        if (UNKNOWN_LOADER != loaderStamp) {
+          cache.record(cache.key(jar, loaderStamp, internalClassName));
+        }
+      }
+    }
+  }
+
+  /**
+   * Notes that a class-loader check, muzzle or an error turned down the class being transformed,
+   * so whether it's interesting isn't known.
+   */
+  public static void matchingIncomplete() {
+    if (null != INSTANCE) {
+      TypePoolFacade.matchingIncomplete();
+    }
+  }
+
+  /**
+   * Fingerprint of everything other than the jars themselves that could change how classes match:
+   * the agent, the JVM, the class-path and its jars, the agent's configuration including its
+   * configuration file, and the installed instrumentations.
+   */
+  static long fingerprint(Iterable<String> instrumentations) {
+    StringBuilder buf = new StringBuilder(DDTraceApiInfo.VERSION);
+    CodeSource agentSource = ClassMatchingCache.class.getProtectionDomain().getCodeSource();
+    if (null != agentSource && null != agentSource.getLocation()) {
+      String agentPath = agentSource.getLocation().getPath();
+      buf.append('|').append(agentPath).append('|').append(jarStamp(agentPath));
+    }
+    buf.append('|').append(System.getProperty("java.home"));
+    buf.append('|').append(System.getProperty("java.vm.version"));
+    String classPath = System.getProperty("java.class.path");
+    buf.append('|').append(classPath);
+    if (null != classPath) {
+      for (String entry : classPath.split(File.pathSeparator)) {
+        buf.append('|').append(jarStamp(entry));
+      }
+    }
+    Map<String, String> settings = new TreeMap<>();
+    for (Map.Entry<Object, Object> property : System.getProperties().entrySet()) {
+      if (String.valueOf(property.getKey()).startsWith("dd.")) {
+        settings.put(String.valueOf(property.getKey()), String.valueOf(property.getValue()));
+      }
+    }
+    for (Map.Entry<String, String> variable : System.getenv().entrySet()) {
+      if (variable.getKey().startsWith("DD_")) {
+        settings.put(variable.getKey(), variable.getValue());
+      }
+    }
+    buf.append('|').append(settings);
+    String configFile = settings.get("dd.trace.config");
+    if (null == configFile) {
+      configFile = settings.get("DD_TRACE_CONFIG");
+    }
+    if (null != configFile) {
+      File file = new File(configFile.replaceFirst("^~", System.getProperty("user.home")));
+      buf.append('|').append(file.length()).append('|').append(file.lastModified());
+    }
+    for (String name : instrumentations) {
+      buf.append('|').append(name);
+    }
+    long hash = 0xcbf29ce484222325L;
+    for (int i = 0; i < buf.length(); i++) {
+      hash = (hash ^ buf.charAt(i)) * 0x100000001b3L;
+    }
+    return mix(hash);
+  }
+
+  long key(String jar, String internalClassName) {
+    return key(jar, SYSTEM_LOADERS, internalClassName);
+  }
+
+  long key(String jar, long loaderStamp, String internalClassName) {
+    long hash = jarStamps.computeIfAbsent(jar, stampJar) ^ loaderStamp;
+    for (int i = 0; i < internalClassName.length(); i++) {
+      hash = (hash ^ internalClassName.charAt(i)) * 0x100000001b3L;
+    }
+    return mix(hash);
+  }
+
+  boolean contains(long key) {
+    // binary search of the mapped keys, using absolute gets which are safe for concurrent use
+    int low = 0;
+    int high = knownKeys.limit() - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      long midKey = knownKeys.get(mid);
+      if (midKey < key) {
+        low = mid + 1;
+      } else if (midKey > key) {
+        high = mid - 1;
+      } else {
+        return true;
+      }
+    }
+    return newKeys.contains(key);
+  }
+
+  void record(long key) {
+    if (newKeys.size() < MAX_KEYS && newKeys.add(key)) {
+      dirty = true;
+    }
+  }
+
+  /** Merges the keys recorded during this run with those from previous runs and saves them. */
+  synchronized void save() {
+    if (!dirty) {
+      return;
+    }
+    dirty = false;
+    long[] keys = new long[Math.min(knownKeys.limit() + newKeys.size(), MAX_KEYS)];
+    int size = 0;
+    for (int i = 0; i < knownKeys.limit() && size < keys.length; i++) {
+      keys[size++] = knownKeys.get(i);
+    }
+    Iterator<Long> itr = newKeys.iterator();
+    while (itr.hasNext() && size < keys.length) {
+      keys[size++] = itr.next();
+    }
+    Arrays.sort(keys, 0, size);
+    int distinct = 0;
+    for (int i = 0; i < size; i++) {
+      if (0 == distinct || keys[distinct - 1] != keys[i]) {
+        keys[distinct++] = keys[i];
+      }
+    }
+    File tmpFile = null;
+    try {
+      ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + distinct * 8);
+      buffer.putInt(MAGIC).putInt(VERSION).putLong(distinct);
+      buffer.asLongBuffer().put(keys, 0, distinct);
+      buffer.rewind();
+      tmpFile = File.createTempFile(file.getName(), ".tmp", file.getParentFile());
+      try (RandomAccessFile out = new RandomAccessFile(tmpFile, "rw")) {
+        FileChannel channel = out.getChannel();
+        while (buffer.hasRemaining()) {
+          channel.write(buffer);
+        }
+      }
+      // replace the file atomically, so other JVMs sharing the directory never see partial files
+      Files.move(
+          tmpFile.toPath(),
+          file.toPath(),
+          StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+      log.debug("Saved {} uninteresting classes to {}", distinct, file);
+    } catch (IOException | RuntimeException e) {
+      log.debug("Cannot save class matching cache {}", file, e);
+      if (null != tmpFile && !tmpFile.delete()) {
+        tmpFile.deleteOnExit();
+      }
+    }
+  }
+
+  private static LongBuffer load(File file) {
+    if (file.isFile()) {
+      try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+        long length = in.length();
+        if (length >= HEADER_SIZE && length <= HEADER_SIZE + MAX_KEYS * 8L) {
+          // the mapping stays valid after the file is closed
+          ByteBuffer buffer = in.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, length);
+          if (buffer.getInt() == MAGIC
+              && buffer.getInt() == VERSION
+              && buffer.getLong() * 8 == length - HEADER_SIZE) {
+            return buffer.asLongBuffer();
+          }
+        }
+        log.debug("Ignoring invalid class matching cache {}", file);
+      } catch (IOException | RuntimeException e) {
+        log.debug("Cannot load class matching cache {}", file, e);
+      }
+    }
+    return LongBuffer.allocate(0);
+  }
+
+  /**
+   * Identifies the jars a class-loader sees beyond the class-path, or returns {@link
+   * #UNKNOWN_LOADER} if they can't be listed.
+   */
+  long loaderStamp(ClassLoader classLoader) {
+    if (null == classLoader || isSystemLoader(classLoader)) {
+      return SYSTEM_LOADERS;
+    }
+    return loaderStamps.computeIfAbsent(classLoader, stampLoader);
+  }
+
+  private long stampLoader(ClassLoader classLoader) {
+    if (!(classLoader instanceof URLClassLoader)) {
+      return UNKNOWN_LOADER;
+    }
+    long parentStamp = loaderStamp(classLoader.getParent());
+    if (UNKNOWN_LOADER == parentStamp) {
+      return UNKNOWN_LOADER;
+    }
+    long hash = 0xcbf29ce484222325L ^ parentStamp;
+    for (URL url : ((URLClassLoader) classLoader).getURLs()) {
+      String location = url.toString();
+      for (int i = 0; i < location.length(); i++) {
+        hash = (hash ^ location.charAt(i)) * 0x100000001b3L;
+      }
+      if ("file".equals(url.getProtocol())) {
+        hash = (hash ^ jarStamp(url.getPath())) * 0x100000001b3L;
+      }
+    }
+    long stamp = mix(hash);
+    return SYSTEM_LOADERS != stamp && UNKNOWN_LOADER != stamp ? stamp : 2;
+  }
+
+  private static boolean isSystemLoader(ClassLoader classLoader) {
+    for (ClassLoader system = ClassLoader.getSystemClassLoader();
+        null != system;
+        system = system.getParent()) {
+      if (classLoader == system) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Identifies the current contents of the jar, or returns {@link #NOT_A_JAR}. */
+  static long jarStamp(String path) {
+    if (!path.endsWith(".jar")) {
+      return NOT_A_JAR;
+    }
+    File jar = new File(path);
+    long length = jar.length();
+    long lastModified = jar.lastModified();
+    if (length == 0 || lastModified == 0) {
+      return NOT_A_JAR; // missing or unreadable
+    }
+    long checksum = centralDirectoryChecksum(jar, length);
+    if (checksum < 0) {
+      return NOT_A_JAR;
+    }
+    long hash = 0xcbf29ce484222325L;
+    for (int i = 0; i < path.length(); i++) {
+      hash = (hash ^ path.charAt(i)) * 0x100000001b3L;
+    }
+    long stamp = mix(hash ^ mix(length) ^ mix(lastModified * 31) ^ mix(checksum * 17));
+    return NOT_A_JAR != stamp ? stamp : 1;
+  }
+
+  /**
+   * Checksums the jar's central directory, which holds the name, size and CRC-32 of every entry,
+   * so a jar rewritten with the same size and last modified time still gets a new stamp.
+   *
+   * @return CRC-32 of the central directory, or -1 if it can't be found or read
+   */
+  private static long centralDirectoryChecksum(File jar, long length) {
+    try (RandomAccessFile in = new RandomAccessFile(jar, "r")) {
+      // the end of central directory record is the last thing in the file, bar a comment
+      int tailSize = (int) Math.min(length, END_OF_CENTRAL_DIRECTORY_SIZE + MAX_ZIP_COMMENT_SIZE);
+      long tailOffset = length - tailSize;
+      byte[] tail = new byte[tailSize];
+      in.seek(tailOffset);
+      in.readFully(tail);
+      ByteBuffer buffer = ByteBuffer.wrap(tail).order(ByteOrder.LITTLE_ENDIAN);
+      for (int i = tailSize - END_OF_CENTRAL_DIRECTORY_SIZE; i >= 0; i--) {
+        if (buffer.getInt(i) == END_OF_CENTRAL_DIRECTORY) {
+          long size = buffer.getInt(i + 12) & 0xFFFFFFFFL;
+          long offset = buffer.getInt(i + 16) & 0xFFFFFFFFL;
+          if (offset + size > tailOffset + i) {
+            return -1; // ZIP64 or corrupt
+          }
+          CRC32 crc = new CRC32();
+          byte[] chunk = new byte[(int) Math.min(size, 8192)];
+          in.seek(offset);
+          for (long remaining = size; remaining > 0; ) {
+            int n = (int) Math.min(chunk.length, remaining);
+            in.readFully(chunk, 0, n);
+            crc.update(chunk, 0, n);
+            remaining -= n;
+          }
+          crc.update(tail, i, tailSize - i);
+          return crc.getValue();
+        }
+      }
+    } catch (IOException | RuntimeException e) {
+      log.debug("Cannot read central directory of {}", jar, e);
+    }
+    return -1;
+  }
+
+  private static long mix(long hash) {
+    hash = (hash ^ (hash >>> 33)) * 0xff51afd7ed558ccdL;
+    hash = (hash ^ (hash >>> 33)) * 0xc4ceb9fe1a85ec53L;
+    return hash ^ (hash >>> 33);
+  }
+}
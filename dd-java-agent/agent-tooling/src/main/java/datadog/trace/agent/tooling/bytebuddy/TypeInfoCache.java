@@ -103,6 +103,10 @@ public final class TypeInfoCache<T> {
           && sameClassFile(this.classFile, classFile);
     }
 
+    public URL classFile() {
+      return classFile;
+    }
+
     public T get() {
       return typeInfo;
     }
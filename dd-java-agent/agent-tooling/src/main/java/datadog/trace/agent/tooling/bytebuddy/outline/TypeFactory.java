@@ -12,7 +12,9 @@ import datadog.trace.api.Config;
 import datadog.trace.api.cache.DDCache;
 import datadog.trace.api.cache.DDCaches;
 import datadog.trace.api.function.Function;
+import java.io.File;
 import java.io.Serializable;
+import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.HashMap;
 import java.util.Map;
@@ -83,6 +85,9 @@ final class TypeFactory {
     }
   }
 
+  /** Location of the JDK's own jars, to recognize lookups of JDK types before Java 9. */
+  private static final String jdkPath = jdkPath();
+
   private static final TypeParser outlineTypeParser = new OutlineTypeParser();
 
   private static final TypeParser fullTypeParser = new FullTypeParser();
@@ -118,6 +123,14 @@ final class TypeFactory {
 
   private byte[] targetBytecode;
 
+  /** Jar containing the target, when we're tracking which class-files were used for matching. */
+  private String targetJar;
+
+  private boolean lookedOutsideTargetJar;
+
+  /** Set when matching was cut short by something other than the target's type. */
+  private boolean matchingIncomplete;
+
   /** Sets the current class-loader context of this type-factory. */
   void switchContext(ClassLoader classLoader) {
     if (this.classLoader != classLoader || null == classFileLocator) {
@@ -146,9 +159,12 @@ final class TypeFactory {
    * when first installing the agent. If that happens then we need to remember the original context
    * used for matching and restore it afterwards.
    */
-  void beginTransform(String name, byte[] bytecode) {
+  void beginTransform(String name, byte[] bytecode, String jar) {
     targetName = name;
     targetBytecode = bytecode;
+    targetJar = jar;
+    lookedOutsideTargetJar = false;
+    matchingIncomplete = false;
 
     if (installing) {
       originalClassLoader = classLoader;
@@ -173,9 +189,45 @@ final class TypeFactory {
 
     targetName = null;
     targetBytecode = null;
+    targetJar = null;
     createOutlines = true;
   }
 
+  /** Notes that a class-loader check or an error cut matching short, so its outcome is unknown. */
+  void matchingIncomplete() {
+    matchingIncomplete = true;
+  }
+
+  /**
+   * Returns the jar of the named class if its matching ran to completion and only used class-files
+   * from that jar, or the JDK.
+   *
+   * <p>Only applies when we were given the target's jar at the start of the transform request.
+   */
+  String cacheableTargetJar(String internalName) {
+    // targetName is cleared by any nested transform, so we won't mistake one class for another
+    return null != targetJar
+            && !lookedOutsideTargetJar
+            && !matchingIncomplete
+            && null != targetName
+            && sameName(internalName, targetName)
+        ? targetJar
+        : null;
+  }
+
+  private static boolean sameName(String internalName, String name) {
+    if (internalName.length() != name.length()) {
+      return false;
+    }
+    for (int i = 0; i < name.length(); i++) {
+      char c = internalName.charAt(i);
+      if (c != name.charAt(i) && (c != '/' || name.charAt(i) != '.')) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   private void clearReferences() {
     if (null != classFileLocator) {
       classLoader = null;
@@ -235,13 +287,14 @@ final class TypeFactory {
     // existing info from same classloader?
     SharedTypeInfo<TypeDescription> typeInfo = types.find(name);
     if (null != typeInfo && typeInfo.sameClassLoader(classLoader)) {
+      trackClassFile(typeInfo.classFile());
       return typeInfo.get();
     }
 
     // are we looking up the target of this transformation?
     if (name.equals(targetName)) {
       TypeDescription type = typeParser.parse(targetBytecode);
-      types.share(name, classLoader, UNKNOWN_CLASS_FILE, type);
+      types.share(name, classLoader, targetClassFile(name), type);
       return type;
     }
 
@@ -250,6 +303,7 @@ final class TypeFactory {
     try {
       classFileResolution = classFileLocator.locate(name);
     } catch (Throwable ignored) {
+      trackClassFile(UNKNOWN_CLASS_FILE);
       return null;
     }
 
@@ -260,6 +314,7 @@ final class TypeFactory {
 
     // existing info from same class file?
     if (null != typeInfo && typeInfo.sameClassFile(classFile)) {
+      trackClassFile(classFile);
       return typeInfo.get();
     }
 
@@ -275,9 +330,60 @@ final class TypeFactory {
     // share result, whether we found it or not
     types.share(name, classLoader, classFile, type);
 
+    // a missing type could turn up later, so treat that like a type from elsewhere
+    trackClassFile(null != type ? classFile : UNKNOWN_CLASS_FILE);
+
     return type;
   }
 
+  /** Notes when matching uses a class-file from outside the target's jar and the JDK. */
+  private void trackClassFile(URL classFile) {
+    if (null != targetJar && !lookedOutsideTargetJar && !withinTargetJar(classFile)) {
+      lookedOutsideTargetJar = true;
+    }
+  }
+
+  private boolean withinTargetJar(URL classFile) {
+    if (UNKNOWN_CLASS_FILE == classFile) {
+      return false;
+    }
+    String protocol = classFile.getProtocol();
+    if ("jrt".equals(protocol)) {
+      return true; // JDK module image
+    }
+    if (!"jar".equals(protocol)) {
+      return false;
+    }
+    // expect file:/path/to/some.jar!/package/Name.class
+    String file = classFile.getFile();
+    int separator = file.indexOf("!/");
+    if (separator < 0 || !file.startsWith("file:")) {
+      return false;
+    }
+    return (separator - 5 == targetJar.length() && file.startsWith(targetJar, 5))
+        || (null != jdkPath && file.startsWith(jdkPath, 5));
+  }
+
+  /** Class-file resource of the target, when we know the jar it comes from. */
+  private URL targetClassFile(String name) {
+    if (null != targetJar) {
+      try {
+        return new URL("jar:file:" + targetJar + "!/" + name.replace('.', '/') + ".class");
+      } catch (MalformedURLException ignored) {
+        // fall through
+      }
+    }
+    return UNKNOWN_CLASS_FILE;
+  }
+
+  private static String jdkPath() {
+    try {
+      return new File(System.getProperty("java.home")).toURI().getRawPath();
+    } catch (Throwable ignored) {
+      return null;
+    }
+  }
+
   /** Falls back to loading the class directly; note this will bypass transformation. */
   private TypeDescription loadType(String name, TypeParser typeParser) {
     LOCATING_CLASS.begin();
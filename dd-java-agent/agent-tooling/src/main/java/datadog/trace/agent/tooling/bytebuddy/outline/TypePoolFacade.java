@@ -39,7 +39,28 @@ public final class TypePoolFacade implements TypePool, SharedTypePools.Supplier
 
   /** Record a new transform request for the named class-file. */
   public static void beginTransform(String name, byte[] bytecode) {
-    typeFactory.get().beginTransform(name, bytecode);
+    typeFactory.get().beginTransform(name, bytecode, null);
+  }
+
+  /**
+   * Record a new transform request for the named class-file from the given jar, tracking whether
+   * matching only uses class-files from that jar.
+   */
+  public static void beginTransform(String name, byte[] bytecode, String jar) {
+    typeFactory.get().beginTransform(name, bytecode, jar);
+  }
+
+  /** Record that matching of the class being transformed was cut short. */
+  public static void matchingIncomplete() {
+    typeFactory.get().matchingIncomplete();
+  }
+
+  /**
+   * Returns the jar of the class being transformed if its matching ran to completion and only used
+   * class-files from that jar, or the JDK.
+   */
+  public static String cacheableTargetJar(String internalName) {
+    return typeFactory.get().cacheableTargetJar(internalName);
   }
 
   /** Switch to full descriptions, needed for the actual class transformation. */
@@ -0,0 +1,193 @@
+package datadog.trace.agent.tooling.bytebuddy
+
+import datadog.trace.test.util.DDSpecification
+
+import java.util.jar.JarOutputStream
+import java.util.zip.CRC32
+import java.util.zip.ZipEntry
+
+class ClassMatchingCacheTest extends DDSpecification {
+
+  File dir = File.createTempDir()
+
+  def cleanup() {
+    dir.deleteDir()
+  }
+
+  def "recorded classes are found after a restart"() {
+    setup:
+    def jar = newJar("lib.jar")
+    def file = new File(dir, "cache.bin")
+    def cache = new ClassMatchingCache(file)
+
+    when:
+    cache.record(cache.key(jar, "com/example/Uninteresting"))
+
+    then:
+    cache.contains(cache.key(jar, "com/example/Uninteresting"))
+    !cache.contains(cache.key(jar, "com/example/Interesting"))
+
+    when:
+    cache.save()
+    def restarted = new ClassMatchingCache(file)
+
+    then:
+    restarted.contains(restarted.key(jar, "com/example/Uninteresting"))
+    !restarted.contains(restarted.key(jar, "com/example/Interesting"))
+  }
+
+  def "keys from previous runs are kept when saving"() {
+    setup:
+    def jar = newJar("lib.jar")
+    def file = new File(dir, "cache.bin")
+    def first = new ClassMatchingCache(file)
+    (0..<100).each { first.record(first.key(jar, "com/example/First$it")) }
+    first.save()
+
+    when:
+    def second = new ClassMatchingCache(file)
+    (0..<100).each { second.record(second.key(jar, "com/example/Second$it")) }
+    second.save()
+    def third = new ClassMatchingCache(file)
+
+    then:
+    (0..<100).every {
+      third.contains(third.key(jar, "com/example/First$it")) &&
+        third.contains(third.key(jar, "com/example/Second$it"))
+    }
+    file.length() == 16 + 200 * 8
+  }
+
+  def "changing the jar invalidates its classes"() {
+    setup:
+    def jar = newJar("lib.jar")
+    def file = new File(dir, "cache.bin")
+    def cache = new ClassMatchingCache(file)
+    cache.record(cache.key(jar, "com/example/Uninteresting"))
+    cache.save()
+
+    when:
+    new File(jar) << "more content"
+    new File(jar).setLastModified(new File(jar).lastModified() + 5000)
+    def restarted = new ClassMatchingCache(file)
+
+    then:
+    !restarted.contains(restarted.key(jar, "com/example/Uninteresting"))
+  }
+
+  def "rewriting the jar with the same size and time invalidates its classes"() {
+    setup:
+    def jar = newJar("lib.jar", "first")
+    def length = new File(jar).length()
+    def lastModified = new File(jar).lastModified()
+    def file = new File(dir, "cache.bin")
+    def cache = new ClassMatchingCache(file)
+    cache.record(cache.key(jar, "com/example/Uninteresting"))
+    cache.save()
+
+    when:
+    newJar("lib.jar", "other")
+    new File(jar).setLastModified(lastModified)
+    def restarted = new ClassMatchingCache(file)
+
+    then:
+    new File(jar).length() == length
+    new File(jar).lastModified() == lastModified
+    !restarted.contains(restarted.key(jar, "com/example/Uninteresting"))
+  }
+
+  def "only existing jars can be cached"() {
+    setup:
+    def notAJar = new File(dir, "fake.jar")
+    notAJar.text = "not really a jar"
+
+    expect:
+    ClassMatchingCache.jarStamp(newJar("lib.jar")) != 0
+    ClassMatchingCache.jarStamp(notAJar.path) == 0
+    ClassMatchingCache.jarStamp(dir.path + "/missing.jar") == 0
+    ClassMatchingCache.jarStamp(dir.path + "/") == 0
+  }
+
+  def "invalid cache files are ignored"() {
+    setup:
+    def jar = newJar("lib.jar")
+    def file = new File(dir, "cache.bin")
+    file.bytes = content as byte[]
+
+    when:
+    def cache = new ClassMatchingCache(file)
+
+    then:
+    !cache.contains(cache.key(jar, "com/example/Uninteresting"))
+
+    where:
+    content << [[], [1, 2, 3], (0..<24)]
+  }
+
+  def "fingerprint depends on the installed instrumentations"() {
+    expect:
+    ClassMatchingCache.fingerprint(["a", "b"]) == ClassMatchingCache.fingerprint(["a", "b"])
+    ClassMatchingCache.fingerprint(["a", "b"]) != ClassMatchingCache.fingerprint(["a"])
+  }
+
+  def "fingerprint depends on the configuration file"() {
+    setup:
+    def configFile = new File(dir, "dd.properties")
+    configFile.text = "dd.service=first"
+    injectSysConfig("trace.config", configFile.path)
+    def before = ClassMatchingCache.fingerprint(["a"])
+
+    when:
+    configFile.text = "dd.service=second"
+    configFile.setLastModified(configFile.lastModified() + 5000)
+
+    then:
+    ClassMatchingCache.fingerprint(["a"]) != before
+  }
+
+  def "keys depend on the jars seen by the class-loader"() {
+    setup:
+    def jar = newJar("lib.jar")
+    def cache = new ClassMatchingCache(new File(dir, "cache.bin"))
+    def first = new URLClassLoader([new File(newJar("first.jar")).toURI().toURL()] as URL[])
+    def second = new URLClassLoader([new File(newJar("second.jar")).toURI().toURL()] as URL[])
+
+    when:
+    cache.record(cache.key(jar, cache.loaderStamp(first), "com/example/Uninteresting"))
+
+    then:
+    cache.contains(cache.key(jar, cache.loaderStamp(first), "com/example/Uninteresting"))
+    !cache.contains(cache.key(jar, cache.loaderStamp(second), "com/example/Uninteresting"))
+    !cache.contains(cache.key(jar, "com/example/Uninteresting"))
+  }
+
+  def "class-loaders whose jars can't be listed aren't cached"() {
+    setup:
+    def cache = new ClassMatchingCache(new File(dir, "cache.bin"))
+    def unknown = new ClassLoader(null) {}
+
+    expect:
+    cache.loaderStamp(null) == 0
+    cache.loaderStamp(ClassLoader.getSystemClassLoader()) == 0
+    cache.loaderStamp(unknown) == 1
+    cache.loaderStamp(new URLClassLoader(new URL[0], unknown)) == 1
+  }
+
+  String newJar(String name, String content = "content") {
+    def jar = new File(dir, name)
+    def bytes = content.bytes
+    def crc = new CRC32()
+    crc.update(bytes)
+    // stored rather than deflated, so the size of the jar only depends on the size of the content
+    def entry = new ZipEntry("com/example/Resource.txt")
+    entry.method = ZipEntry.STORED
+    entry.size = bytes.length
+    entry.crc = crc.value
+    new JarOutputStream(new FileOutputStream(jar)).withCloseable {
+      it.putNextEntry(entry)
+      it.write(bytes)
+      it.closeEntry()
+    }
+    return jar.path
+  }
+}
@@ -41,6 +41,10 @@ import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
 import org.openjdk.jmh.annotations.Warmup;
 
+/**
+ * Runs requests through the AppSec gateway callbacks. Run with {@code -prof gc} and compare {@code
+ * gc.alloc.rate.norm} between revisions to see what each request allocates, headers included.
+ */
 @State(Scope.Benchmark)
 @Warmup(iterations = 4, time = 2, timeUnit = SECONDS)
 @Measurement(iterations = 5, time = 1, timeUnit = SECONDS)
@@ -121,6 +125,46 @@ public class AppSecBenchmark {
     normalRequest();
   }
 
+  private static final String[][] BROWSER_REQUEST_HEADERS = {
+    {"Host", "localhost:8080"},
+    {"User-Agent", "Mozilla/5.0 (X11; Linux x86_64; rv:109.0) Gecko/20100101 Firefox/115.0"},
+    {"Accept", "text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8"},
+    {"Accept-Language", "en-US,en;q=0.5"},
+    {"Accept-Encoding", "gzip, deflate, br"},
+    {"Connection", "keep-alive"},
+    {"Referer", "http://localhost:8080/"},
+    {"Cookie", "session=0123456789abcdef; theme=dark"},
+    {"Upgrade-Insecure-Requests", "1"},
+    {"Sec-Fetch-Dest", "document"},
+    {"Sec-Fetch-Mode", "navigate"},
+    {"Sec-Fetch-Site", "same-origin"}
+  };
+
+  private static final String[][] RESPONSE_HEADERS = {
+    {"Content-Type", "text/html;charset=UTF-8"},
+    {"Content-Length", "1234"},
+    {"Cache-Control", "no-cache"},
+    {"Set-Cookie", "session=0123456789abcdef; Path=/; HttpOnly"}
+  };
+
+  @Benchmark
+  public void normalRequestWithHeaders() {
+    RequestContext context =
+        new Context(cbp.getCallback(EVENTS.requestStarted()).get().getResult());
+    cbp.getCallback(EVENTS.requestMethodUriRaw()).apply(context, method, uri);
+    cbp.getCallback(EVENTS.requestClientSocketAddress()).apply(context, ip, port);
+    for (String[] header : BROWSER_REQUEST_HEADERS) {
+      cbp.getCallback(EVENTS.requestHeader()).accept(context, header[0], header[1]);
+    }
+    cbp.getCallback(EVENTS.requestHeaderDone()).apply(context);
+    cbp.getCallback(EVENTS.responseStarted()).apply(context, 200);
+    for (String[] header : RESPONSE_HEADERS) {
+      cbp.getCallback(EVENTS.responseHeader()).accept(context, header[0], header[1]);
+    }
+    cbp.getCallback(EVENTS.responseHeaderDone()).apply(context);
+    cbp.getCallback(EVENTS.requestEnded()).apply(context, null);
+  }
+
   static class StubOkHttpClient extends OkHttpClient {
     @Override
     public Call newCall(final Request request) {
@@ -0,0 +1,203 @@
+package com.datadog.appsec.event.data;
+
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Headers stored in flat parallel arrays, in the order they were added, and read through a map of
+ * lowercase names to their values. The map and its value lists are views, so nothing is allocated
+ * for them unless they are read.
+ *
+ * <p>Headers are expected to be few, so lookups scan the arrays. Like the rest of the request
+ * context, headers are written and read by the same thread.
+ */
+public final class FlatHeaderMap extends AbstractMap<String, List<String>> {
+  private static final int NO_NEXT = -1;
+
+  private String[] names = new String[8];
+  private String[] values = new String[8];
+  // index of the next header with the same name, or NO_NEXT
+  private int[] nextSameName = new int[8];
+  private int count;
+  private int distinctNames;
+
+  public void add(String name, String value) {
+    String lowerName = lower(name);
+    if (count == names.length) {
+      int newLength = count << 1;
+      names = Arrays.copyOf(names, newLength);
+      values = Arrays.copyOf(values, newLength);
+      nextSameName = Arrays.copyOf(nextSameName, newLength);
+    }
+    int last = lastIndexOf(lowerName);
+    if (last == NO_NEXT) {
+      distinctNames++;
+    } else {
+      nextSameName[last] = count;
+    }
+    names[count] = lowerName;
+    values[count] = value;
+    nextSameName[count] = NO_NEXT;
+    count++;
+  }
+
+  /** Avoids copying names which are already in lowercase, as they usually are. */
+  private static String lower(String name) {
+    for (int i = 0; i < name.length(); i++) {
+      if (Character.isUpperCase(name.charAt(i))) {
+        return name.toLowerCase(Locale.ENGLISH);
+      }
+    }
+    return name;
+  }
+
+  private int firstIndexOf(Object name) {
+    for (int i = 0; i < count; i++) {
+      if (names[i].equals(name)) {
+        return i;
+      }
+    }
+    return NO_NEXT;
+  }
+
+  private int lastIndexOf(String name) {
+    for (int i = count - 1; i >= 0; i--) {
+      if (names[i].equals(name)) {
+        return i;
+      }
+    }
+    return NO_NEXT;
+  }
+
+  private boolean isFirst(int index) {
+    String name = names[index];
+    for (int i = 0; i < index; i++) {
+      if (names[i].equals(name)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public List<String> get(Object key) {
+    int first = firstIndexOf(key);
+    return first != NO_NEXT ? new Values(first) : null;
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return firstIndexOf(key) != NO_NEXT;
+  }
+
+  @Override
+  public int size() {
+    return distinctNames;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return count == 0;
+  }
+
+  @Override
+  public Set<Entry<String, List<String>>> entrySet() {
+    return new AbstractSet<Entry<String, List<String>>>() {
+      @Override
+      public Iterator<Entry<String, List<String>>> iterator() {
+        return new EntryIterator();
+      }
+
+      @Override
+      public int size() {
+        return distinctNames;
+      }
+    };
+  }
+
+  private class EntryIterator implements Iterator<Entry<String, List<String>>> {
+    private int next = nextFirst(0);
+
+    private int nextFirst(int from) {
+      for (int i = from; i < count; i++) {
+        if (isFirst(i)) {
+          return i;
+        }
+      }
+      return NO_NEXT;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return next != NO_NEXT;
+    }
+
+    @Override
+    public Entry<String, List<String>> next() {
+      if (next == NO_NEXT) {
+        throw new NoSuchElementException();
+      }
+      int index = next;
+      next = nextFirst(index + 1);
+      return new SimpleImmutableEntry<>(names[index], new Values(index));
+    }
+  }
+
+  /** Values of the headers sharing the name of the header at the first index. */
+  private class Values extends AbstractList<String> {
+    private final int first;
+
+    Values(int first) {
+      this.first = first;
+    }
+
+    @Override
+    public String get(int index) {
+      int i = first;
+      for (int n = 0; i != NO_NEXT; n++, i = nextSameName[i]) {
+        if (n == index) {
+          return values[i];
+        }
+      }
+      throw new IndexOutOfBoundsException("Index: " + index);
+    }
+
+    @Override
+    public int size() {
+      int size = 0;
+      for (int i = first; i != NO_NEXT; i = nextSameName[i]) {
+        size++;
+      }
+      return size;
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+      return new Iterator<String>() {
+        private int next = first;
+
+        @Override
+        public boolean hasNext() {
+          return next != NO_NEXT;
+        }
+
+        @Override
+        public String next() {
+          if (next == NO_NEXT) {
+            throw new NoSuchElementException();
+          }
+          String value = values[next];
+          next = nextSameName[next];
+          return value;
+        }
+      };
+    }
+  }
+}
@@ -0,0 +1,171 @@
+package com.datadog.appsec.event.data;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Data bundle which stores values in an array indexed by the serial number of their address,
+ * instead of hashing the addresses. Values can be added concurrently, but never replaced.
+ *
+ * <p>The array is sized for the addresses that exist when the bundle is created, which are all the
+ * {@link KnownAddresses}. Values for addresses created later go to a map that is only allocated if
+ * needed.
+ */
+public final class IndexedDataBundle implements DataBundle {
+
+  private static final int CAPACITY = knownAddressCount();
+
+  private final AtomicReferenceArray<Address<?>> addresses;
+  private final AtomicReferenceArray<Object> values;
+  private final AtomicInteger size = new AtomicInteger();
+  private volatile Map<Address<?>, Object> overflow;
+
+  public IndexedDataBundle() {
+    addresses = new AtomicReferenceArray<>(CAPACITY);
+    values = new AtomicReferenceArray<>(CAPACITY);
+  }
+
+  private static int knownAddressCount() {
+    // reading one of the known addresses ensures all of them have been created
+    Address<?> known = KnownAddresses.REQUEST_BODY_OBJECT;
+    return Math.max(known.getSerial() + 1, Address.instanceCount());
+  }
+
+  /**
+   * Adds a value for the address, unless it already has one.
+   *
+   * @return the previous value, or {@code null} if the value was added
+   */
+  public Object putIfAbsent(Address<?> address, Object value) {
+    int serial = address.getSerial();
+    if (serial >= values.length()) {
+      Object prev = overflow().putIfAbsent(address, value);
+      if (prev == null) {
+        size.incrementAndGet();
+      }
+      return prev;
+    }
+    // published by the CAS of the value
+    addresses.lazySet(serial, address);
+    if (values.compareAndSet(serial, null, value)) {
+      size.incrementAndGet();
+      return null;
+    }
+    return values.get(serial);
+  }
+
+  private Map<Address<?>, Object> overflow() {
+    Map<Address<?>, Object> map = overflow;
+    if (map == null) {
+      synchronized (this) {
+        map = overflow;
+        if (map == null) {
+          overflow = map = new ConcurrentHashMap<>();
+        }
+      }
+    }
+    return map;
+  }
+
+  @Override
+  public boolean hasAddress(Address<?> addr) {
+    return get(addr) != null;
+  }
+
+  @Override
+  public Collection<Address<?>> getAllAddresses() {
+    return new AbstractCollection<Address<?>>() {
+      @Override
+      public Iterator<Address<?>> iterator() {
+        Iterator<Map.Entry<Address<?>, Object>> entries = IndexedDataBundle.this.iterator();
+        return new Iterator<Address<?>>() {
+          @Override
+          public boolean hasNext() {
+            return entries.hasNext();
+          }
+
+          @Override
+          public Address<?> next() {
+            return entries.next().getKey();
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return IndexedDataBundle.this.size();
+      }
+    };
+  }
+
+  @Override
+  public int size() {
+    return size.get();
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <T> T get(Address<T> addr) {
+    int serial = addr.getSerial();
+    if (serial < values.length()) {
+      return (T) values.get(serial);
+    }
+    Map<Address<?>, Object> map = overflow;
+    return map != null ? (T) map.get(addr) : null;
+  }
+
+  @Override
+  public Iterator<Map.Entry<Address<?>, Object>> iterator() {
+    return new EntryIterator();
+  }
+
+  private class EntryIterator implements Iterator<Map.Entry<Address<?>, Object>> {
+    private int index = -1;
+    private Object nextValue;
+    private Iterator<Map.Entry<Address<?>, Object>> overflowIterator;
+
+    EntryIterator() {
+      advance();
+    }
+
+    private void advance() {
+      while (++index < values.length()) {
+        nextValue = values.get(index);
+        if (nextValue != null) {
+          return;
+        }
+      }
+      nextValue = null;
+      Map<Address<?>, Object> map = overflow;
+      if (map != null) {
+        overflowIterator = map.entrySet().iterator();
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return nextValue != null || (overflowIterator != null && overflowIterator.hasNext());
+    }
+
+    @Override
+    public Map.Entry<Address<?>, Object> next() {
+      if (nextValue != null) {
+        Map.Entry<Address<?>, Object> entry =
+            new AbstractMap.SimpleImmutableEntry<>(addresses.get(index), nextValue);
+        advance();
+        return entry;
+      }
+      if (overflowIterator != null) {
+        return overflowIterator.next();
+      }
+      throw new NoSuchElementException();
+    }
+  }
+}
@@ -2,6 +2,8 @@ package com.datadog.appsec.gateway;
 
 import com.datadog.appsec.event.data.Address;
 import com.datadog.appsec.event.data.DataBundle;
+import com.datadog.appsec.event.data.FlatHeaderMap;
+import com.datadog.appsec.event.data.IndexedDataBundle;
 import com.datadog.appsec.event.data.KnownAddresses;
 import com.datadog.appsec.report.raw.events.AppSecEvent100;
 import com.datadog.appsec.util.StandardizedLogging;
@@ -12,7 +14,6 @@ import io.sqreen.powerwaf.PowerwafContext;
 import io.sqreen.powerwaf.PowerwafMetrics;
 import java.io.Closeable;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -46,15 +47,15 @@ public class AppSecRequestContext implements DataBundle, Closeable {
               "accept-encoding",
               "accept-language"));
 
-  private final ConcurrentHashMap<Address<?>, Object> persistentData = new ConcurrentHashMap<>();
+  private final IndexedDataBundle persistentData = new IndexedDataBundle();
   private Collection<AppSecEvent100> collectedEvents; // guarded by this
 
   // assume these will always be written and read by the same thread
   private String scheme;
   private String method;
   private String savedRawURI;
-  private final Map<String, List<String>> requestHeaders = new LinkedHashMap<>();
-  private final Map<String, List<String>> responseHeaders = new LinkedHashMap<>();
+  private final FlatHeaderMap requestHeaders = new FlatHeaderMap();
+  private final FlatHeaderMap responseHeaders = new FlatHeaderMap();
   private Map<String, List<String>> collectedCookies;
   private boolean finishedRequestHeaders;
   private boolean finishedResponseHeaders;
@@ -135,12 +136,12 @@ public class AppSecRequestContext implements DataBundle, Closeable {
 
   @Override
   public boolean hasAddress(Address<?> addr) {
-    return persistentData.containsKey(addr);
+    return persistentData.hasAddress(addr);
   }
 
   @Override
   public Collection<Address<?>> getAllAddresses() {
-    return persistentData.keySet();
+    return persistentData.getAllAddresses();
   }
 
   @Override
@@ -149,14 +150,13 @@ public class AppSecRequestContext implements DataBundle, Closeable {
   }
 
   @Override
-  @SuppressWarnings("unchecked")
   public <T> T get(Address<T> addr) {
-    return (T) persistentData.get(addr);
+    return persistentData.get(addr);
   }
 
   @Override
   public Iterator<Map.Entry<Address<?>, Object>> iterator() {
-    return persistentData.entrySet().iterator();
+    return persistentData.iterator();
   }
 
   /* Interface for use of GatewayBridge */
@@ -198,9 +198,7 @@ public class AppSecRequestContext implements DataBundle, Closeable {
       return;
     }
 
-    List<String> strings =
-        requestHeaders.computeIfAbsent(name.toLowerCase(), h -> new ArrayList<>(1));
-    strings.add(value);
+    requestHeaders.add(name, value);
   }
 
   void finishRequestHeaders() {
@@ -224,9 +222,7 @@ public class AppSecRequestContext implements DataBundle, Closeable {
       return;
     }
 
-    List<String> strings =
-        responseHeaders.computeIfAbsent(name.toLowerCase(), h -> new ArrayList<>(1));
-    strings.add(value);
+    responseHeaders.add(name, value);
   }
 
   public void finishResponseHeaders() {
@@ -301,7 +297,7 @@ public class AppSecRequestContext implements DataBundle, Closeable {
   }
 
   public boolean isPathParamsPublished() {
-    return persistentData.containsKey(KnownAddresses.REQUEST_PATH_PARAMS);
+    return persistentData.hasAddress(KnownAddresses.REQUEST_PATH_PARAMS);
   }
 
   public boolean isRawReqBodyPublished() {
@@ -96,6 +96,8 @@ public class PowerWAFModule implements AppSecModule {
 
   private static class CtxAndAddresses {
     final Collection<Address<?>> addressesOfInterest;
+    // indexed by address serial number
+    final boolean[] isAddressOfInterest;
     final PowerwafContext ctx;
     final Map<String, RuleInfo> rulesInfoMap;
     final Map<String /* id */, ActionInfo> actionInfoMap;
@@ -106,6 +108,14 @@ public class PowerWAFModule implements AppSecModule {
         Map<String, RuleInfo> rulesInfoMap,
         Map<String, ActionInfo> actionInfoMap) {
       this.addressesOfInterest = addressesOfInterest;
+      int maxSerial = -1;
+      for (Address<?> address : addressesOfInterest) {
+        maxSerial = Math.max(maxSerial, address.getSerial());
+      }
+      this.isAddressOfInterest = new boolean[maxSerial + 1];
+      for (Address<?> address : addressesOfInterest) {
+        this.isAddressOfInterest[address.getSerial()] = true;
+      }
       this.ctx = ctx;
       this.rulesInfoMap = rulesInfoMap;
       this.actionInfoMap = actionInfoMap;
@@ -469,7 +479,7 @@ public class PowerWAFModule implements AppSecModule {
         Additive additive, PowerwafMetrics metrics, DataBundle newData, CtxAndAddresses ctxAndAddr)
         throws AbstractPowerwafException {
       return additive.run(
-          new DataBundleMapWrapper(ctxAndAddr.addressesOfInterest, newData), LIMITS, metrics);
+          new DataBundleMapWrapper(ctxAndAddr.isAddressOfInterest, newData), LIMITS, metrics);
     }
   }
 
@@ -477,7 +487,7 @@ public class PowerWAFModule implements AppSecModule {
       PowerwafMetrics metrics, DataBundle bundle, CtxAndAddresses ctxAndAddr)
       throws AbstractPowerwafException {
     return ctxAndAddr.ctx.runRules(
-        new DataBundleMapWrapper(ctxAndAddr.addressesOfInterest, bundle), LIMITS, metrics);
+        new DataBundleMapWrapper(ctxAndAddr.isAddressOfInterest, bundle), LIMITS, metrics);
   }
 
   private Collection<AppSecEvent100> buildEvents(
@@ -548,16 +558,21 @@ public class PowerWAFModule implements AppSecModule {
         .build();
   }
 
+  /** View of the bundle for powerwaf, which reads the values straight from the bundle. */
   private static final class DataBundleMapWrapper implements Map<String, Object> {
-    private final Collection<Address<?>> addressesOfInterest;
+    private final boolean[] isAddressOfInterest;
     private final DataBundle dataBundle;
 
-    private DataBundleMapWrapper(
-        Collection<Address<?>> addressesOfInterest, DataBundle dataBundle) {
-      this.addressesOfInterest = addressesOfInterest;
+    private DataBundleMapWrapper(boolean[] isAddressOfInterest, DataBundle dataBundle) {
+      this.isAddressOfInterest = isAddressOfInterest;
       this.dataBundle = dataBundle;
     }
 
+    private boolean isOfInterest(Address<?> address) {
+      int serial = address.getSerial();
+      return serial < isAddressOfInterest.length && isAddressOfInterest[serial];
+    }
+
     // powerwaf only calls entrySet().iterator() and size()
     @Nonnull
     @Override
@@ -578,31 +593,22 @@ public class PowerWAFModule implements AppSecModule {
               "Only supported method is 'iterator'; got " + method.getName());
         }
 
-        final Iterator<Address<?>> addrIterator = dataBundle.getAllAddresses().iterator();
+        // iterate the entries rather than the addresses, so bundles don't have to copy them
+        final Iterator<Entry<Address<?>, Object>> bundleIterator = dataBundle.iterator();
         final MutableEntry entry = new MutableEntry();
 
         return new Iterator<Entry<String, Object>>() {
-          private Address<?> next = computeNextAddress();
-
-          private Address<?> computeNextAddress() {
-            return addrIterator.hasNext() ? addrIterator.next() : null;
-          }
-
           @Override
           public boolean hasNext() {
-            return next != null;
+            return bundleIterator.hasNext();
           }
 
           @Override
           public Entry<String, Object> next() {
-            if (next == null) {
-              throw new NoSuchElementException();
-            }
+            Entry<Address<?>, Object> next = bundleIterator.next();
             // the usage pattern in powerwaf allows object recycling here
-            entry.key = next.getKey();
-            entry.value =
-                addressesOfInterest.contains(next) ? dataBundle.get(next) : Collections.emptyMap();
-            next = computeNextAddress();
+            entry.key = next.getKey().getKey();
+            entry.value = isOfInterest(next.getKey()) ? next.getValue() : Collections.emptyMap();
             return entry;
           }
         };
@@ -0,0 +1,44 @@
+package com.datadog.appsec.event.data
+
+import datadog.trace.test.util.DDSpecification
+
+class FlatHeaderMapSpecification extends DDSpecification {
+
+  FlatHeaderMap headers = new FlatHeaderMap()
+
+  void 'groups the values by lowercase name'() {
+    when:
+    headers.add('Custom-Header', 'value1')
+    headers.add('Accept', 'application/json')
+    headers.add('CUSTOM-HEADER', 'value2')
+
+    then:
+    headers.size() == 2
+    headers.keySet() as List == ['custom-header', 'accept']
+    headers['custom-header'] == ['value1', 'value2']
+    headers['accept'] == ['application/json']
+    headers['Accept'] == null
+    headers.containsKey('accept')
+    !headers.containsKey('host')
+    headers == ['custom-header': ['value1', 'value2'], 'accept': ['application/json']]
+  }
+
+  void 'grows past its initial capacity'() {
+    when:
+    (0..<20).each { headers.add("X-Header-$it" as String, "v$it" as String) }
+    headers.add('x-header-3', 'again')
+
+    then:
+    headers.size() == 20
+    headers['x-header-19'] == ['v19']
+    headers['x-header-3'] == ['v3', 'again']
+    headers['x-header-3'].iterator().toList() == ['v3', 'again']
+  }
+
+  void 'is empty until a header is added'() {
+    expect:
+    headers.isEmpty()
+    headers.size() == 0
+    headers.entrySet().iterator().hasNext() == false
+  }
+}
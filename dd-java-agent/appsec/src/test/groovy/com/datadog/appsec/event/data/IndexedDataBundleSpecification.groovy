@@ -0,0 +1,61 @@
+package com.datadog.appsec.event.data
+
+import datadog.trace.test.util.DDSpecification
+
+class IndexedDataBundleSpecification extends DDSpecification {
+
+  IndexedDataBundle bundle = new IndexedDataBundle()
+
+  void 'values are added but not replaced'() {
+    when:
+    def prev1 = bundle.putIfAbsent(KnownAddresses.REQUEST_URI_RAW, '/a')
+    def prev2 = bundle.putIfAbsent(KnownAddresses.REQUEST_URI_RAW, '/b')
+
+    then:
+    prev1 == null
+    prev2 == '/a'
+    bundle.size() == 1
+    bundle.get(KnownAddresses.REQUEST_URI_RAW) == '/a'
+    bundle.hasAddress(KnownAddresses.REQUEST_URI_RAW)
+    !bundle.hasAddress(KnownAddresses.REQUEST_METHOD)
+    bundle.get(KnownAddresses.REQUEST_METHOD) == null
+  }
+
+  void 'iterates the values in address order'() {
+    when:
+    bundle.putIfAbsent(KnownAddresses.REQUEST_METHOD, 'GET')
+    bundle.putIfAbsent(KnownAddresses.REQUEST_URI_RAW, '/a')
+
+    then:
+    bundle.allAddresses as List == [KnownAddresses.REQUEST_URI_RAW, KnownAddresses.REQUEST_METHOD]
+    bundle.collect { [it.key, it.value] } == [
+      [KnownAddresses.REQUEST_URI_RAW, '/a'],
+      [KnownAddresses.REQUEST_METHOD, 'GET']
+    ]
+
+    when:
+    def it = bundle.iterator()
+    2.times { it.next() }
+    it.next()
+
+    then:
+    thrown NoSuchElementException
+  }
+
+  void 'addresses created after the bundle are supported'() {
+    setup:
+    def address = new Address<String>('test.late_address')
+
+    when:
+    bundle.putIfAbsent(KnownAddresses.REQUEST_URI_RAW, '/a')
+    def prev1 = bundle.putIfAbsent(address, 'x')
+    def prev2 = bundle.putIfAbsent(address, 'y')
+
+    then:
+    prev1 == null
+    prev2 == 'x'
+    bundle.size() == 2
+    bundle.get(address) == 'x'
+    bundle.allAddresses as List == [KnownAddresses.REQUEST_URI_RAW, address]
+  }
+}
@@ -0,0 +1,83 @@
+package datadog.benchmark;
+
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Loads every class of the benchmark jar in a new class-loader, like an application would when it
+ * starts. Each fork is a fresh JVM measured once, so with the class matching cache enabled the
+ * first fork fills the cache and the later forks show how much startup it saves.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+public class ClassMatchingStartupBenchmark {
+
+  @State(Scope.Benchmark)
+  public static class BenchmarkState {
+    private URL jar;
+    private final List<String> classNames = new ArrayList<>();
+
+    @Setup
+    public void init() throws Exception {
+      jar = Benchmark.class.getProtectionDomain().getCodeSource().getLocation();
+      try (JarFile jarFile = new JarFile(new File(jar.toURI()))) {
+        Enumeration<JarEntry> entries = jarFile.entries();
+        while (entries.hasMoreElements()) {
+          String name = entries.nextElement().getName();
+          // skip module-info and multi-release entries under META-INF
+          if (name.endsWith(".class") && !name.contains("-")) {
+            classNames.add(name.substring(0, name.length() - 6).replace('/', '.'));
+          }
+        }
+      }
+    }
+  }
+
+  @Benchmark
+  public void loadClasses(final BenchmarkState state, final Blackhole blackhole) {
+    // don't delegate to the application class-loader, so every class is defined again
+    ClassLoader loader =
+        new URLClassLoader(new URL[] {state.jar}, ClassLoader.getSystemClassLoader().getParent());
+    for (String name : state.classNames) {
+      try {
+        blackhole.consume(Class.forName(name, false, loader));
+      } catch (ClassNotFoundException | LinkageError ignored) {
+        // missing optional dependency
+      }
+    }
+  }
+
+  @Fork(
+      value = 5,
+      jvmArgsAppend =
+          "-javaagent:/path/to/dd-trace-java/dd-java-agent/build/libs/dd-java-agent.jar")
+  public static class WithAgent extends ClassMatchingStartupBenchmark {}
+
+  @Fork(
+      value = 5,
+      jvmArgsAppend = {
+        "-javaagent:/path/to/dd-trace-java/dd-java-agent/build/libs/dd-java-agent.jar",
+        "-Ddd.resolver.cache.dir=/tmp/dd-class-matching-benchmark"
+      })
+  public static class WithAgentAndCache extends ClassMatchingStartupBenchmark {}
+}
@@ -0,0 +1,86 @@
+package datadog.benchmark;
+
+import datadog.trace.api.Trace;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Spawns virtual threads from a traced method, so that each of them inherits the trace. The score
+ * is the time taken per virtual thread: a million virtual threads per second is one microsecond.
+ * Needs Java 21, and is meant to be compared with and without the agent.
+ */
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class VirtualThreadSpawnBenchmark {
+
+  private static final int THREADS = 10_000;
+
+  private static final Runnable TASK =
+      new Runnable() {
+        @Override
+        public void run() {}
+      };
+
+  @State(Scope.Benchmark)
+  public static class BenchmarkState {
+    // referred to reflectively so that the benchmarks still build on older JDKs
+    private Method newVirtualThreadPerTaskExecutor;
+    private Method ofVirtual;
+    private Method start;
+
+    @Setup
+    public void init() throws ReflectiveOperationException {
+      newVirtualThreadPerTaskExecutor =
+          Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+      ofVirtual = Thread.class.getMethod("ofVirtual");
+      start = Class.forName("java.lang.Thread$Builder").getMethod("start", Runnable.class);
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(THREADS)
+  public void virtualThreadPerTaskExecutor(final BenchmarkState state) throws Exception {
+    submitTraced(state);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(THREADS)
+  public void threadOfVirtual(final BenchmarkState state) throws Exception {
+    startTraced(state);
+  }
+
+  @Trace
+  private static void submitTraced(final BenchmarkState state) throws Exception {
+    ExecutorService executor = (ExecutorService) state.newVirtualThreadPerTaskExecutor.invoke(null);
+    for (int i = 0; i < THREADS; ++i) {
+      executor.execute(TASK);
+    }
+    executor.shutdown();
+    executor.awaitTermination(1, TimeUnit.MINUTES);
+  }
+
+  @Trace
+  private static void startTraced(final BenchmarkState state) throws Exception {
+    Object builder = state.ofVirtual.invoke(null);
+    Thread[] threads = new Thread[THREADS];
+    for (int i = 0; i < THREADS; ++i) {
+      threads[i] = (Thread) state.start.invoke(builder, TASK);
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+  }
+
+  @Fork(
+      jvmArgsAppend =
+          "-javaagent:/path/to/dd-trace-java/dd-java-agent/build/libs/dd-java-agent.jar")
+  public static class WithAgent extends VirtualThreadSpawnBenchmark {}
+}
@@ -14,7 +14,7 @@ import java.util.Map;
 public final class IgniteQueryInfo {
 
   private static final DDCache<Pair<String, String>, IgniteQueryInfo> CACHED_PREPARED_STATEMENTS =
-      DDCaches.newFixedSizeCache(512);
+      DDCaches.newFixedSizeLfuCache(512);
 
   private static final Function<Pair<String, String>, IgniteQueryInfo> NORMALIZE =
       new Function<Pair<String, String>, IgniteQueryInfo>() {
@@ -0,0 +1,121 @@
+package datadog.trace.instrumentation.java.concurrent;
+
+import static datadog.trace.agent.tooling.bytebuddy.matcher.NameMatchers.named;
+import static datadog.trace.bootstrap.instrumentation.java.concurrent.ExcludeFilter.ExcludeType.RUNNABLE_FUTURE;
+import static datadog.trace.instrumentation.java.concurrent.AbstractExecutorInstrumentation.EXEC_NAME;
+import static java.util.Collections.singletonList;
+import static java.util.Collections.singletonMap;
+import static net.bytebuddy.matcher.ElementMatchers.isConstructor;
+import static net.bytebuddy.matcher.ElementMatchers.isMethod;
+import static net.bytebuddy.matcher.ElementMatchers.takesArguments;
+
+import com.google.auto.service.AutoService;
+import datadog.trace.agent.tooling.ExcludeFilterProvider;
+import datadog.trace.agent.tooling.Instrumenter;
+import datadog.trace.bootstrap.instrumentation.java.concurrent.ExcludeFilter;
+import datadog.trace.bootstrap.instrumentation.java.concurrent.VirtualThreadState;
+import java.security.ProtectionDomain;
+import java.util.Collection;
+import java.util.Map;
+import net.bytebuddy.asm.Advice;
+import net.bytebuddy.description.modifier.FieldManifestation;
+import net.bytebuddy.description.modifier.Visibility;
+import net.bytebuddy.description.type.TypeDescription;
+import net.bytebuddy.dynamic.DynamicType;
+import net.bytebuddy.utility.JavaModule;
+
+/**
+ * Propagates context to virtual threads, whether they're started directly or by an executor such
+ * as {@code Executors.newVirtualThreadPerTaskExecutor()}, without wrapping their tasks. The active
+ * context is captured when the virtual thread is created, activated when it's first mounted, and
+ * closed when it's unmounted for the last time, which is when it's still running; any other unmount
+ * comes after the thread's state has been changed to parking or yielding.
+ *
+ * <p>The state is kept in a field injected into {@code java.lang.VirtualThread}, which is loaded
+ * lazily. A context store would be keyed on {@code java.lang.Thread}, which is loaded before the
+ * agent and so can't have fields injected, leaving every lookup to the global weak map.
+ *
+ * <p>The future wrapping a task submitted to {@code newVirtualThreadPerTaskExecutor()} is excluded
+ * from the {@code RunnableFuture} instrumentation, since the thread it's bound to already carries
+ * the context.
+ */
+@AutoService(Instrumenter.class)
+public final class VirtualThreadInstrumentation extends Instrumenter.Tracing
+    implements Instrumenter.ForBootstrap, Instrumenter.ForSingleType, ExcludeFilterProvider {
+
+  static final String STATE_FIELD = "__datadogVirtualThreadState";
+
+  public VirtualThreadInstrumentation() {
+    super(EXEC_NAME, "virtual-thread");
+  }
+
+  @Override
+  public String instrumentedType() {
+    return "java.lang.VirtualThread";
+  }
+
+  @Override
+  public AdviceTransformer transformer() {
+    return new AdviceTransformer() {
+      @Override
+      public DynamicType.Builder<?> transform(
+          DynamicType.Builder<?> builder,
+          TypeDescription typeDescription,
+          ClassLoader classLoader,
+          JavaModule module,
+          ProtectionDomain pd) {
+        return builder.defineField(
+            STATE_FIELD,
+            VirtualThreadState.class,
+            Visibility.PRIVATE,
+            FieldManifestation.TRANSIENT);
+      }
+    };
+  }
+
+  @Override
+  public Map<ExcludeFilter.ExcludeType, ? extends Collection<String>> excludedClasses() {
+    return singletonMap(
+        RUNNABLE_FUTURE,
+        singletonList("java.util.concurrent.ThreadPerTaskExecutor$ThreadBoundFuture"));
+  }
+
+  @Override
+  public void adviceTransformations(AdviceTransformation transformation) {
+    transformation.applyAdvice(isConstructor(), getClass().getName() + "$Construct");
+    transformation.applyAdvice(
+        isMethod().and(named("mount")).and(takesArguments(0)), getClass().getName() + "$Mount");
+    transformation.applyAdvice(
+        isMethod().and(named("unmount")).and(takesArguments(0)),
+        getClass().getName() + "$Unmount");
+  }
+
+  public static final class Construct {
+    @Advice.OnMethodExit(suppress = Throwable.class)
+    public static void capture(
+        @Advice.FieldValue(value = STATE_FIELD, readOnly = false) VirtualThreadState state) {
+      state = VirtualThreadState.capture();
+    }
+  }
+
+  public static final class Mount {
+    @Advice.OnMethodExit(suppress = Throwable.class)
+    public static void activate(@Advice.FieldValue(STATE_FIELD) VirtualThreadState state) {
+      if (null != state) {
+        state.onMount();
+      }
+    }
+  }
+
+  public static final class Unmount {
+    @Advice.OnMethodEnter(suppress = Throwable.class)
+    public static void close(
+        @Advice.FieldValue(STATE_FIELD) VirtualThreadState virtualThreadState,
+        @Advice.FieldValue("state") int state,
+        @Advice.FieldValue("RUNNING") int running) {
+      if (state == running && null != virtualThreadState) {
+        virtualThreadState.onTerminate();
+      }
+    }
+  }
+}
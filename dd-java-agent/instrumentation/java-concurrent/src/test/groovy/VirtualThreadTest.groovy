@@ -0,0 +1,115 @@
+import datadog.trace.agent.test.AgentTestRunner
+import datadog.trace.core.DDSpan
+import spock.lang.Requires
+import spock.lang.Shared
+
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+
+import static datadog.trace.agent.test.utils.TraceUtils.runUnderTrace
+import static datadog.trace.api.Platform.isJavaVersionAtLeast
+import static datadog.trace.bootstrap.instrumentation.api.AgentTracer.activeScope
+
+@Requires({
+  isJavaVersionAtLeast(21)
+})
+class VirtualThreadTest extends AgentTestRunner {
+
+  @Shared
+  def startVirtualThread = { Runnable r -> Thread.ofVirtual().start(r).join() }
+  @Shared
+  def startUnstartedVirtualThread = { Runnable r ->
+    def thread = Thread.ofVirtual().unstarted(r)
+    thread.start()
+    thread.join()
+  }
+  @Shared
+  def executeOnVirtualThread = { Runnable r ->
+    def executor = Executors.newVirtualThreadPerTaskExecutor()
+    executor.execute(r)
+    executor.shutdown()
+    executor.awaitTermination(10, TimeUnit.SECONDS)
+  }
+  @Shared
+  def submitToVirtualThread = { Runnable r ->
+    def executor = Executors.newVirtualThreadPerTaskExecutor()
+    executor.submit(r).get()
+    executor.shutdown()
+  }
+
+  def "#name propagates the context to the virtual thread"() {
+    when:
+    runUnderTrace("parent") {
+      activeScope().setAsyncPropagation(true)
+      start(new JavaAsyncChild())
+    }
+    TEST_WRITER.waitForTraces(1)
+
+    then:
+    assertParentAndChild(TEST_WRITER.get(0))
+
+    where:
+    name                                         | start
+    "Thread.ofVirtual().start"                   | startVirtualThread
+    "Thread.ofVirtual().unstarted"               | startUnstartedVirtualThread
+    "newVirtualThreadPerTaskExecutor().execute"  | executeOnVirtualThread
+    "newVirtualThreadPerTaskExecutor().submit"   | submitToVirtualThread
+  }
+
+  def "tasks submitted to a virtual thread per task executor only get the context of their thread"() {
+    when:
+    int depth = 0
+    runUnderTrace("parent") {
+      activeScope().setAsyncPropagation(true)
+      submitToVirtualThread({
+        depth = TEST_TRACER.scopeManager.scopeStack().depth()
+        new JavaAsyncChild().run()
+      } as Runnable)
+    }
+    TEST_WRITER.waitForTraces(1)
+
+    then: "the future wrapping the task didn't activate a continuation of its own"
+    depth == 1
+    assertParentAndChild(TEST_WRITER.get(0))
+  }
+
+  def "context stays active while the virtual thread parks"() {
+    when:
+    runUnderTrace("parent") {
+      activeScope().setAsyncPropagation(true)
+      startVirtualThread({
+        // sleeping unmounts the virtual thread, which may resume on another carrier
+        Thread.sleep(10)
+        new JavaAsyncChild().run()
+      } as Runnable)
+    }
+    TEST_WRITER.waitForTraces(1)
+
+    then:
+    assertParentAndChild(TEST_WRITER.get(0))
+  }
+
+  def "nothing is propagated without an active span"() {
+    when:
+    startVirtualThread(new JavaAsyncChild())
+    TEST_WRITER.waitForTraces(1)
+
+    then:
+    TEST_WRITER.size() == 1
+    TEST_WRITER.get(0).size() == 1
+    TEST_WRITER.get(0)[0].isRootSpan()
+  }
+
+  def "state is held by a field of the virtual thread"() {
+    expect:
+    Thread.ofVirtual().unstarted {}.getClass().getDeclaredField("__datadogVirtualThreadState") != null
+  }
+
+  private static void assertParentAndChild(List<DDSpan> trace) {
+    assert trace.size() == 2
+    DDSpan parent = trace.find { it.isRootSpan() }
+    assert parent.getOperationName().toString() == "parent"
+    DDSpan child = trace.find { it.getParentId() == parent.getSpanId() }
+    assert child.getOperationName().toString() == "asyncChild"
+  }
+}
@@ -54,6 +54,10 @@ public final class ConfigDefaults {
   static final int DEFAULT_SCOPE_DEPTH_LIMIT = 100;
   static final int DEFAULT_SCOPE_ITERATION_KEEP_ALIVE = 10; // in seconds
   static final int DEFAULT_PARTIAL_FLUSH_MIN_SPANS = 1000;
+  static final int DEFAULT_TRACE_PROCESSING_SHARDS = 1;
+  static final int DEFAULT_TRACE_PAYLOAD_BUFFERS = 1;
+  static final String DEFAULT_TRACE_PAYLOAD_COMPRESSION = "none";
+  static final int DEFAULT_TRACE_PAYLOAD_COMPRESSION_LEVEL = 1;
   static final boolean DEFAULT_PROPAGATION_EXTRACT_LOG_HEADER_NAMES_ENABLED = false;
   static final String DEFAULT_PROPAGATION_STYLE_EXTRACT = PropagationStyle.DATADOG.name();
   static final String DEFAULT_PROPAGATION_STYLE_INJECT = PropagationStyle.DATADOG.name();
@@ -90,6 +94,7 @@ public final class ConfigDefaults {
       "^(?:PBEWITH(?:HMACSHA(?:2(?:24ANDAES_(?:128|256)|56ANDAES_(?:128|256))|384ANDAES_(?:128|256)|512ANDAES_(?:128|256)|1ANDAES_(?:128|256))|SHA1AND(?:RC(?:2_(?:128|40)|4_(?:128|40))|DESEDE)|MD5AND(?:TRIPLEDES|DES))|DES(?:EDE(?:WRAP)?)?|BLOWFISH|ARCFOUR|RC2).*$";
 
   static final boolean DEFAULT_IAST_DEDUPLICATION_ENABLED = true;
+  static final boolean DEFAULT_IAST_ENDPOINT_SAMPLING_ENABLED = false;
 
   static final boolean DEFAULT_CIVISIBILITY_ENABLED = false;
   static final boolean DEFAULT_CIVISIBILITY_AGENTLESS_ENABLED = false;
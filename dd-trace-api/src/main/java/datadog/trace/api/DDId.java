@@ -42,6 +42,26 @@ public class DDId {
     return DDId.create(parseUnsignedLong(s), s);
   }
 
+  /**
+   * Create a new {@code DDId} from the decimal representation of the unsigned 64 bit id between
+   * {@code start} (inclusive) and {@code end} (exclusive) in {@code s}, without copying it.
+   *
+   * @param s CharSequence containing the unsigned 64 bit id
+   * @param start index of the first digit
+   * @param end index after the last digit
+   * @return DDId
+   * @throws NumberFormatException
+   */
+  public static DDId from(CharSequence s, int start, int end) throws NumberFormatException {
+    if (s == null) {
+      throw new NumberFormatException("null");
+    }
+    if (s instanceof String && start == 0 && end == s.length()) {
+      return from((String) s);
+    }
+    return DDId.create(parseUnsignedLong(s, start, end), null);
+  }
+
   /**
    * Create a new {@code DDId} from the given {@code String} hex representation of the unsigned 64
    * bit id.
@@ -54,6 +74,23 @@ public class DDId {
     return DDId.create(parseUnsignedLongHex(s), null);
   }
 
+  /**
+   * Create a new {@code DDId} from the hex representation of the unsigned 64 bit id between {@code
+   * start} (inclusive) and {@code end} (exclusive) in {@code s}, without copying it.
+   *
+   * @param s CharSequence containing the unsigned 64 bit id in hex
+   * @param start index of the first digit
+   * @param end index after the last digit
+   * @return DDId
+   * @throws NumberFormatException
+   */
+  public static DDId fromHex(CharSequence s, int start, int end) throws NumberFormatException {
+    if (s == null) {
+      throw new NumberFormatException("null");
+    }
+    return DDId.create(parseUnsignedLongHex(s, start, end - start), null);
+  }
+
   /**
    * Create a new {@code DDId} from the given {@code String} hex representation of the unsigned 64
    * bit id, while retalining the original {@code String} representation for use in headers.
@@ -85,6 +122,19 @@ public class DDId {
     return new DDIdOriginal(parseUnsignedLongHex(s, len - trimmed, trimmed), s);
   }
 
+  /**
+   * Create a new {@code DDId} from the given {@code long} interpreted as the bits of the unsigned
+   * 64 bit id, while retaining the original {@code String} representation, of which it's a part,
+   * for use in headers.
+   *
+   * @param id long representing the bits of the unsigned 64 bit id
+   * @param original String representation of the id to propagate
+   * @return DDId
+   */
+  public static DDId fromWithOriginal(long id, String original) {
+    return new DDIdOriginal(id, original);
+  }
+
   private final long id;
   private String str; // cache for string representation
 
@@ -99,15 +149,15 @@ public class DDId {
     return new DDId(id, str);
   }
 
-  private static int firstNonZeroCharacter(String s, int start) {
+  private static int firstNonZeroCharacter(CharSequence s, int start, int end) {
     int firstNonZero = start;
-    for (; firstNonZero < s.length(); firstNonZero++) {
+    for (; firstNonZero < end; firstNonZero++) {
       if (s.charAt(firstNonZero) != '0') break;
     }
     return firstNonZero;
   }
 
-  private static NumberFormatException numberFormatOutOfRange(String s) {
+  private static NumberFormatException numberFormatOutOfRange(CharSequence s) {
     return new NumberFormatException(
         String.format("String value %s exceeds range of unsigned long.", s));
   }
@@ -160,6 +210,38 @@ public class DDId {
     }
   }
 
+  /** Same as {@link #parseUnsignedLong(String)} for a range of characters. */
+  private static long parseUnsignedLong(CharSequence s, int start, int end)
+      throws NumberFormatException {
+    int len = end - start;
+    if (len <= 0) {
+      throw new NumberFormatException("Empty input string");
+    } else if (len > 20) { // Unsigned 64 bits max is 20 digits, so this always overflows
+      throw numberFormatOutOfRange(s.subSequence(start, end));
+    }
+    long first = 0;
+    int ok = 0;
+    for (int i = start; i < end - 1; i++) {
+      int d = Character.digit(s.charAt(i), 10);
+      ok |= d;
+      first = first * 10 + d;
+    }
+    int last = Character.digit(s.charAt(end - 1), 10);
+    ok |= last;
+    if (ok < 0) {
+      throw new NumberFormatException("Illegal character in " + s.subSequence(start, end));
+    }
+    if (first > MAX_FIRST_PART) {
+      throw numberFormatOutOfRange(s.subSequence(start, end));
+    }
+    long guard = first * 10;
+    long result = guard + last;
+    if (guard < 0 && result >= 0) {
+      throw numberFormatOutOfRange(s.subSequence(start, end));
+    }
+    return result;
+  }
+
   private static long parseUnsignedLongHex(String s) throws NumberFormatException {
     if (s == null) {
       throw new NumberFormatException("null");
@@ -168,10 +250,10 @@ public class DDId {
     return parseUnsignedLongHex(s, 0, s.length());
   }
 
-  private static long parseUnsignedLongHex(String s, int start, int len)
+  private static long parseUnsignedLongHex(CharSequence s, int start, int len)
       throws NumberFormatException {
     if (len > 0) {
-      if (len > 16 && (len - firstNonZeroCharacter(s, start)) > 16) {
+      if (len > 16 && (start + len - firstNonZeroCharacter(s, start, start + len)) > 16) {
         // Unsigned 64 bits max is 16 digits, so this always overflows
         throw numberFormatOutOfRange(s);
       }
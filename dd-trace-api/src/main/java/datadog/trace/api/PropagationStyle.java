@@ -4,5 +4,7 @@ public enum PropagationStyle {
   DATADOG,
   B3,
   HAYSTACK,
-  XRAY
+  XRAY,
+  /** W3C Trace Context, https://www.w3.org/TR/trace-context/ */
+  TRACECONTEXT
 }
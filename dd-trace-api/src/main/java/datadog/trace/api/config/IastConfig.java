@@ -10,6 +10,7 @@ public final class IastConfig {
   public static final String IAST_VULNERABILITIES_PER_REQUEST = "iast.vulnerabilities-per-request";
   public static final String IAST_REQUEST_SAMPLING = "iast.request-sampling";
   public static final String IAST_DEDUPLICATION_ENABLED = "iast.deduplication.enabled";
+  public static final String IAST_ENDPOINT_SAMPLING_ENABLED = "iast.endpoint-sampling.enabled";
 
   private IastConfig() {}
 }
@@ -20,6 +20,8 @@ public final class TracerConfig {
   public static final String TRACE_AGENT_PORT = "trace.agent.port";
   public static final String AGENT_PORT_LEGACY = "agent.port";
   public static final String AGENT_UNIX_DOMAIN_SOCKET = "trace.agent.unix.domain.socket";
+  public static final String AGENT_UNIX_DOMAIN_SOCKET_DIRECT_TRANSPORT =
+      "trace.agent.unix.domain.socket.direct.transport.enabled";
   public static final String AGENT_NAMED_PIPE = "trace.pipe.name";
   public static final String AGENT_TIMEOUT = "trace.agent.timeout";
   public static final String PROXY_NO_PROXY = "proxy.no_proxy";
@@ -61,8 +63,37 @@ public final class TracerConfig {
   public static final String SCOPE_INHERIT_ASYNC_PROPAGATION =
       "trace.scope.inherit.async.propagation";
   public static final String SCOPE_ITERATION_KEEP_ALIVE = "trace.scope.iteration.keep.alive";
+  /**
+   * Reuses closed scopes and finished continuations. Callers hold a small handle per use, and calls
+   * through the handle of a closed scope or of a used continuation are ignored.
+   */
+  public static final String SCOPE_RECYCLING_ENABLED = "trace.scope.recycling.enabled";
   public static final String PARTIAL_FLUSH_MIN_SPANS = "trace.partial.flush.min.spans";
   public static final String TRACE_STRICT_WRITES_ENABLED = "trace.strict.writes.enabled";
+  public static final String TRACE_PENDING_BUFFER_TIMER_WHEEL_ENABLED =
+      "trace.pending.buffer.timer.wheel.enabled";
+  /**
+   * Number of threads serializing traces. Each thread has its own queues and payload buffers, and
+   * traces are routed to a thread by trace id.
+   */
+  public static final String TRACE_PROCESSING_SHARDS = "trace.processing.shards";
+  /**
+   * Number of payload buffers per serializing thread. With more than one, traces keep being
+   * serialized into a spare buffer while a full one is sent to the agent on a separate thread.
+   */
+  public static final String TRACE_PAYLOAD_BUFFERS = "trace.payload.buffers";
+  /**
+   * Compression of the trace payloads sent to the agent or the intake, either {@code none} or
+   * {@code gzip}. Payloads are compressed as they are sent, without being copied first.
+   */
+  public static final String TRACE_PAYLOAD_COMPRESSION = "trace.payload.compression";
+  /** Deflate level from 1 (fastest) to 9 (smallest) used when trace payloads are compressed. */
+  public static final String TRACE_PAYLOAD_COMPRESSION_LEVEL = "trace.payload.compression.level";
+  /**
+   * Hands the tag storage of spans back to a pool once their trace has been serialized, so new
+   * spans can reuse it. Only applies when traces are written by a single {@code DDAgentWriter}.
+   */
+  public static final String SPAN_TAGS_RECYCLING_ENABLED = "trace.span.tags.recycling.enabled";
   public static final String PROPAGATION_EXTRACT_LOG_HEADER_NAMES_ENABLED =
       "propagation.extract.log_header_names.enabled";
   public static final String PROPAGATION_STYLE_EXTRACT = "propagation.style.extract";
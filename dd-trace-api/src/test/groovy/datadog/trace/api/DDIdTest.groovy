@@ -61,6 +61,60 @@ class DDIdTest extends DDSpecification {
     ]
   }
 
+  def "convert ids from part of a CharSequence"() {
+    setup:
+    StringBuilder header = new StringBuilder("id=").append(stringId).append(";")
+
+    when:
+    final ddid = DDId.from(header, 3, header.length() - 1)
+
+    then:
+    ddid == expectedId
+    ddid.toString() == stringId
+
+    where:
+    stringId                                        | expectedId
+    "0"                                             | DDId.ZERO
+    "1"                                             | DDId.ONE
+    "123"                                           | DDId.from(123)
+    "18446744073709551615"                          | DDId.MAX
+    "${Long.MAX_VALUE}"                             | DDId.from(Long.MAX_VALUE)
+    "${BigInteger.valueOf(Long.MAX_VALUE).plus(1)}" | DDId.from(Long.MIN_VALUE)
+  }
+
+  def "convert hex ids from part of a CharSequence"() {
+    when:
+    final ddid = DDId.fromHex("id=" + hexId + ";", 3, hexId.length() + 3)
+
+    then:
+    ddid == expectedId
+
+    where:
+    hexId                    | expectedId
+    "0"                      | DDId.ZERO
+    "f" * 16                 | DDId.MAX
+    "0" * 4 + "8" + "0" * 15 | DDId.from(Long.MIN_VALUE)
+    "cafebabe"               | DDId.from(3405691582)
+  }
+
+  def "fail on illegal part of a CharSequence"() {
+    when:
+    DDId.from("id=" + stringId + ";", 3, stringId.length() + 3)
+
+    then:
+    thrown NumberFormatException
+
+    where:
+    stringId << [
+      "",
+      "-1",
+      "+1",
+      "18446744073709551616",
+      "184467440737095516150",
+      "18446744073709551a1"
+    ]
+  }
+
   def "convert ids from/to hex String"() {
     when:
     final ddid = DDId.fromHex(hexId)
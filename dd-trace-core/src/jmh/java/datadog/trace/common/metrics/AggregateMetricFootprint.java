@@ -0,0 +1,84 @@
+package datadog.trace.common.metrics;
+
+import datadog.trace.core.histogram.Histogram;
+import datadog.trace.core.histogram.HistogramFactory;
+import datadog.trace.core.histogram.Histograms;
+import java.util.SplittableRandom;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jol.info.GraphLayout;
+
+/**
+ * Records latencies into the pair of histograms held by each aggregate and serializes them. The
+ * retained size of an aggregate's histograms for each factory is printed when the trial starts.
+ */
+@State(Scope.Thread)
+public class AggregateMetricFootprint {
+
+  private static final int AGGREGATES = 1000;
+
+  @Param({"ddsketch", "compact"})
+  String histograms;
+
+  @Param({"1", "10", "100"})
+  int durationsPerInterval;
+
+  private HistogramFactory factory;
+  private Histogram[] okLatencies;
+  private Histogram[] errorLatencies;
+  private long[] durations;
+  private int next;
+
+  @Setup(Level.Trial)
+  public void init() {
+    factory =
+        "compact".equals(histograms)
+            ? Histograms.newCompactHistogramFactory()
+            : Histograms.newHistogramFactory();
+    SplittableRandom random = new SplittableRandom(0);
+    durations = new long[AGGREGATES * durationsPerInterval];
+    for (int i = 0; i < durations.length; ++i) {
+      // exponentially distributed around 1ms
+      durations[i] = (long) (-Math.log(random.nextDouble()) * 1_000_000);
+    }
+    okLatencies = new Histogram[AGGREGATES];
+    errorLatencies = new Histogram[AGGREGATES];
+    for (int i = 0; i < AGGREGATES; ++i) {
+      okLatencies[i] = factory.newHistogram();
+      errorLatencies[i] = factory.newHistogram();
+      for (int j = 0; j < durationsPerInterval; ++j) {
+        okLatencies[i].accept(durations[i * durationsPerInterval + j]);
+      }
+      errorLatencies[i].accept(durations[i * durationsPerInterval]);
+    }
+    long retained = GraphLayout.parseInstance(okLatencies, errorLatencies).totalSize();
+    System.out.println(
+        "\nretained bytes per aggregate ("
+            + histograms
+            + ", "
+            + durationsPerInterval
+            + " durations): "
+            + retained / AGGREGATES);
+  }
+
+  @Benchmark
+  public void recordAndSerialize(Blackhole blackhole) {
+    int aggregate = next++ % AGGREGATES;
+    Histogram ok = okLatencies[aggregate];
+    Histogram error = errorLatencies[aggregate];
+    int first = aggregate * durationsPerInterval;
+    for (int i = 0; i < durationsPerInterval; ++i) {
+      ok.accept(durations[first + i]);
+    }
+    error.accept(durations[first]);
+    blackhole.consume(ok.serialize());
+    blackhole.consume(error.serialize());
+    ok.clear();
+    error.clear();
+  }
+}
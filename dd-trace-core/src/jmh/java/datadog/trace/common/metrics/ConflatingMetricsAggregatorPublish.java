@@ -0,0 +1,143 @@
+package datadog.trace.common.metrics;
+
+import static datadog.communication.ddagent.DDAgentFeaturesDiscovery.V6_METRICS_ENDPOINT;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import datadog.communication.ddagent.DDAgentFeaturesDiscovery;
+import datadog.communication.monitor.Monitoring;
+import datadog.trace.common.writer.LoggingWriter;
+import datadog.trace.core.CoreTracer;
+import datadog.trace.core.DDSpan;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import okhttp3.HttpUrl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Measures how many traces can be published to the {@link ConflatingMetricsAggregator} as the
+ * number of publishing threads grows. Each thread walks through the same traces, each with a single
+ * top level span, so {@code keys} controls how often consecutive spans on a thread share a key.
+ * Run with {@code -prof gc} to see the allocations per published trace.
+ */
+@State(Scope.Benchmark)
+public class ConflatingMetricsAggregatorPublish {
+
+  private static final int TRACE_COUNT = 1024;
+
+  @Param({"1", "16", "256"})
+  int keys;
+
+  private final List<List<DDSpan>> traces = new ArrayList<>(TRACE_COUNT);
+  private CoreTracer tracer;
+  private ConflatingMetricsAggregator aggregator;
+
+  @Setup(Level.Trial)
+  public void init() {
+    tracer = CoreTracer.builder().writer(new LoggingWriter()).strictTraceWrites(false).build();
+    for (int i = 0; i < TRACE_COUNT; ++i) {
+      traces.add(Collections.singletonList(createSpan("resource-" + (i % keys))));
+    }
+    aggregator =
+        new ConflatingMetricsAggregator(
+            new HashSet<String>(),
+            new MetricsSupported(),
+            new NoopSink(),
+            new NoopMetricWriter(),
+            1024,
+            1024,
+            10,
+            SECONDS);
+    aggregator.start();
+  }
+
+  @TearDown(Level.Trial)
+  public void shutdown() {
+    aggregator.close();
+    tracer.close();
+  }
+
+  @State(Scope.Thread)
+  public static class Cursor {
+    int next;
+  }
+
+  @Threads(8)
+  @Benchmark
+  public boolean publish8Threads(Cursor cursor) {
+    return publish(cursor);
+  }
+
+  @Threads(32)
+  @Benchmark
+  public boolean publish32Threads(Cursor cursor) {
+    return publish(cursor);
+  }
+
+  @Threads(64)
+  @Benchmark
+  public boolean publish64Threads(Cursor cursor) {
+    return publish(cursor);
+  }
+
+  private boolean publish(Cursor cursor) {
+    return aggregator.publish(traces.get(cursor.next++ & (TRACE_COUNT - 1)));
+  }
+
+  private DDSpan createSpan(String resource) {
+    return (DDSpan)
+        tracer
+            .buildSpan("operation")
+            .withServiceName("service")
+            .withResourceName(resource)
+            .withSpanType("web")
+            .start();
+  }
+
+  private static final class MetricsSupported extends DDAgentFeaturesDiscovery {
+    MetricsSupported() {
+      super(null, Monitoring.DISABLED, HttpUrl.get("http://localhost:8126"), false, true);
+    }
+
+    @Override
+    public boolean supportsMetrics() {
+      return true;
+    }
+
+    @Override
+    public String getMetricsEndpoint() {
+      return V6_METRICS_ENDPOINT;
+    }
+  }
+
+  private static final class NoopSink implements Sink {
+    @Override
+    public void register(EventListener listener) {}
+
+    @Override
+    public void accept(int messageCount, ByteBuffer buffer) {}
+  }
+
+  private static final class NoopMetricWriter implements MetricWriter {
+    @Override
+    public void startBucket(int metricCount, long start, long duration) {}
+
+    @Override
+    public void add(MetricKey key, AggregateMetric aggregate) {}
+
+    @Override
+    public void finishBucket() {}
+
+    @Override
+    public void reset() {}
+  }
+}
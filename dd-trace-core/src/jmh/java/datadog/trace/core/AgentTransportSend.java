@@ -0,0 +1,190 @@
+package datadog.trace.core;
+
+import static datadog.communication.http.OkHttpUtils.buildHttpClient;
+import static datadog.communication.http.OkHttpUtils.prepareRequest;
+
+import datadog.trace.common.writer.Payload;
+import datadog.trace.common.writer.ddagent.DirectSocketTransport;
+import datadog.trace.common.writer.ddagent.TraceMapperV0_4;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.ThreadLocalRandom;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Sends payloads to a local stub agent through OkHttp and through {@link DirectSocketTransport}.
+ * The stub listens on loopback TCP so both paths talk to the same server; the direct transport
+ * writes to the channel the same way whether it's a TCP or a unix domain socket. Run with {@code
+ * -prof gc} to compare the bytes allocated per payload, which includes OkHttp's copies of the
+ * body.
+ */
+@State(Scope.Benchmark)
+public class AgentTransportSend {
+
+  @Param({"16384", "262144", "1048576"})
+  int payloadBytes;
+
+  private ServerSocketChannel server;
+  private Thread stubAgent;
+  private HttpUrl url;
+  private OkHttpClient client;
+  private DirectSocketTransport transport;
+  private ByteBuffer body;
+  private Payload payload;
+
+  @Setup(Level.Trial)
+  public void init() throws IOException {
+    server = ServerSocketChannel.open();
+    server.bind(new InetSocketAddress("127.0.0.1", 0));
+    final int port = ((InetSocketAddress) server.getLocalAddress()).getPort();
+    stubAgent = new Thread(new StubAgent(server), "stub-agent");
+    stubAgent.setDaemon(true);
+    stubAgent.start();
+    url = HttpUrl.get("http://127.0.0.1:" + port + "/v0.4/traces");
+    client = buildHttpClient(url, 10_000);
+    transport =
+        new DirectSocketTransport(
+            new DirectSocketTransport.Connector() {
+              @Override
+              public SocketChannel connect() throws IOException {
+                return SocketChannel.open(new InetSocketAddress("127.0.0.1", port));
+              }
+            });
+    byte[] bytes = new byte[payloadBytes];
+    ThreadLocalRandom.current().nextBytes(bytes);
+    body = ByteBuffer.wrap(bytes);
+    payload = new TraceMapperV0_4().newPayload().withBody(1, body);
+  }
+
+  @TearDown(Level.Trial)
+  public void close() throws IOException {
+    transport.close();
+    server.close();
+    stubAgent.interrupt();
+  }
+
+  @Benchmark
+  public int okHttp() throws IOException {
+    body.rewind();
+    Request request =
+        prepareRequest(url, Collections.<String, String>emptyMap())
+            .put(payload.toRequest())
+            .build();
+    try (Response response = client.newCall(request).execute()) {
+      return response.body().string().length();
+    }
+  }
+
+  @Benchmark
+  public int direct() throws IOException {
+    Request request =
+        prepareRequest(url, Collections.<String, String>emptyMap())
+            .put(payload.toRequest())
+            .build();
+    return transport.send(request, payload).body().length();
+  }
+
+  /** Reads requests with a content length and answers each with a small JSON body. */
+  private static final class StubAgent implements Runnable {
+    private static final byte[] RESPONSE =
+        "HTTP/1.1 200 OK\r\nContent-Type: application/json\r\nContent-Length: 2\r\n\r\n{}"
+            .getBytes(StandardCharsets.US_ASCII);
+
+    private final ServerSocketChannel server;
+
+    StubAgent(ServerSocketChannel server) {
+      this.server = server;
+    }
+
+    @Override
+    public void run() {
+      while (!Thread.currentThread().isInterrupted()) {
+        try {
+          final SocketChannel connection = server.accept();
+          Thread handler =
+              new Thread(
+                  new Runnable() {
+                    @Override
+                    public void run() {
+                      serve(connection);
+                    }
+                  },
+                  "stub-agent-connection");
+          handler.setDaemon(true);
+          handler.start();
+        } catch (IOException e) {
+          return;
+        }
+      }
+    }
+
+    private static void serve(SocketChannel connection) {
+      ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+      try {
+        while (true) {
+          // read up to the end of the headers
+          int headEnd;
+          while ((headEnd = find(buffer, "\r\n\r\n")) < 0) {
+            if (connection.read(buffer) < 0) {
+              return;
+            }
+          }
+          String head =
+              new String(buffer.array(), 0, headEnd, StandardCharsets.US_ASCII).toLowerCase();
+          int lengthStart = head.indexOf("content-length:") + "content-length:".length();
+          int lengthEnd = head.indexOf('\r', lengthStart);
+          String length =
+              head.substring(lengthStart, lengthEnd < 0 ? head.length() : lengthEnd).trim();
+          long remaining = Long.parseLong(length);
+          // discard the body
+          remaining -= buffer.position() - (headEnd + 4);
+          buffer.clear();
+          while (remaining > 0) {
+            int read = connection.read(buffer);
+            if (read < 0) {
+              return;
+            }
+            remaining -= read;
+            buffer.clear();
+          }
+          connection.write(ByteBuffer.wrap(RESPONSE));
+        }
+      } catch (IOException ignored) {
+      } finally {
+        try {
+          connection.close();
+        } catch (IOException ignored) {
+        }
+      }
+    }
+
+    private static int find(ByteBuffer buffer, String ascii) {
+      byte[] bytes = buffer.array();
+      outer:
+      for (int i = 0; i <= buffer.position() - ascii.length(); ++i) {
+        for (int j = 0; j < ascii.length(); ++j) {
+          if (bytes[i + j] != ascii.charAt(j)) {
+            continue outer;
+          }
+        }
+        return i;
+      }
+      return -1;
+    }
+  }
+}
@@ -0,0 +1,132 @@
+package datadog.trace.core;
+
+import datadog.communication.serialization.ByteBufferConsumer;
+import datadog.communication.serialization.FlushingBuffer;
+import datadog.communication.serialization.msgpack.MsgPackWriter;
+import datadog.trace.common.writer.LoggingWriter;
+import datadog.trace.common.writer.Payload;
+import datadog.trace.common.writer.PayloadCompression;
+import datadog.trace.common.writer.ddagent.TraceMapper;
+import datadog.trace.common.writer.ddagent.TraceMapperV0_4;
+import datadog.trace.common.writer.ddagent.TraceMapperV0_5;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import okio.Buffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Writes a payload of about 200 web traces to a request body, either as it is or compressed with
+ * gzip at different levels. The compressed size relative to the raw payload is printed at the end
+ * of each trial.
+ */
+@State(Scope.Benchmark)
+public class PayloadCompressionThroughput {
+
+  private static final int TRACE_COUNT = 200;
+
+  private static final CoreTracer tracer =
+      CoreTracer.builder().writer(new LoggingWriter()).strictTraceWrites(true).build();
+
+  @Param({"v0.4", "v0.5"})
+  String endpoint;
+
+  @Param({"1", "6"})
+  int level;
+
+  private final Buffer sink = new Buffer();
+  private PayloadCompression compression;
+  private Payload payload;
+  private long compressedSize;
+
+  @Setup(Level.Trial)
+  public void init() {
+    final TraceMapper mapper =
+        "v0.4".equals(endpoint) ? new TraceMapperV0_4() : new TraceMapperV0_5();
+    final List<Payload> payloads = new ArrayList<>(1);
+    MsgPackWriter writer =
+        new MsgPackWriter(
+            new FlushingBuffer(
+                4 << 20,
+                new ByteBufferConsumer() {
+                  @Override
+                  public void accept(int messageCount, ByteBuffer buffer) {
+                    ByteBuffer body = ByteBuffer.allocate(buffer.remaining());
+                    body.put(buffer).flip();
+                    payloads.add(mapper.newPayload().withBody(messageCount, body).detach());
+                  }
+                }));
+    for (int i = 0; i < TRACE_COUNT; ++i) {
+      writer.format(trace(i), mapper);
+    }
+    writer.flush();
+    payload = payloads.get(0);
+    compression = new PayloadCompression(level, 1);
+  }
+
+  @TearDown(Level.Trial)
+  public void report() {
+    System.out.printf(
+        "%n%s payload of %d bytes compressed to %d bytes at level %d (%.1f%%)%n",
+        endpoint,
+        payload.sizeInBytes(),
+        compressedSize,
+        level,
+        100.0 * compressedSize / payload.sizeInBytes());
+  }
+
+  @Benchmark
+  public long uncompressed() throws IOException {
+    payload.toRequest().writeTo(sink);
+    long size = sink.size();
+    sink.clear();
+    return size;
+  }
+
+  @Benchmark
+  public long gzip() throws IOException {
+    compression.requestBody(payload).writeTo(sink);
+    compressedSize = sink.size();
+    sink.clear();
+    return compressedSize;
+  }
+
+  private static List<DDSpan> trace(int traceIndex) {
+    List<DDSpan> trace = new ArrayList<>();
+    DDSpan root =
+        (DDSpan)
+            tracer
+                .buildSpan("servlet.request")
+                .withServiceName("web-frontend")
+                .withResourceName("GET /users/" + (traceIndex % 20))
+                .withSpanType("web")
+                .withTag("http.method", "GET")
+                .withTag("http.url", "http://localhost:8080/users/" + traceIndex)
+                .withTag("http.status_code", 200)
+                .withTag("component", "tomcat-server")
+                .start();
+    trace.add(root);
+    for (int i = 0; i < 4; ++i) {
+      trace.add(
+          (DDSpan)
+              tracer
+                  .buildSpan("postgresql.query")
+                  .asChildOf(root.context())
+                  .withServiceName("postgres")
+                  .withResourceName("SELECT * FROM users WHERE id = ?")
+                  .withSpanType("sql")
+                  .withTag("db.instance", "users")
+                  .withTag("db.user", "app")
+                  .withTag("peer.hostname", "db-" + (i % 2))
+                  .start());
+    }
+    return trace;
+  }
+}
@@ -0,0 +1,90 @@
+package datadog.trace.core;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Work done per 10ms tick to find expired traces among many open ones, by checking each pending
+ * trace in turn versus advancing a timing wheel.
+ */
+@State(Scope.Thread)
+public class PendingTraceBufferExpiry {
+
+  private static final long TICK_NS = TimeUnit.MILLISECONDS.toNanos(10);
+  private static final long SEND_DELAY_NS = TimeUnit.MILLISECONDS.toNanos(500);
+
+  @Param({"1000", "10000", "50000"})
+  int pending;
+
+  private final ArrayDeque<PendingTraceBuffer.Element> queue = new ArrayDeque<>();
+  private PendingTraceWheel wheel;
+  private long now;
+
+  @Setup(Level.Trial)
+  public void init() {
+    wheel = new PendingTraceWheel(TICK_NS, (int) (SEND_DELAY_NS / TICK_NS) + 2, 0);
+    for (int i = 0; i < pending; ++i) {
+      OpenTrace trace = new OpenTrace();
+      queue.add(trace);
+      // spread the deadlines so that every tick has some work
+      wheel.schedule(trace, (SEND_DELAY_NS * i) / pending);
+    }
+  }
+
+  @Benchmark
+  public void checkEveryPendingTrace(Blackhole blackhole) {
+    for (int i = 0; i < pending; ++i) {
+      PendingTraceBuffer.Element trace = queue.poll();
+      blackhole.consume(trace.lastReferencedNanosAgo(SEND_DELAY_NS));
+      queue.offer(trace);
+    }
+  }
+
+  @Benchmark
+  public void advanceTimingWheel(Blackhole blackhole) {
+    now += TICK_NS;
+    PendingTraceBuffer.Element trace;
+    while (null != (trace = wheel.pollExpired(now))) {
+      blackhole.consume(trace.lastReferencedNanosAgo(SEND_DELAY_NS));
+      wheel.schedule(trace, trace.lastReferenced() + SEND_DELAY_NS);
+    }
+  }
+
+  /** A trace which is still being worked on, so is never written. */
+  private final class OpenTrace implements PendingTraceBuffer.Element {
+    @Override
+    public long oldestFinishedTime() {
+      return Long.MAX_VALUE;
+    }
+
+    @Override
+    public boolean lastReferencedNanosAgo(long nanos) {
+      return false;
+    }
+
+    @Override
+    public long lastReferenced() {
+      return now;
+    }
+
+    @Override
+    public void write() {}
+
+    @Override
+    public DDSpan getRootSpan() {
+      return null;
+    }
+
+    @Override
+    public boolean setEnqueued(boolean enqueued) {
+      return true;
+    }
+  }
+}
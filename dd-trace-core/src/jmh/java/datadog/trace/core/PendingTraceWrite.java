@@ -3,7 +3,11 @@ package datadog.trace.core;
 import datadog.trace.api.DDId;
 import datadog.trace.api.sampling.PrioritySampling;
 import datadog.trace.bootstrap.instrumentation.api.AgentTracer.NoopPathwayContext;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.Level;
 import org.openjdk.jmh.annotations.Param;
@@ -28,6 +32,11 @@ public class PendingTraceWrite {
   private DDSpan root;
   private DDSpan span;
 
+  // the buffer PendingTrace used before FinishedSpans, with its separate count
+  private final ConcurrentLinkedDeque<DDSpan> deque = new ConcurrentLinkedDeque<>();
+  private final AtomicInteger dequeCount = new AtomicInteger();
+  private final FinishedSpans finishedSpans = new FinishedSpans();
+
   @Setup(Level.Trial)
   public void init(TraceCounters counters, Blackhole blackhole) {
     tracer =
@@ -97,4 +106,34 @@ public class PendingTraceWrite {
     }
     trace.onPublish(root);
   }
+
+  @Threads(4)
+  @Benchmark
+  public void appendAndDrainDeque(Blackhole blackhole) {
+    for (int i = 0; i < depthPerThread; ++i) {
+      deque.addFirst(span);
+      dequeCount.incrementAndGet();
+    }
+    synchronized (deque) {
+      List<DDSpan> batch = new ArrayList<>(dequeCount.get());
+      DDSpan next = deque.pollFirst();
+      while (null != next) {
+        batch.add(next);
+        next = deque.pollFirst();
+      }
+      dequeCount.addAndGet(-batch.size());
+      blackhole.consume(batch);
+    }
+  }
+
+  @Threads(4)
+  @Benchmark
+  public void appendAndDrainChunked(Blackhole blackhole) {
+    for (int i = 0; i < depthPerThread; ++i) {
+      finishedSpans.add(span);
+    }
+    synchronized (finishedSpans) {
+      blackhole.consume(finishedSpans.drain());
+    }
+  }
 }
@@ -0,0 +1,96 @@
+package datadog.trace.core;
+
+import datadog.communication.serialization.msgpack.MsgPackWriter;
+import datadog.trace.bootstrap.instrumentation.api.AgentSpan;
+import datadog.trace.common.writer.Writer;
+import datadog.trace.common.writer.ddagent.TraceMapperV0_4;
+import java.util.List;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Creates, tags, finishes and serializes single span traces, optionally recycling the tag storage
+ * after serialization. Run with {@code -prof gc} and compare {@code gc.alloc.rate.norm} to see the
+ * allocation per span. Recycling is switched on for both, so they pay for the same checks.
+ */
+@Fork(jvmArgsAppend = "-Ddd.trace.span.tags.recycling.enabled=true")
+@State(Scope.Benchmark)
+public class SpanTagsRecycling {
+
+  @Param({"false", "true"})
+  boolean recycle;
+
+  @Param({"20"})
+  int tagCount;
+
+  private CoreTracer tracer;
+  private String[] tagKeys;
+
+  @Setup(Level.Trial)
+  public void init(Blackhole blackhole) {
+    tracer =
+        CoreTracer.builder()
+            .writer(new SerializingWriter(blackhole, recycle))
+            .strictTraceWrites(true)
+            .build();
+    tagKeys = new String[tagCount];
+    for (int i = 0; i < tagCount; ++i) {
+      tagKeys[i] = "tag.key." + i;
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void shutdown() {
+    tracer.close();
+  }
+
+  @Benchmark
+  public void spanLifecycle() {
+    AgentSpan span = tracer.buildSpan("operation").start();
+    for (int i = 0; i < tagKeys.length; ++i) {
+      span.setTag(tagKeys[i], "value");
+    }
+    span.finish();
+  }
+
+  /** Serializes on the calling thread, like the trace processor would. */
+  private static final class SerializingWriter implements Writer {
+    private final TraceMapperV0_4 mapper = new TraceMapperV0_4();
+    private final MsgPackWriter packer;
+    private final boolean recycle;
+
+    SerializingWriter(Blackhole blackhole, boolean recycle) {
+      this.packer = new MsgPackWriter(new BlackholeBuffer(blackhole));
+      this.recycle = recycle;
+    }
+
+    @Override
+    public void write(List<DDSpan> trace) {
+      packer.format(trace, mapper);
+      if (recycle) {
+        SpanTagsRecycler.recycle(trace);
+      }
+    }
+
+    @Override
+    public void start() {}
+
+    @Override
+    public boolean flush() {
+      return true;
+    }
+
+    @Override
+    public void close() {}
+
+    @Override
+    public void incrementDropCounts(int spanCount) {}
+  }
+}
@@ -0,0 +1,55 @@
+package datadog.trace.core;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Fills and walks span sized tag storage, half strings and half metrics. */
+@State(Scope.Thread)
+public class TagMapWrite {
+
+  private static final int TAG_COUNT = 16;
+
+  private static final String[] KEYS = new String[TAG_COUNT];
+
+  static {
+    for (int i = 0; i < TAG_COUNT; i++) {
+      KEYS[i] = "tag.key." + i;
+    }
+  }
+
+  @Benchmark
+  public void hashMap(Blackhole blackhole) {
+    Map<String, Object> tags = new HashMap<>(TAG_COUNT * 4 / 3 + 1);
+    for (int i = 0; i < TAG_COUNT; i += 2) {
+      tags.put(KEYS[i], KEYS[i]);
+      tags.put(KEYS[i + 1], (double) i);
+    }
+    for (Map.Entry<String, Object> entry : tags.entrySet()) {
+      if (entry.getValue() instanceof Number) {
+        blackhole.consume(((Number) entry.getValue()).doubleValue());
+      } else {
+        blackhole.consume(entry.getValue());
+      }
+    }
+  }
+
+  @Benchmark
+  public void tagMap(Blackhole blackhole) {
+    TagMap tags = new TagMap(TAG_COUNT);
+    for (int i = 0; i < TAG_COUNT; i += 2) {
+      tags.set(KEYS[i], KEYS[i]);
+      tags.setDouble(KEYS[i + 1], i);
+    }
+    for (int i = tags.first(); i >= 0; i = tags.next(i)) {
+      if (tags.typeAt(i) == TagMap.DOUBLE) {
+        blackhole.consume(tags.doubleAt(i));
+      } else {
+        blackhole.consume(tags.valueAt(i));
+      }
+    }
+  }
+}
@@ -0,0 +1,85 @@
+package datadog.trace.core;
+
+import datadog.communication.serialization.StreamingBuffer;
+import datadog.communication.serialization.msgpack.MsgPackWriter;
+import datadog.trace.common.writer.LoggingWriter;
+import datadog.trace.common.writer.ddagent.TraceMapperV0_4;
+import java.util.ArrayList;
+import java.util.List;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Maps spans drawn from about 200 distinct services, operation names, types and tag keys with the
+ * v0.4 mapper, writing the shared strings from the table of pre-encoded strings or encoding them
+ * for every span as before.
+ */
+@State(Scope.Benchmark)
+public class TraceMapperV0_4Strings {
+
+  private static final int SPAN_COUNT = 1000;
+  private static final int TAG_KEYS = 160;
+  private static final int TAGS_PER_SPAN = 12;
+
+  private static final CoreTracer tracer =
+      CoreTracer.builder().writer(new LoggingWriter()).strictTraceWrites(true).build();
+
+  private final TraceMapperV0_4 mapper = new TraceMapperV0_4();
+  private final List<DDSpan> spans = new ArrayList<>(SPAN_COUNT);
+
+  private MsgPackWriter cached;
+  private MsgPackWriter uncached;
+
+  @Setup(Level.Trial)
+  public void init(Blackhole blackhole) {
+    cached = new MsgPackWriter(new BlackholeBuffer(blackhole));
+    uncached = new UncachedWriter(new BlackholeBuffer(blackhole));
+    String[] tagKeys = new String[TAG_KEYS];
+    for (int i = 0; i < TAG_KEYS; ++i) {
+      tagKeys[i] = ("tag.key." + i).intern();
+    }
+    for (int i = 0; i < SPAN_COUNT; ++i) {
+      CoreTracer.CoreSpanBuilder builder =
+          tracer
+              .buildSpan("operation." + (i % 16))
+              .withServiceName("service-" + (i % 8))
+              .withResourceName("GET /resource/" + i)
+              .withSpanType("type-" + (i % 8));
+      for (int j = 0; j < TAGS_PER_SPAN; ++j) {
+        String key = tagKeys[(i + j * 13) % TAG_KEYS];
+        if (j % 3 == 0) {
+          builder.withTag(key, i * j);
+        } else {
+          builder.withTag(key, "value-" + i + "-" + j);
+        }
+      }
+      spans.add((DDSpan) builder.start());
+    }
+  }
+
+  @Benchmark
+  public void preEncoded() {
+    mapper.map(spans, cached);
+  }
+
+  @Benchmark
+  public void encodedPerSpan() {
+    mapper.map(spans, uncached);
+  }
+
+  /** Writes shared strings the way the mapper did before they were pre-encoded. */
+  private static final class UncachedWriter extends MsgPackWriter {
+    UncachedWriter(StreamingBuffer buffer) {
+      super(buffer);
+    }
+
+    @Override
+    public void writeCachedString(CharSequence s) {
+      writeString(s, null);
+    }
+  }
+}
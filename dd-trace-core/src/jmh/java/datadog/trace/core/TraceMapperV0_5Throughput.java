@@ -0,0 +1,73 @@
+package datadog.trace.core;
+
+import datadog.communication.serialization.msgpack.MsgPackWriter;
+import datadog.trace.common.writer.LoggingWriter;
+import datadog.trace.common.writer.Payload;
+import datadog.trace.common.writer.ddagent.TraceMapperV0_5;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Maps traces with the v0.5 mapper, flushing a detached payload and resetting the dictionary every
+ * {@code tracesPerFlush} traces like the writer does. Run with {@code -prof gc} to see the bytes
+ * allocated per trace.
+ */
+@State(Scope.Benchmark)
+public class TraceMapperV0_5Throughput {
+
+  private static final int SPANS_PER_TRACE = 32;
+  private static final int TRACE_COUNT = 64;
+
+  private static final CoreTracer tracer =
+      CoreTracer.builder().writer(new LoggingWriter()).strictTraceWrites(true).build();
+
+  @Param({"16", "256"})
+  int tracesPerFlush;
+
+  private final TraceMapperV0_5 mapper = new TraceMapperV0_5();
+  private final List<List<DDSpan>> traces = new ArrayList<>(TRACE_COUNT);
+  private final ByteBuffer body = ByteBuffer.allocate(0);
+
+  private MsgPackWriter writer;
+  private int mapped;
+
+  @Setup(Level.Trial)
+  public void init(Blackhole blackhole) {
+    writer = new MsgPackWriter(new BlackholeBuffer(blackhole));
+    for (int i = 0; i < TRACE_COUNT; ++i) {
+      List<DDSpan> trace = new ArrayList<>(SPANS_PER_TRACE);
+      for (int j = 0; j < SPANS_PER_TRACE; ++j) {
+        trace.add(
+            (DDSpan)
+                tracer
+                    .buildSpan("operation." + (j % 8))
+                    .withServiceName("service-" + (i % 4))
+                    .withResourceName("GET /resource/" + ((i * SPANS_PER_TRACE + j) % 500))
+                    .withSpanType("web")
+                    .withTag("http.url", "http://localhost/resource/" + j)
+                    .withTag("peer.hostname", "host-" + (j % 16))
+                    .withTag("db.rows", j)
+                    .start());
+      }
+      traces.add(trace);
+    }
+  }
+
+  @Benchmark
+  public void mapTrace() {
+    mapper.map(traces.get(mapped % TRACE_COUNT), writer);
+    if (++mapped % tracesPerFlush == 0) {
+      Payload payload = mapper.newPayload().withBody(tracesPerFlush, body).detach();
+      mapper.reset();
+      payload.release();
+    }
+  }
+}
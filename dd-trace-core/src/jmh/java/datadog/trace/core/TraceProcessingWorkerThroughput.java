@@ -0,0 +1,158 @@
+package datadog.trace.core;
+
+import datadog.communication.ddagent.DroppingPolicy;
+import datadog.communication.monitor.Monitoring;
+import datadog.trace.api.DDId;
+import datadog.trace.api.StatsDClient;
+import datadog.trace.api.sampling.PrioritySampling;
+import datadog.trace.bootstrap.instrumentation.api.AgentTracer.NoopPathwayContext;
+import datadog.trace.common.writer.LoggingWriter;
+import datadog.trace.common.writer.Payload;
+import datadog.trace.common.writer.PayloadDispatcher;
+import datadog.trace.common.writer.RemoteApi;
+import datadog.trace.common.writer.RemoteMapper;
+import datadog.trace.common.writer.RemoteMapperDiscovery;
+import datadog.trace.common.writer.RemoteResponseListener;
+import datadog.trace.common.writer.TraceProcessingWorker;
+import datadog.trace.common.writer.ddagent.Prioritization;
+import datadog.trace.common.writer.ddagent.TraceMapperV0_4;
+import datadog.trace.core.monitor.HealthMetrics;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Measures how many traces the {@link TraceProcessingWorker} accepts as the number of serializing
+ * shards grows. Publishing never blocks, so once the serializer threads saturate the excess shows
+ * up in the {@code drops} counter rather than as lower publish throughput; compare {@code traces}
+ * across shard counts.
+ */
+@State(Scope.Benchmark)
+public class TraceProcessingWorkerThroughput {
+
+  private static final int TRACE_COUNT = 1024;
+
+  @Param({"1", "2", "4", "8"})
+  int shards;
+
+  @Param({"10"})
+  int spansPerTrace;
+
+  private final List<List<DDSpan>> traces = new ArrayList<>(TRACE_COUNT);
+  private CoreTracer tracer;
+  private TraceProcessingWorker worker;
+
+  @Setup(Level.Trial)
+  public void init() {
+    tracer = CoreTracer.builder().writer(new LoggingWriter()).strictTraceWrites(false).build();
+    for (int i = 1; i <= TRACE_COUNT; ++i) {
+      traces.add(createTrace(i));
+    }
+    HealthMetrics healthMetrics = new HealthMetrics(StatsDClient.NO_OP);
+    PayloadDispatcher[] dispatchers = new PayloadDispatcher[shards];
+    for (int i = 0; i < shards; ++i) {
+      dispatchers[i] =
+          new PayloadDispatcher(
+              new StaticMapperDiscovery(), new NoopRemoteApi(), healthMetrics, Monitoring.DISABLED);
+    }
+    worker =
+        new TraceProcessingWorker(
+            1024,
+            healthMetrics,
+            dispatchers,
+            DroppingPolicy.DISABLED,
+            Prioritization.FAST_LANE,
+            1,
+            TimeUnit.SECONDS);
+    worker.start();
+  }
+
+  @TearDown(Level.Trial)
+  public void shutdown() {
+    worker.close();
+    tracer.close();
+  }
+
+  @State(Scope.Thread)
+  public static class Cursor {
+    int next;
+  }
+
+  @Threads(8)
+  @Benchmark
+  public void publish(Cursor cursor, TraceCounters counters) {
+    List<DDSpan> trace = traces.get(cursor.next++ & (TRACE_COUNT - 1));
+    if (worker.publish(trace.get(0), PrioritySampling.SAMPLER_KEEP, trace)) {
+      counters.traces++;
+      counters.spans += trace.size();
+    } else {
+      counters.drops++;
+    }
+  }
+
+  private List<DDSpan> createTrace(int iter) {
+    final DDId traceId = DDId.from(iter * 0x9E3779B97F4A7C15L);
+    final PendingTrace pendingTrace = tracer.createTrace(traceId);
+    List<DDSpan> trace = new ArrayList<>(spansPerTrace);
+    for (int i = 0; i < spansPerTrace; ++i) {
+      DDSpan span =
+          DDSpan.create(
+              System.currentTimeMillis() * 1000,
+              new DDSpanContext(
+                  traceId,
+                  DDId.from(i + 1),
+                  i == 0 ? DDId.ZERO : DDId.from(1),
+                  null,
+                  "service",
+                  "operation",
+                  "resource",
+                  PrioritySampling.SAMPLER_KEEP,
+                  null,
+                  Collections.<String, String>emptyMap(),
+                  false,
+                  "type",
+                  0,
+                  pendingTrace,
+                  null,
+                  null,
+                  NoopPathwayContext.INSTANCE,
+                  false,
+                  null));
+      span.setTag("some-tag-key", "some-tag-value");
+      span.setMetric("some-metric-key", 1.0);
+      trace.add(span);
+    }
+    return trace;
+  }
+
+  private static final class StaticMapperDiscovery implements RemoteMapperDiscovery {
+    private final RemoteMapper mapper = new TraceMapperV0_4();
+
+    @Override
+    public void discover() {}
+
+    @Override
+    public RemoteMapper getMapper() {
+      return mapper;
+    }
+  }
+
+  private static final class NoopRemoteApi implements RemoteApi {
+    @Override
+    public Response sendSerializedTraces(Payload payload) {
+      return Response.success(200);
+    }
+
+    @Override
+    public void addResponseListener(RemoteResponseListener listener) {}
+  }
+}
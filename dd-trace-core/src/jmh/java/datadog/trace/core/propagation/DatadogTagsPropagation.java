@@ -0,0 +1,28 @@
+package datadog.trace.core.propagation;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Extracts an {@code x-datadog-tags} header value and injects it again, as a service in the middle
+ * of a call chain does, parsing the value straight away or only when it's needed.
+ */
+@State(Scope.Benchmark)
+public class DatadogTagsPropagation {
+
+  private static final String HEADER_VALUE =
+      "_dd.p.dm=934086a686-4,_dd.p.usr.id=dXNlckBleGFtcGxlLmNvbQ,_dd.p.anytag=value";
+
+  private final DatadogTagsFactory factory = new DatadogTagsFactory(512);
+
+  @Benchmark
+  public String eager() {
+    return factory.parse(HEADER_VALUE).headerValue();
+  }
+
+  @Benchmark
+  public String lazy() {
+    return factory.fromHeaderValue(HEADER_VALUE).headerValue();
+  }
+}
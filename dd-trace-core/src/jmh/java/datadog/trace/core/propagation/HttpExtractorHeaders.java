@@ -0,0 +1,100 @@
+package datadog.trace.core.propagation;
+
+import datadog.trace.bootstrap.instrumentation.api.ContextVisitors;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Extracts a context from a request of {@value #HEADER_COUNT} headers, carrying the propagation
+ * headers of one style among the usual browser and proxy headers, most of which are of no interest
+ * to the extractor. Run with {@code -prof gc} to see the bytes allocated per request.
+ */
+@State(Scope.Benchmark)
+public class HttpExtractorHeaders {
+
+  static final int HEADER_COUNT = 30;
+
+  @Param({"DATADOG", "B3", "HAYSTACK", "XRAY", "TRACECONTEXT"})
+  String style;
+
+  private HttpCodec.Extractor extractor;
+  private Map<String, String> headers;
+
+  @Setup
+  public void init() {
+    Map<String, String> tagMapping = Collections.singletonMap("x-request-tag", "request.tag");
+    headers = new LinkedHashMap<>();
+    headers.put("Host", "example.com");
+    headers.put("Connection", "keep-alive");
+    headers.put("Cache-Control", "max-age=0");
+    headers.put("Upgrade-Insecure-Requests", "1");
+    headers.put("User-Agent", "Mozilla/5.0 (X11; Linux x86_64) AppleWebKit/537.36");
+    headers.put("Accept", "text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8");
+    headers.put("Accept-Encoding", "gzip, deflate, br");
+    headers.put("Accept-Language", "en-US,en;q=0.9");
+    headers.put("Cookie", "session=0123456789abcdef; theme=dark");
+    headers.put("Referer", "https://example.com/index.html");
+    headers.put("Origin", "https://example.com");
+    headers.put("Sec-Fetch-Site", "same-origin");
+    headers.put("Sec-Fetch-Mode", "navigate");
+    headers.put("Sec-Fetch-User", "?1");
+    headers.put("Sec-Fetch-Dest", "document");
+    headers.put("Sec-Ch-Ua", "\"Chromium\";v=\"104\"");
+    headers.put("Sec-Ch-Ua-Mobile", "?0");
+    headers.put("Sec-Ch-Ua-Platform", "\"Linux\"");
+    headers.put("If-None-Match", "W/\"5e-1234567890\"");
+    headers.put("If-Modified-Since", "Tue, 16 Aug 2022 10:00:00 GMT");
+    headers.put("X-Request-Id", "4bf92f3577b34da6a3ce929d0e0e4736");
+    headers.put("X-Request-Tag", "benchmark");
+    headers.put("Content-Type", "application/json");
+    headers.put("Content-Length", "0");
+    headers.put("Pragma", "no-cache");
+    switch (style) {
+      case "B3":
+        extractor = B3HttpCodec.newExtractor(tagMapping);
+        headers.put("X-B3-TraceId", "463ac35c9f6413ad48485a3953bb6124");
+        headers.put("X-B3-SpanId", "a2fb4a1d1a96d312");
+        headers.put("X-B3-Sampled", "1");
+        break;
+      case "HAYSTACK":
+        extractor = HaystackHttpCodec.newExtractor(tagMapping);
+        headers.put("Trace-ID", "44617461-646f-6721-463a-c35c9f6413ad");
+        headers.put("Span-ID", "44617461-646f-6721-a2fb-4a1d1a96d312");
+        headers.put("Baggage-Request", "benchmark");
+        break;
+      case "XRAY":
+        extractor = XRayHttpCodec.newExtractor(tagMapping);
+        headers.put(
+            "X-Amzn-Trace-Id",
+            "Root=1-00000000-00000000463ac35c9f6413ad;Parent=a2fb4a1d1a96d312;Sampled=1");
+        break;
+      case "TRACECONTEXT":
+        extractor = W3CHttpCodec.newExtractor(tagMapping);
+        headers.put("traceparent", "00-0000000000000000463ac35c9f6413ad-a2fb4a1d1a96d312-01");
+        headers.put("tracestate", "dd=s:1;o:synthetics;t.dm:-1");
+        break;
+      default:
+        extractor = DatadogHttpCodec.newExtractor(tagMapping);
+        headers.put("X-Datadog-Trace-Id", "5060571933882717101");
+        headers.put("X-Datadog-Parent-Id", "11744061942159299346");
+        headers.put("X-Datadog-Sampling-Priority", "1");
+        headers.put("X-Datadog-Origin", "synthetics");
+        break;
+    }
+    // every style is measured with the same number of headers
+    for (int i = 0; headers.size() < HEADER_COUNT; ++i) {
+      headers.put("X-Forwarded-Header-" + i, "value" + i);
+    }
+  }
+
+  @Benchmark
+  public Object extract() {
+    return extractor.extract(headers, ContextVisitors.stringValuesMap());
+  }
+}
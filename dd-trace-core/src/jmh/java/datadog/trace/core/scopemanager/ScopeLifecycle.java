@@ -0,0 +1,79 @@
+package datadog.trace.core.scopemanager;
+
+import datadog.trace.api.StatsDClient;
+import datadog.trace.bootstrap.instrumentation.api.AgentScope;
+import datadog.trace.bootstrap.instrumentation.api.AgentSpan;
+import datadog.trace.bootstrap.instrumentation.api.ScopeSource;
+import datadog.trace.core.CoreTracer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Activates and closes scopes, and captures and activates continuations, on a span which stays
+ * open for the whole trial. Run with {@code -prof gc} and compare {@code gc.alloc.rate.norm} with
+ * and without recycling to see the allocation per cycle.
+ */
+@State(Scope.Thread)
+public class ScopeLifecycle {
+
+  @Param({"false", "true"})
+  boolean recycling;
+
+  @Param({"1", "8"})
+  int depth;
+
+  private CoreTracer tracer;
+  private ContinuableScopeManager scopeManager;
+  private AgentSpan[] spans;
+  private AgentScope[] scopes;
+
+  @Setup(Level.Trial)
+  public void init() {
+    scopeManager = new ContinuableScopeManager(0, StatsDClient.NO_OP, false, true, recycling);
+    tracer = CoreTracer.builder().scopeManager(scopeManager).build();
+    spans = new AgentSpan[depth];
+    scopes = new AgentScope[depth];
+    for (int i = 0; i < depth; ++i) {
+      spans[i] = tracer.buildSpan("operation-" + i).start();
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void shutdown() {
+    for (int i = depth - 1; i >= 0; --i) {
+      spans[i].finish();
+    }
+    tracer.close();
+  }
+
+  @Benchmark
+  public AgentSpan activateAndClose() {
+    for (int i = 0; i < spans.length; ++i) {
+      scopes[i] = scopeManager.activate(spans[i], ScopeSource.INSTRUMENTATION);
+    }
+    AgentSpan active = scopeManager.activeSpan();
+    for (int i = scopes.length - 1; i >= 0; --i) {
+      scopes[i].close();
+      scopes[i] = null;
+    }
+    return active;
+  }
+
+  @Benchmark
+  public AgentSpan captureAndActivate() {
+    AgentSpan active = null;
+    for (int i = 0; i < spans.length; ++i) {
+      AgentScope.Continuation continuation =
+          scopeManager.captureSpan(spans[i], ScopeSource.INSTRUMENTATION);
+      AgentScope scope = continuation.activate();
+      active = scope.span();
+      scope.close();
+    }
+    return active;
+  }
+}
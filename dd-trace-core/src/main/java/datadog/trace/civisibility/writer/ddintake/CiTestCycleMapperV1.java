@@ -10,6 +10,7 @@ import datadog.trace.common.writer.RemoteMapper;
 import datadog.trace.core.CoreSpan;
 import datadog.trace.core.Metadata;
 import datadog.trace.core.MetadataConsumer;
+import datadog.trace.core.TagMap;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.WritableByteChannel;
@@ -153,18 +154,19 @@ public class CiTestCycleMapperV1 implements RemoteMapper {
               + metadata.getTags().size()
               + (null == metadata.getHttpStatusCode() ? 0 : 1);
       int metricsSize = 0;
-      for (Map.Entry<String, Object> tag : metadata.getTags().entrySet()) {
-        if (tag.getValue() instanceof Number) {
+      TagMap tags = metadata.getTags();
+      for (int i = tags.first(); i >= 0; i = tags.next(i)) {
+        if (tags.isNumberAt(i)) {
           ++metricsSize;
           --metaSize;
         }
       }
       writable.writeUTF8(METRICS);
       writable.startMap(metricsSize);
-      for (Map.Entry<String, Object> entry : metadata.getTags().entrySet()) {
-        if (entry.getValue() instanceof Number) {
-          writable.writeString(entry.getKey(), null);
-          writable.writeObject(entry.getValue(), null);
+      for (int i = tags.first(); i >= 0; i = tags.next(i)) {
+        if (tags.isNumberAt(i)) {
+          writable.writeString(tags.keyAt(i), null);
+          tags.writeNumberAt(i, writable);
         }
       }
 
@@ -181,10 +183,10 @@ public class CiTestCycleMapperV1 implements RemoteMapper {
         writable.writeUTF8(HTTP_STATUS);
         writable.writeUTF8(metadata.getHttpStatusCode());
       }
-      for (Map.Entry<String, Object> entry : metadata.getTags().entrySet()) {
-        if (!(entry.getValue() instanceof Number)) {
-          writable.writeString(entry.getKey(), null);
-          writable.writeObjectString(entry.getValue(), null);
+      for (int i = tags.first(); i >= 0; i = tags.next(i)) {
+        if (!tags.isNumberAt(i)) {
+          writable.writeString(tags.keyAt(i), null);
+          tags.writeStringAt(i, writable);
         }
       }
     }
@@ -221,5 +223,11 @@ public class CiTestCycleMapperV1 implements RemoteMapper {
         return msgpackRequestBodyOf(Collections.singletonList(body));
       }
     }
+
+    @Override
+    public ByteBuffer[] buffers() {
+      // If traceCount is 0, we write a map with 0 elements in MsgPack format.
+      return new ByteBuffer[] {traceCount() == 0 ? msgpackMapHeader(0) : body};
+    }
   }
 }
@@ -11,7 +11,8 @@ public final class AggregateMetric {
   static final long ERROR_TAG = 0x8000000000000000L;
   static final long TOP_LEVEL_TAG = 0x4000000000000000L;
 
-  private static final HistogramFactory HISTOGRAM_FACTORY = Histograms.newHistogramFactory();
+  // there can be thousands of aggregates, so their histograms only store the bins they use
+  private static final HistogramFactory HISTOGRAM_FACTORY = Histograms.newCompactHistogramFactory();
 
   private final Histogram okLatencies;
   private final Histogram errorLatencies;
@@ -4,14 +4,18 @@ import static datadog.trace.common.metrics.Batch.REPORT;
 import static datadog.trace.common.metrics.ConflatingMetricsAggregator.POISON_PILL;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
+import datadog.trace.bootstrap.instrumentation.api.UTF8BytesString;
+import datadog.trace.core.monitor.HealthMetrics;
 import datadog.trace.core.util.LRUCache;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.TimeUnit;
-import org.jctools.maps.NonBlockingHashMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -19,41 +23,59 @@ final class Aggregator implements Runnable {
 
   private static final Logger log = LoggerFactory.getLogger(Aggregator.class);
 
+  static final UTF8BytesString OTHER = UTF8BytesString.create("other");
+
+  // limits the number of services with an aggregate for their long tail of keys
+  private static final int MAX_FOLDED_SERVICES = 32;
+
   private final Queue<Batch> batchPool;
   private final BlockingQueue<Batch> inbox;
   private final LRUCache<MetricKey, AggregateMetric> aggregates;
-  private final NonBlockingHashMap<MetricKey, Batch> pending;
+  private final BatchStripes stripes;
+  private final ArrayList<BatchStripes.Entry> swept = new ArrayList<>();
   private final Set<MetricKey> commonKeys;
+  private final KeyFrequencySketch frequencies;
+  private final HashMap<UTF8BytesString, Folded> folded = new HashMap<>();
+  private final AggregateMetric discarded = new AggregateMetric();
+  private final int maxAggregates;
   private final MetricWriter writer;
+  private final HealthMetrics healthMetrics;
   // the reporting interval controls how much history will be buffered
   // when the agent is unresponsive (only 10 pending requests will be
   // buffered by OkHttpSink)
   private final long reportingIntervalNanos;
 
   private boolean dirty;
+  private int evictedCount;
+  private int foldedCount;
 
   Aggregator(
       MetricWriter writer,
       Queue<Batch> batchPool,
       BlockingQueue<Batch> inbox,
-      NonBlockingHashMap<MetricKey, Batch> pending,
+      BatchStripes stripes,
       final Set<MetricKey> commonKeys,
       int maxAggregates,
       long reportingInterval,
-      TimeUnit reportingIntervalTimeUnit) {
+      TimeUnit reportingIntervalTimeUnit,
+      HealthMetrics healthMetrics) {
     this.writer = writer;
     this.batchPool = batchPool;
     this.inbox = inbox;
     this.commonKeys = commonKeys;
     this.aggregates =
-        new LRUCache<>(
-            new CommonKeyCleaner(commonKeys), maxAggregates * 4 / 3, 0.75f, maxAggregates);
-    this.pending = pending;
+        new LRUCache<>(new CommonKeyCleaner(this), maxAggregates * 4 / 3, 0.75f, maxAggregates);
+    this.maxAggregates = maxAggregates;
+    this.frequencies = new KeyFrequencySketch(maxAggregates);
+    this.stripes = stripes;
+    this.healthMetrics = healthMetrics;
     this.reportingIntervalNanos = reportingIntervalTimeUnit.toNanos(reportingInterval);
   }
 
   public void clearAggregates() {
     this.aggregates.clear();
+    this.folded.clear();
+    this.frequencies.clear();
   }
 
   @Override
@@ -68,18 +90,7 @@ final class Aggregator implements Runnable {
         } else if (batch == REPORT) {
           report(wallClockTime());
         } else {
-          MetricKey key = batch.getKey();
-          // important that it is still *this* batch pending, must not remove otherwise
-          pending.remove(key, batch);
-          AggregateMetric aggregate = aggregates.get(key);
-          if (null == aggregate) {
-            aggregate = new AggregateMetric();
-            aggregates.put(key, aggregate);
-          }
-          batch.contributeTo(aggregate);
-          dirty = true;
-          // return the batch for reuse
-          batchPool.offer(batch);
+          contribute(batch);
         }
       } catch (InterruptedException e) {
         currentThread.interrupt();
@@ -90,18 +101,90 @@ final class Aggregator implements Runnable {
     log.debug("metrics aggregator exited");
   }
 
+  private void contribute(Batch batch) {
+    MetricKey key = batch.getKey();
+    frequencies.add(key, batch.size());
+    AggregateMetric aggregate = aggregates.get(key);
+    if (null == aggregate) {
+      if (admit(key)) {
+        aggregate = new AggregateMetric();
+        aggregates.put(key, aggregate);
+      } else {
+        aggregate = foldedAggregate(key);
+        // the key has no aggregate of its own, so stop interning it
+        commonKeys.remove(key);
+        ++foldedCount;
+      }
+    }
+    batch.contributeTo(aggregate);
+    if (aggregate == discarded) {
+      discarded.clear();
+    }
+    dirty = true;
+    // return the batch for reuse
+    batchPool.offer(batch);
+  }
+
+  /**
+   * Once there are as many aggregates as allowed, a new key only replaces the least recently used
+   * aggregate if it has been seen at least as often, otherwise it's folded into its service's
+   * aggregate for the long tail of keys. This keeps the heavy hitters when the cardinality of the
+   * keys explodes, e.g. because of unnormalized URLs, rather than thrashing the cache.
+   */
+  private boolean admit(MetricKey key) {
+    if (aggregates.size() < maxAggregates) {
+      return true;
+    }
+    MetricKey eldest = aggregates.keySet().iterator().next();
+    return frequencies.estimate(key) >= frequencies.estimate(eldest);
+  }
+
+  private AggregateMetric foldedAggregate(MetricKey key) {
+    Folded aggregate = folded.get(key.getService());
+    if (null == aggregate) {
+      if (folded.size() >= MAX_FOLDED_SERVICES) {
+        // the values are dropped rather than attributed to the wrong service
+        return discarded;
+      }
+      aggregate = new Folded(key.getService());
+      folded.put(key.getService(), aggregate);
+    }
+    return aggregate.aggregate;
+  }
+
+  /** Takes the batches still being filled by publishing threads. */
+  private void sweepStripes() {
+    for (int slot = 0; slot < stripes.size(); ++slot) {
+      BatchStripes.Entry entry = stripes.remove(slot);
+      if (null != entry) {
+        swept.add(entry);
+      }
+    }
+    // contribute in the order the batches were started, as if they'd been queued at the time
+    Collections.sort(swept, BatchStripes.OLDEST_FIRST);
+    for (BatchStripes.Entry entry : swept) {
+      contribute(entry.batch);
+    }
+    swept.clear();
+  }
+
   private void report(long when) {
+    sweepStripes();
     boolean skipped = true;
     if (dirty) {
       try {
         expungeStaleAggregates();
-        if (!aggregates.isEmpty()) {
+        if (!aggregates.isEmpty() || !folded.isEmpty()) {
           skipped = false;
-          writer.startBucket(aggregates.size(), when, reportingIntervalNanos);
+          writer.startBucket(aggregates.size() + folded.size(), when, reportingIntervalNanos);
           for (Map.Entry<MetricKey, AggregateMetric> aggregate : aggregates.entrySet()) {
             writer.add(aggregate.getKey(), aggregate.getValue());
             aggregate.getValue().clear();
           }
+          for (Folded aggregate : folded.values()) {
+            writer.add(aggregate.key, aggregate.aggregate);
+            aggregate.aggregate.clear();
+          }
           // note that this may do IO and block
           writer.finishBucket();
         }
@@ -114,6 +197,15 @@ final class Aggregator implements Runnable {
     if (skipped) {
       log.debug("skipped metrics reporting because no points have changed");
     }
+    frequencies.age();
+    if (evictedCount > 0) {
+      healthMetrics.onStatsAggregatesEvicted(evictedCount);
+      evictedCount = 0;
+    }
+    if (foldedCount > 0) {
+      healthMetrics.onStatsAggregatesFolded(foldedCount);
+      foldedCount = 0;
+    }
   }
 
   private void expungeStaleAggregates() {
@@ -126,24 +218,41 @@ final class Aggregator implements Runnable {
         commonKeys.remove(pair.getKey());
       }
     }
+    Iterator<Folded> foldedIt = folded.values().iterator();
+    while (foldedIt.hasNext()) {
+      if (foldedIt.next().aggregate.getHitCount() == 0) {
+        foldedIt.remove();
+      }
+    }
   }
 
   private long wallClockTime() {
     return MILLISECONDS.toNanos(System.currentTimeMillis());
   }
 
+  /** The aggregate for the keys of a service which didn't make it into the aggregates. */
+  private static final class Folded {
+    final MetricKey key;
+    final AggregateMetric aggregate = new AggregateMetric();
+
+    Folded(UTF8BytesString service) {
+      this.key = new MetricKey(OTHER, service, OTHER, null, 0, false);
+    }
+  }
+
   private static final class CommonKeyCleaner
       implements LRUCache.ExpiryListener<MetricKey, AggregateMetric> {
 
-    private final Set<MetricKey> commonKeys;
+    private final Aggregator aggregator;
 
-    private CommonKeyCleaner(Set<MetricKey> commonKeys) {
-      this.commonKeys = commonKeys;
+    private CommonKeyCleaner(Aggregator aggregator) {
+      this.aggregator = aggregator;
     }
 
     @Override
     public void accept(Map.Entry<MetricKey, AggregateMetric> expired) {
-      commonKeys.remove(expired.getKey());
+      aggregator.commonKeys.remove(expired.getKey());
+      ++aggregator.evictedCount;
     }
   }
 }
@@ -64,6 +64,11 @@ public final class Batch {
     return count < 0;
   }
 
+  /** @return how many values have been added, or a negative number if the batch has been used */
+  int size() {
+    return Math.min(count, MAX_BATCH_SIZE);
+  }
+
   public boolean add(long tag, long durationNanos) {
     // technically this would be wrong if there were 2^31 unsuccessful
     // attempts to add a value, but this an acceptable risk
@@ -0,0 +1,196 @@
+package datadog.trace.common.metrics;
+
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The batches being filled by publishing threads, striped by thread so that threads publishing the
+ * same key don't contend on the same batch.
+ *
+ * <p>Each stripe is a small open addressing table of the last keys seen on the stripe, along with
+ * the names they were built from, so repeated keys are matched against the span's names without
+ * creating or hashing a {@link MetricKey}.
+ *
+ * <p>A batch stays in its stripe until it's full or evicted by another key, at which point the
+ * publisher hands it to the aggregator, or until the aggregator sweeps the stripes at report time.
+ * Whichever of them removes the entry owns the batch.
+ */
+final class BatchStripes {
+
+  private static final int SLOTS_PER_STRIPE = 16;
+
+  static final Comparator<Entry> OLDEST_FIRST =
+      new Comparator<Entry>() {
+        @Override
+        public int compare(Entry left, Entry right) {
+          return left.sequence < right.sequence ? -1 : left.sequence == right.sequence ? 0 : 1;
+        }
+      };
+
+  static final class Entry {
+    final int slot;
+    final long sequence;
+    final int hash;
+    final CharSequence resource;
+    final String service;
+    final CharSequence operationName;
+    final CharSequence type;
+    final int httpStatusCode;
+    final boolean synthetics;
+    final MetricKey key;
+    final Batch batch;
+
+    Entry(
+        int slot,
+        long sequence,
+        int hash,
+        CharSequence resource,
+        String service,
+        CharSequence operationName,
+        CharSequence type,
+        int httpStatusCode,
+        boolean synthetics,
+        MetricKey key,
+        Batch batch) {
+      this.slot = slot;
+      this.sequence = sequence;
+      this.hash = hash;
+      this.resource = resource;
+      this.service = service;
+      this.operationName = operationName;
+      this.type = type;
+      this.httpStatusCode = httpStatusCode;
+      this.synthetics = synthetics;
+      this.key = key;
+      this.batch = batch;
+    }
+
+    boolean matches(
+        int hash,
+        CharSequence resource,
+        String service,
+        CharSequence operationName,
+        CharSequence type,
+        int httpStatusCode,
+        boolean synthetics) {
+      return hash == this.hash
+          && httpStatusCode == this.httpStatusCode
+          && synthetics == this.synthetics
+          && sameChars(resource, this.resource)
+          && sameChars(service, this.service)
+          && sameChars(operationName, this.operationName)
+          && sameChars(type, this.type);
+    }
+  }
+
+  private final AtomicReferenceArray<Entry> slots;
+  private final int stripeMask;
+  // orders entries by creation, so they can be aggregated in the order they were first published
+  private final AtomicLong sequence = new AtomicLong();
+
+  BatchStripes() {
+    this(Runtime.getRuntime().availableProcessors());
+  }
+
+  BatchStripes(int minStripes) {
+    int stripes = Integer.highestOneBit(Math.max(1, minStripes) * 2 - 1);
+    this.slots = new AtomicReferenceArray<>(stripes * SLOTS_PER_STRIPE);
+    this.stripeMask = stripes - 1;
+  }
+
+  static int hash(CharSequence resource, String service, CharSequence operationName) {
+    int hash = 961 * hashCode(resource) + 31 * hashCode(service) + hashCode(operationName);
+    return hash ^ (hash >>> 16);
+  }
+
+  /** @return the first slot of the current thread's stripe */
+  int stripe() {
+    long threadId = Thread.currentThread().getId();
+    return ((int) (threadId ^ (threadId >>> 32)) & stripeMask) * SLOTS_PER_STRIPE;
+  }
+
+  /** @return the entry in the stripe for the names, or null if there isn't one */
+  Entry find(
+      int stripe,
+      int hash,
+      CharSequence resource,
+      String service,
+      CharSequence operationName,
+      CharSequence type,
+      int httpStatusCode,
+      boolean synthetics) {
+    for (int i = 0; i < SLOTS_PER_STRIPE; ++i) {
+      Entry entry = slots.get(stripe + ((hash + i) & (SLOTS_PER_STRIPE - 1)));
+      if (null == entry) {
+        return null;
+      }
+      if (entry.matches(hash, resource, service, operationName, type, httpStatusCode, synthetics)) {
+        return entry;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @return the slot to put a new entry for the hash in, which is the first empty one along its
+   *     probe sequence, or the oldest entry in the stripe when it's full
+   */
+  int slotFor(int stripe, int hash) {
+    int oldest = -1;
+    long oldestSequence = Long.MAX_VALUE;
+    for (int i = 0; i < SLOTS_PER_STRIPE; ++i) {
+      int slot = stripe + ((hash + i) & (SLOTS_PER_STRIPE - 1));
+      Entry entry = slots.get(slot);
+      if (null == entry) {
+        return slot;
+      }
+      if (entry.sequence < oldestSequence) {
+        oldest = slot;
+        oldestSequence = entry.sequence;
+      }
+    }
+    return oldest;
+  }
+
+  long nextSequence() {
+    return sequence.getAndIncrement();
+  }
+
+  Entry get(int slot) {
+    return slots.get(slot);
+  }
+
+  boolean replace(int slot, Entry expected, Entry entry) {
+    return slots.compareAndSet(slot, expected, entry);
+  }
+
+  int size() {
+    return slots.length();
+  }
+
+  /** @return the entry which was in the slot, which the caller now owns */
+  Entry remove(int slot) {
+    return slots.getAndSet(slot, null);
+  }
+
+  void clear() {
+    for (int i = 0; i < slots.length(); ++i) {
+      slots.set(i, null);
+    }
+  }
+
+  private static int hashCode(CharSequence chars) {
+    return null == chars ? 0 : chars.hashCode();
+  }
+
+  private static boolean sameChars(CharSequence left, CharSequence right) {
+    if (left == right) {
+      return true;
+    }
+    if (null == left || null == right || left.length() != right.length()) {
+      return false;
+    }
+    return left.toString().equals(right.toString());
+  }
+}
@@ -13,6 +13,7 @@ import static java.util.concurrent.TimeUnit.SECONDS;
 import datadog.communication.ddagent.DDAgentFeaturesDiscovery;
 import datadog.communication.ddagent.SharedCommunicationObjects;
 import datadog.trace.api.Config;
+import datadog.trace.api.StatsDClient;
 import datadog.trace.api.WellKnownTags;
 import datadog.trace.api.cache.DDCache;
 import datadog.trace.api.cache.DDCaches;
@@ -20,6 +21,7 @@ import datadog.trace.bootstrap.instrumentation.api.UTF8BytesString;
 import datadog.trace.common.writer.ddagent.DDAgentApi;
 import datadog.trace.core.CoreSpan;
 import datadog.trace.core.DDTraceCoreInfo;
+import datadog.trace.core.monitor.HealthMetrics;
 import datadog.trace.util.AgentTaskScheduler;
 import java.util.Collections;
 import java.util.List;
@@ -50,7 +52,7 @@ public final class ConflatingMetricsAggregator implements MetricsAggregator, Eve
 
   private final Set<String> ignoredResources;
   private final Queue<Batch> batchPool;
-  private final NonBlockingHashMap<MetricKey, Batch> pending;
+  private final BatchStripes stripes;
   private final NonBlockingHashMap<MetricKey, MetricKey> keys;
   private final Thread thread;
   private final BlockingQueue<Batch> inbox;
@@ -63,9 +65,10 @@ public final class ConflatingMetricsAggregator implements MetricsAggregator, Eve
   private volatile AgentTaskScheduler.Scheduled<?> cancellation;
 
   public ConflatingMetricsAggregator(
-      Config config, SharedCommunicationObjects sharedCommunicationObjects) {
+      Config config,
+      SharedCommunicationObjects sharedCommunicationObjects,
+      HealthMetrics healthMetrics) {
     this(
-        config.getWellKnownTags(),
         config.getMetricsIgnoredResources(),
         sharedCommunicationObjects.featuresDiscovery(config),
         new OkHttpSink(
@@ -75,8 +78,30 @@ public final class ConflatingMetricsAggregator implements MetricsAggregator, Eve
             config.isTracerMetricsBufferingEnabled(),
             false,
             DEFAULT_HEADERS),
+        config.getWellKnownTags(),
         config.getTracerMetricsMaxAggregates(),
-        config.getTracerMetricsMaxPending());
+        config.getTracerMetricsMaxPending(),
+        healthMetrics);
+  }
+
+  private ConflatingMetricsAggregator(
+      Set<String> ignoredResources,
+      DDAgentFeaturesDiscovery features,
+      Sink sink,
+      WellKnownTags wellKnownTags,
+      int maxAggregates,
+      int queueSize,
+      HealthMetrics healthMetrics) {
+    this(
+        ignoredResources,
+        features,
+        sink,
+        new SerializingMetricWriter(wellKnownTags, sink),
+        maxAggregates,
+        queueSize,
+        10,
+        SECONDS,
+        healthMetrics);
   }
 
   ConflatingMetricsAggregator(
@@ -118,10 +143,32 @@ public final class ConflatingMetricsAggregator implements MetricsAggregator, Eve
       int queueSize,
       long reportingInterval,
       TimeUnit timeUnit) {
+    this(
+        ignoredResources,
+        features,
+        sink,
+        metricWriter,
+        maxAggregates,
+        queueSize,
+        reportingInterval,
+        timeUnit,
+        new HealthMetrics(StatsDClient.NO_OP));
+  }
+
+  ConflatingMetricsAggregator(
+      Set<String> ignoredResources,
+      DDAgentFeaturesDiscovery features,
+      Sink sink,
+      MetricWriter metricWriter,
+      int maxAggregates,
+      int queueSize,
+      long reportingInterval,
+      TimeUnit timeUnit,
+      HealthMetrics healthMetrics) {
     this.ignoredResources = ignoredResources;
     this.inbox = new MpscBlockingConsumerArrayQueue<>(queueSize);
     this.batchPool = new SpmcArrayQueue<>(maxAggregates);
-    this.pending = new NonBlockingHashMap<>(maxAggregates * 4 / 3);
+    this.stripes = new BatchStripes();
     this.keys = new NonBlockingHashMap<>();
     this.features = features;
     this.sink = sink;
@@ -130,11 +177,12 @@ public final class ConflatingMetricsAggregator implements MetricsAggregator, Eve
             metricWriter,
             batchPool,
             inbox,
-            pending,
+            stripes,
             keys.keySet(),
             maxAggregates,
             reportingInterval,
-            timeUnit);
+            timeUnit,
+            healthMetrics);
     this.thread = newAgentThread(METRICS_AGGREGATOR, aggregator);
     this.reportingInterval = reportingInterval;
     this.reportingIntervalTimeUnit = timeUnit;
@@ -194,44 +242,72 @@ public final class ConflatingMetricsAggregator implements MetricsAggregator, Eve
   }
 
   private boolean publish(CoreSpan<?> span, boolean isTopLevel) {
-    MetricKey newKey =
-        new MetricKey(
-            span.getResourceName(),
-            SERVICE_NAMES.computeIfAbsent(span.getServiceName(), UTF8_ENCODE),
-            span.getOperationName(),
-            span.getType(),
-            span.getHttpStatusCode(),
-            isSynthetic(span));
-    boolean isNewKey = false;
-    MetricKey key = keys.putIfAbsent(newKey, newKey);
-    if (null == key) {
-      key = newKey;
-      isNewKey = true;
-    }
+    CharSequence resource = span.getResourceName();
+    String service = span.getServiceName();
+    CharSequence operationName = span.getOperationName();
+    CharSequence type = span.getType();
+    int httpStatusCode = span.getHttpStatusCode();
+    boolean synthetics = isSynthetic(span);
     long tag = (span.getError() > 0 ? ERROR_TAG : 0L) | (isTopLevel ? TOP_LEVEL_TAG : 0L);
     long durationNanos = span.getDurationNano();
-    Batch batch = pending.get(key);
-    if (null != batch) {
-      // there is a pending batch, try to win the race to add to it
-      // returning false means that either the batch can't take any
-      // more data, or it has already been consumed
-      if (batch.add(tag, durationNanos)) {
-        // added to a pending batch prior to consumption
-        // so skip publishing to the queue (we also know
-        // the key isn't rare enough to override the sampler)
+    int stripe = stripes.stripe();
+    int hash = BatchStripes.hash(resource, service, operationName);
+    BatchStripes.Entry entry =
+        stripes.find(
+            stripe, hash, resource, service, operationName, type, httpStatusCode, synthetics);
+    int slot;
+    MetricKey key;
+    boolean isNewKey = false;
+    if (null != entry) {
+      if (entry.batch.add(tag, durationNanos)) {
+        // added to the batch this stripe is filling, so skip publishing to the
+        // queue (we also know the key isn't rare enough to override the sampler)
         return false;
       }
-      // recycle the older key
-      key = batch.getKey();
-      isNewKey = false;
+      // the batch is full, start a new one for the same key in its place
+      slot = entry.slot;
+      key = entry.key;
+    } else {
+      MetricKey newKey =
+          new MetricKey(
+              resource,
+              SERVICE_NAMES.computeIfAbsent(service, UTF8_ENCODE),
+              operationName,
+              type,
+              httpStatusCode,
+              synthetics);
+      key = keys.putIfAbsent(newKey, newKey);
+      if (null == key) {
+        key = newKey;
+        isNewKey = true;
+      }
+      slot = stripes.slotFor(stripe, hash);
+      entry = stripes.get(slot);
     }
-    batch = newBatch(key);
+    Batch batch = newBatch(key);
     batch.add(tag, durationNanos);
-    // overwrite the last one if present, it was already full
-    // or had been consumed by the time we tried to add to it
-    pending.put(key, batch);
-    // must offer to the queue after adding to pending
-    inbox.offer(batch);
+    BatchStripes.Entry replacement =
+        new BatchStripes.Entry(
+            slot,
+            stripes.nextSequence(),
+            hash,
+            resource,
+            service,
+            operationName,
+            type,
+            httpStatusCode,
+            synthetics,
+            key,
+            batch);
+    if (stripes.replace(slot, entry, replacement)) {
+      // the evicted batch is ours to hand over now
+      if (null != entry) {
+        inbox.offer(entry.batch);
+      }
+    } else {
+      // lost a race with another thread on this stripe, or with the aggregator
+      inbox.offer(batch);
+    }
     // force keep keys we haven't seen before or errors
     return isNewKey || span.getError() > 0;
   }
@@ -290,7 +366,7 @@ public final class ConflatingMetricsAggregator implements MetricsAggregator, Eve
         cancellation.cancel();
       }
       this.thread.interrupt();
-      this.pending.clear();
+      this.stripes.clear();
       this.batchPool.clear();
       this.inbox.clear();
       this.aggregator.clearAggregates();
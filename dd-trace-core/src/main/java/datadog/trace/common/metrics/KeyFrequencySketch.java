@@ -0,0 +1,66 @@
+package datadog.trace.common.metrics;
+
+import java.util.Arrays;
+
+/**
+ * Count-min sketch estimating how many values have been recorded against each metric key, whether
+ * or not the key currently has an aggregate of its own. Estimates never undercount, but may
+ * overcount when keys collide in every row.
+ *
+ * <p>Counts are halved each time the aggregates are reported so that keys which have gone cold can
+ * be replaced by new heavy hitters. Not thread-safe, it's owned by the aggregator thread.
+ */
+final class KeyFrequencySketch {
+
+  private static final int DEPTH = 4;
+  private static final int[] SEEDS = {0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F};
+
+  private final int[] counts;
+  private final int width;
+  private final int mask;
+
+  KeyFrequencySketch(int maxAggregates) {
+    // at least twice as many counters per row as aggregates keeps heavy hitters from colliding
+    this.width = Integer.highestOneBit(Math.max(64, maxAggregates) * 4 - 1);
+    this.mask = width - 1;
+    this.counts = new int[DEPTH * width];
+  }
+
+  void add(MetricKey key, int count) {
+    if (count <= 0) {
+      return;
+    }
+    int hash = key.hashCode();
+    for (int row = 0; row < DEPTH; ++row) {
+      int index = indexOf(hash, row);
+      int updated = counts[index] + count;
+      // saturate rather than overflow
+      counts[index] = updated < 0 ? Integer.MAX_VALUE : updated;
+    }
+  }
+
+  int estimate(MetricKey key) {
+    int hash = key.hashCode();
+    int estimate = Integer.MAX_VALUE;
+    for (int row = 0; row < DEPTH; ++row) {
+      estimate = Math.min(estimate, counts[indexOf(hash, row)]);
+    }
+    return estimate;
+  }
+
+  void age() {
+    for (int i = 0; i < counts.length; ++i) {
+      counts[i] >>>= 1;
+    }
+  }
+
+  void clear() {
+    Arrays.fill(counts, 0);
+  }
+
+  private int indexOf(int hash, int row) {
+    int h = hash * SEEDS[row];
+    h ^= h >>> 16;
+    return row * width + (h & mask);
+  }
+}
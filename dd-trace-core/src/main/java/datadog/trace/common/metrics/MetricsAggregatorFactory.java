@@ -2,6 +2,8 @@ package datadog.trace.common.metrics;
 
 import datadog.communication.ddagent.SharedCommunicationObjects;
 import datadog.trace.api.Config;
+import datadog.trace.api.StatsDClient;
+import datadog.trace.core.monitor.HealthMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -10,9 +12,17 @@ public class MetricsAggregatorFactory {
 
   public static MetricsAggregator createMetricsAggregator(
       Config config, SharedCommunicationObjects sharedCommunicationObjects) {
+    return createMetricsAggregator(
+        config, sharedCommunicationObjects, new HealthMetrics(StatsDClient.NO_OP));
+  }
+
+  public static MetricsAggregator createMetricsAggregator(
+      Config config,
+      SharedCommunicationObjects sharedCommunicationObjects,
+      HealthMetrics healthMetrics) {
     if (config.isTracerMetricsEnabled()) {
       log.debug("tracer metrics enabled");
-      return new ConflatingMetricsAggregator(config, sharedCommunicationObjects);
+      return new ConflatingMetricsAggregator(config, sharedCommunicationObjects, healthMetrics);
     }
     log.debug("tracer metrics disabled");
     return NoOpMetricsAggregator.INSTANCE;
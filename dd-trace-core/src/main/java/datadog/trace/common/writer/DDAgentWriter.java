@@ -40,6 +40,9 @@ public class DDAgentWriter extends RemoteWriter {
     boolean traceAgentV05Enabled = Config.get().isTraceAgentV05Enabled();
     boolean metricsReportingEnabled = Config.get().isTracerMetricsEnabled();
     boolean alwaysFlush = false;
+    int traceProcessingShards = Config.get().getTraceProcessingShards();
+    int payloadBuffers = Config.get().getTracePayloadBuffers();
+    boolean spanTagsRecycling = false;
 
     private DDAgentApi agentApi;
     private Prioritization prioritization;
@@ -120,6 +123,21 @@ public class DDAgentWriter extends RemoteWriter {
       return this;
     }
 
+    public DDAgentWriterBuilder traceProcessingShards(int traceProcessingShards) {
+      this.traceProcessingShards = traceProcessingShards;
+      return this;
+    }
+
+    public DDAgentWriterBuilder payloadBuffers(int payloadBuffers) {
+      this.payloadBuffers = payloadBuffers;
+      return this;
+    }
+
+    public DDAgentWriterBuilder spanTagsRecycling(boolean spanTagsRecycling) {
+      this.spanTagsRecycling = spanTagsRecycling;
+      return this;
+    }
+
     public DDAgentWriter build() {
       final HttpUrl agentUrl = HttpUrl.get("http://" + agentHost + ":" + traceAgentPort);
       final OkHttpClient client =
@@ -136,14 +154,25 @@ public class DDAgentWriter extends RemoteWriter {
             new DDAgentApi(client, agentUrl, featureDiscovery, monitoring, metricsReportingEnabled);
       }
 
-      final DDAgentMapperDiscovery mapperDiscovery = new DDAgentMapperDiscovery(featureDiscovery);
-      final PayloadDispatcher dispatcher =
-          new PayloadDispatcher(mapperDiscovery, agentApi, healthMetrics, monitoring);
+      // each shard serializes with its own mapper, so needs its own discovery and dispatcher
+      final PayloadDispatcher[] dispatchers =
+          new PayloadDispatcher[Math.max(1, traceProcessingShards)];
+      for (int i = 0; i < dispatchers.length; ++i) {
+        dispatchers[i] =
+            new PayloadDispatcher(
+                new DDAgentMapperDiscovery(featureDiscovery),
+                agentApi,
+                healthMetrics,
+                monitoring,
+                spanTagsRecycling,
+                payloadBuffers,
+                dispatchers.length > 1 ? i : -1);
+      }
       final TraceProcessingWorker traceProcessingWorker =
           new TraceProcessingWorker(
               traceBufferSize,
               healthMetrics,
-              dispatcher,
+              dispatchers,
               featureDiscovery,
               null == prioritization ? FAST_LANE : prioritization,
               flushFrequencySeconds,
@@ -153,12 +182,22 @@ public class DDAgentWriter extends RemoteWriter {
           featureDiscovery,
           agentApi,
           healthMetrics,
-          dispatcher,
+          dispatchers,
           traceProcessingWorker,
           alwaysFlush);
     }
   }
 
+  private DDAgentWriter(
+      DDAgentFeaturesDiscovery discovery,
+      DDAgentApi api,
+      HealthMetrics healthMetrics,
+      PayloadDispatcher[] dispatchers,
+      TraceProcessingWorker worker,
+      boolean alwaysFlush) {
+    super(api, worker, dispatchers, healthMetrics, alwaysFlush);
+  }
+
   private DDAgentWriter(
       DDAgentFeaturesDiscovery discovery,
       DDAgentApi api,
@@ -19,6 +19,7 @@ public abstract class Payload {
   private int traceCount = 0;
   private long droppedTraces = 0;
   private long droppedSpans = 0;
+  private long compressedSize = -1;
   protected ByteBuffer body = EMPTY_ARRAY.duplicate();
 
   public Payload withBody(int traceCount, ByteBuffer body) {
@@ -39,6 +40,12 @@ public abstract class Payload {
     return this;
   }
 
+  /** Records how large the payload was once compressed, the last time it was sent. */
+  public Payload withCompressedSize(long compressedSizeInBytes) {
+    this.compressedSize = compressedSizeInBytes;
+    return this;
+  }
+
   public int traceCount() {
     return traceCount;
   }
@@ -51,12 +58,35 @@ public abstract class Payload {
     return droppedSpans;
   }
 
+  /** @return the compressed size in bytes, or -1 if the payload hasn't been compressed */
+  public long compressedSizeInBytes() {
+    return compressedSize;
+  }
+
   public abstract int sizeInBytes();
 
   public abstract void writeTo(WritableByteChannel channel) throws IOException;
 
   public abstract RequestBody toRequest();
 
+  /**
+   * @return the buffers making up the serialized payload, in the order they are sent. Their
+   *     positions are not moved, so callers must not consume them directly if the payload may be
+   *     sent more than once.
+   */
+  public abstract ByteBuffer[] buffers();
+
+  /**
+   * @return a payload which can still be sent after its mapper has been reset. Only the body is
+   *     shared with this payload.
+   */
+  public Payload detach() {
+    return this;
+  }
+
+  /** Called once a detached payload has been sent, so that it can give its buffers back. */
+  public void release() {}
+
   protected int msgpackArrayHeaderSize(int count) {
     if (count < 0x10) {
       return 1;
@@ -0,0 +1,160 @@
+package datadog.trace.common.writer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+
+/**
+ * Gzip compression of payloads as they are written to the request.
+ *
+ * <p>The payload's buffers are deflated one after the other straight into the request's sink, so
+ * the payload is never copied or buffered a second time. Deflaters hold native memory and are
+ * costly to set up, so they are pooled and reset between payloads rather than created for each
+ * request.
+ */
+public final class PayloadCompression {
+
+  public static final String GZIP = "gzip";
+
+  private static final MediaType MSGPACK = MediaType.get("application/msgpack");
+
+  // magic, deflate, no flags, no modification time, no extra flags, unknown OS
+  private static final byte[] GZIP_HEADER = {
+    0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff
+  };
+  private static final int TRAILER_SIZE = 8;
+
+  private static final int CHUNK_SIZE = 64 << 10;
+
+  private final int level;
+  private final BlockingQueue<Compressor> compressors;
+
+  /**
+   * @param level deflate level, from {@link Deflater#BEST_SPEED} to {@link
+   *     Deflater#BEST_COMPRESSION}
+   * @param pooledCompressors how many compressors are kept between requests
+   */
+  public PayloadCompression(int level, int pooledCompressors) {
+    this.level = level;
+    this.compressors = new ArrayBlockingQueue<>(Math.max(1, pooledCompressors));
+  }
+
+  /** @return the value of the Content-Encoding header of compressed requests */
+  public String contentEncoding() {
+    return GZIP;
+  }
+
+  /**
+   * @return a request body which compresses the payload each time it's written, recording the
+   *     compressed size on the payload
+   */
+  public RequestBody requestBody(final Payload payload) {
+    return new RequestBody() {
+      @Override
+      public MediaType contentType() {
+        return MSGPACK;
+      }
+
+      @Override
+      public long contentLength() {
+        // unknown until the payload has been compressed, so the request body is chunked
+        return -1;
+      }
+
+      @Override
+      public void writeTo(BufferedSink sink) throws IOException {
+        payload.withCompressedSize(compress(payload, sink));
+      }
+    };
+  }
+
+  /** @return the number of bytes written to the sink */
+  long compress(Payload payload, BufferedSink sink) throws IOException {
+    Compressor compressor = compressors.poll();
+    if (null == compressor) {
+      compressor = new Compressor(level);
+    }
+    try {
+      return compressor.compress(payload.buffers(), sink);
+    } finally {
+      compressor.reset();
+      if (!compressors.offer(compressor)) {
+        compressor.end();
+      }
+    }
+  }
+
+  private static final class Compressor {
+    private final Deflater deflater;
+    private final CRC32 crc = new CRC32();
+    private final byte[] input = new byte[CHUNK_SIZE];
+    private final byte[] output = new byte[CHUNK_SIZE];
+
+    Compressor(int level) {
+      // gzip framing is written here, so the deflater only produces the raw stream
+      this.deflater = new Deflater(level, true);
+    }
+
+    long compress(ByteBuffer[] buffers, BufferedSink sink) throws IOException {
+      sink.write(GZIP_HEADER);
+      long written = GZIP_HEADER.length;
+      int rawSize = 0;
+      for (ByteBuffer buffer : buffers) {
+        // the payload may be sent again, so its buffers are not consumed
+        ByteBuffer remaining = buffer.duplicate();
+        while (remaining.hasRemaining()) {
+          byte[] array;
+          int offset;
+          int length;
+          if (remaining.hasArray()) {
+            array = remaining.array();
+            offset = remaining.arrayOffset() + remaining.position();
+            length = remaining.remaining();
+            remaining.position(remaining.limit());
+          } else {
+            array = input;
+            offset = 0;
+            length = Math.min(input.length, remaining.remaining());
+            remaining.get(input, 0, length);
+          }
+          crc.update(array, offset, length);
+          rawSize += length;
+          deflater.setInput(array, offset, length);
+          while (!deflater.needsInput()) {
+            written += drain(sink);
+          }
+        }
+      }
+      deflater.finish();
+      while (!deflater.finished()) {
+        written += drain(sink);
+      }
+      sink.writeIntLe((int) crc.getValue());
+      sink.writeIntLe(rawSize);
+      return written + TRAILER_SIZE;
+    }
+
+    private int drain(BufferedSink sink) throws IOException {
+      int count = deflater.deflate(output, 0, output.length);
+      if (count > 0) {
+        sink.write(output, 0, count);
+      }
+      return count;
+    }
+
+    void reset() {
+      deflater.reset();
+      crc.reset();
+    }
+
+    void end() {
+      deflater.end();
+    }
+  }
+}
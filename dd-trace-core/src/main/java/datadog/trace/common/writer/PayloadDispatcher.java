@@ -7,6 +7,7 @@ import datadog.communication.serialization.FlushingBuffer;
 import datadog.communication.serialization.WritableFormatter;
 import datadog.communication.serialization.msgpack.MsgPackWriter;
 import datadog.trace.core.CoreSpan;
+import datadog.trace.core.SpanTagsRecycler;
 import datadog.trace.core.monitor.HealthMetrics;
 import java.nio.ByteBuffer;
 import java.util.List;
@@ -23,8 +24,12 @@ public class PayloadDispatcher implements ByteBufferConsumer {
   private final RemoteMapperDiscovery mapperDiscovery;
   private final HealthMetrics healthMetrics;
   private final Monitoring monitoring;
+  private final boolean recycleSpanTags;
+  private final int payloadBuffers;
+  private final int shardIndex;
 
   private Recording batchTimer;
+  private PayloadSender sender;
   private RemoteMapper mapper;
   private WritableFormatter packer;
 
@@ -38,10 +43,55 @@ public class PayloadDispatcher implements ByteBufferConsumer {
       RemoteApi api,
       HealthMetrics healthMetrics,
       Monitoring monitoring) {
+    this(mapperDiscovery, api, healthMetrics, monitoring, false);
+  }
+
+  /**
+   * @param recycleSpanTags whether the tag storage of each trace should be recycled once it has
+   *     been serialized; only safe when this dispatcher is the last consumer of the traces
+   */
+  public PayloadDispatcher(
+      RemoteMapperDiscovery mapperDiscovery,
+      RemoteApi api,
+      HealthMetrics healthMetrics,
+      Monitoring monitoring,
+      boolean recycleSpanTags) {
+    this(mapperDiscovery, api, healthMetrics, monitoring, recycleSpanTags, 1);
+  }
+
+  /**
+   * @param payloadBuffers how many buffers traces can be serialized into; with more than one,
+   *     payloads are sent on a separate thread while serialization carries on in a spare buffer
+   */
+  public PayloadDispatcher(
+      RemoteMapperDiscovery mapperDiscovery,
+      RemoteApi api,
+      HealthMetrics healthMetrics,
+      Monitoring monitoring,
+      boolean recycleSpanTags,
+      int payloadBuffers) {
+    this(mapperDiscovery, api, healthMetrics, monitoring, recycleSpanTags, payloadBuffers, -1);
+  }
+
+  /**
+   * @param shardIndex the index of the processing shard this dispatcher serializes for, appended
+   *     to the name of its sender thread; negative when there is a single shard
+   */
+  public PayloadDispatcher(
+      RemoteMapperDiscovery mapperDiscovery,
+      RemoteApi api,
+      HealthMetrics healthMetrics,
+      Monitoring monitoring,
+      boolean recycleSpanTags,
+      int payloadBuffers,
+      int shardIndex) {
     this.mapperDiscovery = mapperDiscovery;
     this.api = api;
     this.healthMetrics = healthMetrics;
     this.monitoring = monitoring;
+    this.recycleSpanTags = recycleSpanTags;
+    this.payloadBuffers = Math.max(1, payloadBuffers);
+    this.shardIndex = shardIndex;
   }
 
   void flush() {
@@ -50,6 +100,19 @@ public class PayloadDispatcher implements ByteBufferConsumer {
     }
   }
 
+  /** Waits for payloads which are still being sent on the sender thread, if there is one. */
+  void awaitPendingSends() {
+    if (null != sender) {
+      sender.awaitPendingSends();
+    }
+  }
+
+  void close() {
+    if (null != sender) {
+      sender.close();
+    }
+  }
+
   public void onDroppedTrace(int spanCount) {
     droppedSpanCount.inc(spanCount);
     droppedTraceCount.inc();
@@ -64,6 +127,10 @@ public class PayloadDispatcher implements ByteBufferConsumer {
     if (null == mapper || !packer.format(trace, mapper)) {
       healthMetrics.onFailedPublish(trace.get(0).samplingPriority());
     }
+    if (recycleSpanTags) {
+      // the trace has either been serialized or dropped, so its tags won't be read again
+      SpanTagsRecycler.recycle(trace);
+    }
   }
 
   private void selectMapper() {
@@ -76,7 +143,13 @@ public class PayloadDispatcher implements ByteBufferConsumer {
       if (null != mapper && null == packer) {
         this.batchTimer =
             monitoring.newTimer("tracer.trace.buffer.fill.time", "endpoint:" + mapper.endpoint());
-        this.packer = new MsgPackWriter(new FlushingBuffer(mapper.messageBufferSize(), this));
+        if (payloadBuffers > 1) {
+          this.sender = new PayloadSender(this, healthMetrics, payloadBuffers, shardIndex);
+          this.packer = new MsgPackWriter(new FlushingBuffer(mapper.messageBufferSize(), sender));
+          sender.start();
+        } else {
+          this.packer = new MsgPackWriter(new FlushingBuffer(mapper.messageBufferSize(), this));
+        }
         batchTimer.start();
       }
     }
@@ -95,24 +168,47 @@ public class PayloadDispatcher implements ByteBufferConsumer {
     // the packer calls this when the buffer is full,
     // or when the packer is flushed at a heartbeat
     if (messageCount > 0) {
-      batchTimer.reset();
-      Payload payload = newPayload(messageCount, buffer);
-      final int sizeInBytes = payload.sizeInBytes();
-      healthMetrics.onSerialize(sizeInBytes);
-      RemoteApi.Response response = api.sendSerializedTraces(payload);
+      Payload payload = newBatch(messageCount, buffer);
+      send(payload);
       mapper.reset();
-      if (response.success()) {
-        if (log.isDebugEnabled()) {
-          log.debug("Successfully sent {} traces to the API", messageCount);
-        }
-        healthMetrics.onSend(messageCount, sizeInBytes, response);
-      } else {
-        if (log.isDebugEnabled()) {
-          log.debug(
-              "Failed to send {} traces of size {} bytes to the API", messageCount, sizeInBytes);
-        }
-        healthMetrics.onFailedSend(messageCount, sizeInBytes, response);
+    }
+  }
+
+  /**
+   * Called by the sender on the serializing thread when a buffer is full. The payload returned
+   * doesn't depend on the mapper anymore, so serialization can carry on while it's being sent.
+   */
+  Payload handOver(int messageCount, ByteBuffer buffer) {
+    Payload payload = newBatch(messageCount, buffer).detach();
+    mapper.reset();
+    return payload;
+  }
+
+  private Payload newBatch(int messageCount, ByteBuffer buffer) {
+    batchTimer.reset();
+    Payload payload = newPayload(messageCount, buffer);
+    healthMetrics.onSerialize(payload.sizeInBytes());
+    return payload;
+  }
+
+  void send(Payload payload) {
+    final int messageCount = payload.traceCount();
+    final int sizeInBytes = payload.sizeInBytes();
+    RemoteApi.Response response = api.sendSerializedTraces(payload);
+    if (response.success()) {
+      if (log.isDebugEnabled()) {
+        log.debug("Successfully sent {} traces to the API", messageCount);
+      }
+      healthMetrics.onSend(messageCount, sizeInBytes, response);
+      if (payload.compressedSizeInBytes() >= 0) {
+        healthMetrics.onCompressedSend(sizeInBytes, payload.compressedSizeInBytes());
+      }
+    } else {
+      if (log.isDebugEnabled()) {
+        log.debug(
+            "Failed to send {} traces of size {} bytes to the API", messageCount, sizeInBytes);
       }
+      healthMetrics.onFailedSend(messageCount, sizeInBytes, response);
     }
   }
 }
@@ -0,0 +1,150 @@
+package datadog.trace.common.writer;
+
+import static datadog.trace.util.AgentThreadFactory.AgentThread.TRACE_SENDER;
+import static datadog.trace.util.AgentThreadFactory.THREAD_JOIN_TIMOUT_MS;
+import static datadog.trace.util.AgentThreadFactory.newAgentThread;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import datadog.communication.serialization.ByteBufferExchanger;
+import datadog.trace.core.monitor.HealthMetrics;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sends the payloads of a {@link PayloadDispatcher} on a dedicated thread, so that serialization
+ * can carry on into a spare buffer during the request to the agent.
+ *
+ * <p>Buffers are allocated on demand, up to the configured number. When all of them are waiting to
+ * be sent, the serializing thread blocks until a send completes, and the time spent waiting is
+ * reported to {@link HealthMetrics}.
+ */
+final class PayloadSender implements ByteBufferExchanger, Runnable {
+
+  private static final Logger log = LoggerFactory.getLogger(PayloadSender.class);
+
+  private final PayloadDispatcher dispatcher;
+  private final HealthMetrics healthMetrics;
+  private final int bufferCount;
+  private final BlockingQueue<ByteBuffer> spareBuffers;
+  private final BlockingQueue<PendingPayload> pendingPayloads;
+  private final Thread senderThread;
+
+  // the buffer the dispatcher starts with counts towards the total
+  private int allocatedBuffers = 1;
+  // guarded by this
+  private int inFlight;
+
+  PayloadSender(
+      PayloadDispatcher dispatcher, HealthMetrics healthMetrics, int bufferCount, int shardIndex) {
+    this.dispatcher = dispatcher;
+    this.healthMetrics = healthMetrics;
+    this.bufferCount = bufferCount;
+    this.spareBuffers = new ArrayBlockingQueue<>(bufferCount);
+    this.pendingPayloads = new ArrayBlockingQueue<>(bufferCount);
+    // a lone shard keeps the plain thread name, shards are told apart by their index
+    this.senderThread =
+        shardIndex < 0
+            ? newAgentThread(TRACE_SENDER, this)
+            : newAgentThread(TRACE_SENDER, shardIndex, this);
+  }
+
+  void start() {
+    senderThread.start();
+  }
+
+  void close() {
+    senderThread.interrupt();
+    try {
+      senderThread.join(THREAD_JOIN_TIMOUT_MS);
+    } catch (InterruptedException ignored) {
+    }
+  }
+
+  @Override
+  public ByteBuffer exchange(int messageCount, ByteBuffer buffer) {
+    Payload payload = dispatcher.handOver(messageCount, buffer);
+    synchronized (this) {
+      ++inFlight;
+    }
+    // there are never more pending payloads than buffers, so this can't fail
+    pendingPayloads.offer(new PendingPayload(payload, buffer));
+    return nextBuffer(buffer.capacity());
+  }
+
+  /** Waits until every payload handed over so far has been sent. */
+  synchronized void awaitPendingSends() {
+    try {
+      while (inFlight > 0 && senderThread.isAlive()) {
+        wait(100);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private ByteBuffer nextBuffer(int capacity) {
+    ByteBuffer next = spareBuffers.poll();
+    if (null != next) {
+      return next;
+    }
+    if (allocatedBuffers < bufferCount) {
+      ++allocatedBuffers;
+      return ByteBuffer.allocate(capacity);
+    }
+    long start = System.nanoTime();
+    try {
+      while (null == next && senderThread.isAlive()) {
+        next = spareBuffers.poll(100, MILLISECONDS);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    healthMetrics.onSendBackpressure(System.nanoTime() - start);
+    // only null when shutting down, when there's no point waiting any longer
+    return null == next ? ByteBuffer.allocate(capacity) : next;
+  }
+
+  @Override
+  public void run() {
+    Thread thread = Thread.currentThread();
+    try {
+      while (!thread.isInterrupted()) {
+        send(pendingPayloads.take());
+      }
+    } catch (InterruptedException e) {
+      thread.interrupt();
+    }
+    log.debug("Datadog trace sender exited. Sending traces stopped");
+  }
+
+  private void send(PendingPayload pending) {
+    try {
+      dispatcher.send(pending.payload);
+    } catch (Throwable e) {
+      if (log.isDebugEnabled()) {
+        log.debug("Error while sending traces", e);
+      }
+    } finally {
+      pending.payload.release();
+      pending.buffer.clear();
+      spareBuffers.offer(pending.buffer);
+      synchronized (this) {
+        --inFlight;
+        notifyAll();
+      }
+    }
+  }
+
+  private static final class PendingPayload {
+    final Payload payload;
+    final ByteBuffer buffer;
+
+    PendingPayload(Payload payload, ByteBuffer buffer) {
+      this.payload = payload;
+      this.buffer = buffer;
+    }
+  }
+}
@@ -29,7 +29,8 @@ public abstract class RemoteWriter implements Writer {
 
   private final RemoteApi api;
   protected final TraceProcessingWorker traceProcessingWorker;
-  private final PayloadDispatcher dispatcher;
+  // one dispatcher per trace processing shard
+  private final PayloadDispatcher[] dispatchers;
   private final boolean alwaysFlush;
   private final int flushTimeout;
   private final TimeUnit flushTimeoutUnit;
@@ -45,9 +46,27 @@ public abstract class RemoteWriter implements Writer {
       final int flushTimeout,
       final TimeUnit flushTimeoutUnit,
       final boolean alwaysFlush) {
+    this(
+        api,
+        traceProcessingWorker,
+        new PayloadDispatcher[] {dispatcher},
+        healthMetrics,
+        flushTimeout,
+        flushTimeoutUnit,
+        alwaysFlush);
+  }
+
+  protected RemoteWriter(
+      final RemoteApi api,
+      final TraceProcessingWorker traceProcessingWorker,
+      final PayloadDispatcher[] dispatchers,
+      final HealthMetrics healthMetrics,
+      final int flushTimeout,
+      final TimeUnit flushTimeoutUnit,
+      final boolean alwaysFlush) {
     this.api = api;
     this.traceProcessingWorker = traceProcessingWorker;
-    this.dispatcher = dispatcher;
+    this.dispatchers = dispatchers;
     this.healthMetrics = healthMetrics;
     this.flushTimeout = flushTimeout;
     this.flushTimeoutUnit = flushTimeoutUnit;
@@ -64,6 +83,15 @@ public abstract class RemoteWriter implements Writer {
     this(api, traceProcessingWorker, dispatcher, healthMetrics, 1, TimeUnit.SECONDS, alwaysFlush);
   }
 
+  protected RemoteWriter(
+      final RemoteApi api,
+      final TraceProcessingWorker traceProcessingWorker,
+      final PayloadDispatcher[] dispatchers,
+      final HealthMetrics healthMetrics,
+      final boolean alwaysFlush) {
+    this(api, traceProcessingWorker, dispatchers, healthMetrics, 1, TimeUnit.SECONDS, alwaysFlush);
+  }
+
   public void addResponseListener(final RemoteResponseListener listener) {
     api.addResponseListener(listener);
   }
@@ -144,6 +172,11 @@ public abstract class RemoteWriter implements Writer {
 
   @Override
   public void incrementDropCounts(int spanCount) {
+    // each drop must only be reported once, so spread them over the shards' dispatchers
+    PayloadDispatcher dispatcher =
+        dispatchers.length == 1
+            ? dispatchers[0]
+            : dispatchers[(int) (Thread.currentThread().getId() % dispatchers.length)];
     dispatcher.onDroppedTrace(spanCount);
   }
 }
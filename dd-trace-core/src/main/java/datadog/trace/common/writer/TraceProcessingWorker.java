@@ -6,6 +6,7 @@ import static datadog.trace.util.AgentThreadFactory.newAgentThread;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
 import datadog.communication.ddagent.DroppingPolicy;
+import datadog.trace.api.DDId;
 import datadog.trace.common.writer.ddagent.FlushEvent;
 import datadog.trace.common.writer.ddagent.Prioritization;
 import datadog.trace.common.writer.ddagent.PrioritizationStrategy;
@@ -26,16 +27,15 @@ import org.slf4j.LoggerFactory;
  *
  * <p>publishing to the buffer will not block the calling thread, but instead will return false if
  * the buffer is full. This is to avoid impacting an application thread.
+ *
+ * <p>On hosts where a single serializing thread can't keep up, the worker can be split into shards,
+ * each with its own queues, thread and {@link PayloadDispatcher}.
  */
 public class TraceProcessingWorker implements AutoCloseable {
 
   private static final Logger log = LoggerFactory.getLogger(TraceProcessingWorker.class);
 
-  private final PrioritizationStrategy prioritizationStrategy;
-  private final MpscBlockingConsumerArrayQueue<Object> primaryQueue;
-  private final MpscBlockingConsumerArrayQueue<Object> secondaryQueue;
-  private final TraceSerializingHandler serializingHandler;
-  private final Thread serializerThread;
+  private final Shard[] shards;
   private final int capacity;
 
   public TraceProcessingWorker(
@@ -46,28 +46,64 @@ public class TraceProcessingWorker implements AutoCloseable {
       final Prioritization prioritization,
       final long flushInterval,
       final TimeUnit timeUnit) {
-    this.capacity = capacity;
-    this.primaryQueue = createQueue(capacity);
-    this.secondaryQueue = createQueue(capacity);
-    this.prioritizationStrategy =
-        prioritization.create(primaryQueue, secondaryQueue, droppingPolicy);
-    this.serializingHandler =
-        new TraceSerializingHandler(
-            primaryQueue, secondaryQueue, healthMetrics, dispatcher, flushInterval, timeUnit);
-    this.serializerThread = newAgentThread(TRACE_PROCESSOR, serializingHandler);
+    this(
+        capacity,
+        healthMetrics,
+        new PayloadDispatcher[] {dispatcher},
+        droppingPolicy,
+        prioritization,
+        flushInterval,
+        timeUnit);
+  }
+
+  /**
+   * Creates a worker with one serializing thread per dispatcher. Each shard owns its own queues
+   * and dispatcher, and traces are routed to a shard by trace id, so a shard never has to
+   * coordinate with the others when serializing. The capacity is split evenly across the shards,
+   * each shard holding at least 2 traces.
+   */
+  public TraceProcessingWorker(
+      final int capacity,
+      final HealthMetrics healthMetrics,
+      final PayloadDispatcher[] dispatchers,
+      final DroppingPolicy droppingPolicy,
+      final Prioritization prioritization,
+      final long flushInterval,
+      final TimeUnit timeUnit) {
+    this.shards = new Shard[dispatchers.length];
+    final int shardCapacity =
+        dispatchers.length == 1 ? capacity : Math.max(2, capacity / dispatchers.length);
+    this.capacity = shardCapacity * dispatchers.length;
+    for (int i = 0; i < dispatchers.length; ++i) {
+      shards[i] =
+          new Shard(
+              dispatchers.length == 1 ? -1 : i,
+              shardCapacity,
+              healthMetrics,
+              dispatchers[i],
+              droppingPolicy,
+              prioritization,
+              flushInterval,
+              timeUnit);
+    }
   }
 
   public void start() {
-    this.serializerThread.start();
+    for (Shard shard : shards) {
+      shard.serializerThread.start();
+    }
   }
 
   public boolean flush(long timeout, TimeUnit timeUnit) {
-    CountDownLatch latch = new CountDownLatch(1);
+    // a single flush event is shared by all shards, and completes once every shard has seen it
+    CountDownLatch latch = new CountDownLatch(shards.length);
     FlushEvent flush = new FlushEvent(latch);
-    boolean offered;
-    do {
-      offered = primaryQueue.offer(flush);
-    } while (!offered && serializerThread.isAlive());
+    for (Shard shard : shards) {
+      boolean offered;
+      do {
+        offered = shard.primaryQueue.offer(flush);
+      } while (!offered && shard.serializerThread.isAlive());
+    }
     try {
       return latch.await(timeout, timeUnit);
     } catch (InterruptedException e) {
@@ -78,31 +114,95 @@ public class TraceProcessingWorker implements AutoCloseable {
 
   @Override
   public void close() {
-    serializerThread.interrupt();
-    try {
-      serializerThread.join(THREAD_JOIN_TIMOUT_MS);
-    } catch (InterruptedException ignored) {
+    for (Shard shard : shards) {
+      shard.serializerThread.interrupt();
+    }
+    for (Shard shard : shards) {
+      try {
+        shard.serializerThread.join(THREAD_JOIN_TIMOUT_MS);
+      } catch (InterruptedException ignored) {
+      }
+      shard.dispatcher.close();
     }
   }
 
   public <T extends CoreSpan<T>> boolean publish(
       T root, int samplingPriority, final List<T> trace) {
-    return prioritizationStrategy.publish(root, samplingPriority, trace);
+    return shardFor(root).prioritizationStrategy.publish(root, samplingPriority, trace);
   }
 
+  /**
+   * @return the capacity of the worker, summed over its shards. Each shard only holds {@code
+   *     getCapacity() / getShardCount()} traces, and drops traces once it is full even when other
+   *     shards have room left.
+   */
   public int getCapacity() {
     return capacity;
   }
 
+  /** @return the remaining capacity of the worker, summed over its shards. */
   public long getRemainingCapacity() {
     // only advertise primary capacity (partly to keep test which aims to saturate the queue happy)
-    return primaryQueue.remainingCapacity();
+    long remainingCapacity = 0;
+    for (Shard shard : shards) {
+      remainingCapacity += shard.primaryQueue.remainingCapacity();
+    }
+    return remainingCapacity;
+  }
+
+  public int getShardCount() {
+    return shards.length;
+  }
+
+  private <T extends CoreSpan<T>> Shard shardFor(T root) {
+    if (shards.length == 1) {
+      return shards[0];
+    }
+    DDId traceId = root.getTraceId();
+    if (null == traceId) {
+      return shards[0];
+    }
+    long id = traceId.toLong();
+    int hash = (int) (id ^ (id >>> 32));
+    return shards[(hash & Integer.MAX_VALUE) % shards.length];
   }
 
   private static MpscBlockingConsumerArrayQueue<Object> createQueue(int capacity) {
     return new MpscBlockingConsumerArrayQueue<>(capacity);
   }
 
+  private static final class Shard {
+    final MpscBlockingConsumerArrayQueue<Object> primaryQueue;
+    final MpscBlockingConsumerArrayQueue<Object> secondaryQueue;
+    final PrioritizationStrategy prioritizationStrategy;
+    final PayloadDispatcher dispatcher;
+    final Thread serializerThread;
+
+    Shard(
+        final int index,
+        final int capacity,
+        final HealthMetrics healthMetrics,
+        final PayloadDispatcher dispatcher,
+        final DroppingPolicy droppingPolicy,
+        final Prioritization prioritization,
+        final long flushInterval,
+        final TimeUnit timeUnit) {
+      this.primaryQueue = createQueue(capacity);
+      this.secondaryQueue = createQueue(capacity);
+      this.prioritizationStrategy =
+          prioritization.create(primaryQueue, secondaryQueue, droppingPolicy);
+      this.dispatcher = dispatcher;
+      final TraceSerializingHandler handler =
+          new TraceSerializingHandler(
+              primaryQueue, secondaryQueue, healthMetrics, dispatcher, flushInterval, timeUnit);
+      // a lone shard keeps the plain thread name, shards are told apart by their index
+      this.serializerThread =
+          index < 0
+              ? newAgentThread(TRACE_PROCESSOR, handler)
+              : newAgentThread(TRACE_PROCESSOR, index, handler);
+    }
+  }
+
   public static class TraceSerializingHandler
       implements Runnable, MessagePassingQueue.Consumer<Object> {
 
@@ -146,6 +246,8 @@ public class TraceProcessingWorker implements AutoCloseable {
           payloadDispatcher.addTrace(trace);
         } else if (event instanceof FlushEvent) {
           payloadDispatcher.flush();
+          // payloads may still be in flight on the sender thread
+          payloadDispatcher.awaitPendingSends();
           ((FlushEvent) event).sync();
         }
       } catch (final Throwable e) {
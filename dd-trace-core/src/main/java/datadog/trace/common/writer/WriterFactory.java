@@ -11,17 +11,21 @@ import static datadog.trace.common.writer.ddagent.Prioritization.ENSURE_TRACE;
 import static datadog.trace.common.writer.ddagent.Prioritization.FAST_LANE;
 
 import datadog.common.container.ServerlessInfo;
+import datadog.common.socket.SocketUtils;
 import datadog.communication.ddagent.SharedCommunicationObjects;
 import datadog.trace.api.Config;
 import datadog.trace.api.StatsDClient;
 import datadog.trace.api.intake.TrackType;
 import datadog.trace.common.sampling.Sampler;
 import datadog.trace.common.writer.ddagent.DDAgentApi;
+import datadog.trace.common.writer.ddagent.DirectSocketTransport;
 import datadog.trace.common.writer.ddagent.Prioritization;
 import datadog.trace.common.writer.ddintake.DDIntakeApi;
 import datadog.trace.common.writer.ddintake.DDIntakeTrackTypeResolver;
+import datadog.trace.core.SpanTagsRecycler;
 import datadog.trace.core.monitor.HealthMetrics;
 import datadog.trace.util.Strings;
+import java.util.concurrent.TimeUnit;
 import okhttp3.HttpUrl;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -63,6 +67,8 @@ public class WriterFactory {
           "Using 'EnsureTrace' prioritization type. (Do not use this type if your application is running in production mode)");
     }
 
+    final PayloadCompression compression = createPayloadCompression(config);
+
     RemoteWriter remoteWriter;
     if (DD_INTAKE_WRITER_TYPE.equals(configuredType)) {
       final TrackType trackType = DDIntakeTrackTypeResolver.resolve(config);
@@ -84,6 +90,7 @@ public class WriterFactory {
               .hostUrl(hostUrl)
               .apiKey(config.getApiKey())
               .trackType(trackType)
+              .compression(compression)
               .build();
 
       remoteWriter =
@@ -115,13 +122,27 @@ public class WriterFactory {
         }
       }
 
+      DirectSocketTransport socketTransport = null;
+      // compressed payloads are sent chunked, which the direct transport doesn't support
+      if (config.isAgentUnixDomainSocketDirectTransportEnabled() && null == compression) {
+        String unixDomainSocket = SocketUtils.discoverApmSocket(config);
+        if (null != unixDomainSocket) {
+          log.debug("Writing traces directly to unix domain socket {}", unixDomainSocket);
+          socketTransport =
+              DirectSocketTransport.unixDomainSocket(
+                  unixDomainSocket, (int) TimeUnit.SECONDS.toMillis(config.getAgentTimeout()));
+        }
+      }
+
       DDAgentApi ddAgentApi =
           new DDAgentApi(
               commObjects.okHttpClient,
               commObjects.agentUrl,
               commObjects.featuresDiscovery(config),
               commObjects.monitoring,
-              config.isTracerMetricsEnabled());
+              config.isTracerMetricsEnabled(),
+              socketTransport,
+              compression);
 
       remoteWriter =
           DDAgentWriter.builder()
@@ -131,6 +152,12 @@ public class WriterFactory {
               .healthMetrics(new HealthMetrics(statsDClient))
               .monitoring(commObjects.monitoring)
               .alwaysFlush(alwaysFlush)
+              .traceProcessingShards(config.getTraceProcessingShards())
+              .payloadBuffers(config.getTracePayloadBuffers())
+              // a MultiWriter hands the same trace to several writers, so none of them owns it
+              .spanTagsRecycling(
+                  SpanTagsRecycler.isEnabled()
+                      && !config.getWriterType().startsWith(MULTI_WRITER_TYPE))
               .build();
     }
 
@@ -141,5 +168,18 @@ public class WriterFactory {
     return remoteWriter;
   }
 
+  private static PayloadCompression createPayloadCompression(final Config config) {
+    final String compression = config.getTracePayloadCompression();
+    if (PayloadCompression.GZIP.equalsIgnoreCase(compression)) {
+      // one compressor for each thread which can be sending payloads
+      return new PayloadCompression(
+          config.getTracePayloadCompressionLevel(), config.getTraceProcessingShards());
+    }
+    if (!"none".equalsIgnoreCase(compression)) {
+      log.warn("Trace payload compression {} not recognized. Ignoring", compression);
+    }
+    return null;
+  }
+
   private WriterFactory() {}
 }
@@ -10,6 +10,7 @@ import datadog.communication.monitor.Counter;
 import datadog.communication.monitor.Monitoring;
 import datadog.communication.monitor.Recording;
 import datadog.trace.common.writer.Payload;
+import datadog.trace.common.writer.PayloadCompression;
 import datadog.trace.common.writer.RemoteApi;
 import datadog.trace.common.writer.RemoteResponseListener;
 import datadog.trace.core.DDTraceCoreInfo;
@@ -20,9 +21,11 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
 import okhttp3.HttpUrl;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
+import okhttp3.RequestBody;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -41,14 +44,16 @@ public class DDAgentApi implements RemoteApi {
   private static final String DATADOG_DROPPED_TRACE_COUNT = "Datadog-Client-Dropped-P0-Traces";
   private static final String DATADOG_DROPPED_SPAN_COUNT = "Datadog-Client-Dropped-P0-Spans";
   private static final String DATADOG_AGENT_STATE = "Datadog-Agent-State";
+  private static final String CONTENT_ENCODING = "Content-Encoding";
 
   private final List<RemoteResponseListener> responseListeners = new ArrayList<>();
   private final boolean metricsEnabled;
 
-  private long totalTraces = 0;
-  private long receivedTraces = 0;
-  private long sentTraces = 0;
-  private long failedTraces = 0;
+  // sharded writers send from several threads at once
+  private final AtomicLong totalTraces = new AtomicLong();
+  private final AtomicLong receivedTraces = new AtomicLong();
+  private final AtomicLong sentTraces = new AtomicLong();
+  private final AtomicLong failedTraces = new AtomicLong();
 
   private final Recording sendPayloadTimer;
   private final Counter agentErrorCounter;
@@ -66,6 +71,8 @@ public class DDAgentApi implements RemoteApi {
   private final OkHttpClient httpClient;
   private final HttpUrl agentUrl;
   private final Map<String, String> headers;
+  private final DirectSocketTransport socketTransport;
+  private final PayloadCompression compression;
 
   private final IOLogger ioLogger = new IOLogger(log);
 
@@ -75,10 +82,41 @@ public class DDAgentApi implements RemoteApi {
       DDAgentFeaturesDiscovery featuresDiscovery,
       Monitoring monitoring,
       boolean metricsEnabled) {
+    this(client, agentUrl, featuresDiscovery, monitoring, metricsEnabled, null);
+  }
+
+  /**
+   * @param socketTransport when not null, traces are written straight to its socket instead of
+   *     being sent with the client
+   */
+  public DDAgentApi(
+      OkHttpClient client,
+      HttpUrl agentUrl,
+      DDAgentFeaturesDiscovery featuresDiscovery,
+      Monitoring monitoring,
+      boolean metricsEnabled,
+      DirectSocketTransport socketTransport) {
+    this(client, agentUrl, featuresDiscovery, monitoring, metricsEnabled, socketTransport, null);
+  }
+
+  /**
+   * @param compression when not null, payloads are compressed as they are sent with the client,
+   *     and the socket transport is not used because it needs to know the size of the body upfront
+   */
+  public DDAgentApi(
+      OkHttpClient client,
+      HttpUrl agentUrl,
+      DDAgentFeaturesDiscovery featuresDiscovery,
+      Monitoring monitoring,
+      boolean metricsEnabled,
+      DirectSocketTransport socketTransport,
+      PayloadCompression compression) {
     this.featuresDiscovery = featuresDiscovery;
+    this.socketTransport = null == compression ? socketTransport : null;
+    this.compression = compression;
     this.agentUrl = agentUrl;
     this.httpClient = client;
-    this.sendPayloadTimer = monitoring.newTimer("trace.agent.send.time");
+    this.sendPayloadTimer = monitoring.newThreadLocalTimer("trace.agent.send.time");
     this.agentErrorCounter = monitoring.newCounter("trace.agent.error.counter");
     this.metricsEnabled = metricsEnabled;
 
@@ -108,42 +146,47 @@ public class DDAgentApi implements RemoteApi {
 
     HttpUrl tracesUrl = agentUrl.resolve(tracesEndpoint);
     try {
+      final RequestBody body;
+      final Request.Builder builder = prepareRequest(tracesUrl, headers);
+      if (null != compression) {
+        body = compression.requestBody(payload);
+        builder.addHeader(CONTENT_ENCODING, compression.contentEncoding());
+      } else {
+        body = payload.toRequest();
+      }
       final Request request =
-          prepareRequest(tracesUrl, headers)
+          builder
               .addHeader(X_DATADOG_TRACE_COUNT, Integer.toString(payload.traceCount()))
               .addHeader(DATADOG_DROPPED_TRACE_COUNT, Long.toString(payload.droppedTraces()))
               .addHeader(DATADOG_DROPPED_SPAN_COUNT, Long.toString(payload.droppedSpans()))
               .addHeader(
                   DATADOG_CLIENT_COMPUTED_STATS,
                   metricsEnabled && featuresDiscovery.supportsMetrics() ? "true" : "")
-              .put(payload.toRequest())
+              .put(body)
               .build();
-      this.totalTraces += payload.traceCount();
-      this.receivedTraces += payload.traceCount();
-      try (final Recording recording = sendPayloadTimer.start();
-          final okhttp3.Response response = httpClient.newCall(request).execute()) {
-        handleAgentChange(response.header(DATADOG_AGENT_STATE));
-        if (response.code() != 200) {
-          agentErrorCounter.incrementErrorCount(response.message(), payload.traceCount());
-          countAndLogFailedSend(payload.traceCount(), sizeInBytes, response, null);
-          return Response.failed(response.code());
+      this.totalTraces.addAndGet(payload.traceCount());
+      this.receivedTraces.addAndGet(payload.traceCount());
+      try (final Recording recording = sendPayloadTimer.start()) {
+        if (null != socketTransport) {
+          final DirectSocketTransport.Response response = socketTransport.send(request, payload);
+          return handleResponse(
+              payload,
+              sizeInBytes,
+              tracesUrl,
+              response.code(),
+              response.message(),
+              response.agentState(),
+              response.body());
         }
-        countAndLogSuccessfulSend(payload.traceCount(), sizeInBytes);
-        String responseString = null;
-        try {
-          responseString = getResponseBody(response);
-          if (!"".equals(responseString) && !"OK".equalsIgnoreCase(responseString)) {
-            final Map<String, Map<String, Number>> parsedResponse =
-                RESPONSE_ADAPTER.fromJson(responseString);
-            final String endpoint = tracesUrl.toString();
-            for (final RemoteResponseListener listener : responseListeners) {
-              listener.onResponse(endpoint, parsedResponse);
-            }
-          }
-          return Response.success(response.code(), responseString);
-        } catch (final IOException e) {
-          log.debug("Failed to parse DD agent response: {}", responseString, e);
-          return Response.success(response.code(), e);
+        try (final okhttp3.Response response = httpClient.newCall(request).execute()) {
+          return handleResponse(
+              payload,
+              sizeInBytes,
+              tracesUrl,
+              response.code(),
+              response.message(),
+              response.header(DATADOG_AGENT_STATE),
+              getResponseBody(response));
         }
       }
     } catch (final IOException e) {
@@ -152,6 +195,41 @@ public class DDAgentApi implements RemoteApi {
     }
   }
 
+  private Response handleResponse(
+      final Payload payload,
+      final int sizeInBytes,
+      final HttpUrl tracesUrl,
+      final int code,
+      final String message,
+      final String agentState,
+      final String responseString) {
+    handleAgentChange(agentState);
+    if (code != 200) {
+      agentErrorCounter.incrementErrorCount(message, payload.traceCount());
+      countAndLogFailedSend(
+          payload.traceCount(),
+          sizeInBytes,
+          new IOLogger.Response(code, message, responseString),
+          null);
+      return Response.failed(code);
+    }
+    countAndLogSuccessfulSend(payload.traceCount(), sizeInBytes);
+    try {
+      if (!"".equals(responseString) && !"OK".equalsIgnoreCase(responseString)) {
+        final Map<String, Map<String, Number>> parsedResponse =
+            RESPONSE_ADAPTER.fromJson(responseString);
+        final String endpoint = tracesUrl.toString();
+        for (final RemoteResponseListener listener : responseListeners) {
+          listener.onResponse(endpoint, parsedResponse);
+        }
+      }
+      return Response.success(code, responseString);
+    } catch (final IOException e) {
+      log.debug("Failed to parse DD agent response: {}", responseString, e);
+      return Response.success(code, e);
+    }
+  }
+
   private void handleAgentChange(String state) {
     String previous = featuresDiscovery.state();
     if (!Objects.equals(state, previous)) {
@@ -161,7 +239,7 @@ public class DDAgentApi implements RemoteApi {
 
   private void countAndLogSuccessfulSend(final int traceCount, final int sizeInBytes) {
     // count the successful traces
-    this.sentTraces += traceCount;
+    this.sentTraces.addAndGet(traceCount);
 
     ioLogger.success(createSendLogMessage(traceCount, sizeInBytes, "Success"));
   }
@@ -169,23 +247,15 @@ public class DDAgentApi implements RemoteApi {
   private void countAndLogFailedSend(
       final int traceCount,
       final int sizeInBytes,
-      final okhttp3.Response response,
+      final IOLogger.Response response,
       final IOException outer) {
     // count the failed traces
-    this.failedTraces += traceCount;
-    // these are used to catch and log if there is a failure in debug logging the response body
-    String agentError = getResponseBody(response);
+    this.failedTraces.addAndGet(traceCount);
+    String agentError = null == response ? "" : response.getBody();
     String sendErrorString =
         createSendLogMessage(traceCount, sizeInBytes, agentError.isEmpty() ? "Error" : agentError);
 
-    ioLogger.error(sendErrorString, toLoggerResponse(response, agentError), outer);
-  }
-
-  private static IOLogger.Response toLoggerResponse(okhttp3.Response response, String body) {
-    if (response == null) {
-      return null;
-    }
-    return new IOLogger.Response(response.code(), response.message(), body);
+    ioLogger.error(sendErrorString, response, outer);
   }
 
   private static String getResponseBody(okhttp3.Response response) {
@@ -209,13 +279,13 @@ public class DDAgentApi implements RemoteApi {
         + ")"
         + " traces to the DD agent."
         + " Total: "
-        + this.totalTraces
+        + this.totalTraces.get()
         + ", Received: "
-        + this.receivedTraces
+        + this.receivedTraces.get()
         + ", Sent: "
-        + this.sentTraces
+        + this.sentTraces.get()
         + ", Failed: "
-        + this.failedTraces
+        + this.failedTraces.get()
         + ".";
   }
 }
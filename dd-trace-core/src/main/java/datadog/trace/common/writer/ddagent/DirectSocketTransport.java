@@ -0,0 +1,395 @@
+package datadog.trace.common.writer.ddagent;
+
+import datadog.common.socket.UnixDomainSocketFactory;
+import datadog.trace.common.writer.Payload;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import okhttp3.Headers;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sends payloads to the agent over a kept-alive socket channel. The serialized buffers are written
+ * straight to the socket with gathering writes, rather than being copied through OkHttp's buffers,
+ * and responses are parsed from a reused buffer.
+ *
+ * <p>Only supports what the agent needs: a body of known length in the request, and responses with
+ * either a content length or chunked encoding. Requests are sent one at a time.
+ */
+public final class DirectSocketTransport implements Closeable {
+
+  private static final Logger log = LoggerFactory.getLogger(DirectSocketTransport.class);
+
+  private static final int MAX_HEADER_BYTES = 8192;
+
+  public interface Connector {
+    SocketChannel connect() throws IOException;
+  }
+
+  public static final class Response {
+    private final int code;
+    private final String message;
+    private final String agentState;
+    private final String body;
+
+    Response(int code, String message, String agentState, String body) {
+      this.code = code;
+      this.message = message;
+      this.agentState = agentState;
+      this.body = body;
+    }
+
+    public int code() {
+      return code;
+    }
+
+    public String message() {
+      return message;
+    }
+
+    /** @return the value of the Datadog-Agent-State header, or null if it wasn't sent */
+    public String agentState() {
+      return agentState;
+    }
+
+    public String body() {
+      return body;
+    }
+  }
+
+  public static DirectSocketTransport unixDomainSocket(
+      final String socketPath, final int timeoutMillis) {
+    final UnixDomainSocketFactory factory = new UnixDomainSocketFactory(new File(socketPath));
+    return new DirectSocketTransport(
+        new Connector() {
+          @Override
+          public SocketChannel connect() throws IOException {
+            return factory.openChannel(timeoutMillis);
+          }
+        });
+  }
+
+  private final Connector connector;
+  private final ByteBuffer requestHead = ByteBuffer.allocate(MAX_HEADER_BYTES);
+  private ByteBuffer input = ByteBuffer.allocate(MAX_HEADER_BYTES);
+  private final ByteBuffer[] gather = new ByteBuffer[8];
+
+  private SocketChannel channel;
+  // set once the whole request has been written, after which it must not be sent again
+  private boolean requestWritten;
+
+  // the parsed response head
+  private int status;
+  private String reason;
+  private String agentState;
+  private int contentLength;
+  private boolean chunked;
+  private boolean connectionClose;
+
+  public DirectSocketTransport(Connector connector) {
+    this.connector = connector;
+  }
+
+  /**
+   * Sends the request line and headers of {@code request} followed by the payload. The request's
+   * body is not used, only its content type. Requests are only retried if writing them to a kept
+   * alive connection failed, never once they have been fully written.
+   */
+  public synchronized Response send(Request request, Payload payload) throws IOException {
+    boolean reused = null != channel;
+    try {
+      return exchange(request, payload);
+    } catch (IOException e) {
+      closeChannel();
+      if (!reused || requestWritten) {
+        // once the agent may have received the traces, resending them could duplicate them
+        throw e;
+      }
+      // the agent dropped the idle connection before taking the request, try once more
+      log.debug("Retrying on a new connection to the agent", e);
+      try {
+        return exchange(request, payload);
+      } catch (IOException retryFailure) {
+        closeChannel();
+        throw retryFailure;
+      }
+    }
+  }
+
+  @Override
+  public synchronized void close() {
+    closeChannel();
+  }
+
+  private Response exchange(Request request, Payload payload) throws IOException {
+    requestWritten = false;
+    if (null == channel) {
+      channel = connector.connect();
+    }
+    writeRequest(request, payload);
+    requestWritten = true;
+    Response response = readResponse();
+    if (connectionClose) {
+      closeChannel();
+    }
+    return response;
+  }
+
+  private void writeRequest(Request request, Payload payload) throws IOException {
+    requestHead.clear();
+    String path = request.url().encodedPath();
+    String query = request.url().encodedQuery();
+    putAscii(request.method()).putAscii(" ").putAscii(path);
+    if (null != query) {
+      putAscii("?").putAscii(query);
+    }
+    putAscii(" HTTP/1.1\r\nHost: ").putAscii(request.url().host()).putAscii("\r\n");
+    RequestBody body = request.body();
+    if (null != body && null != body.contentType()) {
+      putHeader("Content-Type", body.contentType().toString());
+    }
+    putHeader("Content-Length", Integer.toString(payload.sizeInBytes()));
+    Headers headers = request.headers();
+    for (int i = 0; i < headers.size(); ++i) {
+      putHeader(headers.name(i), headers.value(i));
+    }
+    putAscii("\r\n");
+    requestHead.flip();
+
+    // the payload's buffers are duplicated so that they can be sent again on retry
+    ByteBuffer[] buffers = payload.buffers();
+    int count = buffers.length + 1;
+    ByteBuffer[] all = count <= gather.length ? gather : new ByteBuffer[count];
+    all[0] = requestHead;
+    long remaining = requestHead.remaining();
+    for (int i = 0; i < buffers.length; ++i) {
+      all[i + 1] = buffers[i].duplicate();
+      remaining += buffers[i].remaining();
+    }
+    try {
+      while (remaining > 0) {
+        long written = channel.write(all, 0, count);
+        if (written <= 0) {
+          throw new SocketTimeoutException("Timed out writing to the agent");
+        }
+        remaining -= written;
+      }
+    } finally {
+      for (int i = 0; i < count; ++i) {
+        all[i] = null;
+      }
+    }
+  }
+
+  private void putHeader(String name, String value) throws IOException {
+    putAscii(name).putAscii(": ").putAscii(value).putAscii("\r\n");
+  }
+
+  private DirectSocketTransport putAscii(String value) throws IOException {
+    if (requestHead.remaining() < value.length()) {
+      throw new IOException("Request headers are too large");
+    }
+    for (int i = 0; i < value.length(); ++i) {
+      requestHead.put((byte) value.charAt(i));
+    }
+    return this;
+  }
+
+  private Response readResponse() throws IOException {
+    input.clear();
+    int headEnd;
+    while ((headEnd = indexOf(input, 0, input.position(), "\r\n\r\n")) < 0) {
+      if (!input.hasRemaining()) {
+        throw new IOException("Response headers from the agent are too large");
+      }
+      fill();
+    }
+    parseHead(headEnd);
+    int bodyStart = headEnd + 4;
+    String body;
+    if (chunked) {
+      body = readChunkedBody(bodyStart);
+    } else if (contentLength > 0) {
+      bodyStart = ensureBuffered(bodyStart, contentLength);
+      body = new String(input.array(), bodyStart, contentLength, StandardCharsets.UTF_8).trim();
+    } else {
+      body = "";
+    }
+    return new Response(status, reason, agentState, body);
+  }
+
+  private void parseHead(int headEnd) throws IOException {
+    byte[] bytes = input.array();
+    int lineEnd = indexOf(input, 0, headEnd + 2, "\r\n");
+    // HTTP/1.1 200 OK
+    if (lineEnd < 12 || bytes[8] != ' ') {
+      throw new IOException("Malformed status line from the agent");
+    }
+    status = (bytes[9] - '0') * 100 + (bytes[10] - '0') * 10 + (bytes[11] - '0');
+    // the reason phrase is only needed for reporting errors
+    reason = status == 200 ? "OK" : lineEnd > 13 ? ascii(bytes, 13, lineEnd) : "";
+    agentState = null;
+    contentLength = 0;
+    chunked = false;
+    connectionClose = false;
+    int lineStart = lineEnd + 2;
+    while (lineStart < headEnd + 2) {
+      lineEnd = indexOf(input, lineStart, headEnd + 2, "\r\n");
+      int colon = indexOf(input, lineStart, lineEnd, ":");
+      if (colon > 0) {
+        int valueStart = colon + 1;
+        while (valueStart < lineEnd && bytes[valueStart] == ' ') {
+          ++valueStart;
+        }
+        if (nameEquals(bytes, lineStart, colon, "content-length")) {
+          contentLength = parseInt(bytes, valueStart, lineEnd);
+        } else if (nameEquals(bytes, lineStart, colon, "transfer-encoding")) {
+          chunked = nameEquals(bytes, valueStart, lineEnd, "chunked");
+        } else if (nameEquals(bytes, lineStart, colon, "connection")) {
+          connectionClose = nameEquals(bytes, valueStart, lineEnd, "close");
+        } else if (nameEquals(bytes, lineStart, colon, "datadog-agent-state")) {
+          agentState = ascii(bytes, valueStart, lineEnd);
+        }
+      }
+      lineStart = lineEnd + 2;
+    }
+  }
+
+  private String readChunkedBody(int position) throws IOException {
+    StringBuilder body = new StringBuilder();
+    while (true) {
+      int sizeEnd;
+      while ((sizeEnd = indexOf(input, position, input.position(), "\r\n")) < 0) {
+        position = compactFrom(position);
+        fill();
+      }
+      int size = parseHex(input.array(), position, sizeEnd);
+      position = sizeEnd + 2;
+      if (size == 0) {
+        // skip the (empty) trailer
+        while (indexOf(input, position, input.position(), "\r\n") < 0) {
+          position = compactFrom(position);
+          fill();
+        }
+        return body.toString().trim();
+      }
+      position = ensureBuffered(position, size + 2);
+      body.append(new String(input.array(), position, size, StandardCharsets.UTF_8));
+      position += size + 2;
+    }
+  }
+
+  /** @return where the {@code length} bytes starting at {@code position} now are */
+  private int ensureBuffered(int position, int length) throws IOException {
+    if (position + length > input.capacity()) {
+      position = compactFrom(position);
+      if (length > input.capacity()) {
+        ByteBuffer larger = ByteBuffer.allocate(length);
+        input.flip();
+        larger.put(input);
+        input = larger;
+      }
+    }
+    while (input.position() < position + length) {
+      fill();
+    }
+    return position;
+  }
+
+  /** Discards the bytes before {@code position}, returning 0, its new value. */
+  private int compactFrom(int position) {
+    if (position > 0) {
+      input.flip().position(position);
+      input.compact();
+    }
+    return 0;
+  }
+
+  private void fill() throws IOException {
+    int read = channel.read(input);
+    if (read < 0) {
+      throw new EOFException("Connection to the agent closed");
+    } else if (read == 0 && input.hasRemaining()) {
+      // blocking reads only return nothing when the timeout has passed
+      throw new SocketTimeoutException("Timed out reading from the agent");
+    }
+  }
+
+  private void closeChannel() {
+    if (null != channel) {
+      try {
+        channel.close();
+      } catch (IOException ignored) {
+      }
+      channel = null;
+    }
+  }
+
+  private static int indexOf(ByteBuffer buffer, int from, int to, String ascii) {
+    byte[] bytes = buffer.array();
+    int last = to - ascii.length();
+    outer:
+    for (int i = from; i <= last; ++i) {
+      for (int j = 0; j < ascii.length(); ++j) {
+        if (bytes[i + j] != ascii.charAt(j)) {
+          continue outer;
+        }
+      }
+      return i;
+    }
+    return -1;
+  }
+
+  /** Case insensitive comparison against a lower case name. */
+  private static boolean nameEquals(byte[] bytes, int from, int to, String lowerCase) {
+    while (to > from && bytes[to - 1] == ' ') {
+      --to;
+    }
+    if (to - from != lowerCase.length()) {
+      return false;
+    }
+    for (int i = 0; i < lowerCase.length(); ++i) {
+      int b = bytes[from + i];
+      if ((b >= 'A' && b <= 'Z' ? b + ('a' - 'A') : b) != lowerCase.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static int parseInt(byte[] bytes, int from, int to) throws IOException {
+    int value = 0;
+    for (int i = from; i < to && bytes[i] != ' '; ++i) {
+      int digit = bytes[i] - '0';
+      if (digit < 0 || digit > 9) {
+        throw new IOException("Malformed content length from the agent");
+      }
+      value = value * 10 + digit;
+    }
+    return value;
+  }
+
+  private static int parseHex(byte[] bytes, int from, int to) throws IOException {
+    int value = 0;
+    for (int i = from; i < to && bytes[i] != ';' && bytes[i] != ' '; ++i) {
+      int digit = Character.digit(bytes[i], 16);
+      if (digit < 0) {
+        throw new IOException("Malformed chunk size from the agent");
+      }
+      value = (value << 4) | digit;
+    }
+    return value;
+  }
+
+  private static String ascii(byte[] bytes, int from, int to) {
+    return new String(bytes, from, to - from, StandardCharsets.US_ASCII);
+  }
+}
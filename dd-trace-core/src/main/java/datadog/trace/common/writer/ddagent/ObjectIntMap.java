@@ -0,0 +1,95 @@
+package datadog.trace.common.writer.ddagent;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing map from objects to non-negative ints, which can be cleared in constant time.
+ *
+ * <p>Each slot is stamped with the generation it was written in, and only slots stamped with the
+ * current generation are occupied, so clearing the map just moves on to the next generation. The
+ * keys of earlier generations stay reachable until their slots are reused, which is bounded by the
+ * largest size the map has reached. Not thread-safe.
+ */
+final class ObjectIntMap {
+
+  static final int ABSENT = -1;
+
+  private Object[] keys;
+  private int[] values;
+  private int[] generations;
+  private int mask;
+  private int size;
+  private int generation = 1;
+
+  ObjectIntMap(int expectedSize) {
+    allocate(Integer.highestOneBit(Math.max(8, expectedSize) * 2 - 1) << 1);
+  }
+
+  int size() {
+    return size;
+  }
+
+  /** @return the value for the key, or {@link #ABSENT} */
+  int get(Object key) {
+    int slot = hash(key) & mask;
+    while (generations[slot] == generation) {
+      if (key.equals(keys[slot])) {
+        return values[slot];
+      }
+      slot = (slot + 1) & mask;
+    }
+    return ABSENT;
+  }
+
+  /** Adds a key which isn't in the map yet. */
+  void putNew(Object key, int value) {
+    if (++size > (mask + 1) >>> 1) {
+      // keep the table at most half full
+      resize();
+    }
+    insert(key, value);
+  }
+
+  void clear() {
+    size = 0;
+    if (++generation == 0) {
+      // the stamps have wrapped around, so every stale slot has to be wiped once
+      Arrays.fill(generations, 0);
+      generation = 1;
+    }
+  }
+
+  private void insert(Object key, int value) {
+    int slot = hash(key) & mask;
+    while (generations[slot] == generation) {
+      slot = (slot + 1) & mask;
+    }
+    keys[slot] = key;
+    values[slot] = value;
+    generations[slot] = generation;
+  }
+
+  private void resize() {
+    Object[] oldKeys = keys;
+    int[] oldValues = values;
+    int[] oldGenerations = generations;
+    allocate(oldKeys.length << 1);
+    for (int i = 0; i < oldKeys.length; ++i) {
+      if (oldGenerations[i] == generation) {
+        insert(oldKeys[i], oldValues[i]);
+      }
+    }
+  }
+
+  private void allocate(int capacity) {
+    keys = new Object[capacity];
+    values = new int[capacity];
+    generations = new int[capacity];
+    mask = capacity - 1;
+  }
+
+  private static int hash(Object key) {
+    int h = key.hashCode();
+    return h ^ (h >>> 16);
+  }
+}
@@ -8,6 +8,7 @@ import datadog.trace.common.writer.Payload;
 import datadog.trace.core.CoreSpan;
 import datadog.trace.core.Metadata;
 import datadog.trace.core.MetadataConsumer;
+import datadog.trace.core.TagMap;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.WritableByteChannel;
@@ -56,8 +57,9 @@ public final class TraceMapperV0_4 implements TraceMapper {
               + (metadata.measured() ? 1 : 0)
               + (metadata.topLevel() ? 1 : 0)
               + 1;
-      for (Map.Entry<String, Object> tag : metadata.getTags().entrySet()) {
-        if (tag.getValue() instanceof Number) {
+      TagMap tags = metadata.getTags();
+      for (int i = tags.first(); i >= 0; i = tags.next(i)) {
+        if (tags.isNumberAt(i)) {
           ++metricsSize;
           --metaSize;
         }
@@ -78,10 +80,10 @@ public final class TraceMapperV0_4 implements TraceMapper {
       }
       writable.writeUTF8(THREAD_ID);
       writable.writeLong(metadata.getThreadId());
-      for (Map.Entry<String, Object> entry : metadata.getTags().entrySet()) {
-        if (entry.getValue() instanceof Number) {
-          writable.writeString(entry.getKey(), null);
-          writable.writeObject(entry.getValue(), null);
+      for (int i = tags.first(); i >= 0; i = tags.next(i)) {
+        if (tags.isNumberAt(i)) {
+          writable.writeCachedString(tags.keyAt(i));
+          tags.writeNumberAt(i, writable);
         }
       }
 
@@ -91,7 +93,7 @@ public final class TraceMapperV0_4 implements TraceMapper {
       // since they will be accumulated into maps in the same order downstream,
       // we just need to be sure that the size is the same as the number of elements
       for (Map.Entry<String, String> entry : metadata.getBaggage().entrySet()) {
-        writable.writeString(entry.getKey(), null);
+        writable.writeCachedString(entry.getKey());
         writable.writeString(entry.getValue(), null);
       }
       writable.writeUTF8(THREAD_NAME);
@@ -102,12 +104,12 @@ public final class TraceMapperV0_4 implements TraceMapper {
       }
       if (null != metadata.getOrigin()) {
         writable.writeUTF8(ORIGIN_KEY);
-        writable.writeString(metadata.getOrigin(), null);
+        writable.writeCachedString(metadata.getOrigin());
       }
-      for (Map.Entry<String, Object> entry : metadata.getTags().entrySet()) {
-        if (!(entry.getValue() instanceof Number)) {
-          writable.writeString(entry.getKey(), null);
-          writable.writeObjectString(entry.getValue(), null);
+      for (int i = tags.first(); i >= 0; i = tags.next(i)) {
+        if (!tags.isNumberAt(i)) {
+          writable.writeCachedString(tags.keyAt(i));
+          tags.writeStringAt(i, writable);
         }
       }
     }
@@ -123,10 +125,10 @@ public final class TraceMapperV0_4 implements TraceMapper {
       writable.startMap(12);
       /* 1  */
       writable.writeUTF8(SERVICE);
-      writable.writeString(span.getServiceName(), null);
+      writable.writeCachedString(span.getServiceName());
       /* 2  */
       writable.writeUTF8(NAME);
-      writable.writeObject(span.getOperationName(), null);
+      writable.writeCachedString(span.getOperationName());
       /* 3  */
       writable.writeUTF8(RESOURCE);
       writable.writeObject(span.getResourceName(), null);
@@ -147,7 +149,7 @@ public final class TraceMapperV0_4 implements TraceMapper {
       writable.writeLong(span.getDurationNano());
       /* 9  */
       writable.writeUTF8(TYPE);
-      writable.writeString(span.getType(), null);
+      writable.writeCachedString(span.getType());
       /* 10 */
       writable.writeUTF8(ERROR);
       writable.writeInt(span.getError());
@@ -197,7 +199,12 @@ public final class TraceMapperV0_4 implements TraceMapper {
 
     @Override
     public RequestBody toRequest() {
-      return msgpackRequestBodyOf(Arrays.asList(msgpackArrayHeader(traceCount()), body));
+      return msgpackRequestBodyOf(Arrays.asList(buffers()));
+    }
+
+    @Override
+    public ByteBuffer[] buffers() {
+      return new ByteBuffer[] {msgpackArrayHeader(traceCount()), body};
     }
   }
 }
@@ -13,21 +13,25 @@ import datadog.trace.common.writer.Payload;
 import datadog.trace.core.CoreSpan;
 import datadog.trace.core.Metadata;
 import datadog.trace.core.MetadataConsumer;
+import datadog.trace.core.TagMap;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.WritableByteChannel;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import okhttp3.RequestBody;
 
 public final class TraceMapperV0_5 implements TraceMapper {
 
   private final WritableFormatter dictionaryWriter;
   private final DictionaryMapper dictionaryMapper = new DictionaryMapper();
-  private final Map<Object, Integer> encoding = new HashMap<>();
+  private final ObjectIntMap encoding = new ObjectIntMap(1024);
   private final GrowableBuffer dictionary;
+  // copies of the dictionary made for detached payloads, handed back once they have been sent
+  private final BlockingQueue<ByteBuffer> detachedDictionaries = new ArrayBlockingQueue<>(4);
 
   private final MetaWriter metaWriter = new MetaWriter();
   private final int size;
@@ -85,11 +89,11 @@ public final class TraceMapperV0_5 implements TraceMapper {
 
   private void writeDictionaryEncoded(final Writable writable, final Object value) {
     final Object target = null == value ? "" : value;
-    final Integer encoded = encoding.get(target);
-    if (null == encoded) {
+    final int encoded = encoding.get(target);
+    if (encoded == ObjectIntMap.ABSENT) {
       dictionaryWriter.format(target, dictionaryMapper);
       final int dictionaryCode = dictionary.messageCount() - 1;
-      encoding.put(target, dictionaryCode);
+      encoding.putNew(target, dictionaryCode);
       // this call can fail, but the dictionary has been written to now
       // so should make sure dictionary state is consistent first
       writable.writeInt(dictionaryCode);
@@ -100,7 +104,8 @@ public final class TraceMapperV0_5 implements TraceMapper {
 
   @Override
   public Payload newPayload() {
-    return new PayloadV0_5(dictionary.slice(), dictionary.messageCount());
+    return new PayloadV0_5(
+        dictionary.slice(), dictionary.messageCount(), detachedDictionaries, false);
   }
 
   @Override
@@ -135,10 +140,18 @@ public final class TraceMapperV0_5 implements TraceMapper {
 
     private final ByteBuffer dictionary;
     private final int stringCount;
+    private final BlockingQueue<ByteBuffer> detachedDictionaries;
+    private final boolean detached;
 
-    private PayloadV0_5(ByteBuffer dictionary, int stringCount) {
+    private PayloadV0_5(
+        ByteBuffer dictionary,
+        int stringCount,
+        BlockingQueue<ByteBuffer> detachedDictionaries,
+        boolean detached) {
       this.dictionary = dictionary;
       this.stringCount = stringCount;
+      this.detachedDictionaries = detachedDictionaries;
+      this.detached = detached;
     }
 
     @Override
@@ -164,14 +177,44 @@ public final class TraceMapperV0_5 implements TraceMapper {
       return msgpackRequestBodyOf(toList());
     }
 
+    @Override
+    public ByteBuffer[] buffers() {
+      return new ByteBuffer[] {
+        // msgpack array header with 2 elements (FIXARRAY | 2)
+        ByteBuffer.allocate(1).put(0, (byte) 0x92),
+        msgpackArrayHeader(stringCount),
+        dictionary,
+        msgpackArrayHeader(traceCount()),
+        body
+      };
+    }
+
+    @Override
+    public Payload detach() {
+      // the dictionary is written to again as soon as the mapper has been reset
+      int size = dictionary.remaining();
+      ByteBuffer copy = detachedDictionaries.poll();
+      if (null == copy || copy.capacity() < size) {
+        // round up so that a recycled copy usually fits the next dictionary too
+        copy = ByteBuffer.allocate(Integer.highestOneBit(Math.max(1024, size) - 1) << 1);
+      }
+      copy.clear();
+      copy.put(dictionary.duplicate()).flip();
+      return new PayloadV0_5(copy, stringCount, detachedDictionaries, true)
+          .withBody(traceCount(), body)
+          .withDroppedTraces(droppedTraces())
+          .withDroppedSpans(droppedSpans());
+    }
+
+    @Override
+    public void release() {
+      if (detached) {
+        detachedDictionaries.offer(dictionary);
+      }
+    }
+
     private List<ByteBuffer> toList() {
-      return Arrays.asList(
-          // msgpack array header with 2 elements (FIXARRAY | 2)
-          ByteBuffer.allocate(1).put(0, (byte) 0x92),
-          msgpackArrayHeader(stringCount),
-          dictionary,
-          msgpackArrayHeader(traceCount()),
-          body);
+      return Arrays.asList(buffers());
     }
   }
 
@@ -203,8 +246,9 @@ public final class TraceMapperV0_5 implements TraceMapper {
               + (metadata.measured() ? 1 : 0)
               + (metadata.topLevel() ? 1 : 0)
               + 1;
-      for (Map.Entry<String, Object> tag : metadata.getTags().entrySet()) {
-        if (tag.getValue() instanceof Number) {
+      TagMap tags = metadata.getTags();
+      for (int i = tags.first(); i >= 0; i = tags.next(i)) {
+        if (tags.isNumberAt(i)) {
           ++metricsSize;
           --metaSize;
         }
@@ -227,10 +271,10 @@ public final class TraceMapperV0_5 implements TraceMapper {
         writeDictionaryEncoded(writable, ORIGIN_KEY);
         writeDictionaryEncoded(writable, metadata.getOrigin());
       }
-      for (Map.Entry<String, Object> entry : metadata.getTags().entrySet()) {
-        if (!(entry.getValue() instanceof Number)) {
-          writeDictionaryEncoded(writable, entry.getKey());
-          writeDictionaryEncoded(writable, entry.getValue());
+      for (int i = tags.first(); i >= 0; i = tags.next(i)) {
+        if (!tags.isNumberAt(i)) {
+          writeDictionaryEncoded(writable, tags.keyAt(i));
+          writeDictionaryEncoded(writable, tags.valueAt(i));
         }
       }
       writable.startMap(metricsSize);
@@ -248,10 +292,10 @@ public final class TraceMapperV0_5 implements TraceMapper {
       }
       writeDictionaryEncoded(writable, THREAD_ID);
       writable.writeLong(metadata.getThreadId());
-      for (Map.Entry<String, Object> entry : metadata.getTags().entrySet()) {
-        if (entry.getValue() instanceof Number) {
-          writeDictionaryEncoded(writable, entry.getKey());
-          writable.writeObject(entry.getValue(), null);
+      for (int i = tags.first(); i >= 0; i = tags.next(i)) {
+        if (tags.isNumberAt(i)) {
+          writeDictionaryEncoded(writable, tags.keyAt(i));
+          tags.writeNumberAt(i, writable);
         }
       }
     }
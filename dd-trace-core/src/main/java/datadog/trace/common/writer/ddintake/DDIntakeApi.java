@@ -9,6 +9,7 @@ import datadog.communication.http.RetryPolicy;
 import datadog.trace.api.Config;
 import datadog.trace.api.intake.TrackType;
 import datadog.trace.common.writer.Payload;
+import datadog.trace.common.writer.PayloadCompression;
 import datadog.trace.common.writer.RemoteApi;
 import datadog.trace.common.writer.RemoteResponseListener;
 import datadog.trace.relocate.api.IOLogger;
@@ -25,6 +26,7 @@ import org.slf4j.LoggerFactory;
 public class DDIntakeApi implements RemoteApi {
 
   private static final String DD_API_KEY_HEADER = "dd-api-key";
+  private static final String CONTENT_ENCODING_HEADER = "Content-Encoding";
   private static final Logger log = LoggerFactory.getLogger(DDIntakeApi.class);
   private final IOLogger ioLogger = new IOLogger(log);
 
@@ -46,6 +48,7 @@ public class DDIntakeApi implements RemoteApi {
     HttpUrl hostUrl = null;
     OkHttpClient httpClient = null;
     RetryPolicy retryPolicy = null;
+    PayloadCompression compression = null;
 
     private String apiKey;
 
@@ -84,6 +87,12 @@ public class DDIntakeApi implements RemoteApi {
       return this;
     }
 
+    /** Compresses payloads as they are sent, when not null. */
+    public DDIntakeApiBuilder compression(final PayloadCompression compression) {
+      this.compression = compression;
+      return this;
+    }
+
     DDIntakeApiBuilder httpClient(final OkHttpClient httpClient) {
       this.httpClient = httpClient;
       return this;
@@ -103,7 +112,7 @@ public class DDIntakeApi implements RemoteApi {
         retryPolicy = RetryPolicy.builder().withMaxRetry(5).withBackoff(100).build();
       }
 
-      return new DDIntakeApi(client, intakeUrl, apiKey, retryPolicy);
+      return new DDIntakeApi(client, intakeUrl, apiKey, retryPolicy, compression);
     }
   }
 
@@ -111,13 +120,19 @@ public class DDIntakeApi implements RemoteApi {
   private final HttpUrl intakeUrl;
   private final String apiKey;
   private final RetryPolicy retryPolicy;
+  private final PayloadCompression compression;
 
   private DDIntakeApi(
-      OkHttpClient httpClient, HttpUrl intakeUrl, String apiKey, RetryPolicy retryPolicy) {
+      OkHttpClient httpClient,
+      HttpUrl intakeUrl,
+      String apiKey,
+      RetryPolicy retryPolicy,
+      PayloadCompression compression) {
     this.httpClient = httpClient;
     this.intakeUrl = intakeUrl;
     this.apiKey = apiKey;
     this.retryPolicy = retryPolicy;
+    this.compression = compression;
   }
 
   @Override
@@ -127,12 +142,16 @@ public class DDIntakeApi implements RemoteApi {
     int retry = 1;
 
     try {
-      final Request request =
-          new Request.Builder()
-              .url(intakeUrl)
-              .addHeader(DD_API_KEY_HEADER, apiKey)
-              .post(payload.toRequest())
-              .build();
+      final Request.Builder builder =
+          new Request.Builder().url(intakeUrl).addHeader(DD_API_KEY_HEADER, apiKey);
+      if (null != compression) {
+        builder
+            .addHeader(CONTENT_ENCODING_HEADER, compression.contentEncoding())
+            .post(compression.requestBody(payload));
+      } else {
+        builder.post(payload.toRequest());
+      }
+      final Request request = builder.build();
       this.totalTraces += payload.traceCount();
       this.receivedTraces += payload.traceCount();
 
@@ -48,12 +48,14 @@ import datadog.trace.common.metrics.MetricsAggregator;
 import datadog.trace.common.sampling.PrioritySampler;
 import datadog.trace.common.sampling.Sampler;
 import datadog.trace.common.writer.DDAgentWriter;
+import datadog.trace.common.writer.RemoteWriter;
 import datadog.trace.common.writer.Writer;
 import datadog.trace.common.writer.WriterFactory;
 import datadog.trace.common.writer.ddintake.DDIntakeTraceInterceptor;
 import datadog.trace.context.ScopeListener;
 import datadog.trace.core.datastreams.DataStreamsCheckpointer;
 import datadog.trace.core.datastreams.StubDataStreamsCheckpointer;
+import datadog.trace.core.monitor.HealthMetrics;
 import datadog.trace.core.monitor.MonitoringImpl;
 import datadog.trace.core.propagation.DatadogTags;
 import datadog.trace.core.propagation.ExtractedContext;
@@ -467,7 +469,8 @@ public class CoreTracer implements AgentTracer.TracerAPI {
               config.getScopeDepthLimit(),
               this.statsDClient,
               config.isScopeStrictMode(),
-              config.isScopeInheritAsyncPropagation());
+              config.isScopeInheritAsyncPropagation(),
+              config.isScopeRecyclingEnabled());
       this.scopeManager = csm;
 
     } else {
@@ -495,14 +498,20 @@ public class CoreTracer implements AgentTracer.TracerAPI {
     this.pendingTraceBuffer =
         strictTraceWrites
             ? PendingTraceBuffer.discarding()
-            : PendingTraceBuffer.delaying(this.timeSource);
+            : PendingTraceBuffer.delaying(
+                this.timeSource, config.isTracePendingBufferTimerWheelEnabled());
     pendingTraceFactory =
         new PendingTrace.Factory(this, pendingTraceBuffer, this.timeSource, strictTraceWrites);
     pendingTraceBuffer.start();
 
     this.writer.start();
 
-    metricsAggregator = createMetricsAggregator(config, sharedCommunicationObjects);
+    // report through the writer's health metrics, which it starts and closes
+    final HealthMetrics healthMetrics =
+        this.writer instanceof RemoteWriter
+            ? ((RemoteWriter) this.writer).healthMetrics
+            : new HealthMetrics(StatsDClient.NO_OP);
+    metricsAggregator = createMetricsAggregator(config, sharedCommunicationObjects, healthMetrics);
     // Schedule the metrics aggregator to begin reporting after a random delay of 1 to 10 seconds
     // (using milliseconds granularity.) This avoids a fleet of traced applications starting at the
     // same time from sending metrics in sync.
@@ -1224,6 +1233,7 @@ public class CoreTracer implements AgentTracer.TracerAPI {
       Object requestContextDataIast;
       final PathwayContext pathwayContext;
       final DatadogTags datadogTags;
+      final String vendorTraceState;
 
       // FIXME [API] parentContext should be an interface implemented by ExtractedContext,
       // TagContext, DDSpanContext, AgentSpan.Context
@@ -1268,6 +1278,7 @@ public class CoreTracer implements AgentTracer.TracerAPI {
                 ? ddsc.getPathwayContext()
                 : dataStreamsCheckpointer.newPathwayContext();
         datadogTags = datadogTagsFactory.empty();
+        vendorTraceState = null;
       } else {
         long endToEndStartTime;
 
@@ -1280,6 +1291,7 @@ public class CoreTracer implements AgentTracer.TracerAPI {
           endToEndStartTime = extractedContext.getEndToEndStartTime();
           baggage = extractedContext.getBaggage();
           datadogTags = extractedContext.getDatadogTags();
+          vendorTraceState = extractedContext.getVendorTraceState();
         } else {
           // Start a new trace
           traceId = IdGenerationStrategy.RANDOM.generate();
@@ -1288,6 +1300,7 @@ public class CoreTracer implements AgentTracer.TracerAPI {
           endToEndStartTime = 0;
           baggage = null;
           datadogTags = datadogTagsFactory.empty();
+          vendorTraceState = null;
         }
 
         // Get header tags and set origin whether propagating or not.
@@ -1349,6 +1362,9 @@ public class CoreTracer implements AgentTracer.TracerAPI {
               pathwayContext,
               disableSamplingMechanismValidation,
               datadogTags);
+      if (null != vendorTraceState) {
+        context.setVendorTraceState(vendorTraceState);
+      }
 
       // By setting the tags on the context we apply decorators to any tags that have been set via
       // the builder. This is the order that the tags were added previously, but maybe the `tags`
@@ -49,6 +49,8 @@ public class DDSpanContext implements AgentSpan.Context, RequestContext, TraceSe
   public static final String PRIORITY_SAMPLING_KEY = "_sampling_priority_v1";
   public static final String SAMPLE_RATE_KEY = "_sample_rate";
 
+  // there are only as many thread names as threads creating spans, which rarely collide in a direct
+  // mapped cache, so every span doesn't need to pay for the frequency bookkeeping of an LFU cache
   private static final DDCache<String, UTF8BytesString> THREAD_NAMES =
       DDCaches.newFixedSizeCache(256);
 
@@ -78,13 +80,20 @@ public class DDSpanContext implements AgentSpan.Context, RequestContext, TraceSe
   /**
    * Tags are associated to the current span, they will not propagate to the children span.
    *
-   * <p>The underlying assumption for using a normal Map with synchronized access instead of a
+   * <p>The underlying assumption for using a plain map with synchronized access instead of a
    * ConcurrentHashMap is that even though the tags can be accessed and modified from multiple
    * threads, they will rarely, if ever, be read and modified concurrently by multiple threads but
    * rather read and accessed in a serial fashion on thread after thread. The synchronization can
    * then be wrapped around bulk operations to minimize the costly atomic operations.
    */
-  private final Map<String, Object> unsafeTags;
+  private final TagMap unsafeTags;
+
+  /**
+   * Set once the tag storage has been handed back to the {@link SpanTagsRecycler}, after which tags
+   * can no longer be read or written through this context. Only written while holding the {@link
+   * #unsafeTags} lock, and only read without it by {@link #unsafeGetTag} when recycling is enabled.
+   */
+  private volatile boolean tagsRecycled;
 
   /** The service name is required, otherwise the span are dropped by the agent */
   private volatile String serviceName;
@@ -112,6 +121,9 @@ public class DDSpanContext implements AgentSpan.Context, RequestContext, TraceSe
   /** The origin of the trace. (eg. Synthetics, CI App) */
   private volatile CharSequence origin;
 
+  /** The W3C tracestate members of other vendors, re-emitted after our own member. */
+  private volatile String vendorTraceState;
+
   /** RequestContext data for the InstrumentationGateway */
   private final Object requestContextDataAppSec;
 
@@ -170,7 +182,7 @@ public class DDSpanContext implements AgentSpan.Context, RequestContext, TraceSe
     // The +1 is the magic number from the tags below that we set at the end,
     // and "* 4 / 3" is to make sure that we don't resize immediately
     final int capacity = Math.max((tagsSize <= 0 ? 3 : (tagsSize + 1)) * 4 / 3, 8);
-    this.unsafeTags = new HashMap<>(capacity);
+    this.unsafeTags = SpanTagsRecycler.acquire(capacity);
 
     setServiceName(serviceName);
     this.operationName = operationName;
@@ -484,12 +496,61 @@ public class DDSpanContext implements AgentSpan.Context, RequestContext, TraceSe
     this.origin = origin;
   }
 
+  public String getVendorTraceState() {
+    final DDSpan rootSpan = trace.getRootSpan();
+    if (null != rootSpan) {
+      return rootSpan.context().vendorTraceState;
+    } else {
+      return vendorTraceState;
+    }
+  }
+
+  public void setVendorTraceState(final String vendorTraceState) {
+    this.vendorTraceState = vendorTraceState;
+  }
+
   public void setMetric(final CharSequence key, final Number value) {
     synchronized (unsafeTags) {
       unsafeSetTag(key.toString(), value);
     }
   }
 
+  public void setMetric(final CharSequence key, final int value) {
+    String tag = key.toString();
+    synchronized (unsafeTags) {
+      if (tagsWritable(tag)) {
+        unsafeTags.setInt(tag, value);
+      }
+    }
+  }
+
+  public void setMetric(final CharSequence key, final long value) {
+    String tag = key.toString();
+    synchronized (unsafeTags) {
+      if (tagsWritable(tag)) {
+        unsafeTags.setLong(tag, value);
+      }
+    }
+  }
+
+  public void setMetric(final CharSequence key, final float value) {
+    String tag = key.toString();
+    synchronized (unsafeTags) {
+      if (tagsWritable(tag)) {
+        unsafeTags.setFloat(tag, value);
+      }
+    }
+  }
+
+  public void setMetric(final CharSequence key, final double value) {
+    String tag = key.toString();
+    synchronized (unsafeTags) {
+      if (tagsWritable(tag)) {
+        unsafeTags.setDouble(tag, value);
+      }
+    }
+  }
+
   /**
    * Add a tag to the span. Tags are not propagated to the children
    *
@@ -499,7 +560,9 @@ public class DDSpanContext implements AgentSpan.Context, RequestContext, TraceSe
   public void setTag(final String tag, final Object value) {
     if (null == value || "".equals(value)) {
       synchronized (unsafeTags) {
-        unsafeTags.remove(tag);
+        if (!tagsRecycled) {
+          unsafeTags.remove(tag);
+        }
       }
     } else if (!trace.getTracer().getTagInterceptor().interceptTag(this, tag, value)) {
       synchronized (unsafeTags) {
@@ -508,6 +571,31 @@ public class DDSpanContext implements AgentSpan.Context, RequestContext, TraceSe
     }
   }
 
+  /**
+   * Same as {@link #setTag(String, Object)} for numeric values, which are stored without boxing
+   * unless the tag interceptor may act on the tag.
+   */
+  public void setTag(final String tag, final int value) {
+    TagInterceptor tagInterceptor = trace.getTracer().getTagInterceptor();
+    if (!tagInterceptor.needsIntercept(tag) || !tagInterceptor.interceptTag(this, tag, value)) {
+      setMetric(tag, value);
+    }
+  }
+
+  public void setTag(final String tag, final long value) {
+    TagInterceptor tagInterceptor = trace.getTracer().getTagInterceptor();
+    if (!tagInterceptor.needsIntercept(tag) || !tagInterceptor.interceptTag(this, tag, value)) {
+      setMetric(tag, value);
+    }
+  }
+
+  public void setTag(final String tag, final double value) {
+    TagInterceptor tagInterceptor = trace.getTracer().getTagInterceptor();
+    if (!tagInterceptor.needsIntercept(tag) || !tagInterceptor.interceptTag(this, tag, value)) {
+      setMetric(tag, value);
+    }
+  }
+
   void setAllTags(final Map<String, ?> map) {
     if (map == null || map.isEmpty()) {
       return;
@@ -524,7 +612,17 @@ public class DDSpanContext implements AgentSpan.Context, RequestContext, TraceSe
   }
 
   void unsafeSetTag(final String tag, final Object value) {
-    unsafeTags.put(tag, value);
+    if (tagsWritable(tag)) {
+      unsafeTags.set(tag, value);
+    }
+  }
+
+  private boolean tagsWritable(final String tag) {
+    if (tagsRecycled) {
+      log.debug("{}: Ignoring tag {} set after the span was written", this, tag);
+      return false;
+    }
+    return true;
   }
 
   Object getTag(final String key) {
@@ -538,7 +636,7 @@ public class DDSpanContext implements AgentSpan.Context, RequestContext, TraceSe
         return 0 == httpStatusCode ? null : (int) httpStatusCode;
       default:
         synchronized (unsafeTags) {
-          return unsafeGetTag(key);
+          return tagsRecycled ? null : unsafeTags.get(key);
         }
     }
   }
@@ -547,16 +645,25 @@ public class DDSpanContext implements AgentSpan.Context, RequestContext, TraceSe
    * This is not thread-safe and must only be used when it can be guaranteed that the context will
    * not be mutated. This is internal API and must not be exposed to users.
    *
+   * <p>When span tags recycling is enabled, the tag storage is only recycled by the serializing
+   * thread once it has written the trace. Reads made while the trace is written, or before it is
+   * handed to the writer, can't see recycled storage. Later reads through a stale reference see no
+   * tags rather than the tags of the span which now owns the storage.
+   *
    * @param tag
    * @return the value associated with the tag
    */
   public Object unsafeGetTag(final String tag) {
+    if (SpanTagsRecycler.ENABLED && tagsRecycled) {
+      return null;
+    }
     return unsafeTags.get(tag);
   }
 
   public Map<String, Object> getTags() {
     synchronized (unsafeTags) {
-      Map<String, Object> tags = new HashMap<>(unsafeTags);
+      Map<String, Object> tags =
+          tagsRecycled ? new HashMap<String, Object>() : new HashMap<>(unsafeTags);
       tags.put(DDTags.THREAD_ID, threadId);
       tags.put(DDTags.THREAD_NAME, threadName.toString());
       if (samplingPriority != PrioritySampling.UNSET) {
@@ -577,7 +684,9 @@ public class DDSpanContext implements AgentSpan.Context, RequestContext, TraceSe
           new Metadata(
               threadId,
               threadName,
-              postProcessor.processTags(unsafeTags),
+              tagsRecycled
+                  ? Collections.<String, Object>emptyMap()
+                  : postProcessor.processTags(unsafeTags),
               baggageItemsWithDatadogTags,
               samplingPriority != PrioritySampling.UNSET ? samplingPriority : getSamplingPriority(),
               measured,
@@ -588,6 +697,23 @@ public class DDSpanContext implements AgentSpan.Context, RequestContext, TraceSe
     }
   }
 
+  /**
+   * Detaches the tag storage from this context so that it can be reused by another span.
+   *
+   * @return the cleared tag storage, or null if it has already been recycled or is too large to be
+   *     worth keeping
+   */
+  TagMap recycleTags() {
+    synchronized (unsafeTags) {
+      if (tagsRecycled || unsafeTags.capacity() > SpanTagsRecycler.MAX_RECYCLED_SIZE) {
+        return null;
+      }
+      tagsRecycled = true;
+      unsafeTags.clear();
+    }
+    return unsafeTags;
+  }
+
   @Override
   public String toString() {
     final StringBuilder s =
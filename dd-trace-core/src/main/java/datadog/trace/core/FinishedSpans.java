@@ -0,0 +1,201 @@
+package datadog.trace.core;
+
+import java.util.AbstractCollection;
+import java.util.AbstractList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * Lock-free, append-only buffer of the finished spans of a trace.
+ *
+ * <p>Spans are appended to a chain of arrays, each twice as large as the one before it, so there is
+ * no allocation per span and the size is known without walking the buffer. {@link #drain()} hands
+ * the whole chain over to the writer as a list, without copying, and starts a new one.
+ *
+ * <p>Any number of threads may append concurrently, but only one thread at a time may drain.
+ */
+final class FinishedSpans extends AbstractCollection<DDSpan> {
+
+  // the first chunk holds 8 spans, which is enough for most traces
+  private static final int FIRST_CHUNK_SHIFT = 3;
+
+  // marks a drained chunk, appenders reading it must move on to the current tail
+  private static final int SEALED = 1 << 30;
+
+  static final class Chunk extends AtomicReferenceArray<DDSpan> {
+    final int start;
+    volatile int claimed;
+    volatile Chunk next;
+
+    private static final AtomicIntegerFieldUpdater<Chunk> CLAIMED =
+        AtomicIntegerFieldUpdater.newUpdater(Chunk.class, "claimed");
+    private static final AtomicReferenceFieldUpdater<Chunk, Chunk> NEXT =
+        AtomicReferenceFieldUpdater.newUpdater(Chunk.class, Chunk.class, "next");
+
+    Chunk(int start, int capacity) {
+      super(capacity);
+      this.start = start;
+    }
+
+    Chunk successor() {
+      Chunk successor = next;
+      if (null == successor) {
+        Chunk chunk = new Chunk(start + length(), length() << 1);
+        successor = NEXT.compareAndSet(this, null, chunk) ? chunk : next;
+      }
+      return successor;
+    }
+
+    int published() {
+      return Math.min(claimed, length());
+    }
+  }
+
+  private volatile Chunk head;
+  private volatile Chunk tail;
+
+  private static final AtomicReferenceFieldUpdater<FinishedSpans, Chunk> TAIL =
+      AtomicReferenceFieldUpdater.newUpdater(FinishedSpans.class, Chunk.class, "tail");
+
+  FinishedSpans() {
+    Chunk chunk = new Chunk(0, 1 << FIRST_CHUNK_SHIFT);
+    this.head = chunk;
+    this.tail = chunk;
+  }
+
+  @Override
+  public boolean add(DDSpan span) {
+    while (true) {
+      Chunk chunk = tail;
+      int index = Chunk.CLAIMED.getAndIncrement(chunk);
+      if (index < chunk.length()) {
+        chunk.lazySet(index, span);
+        return true;
+      }
+      // the chunk is either full or has been drained, only extend it if it's still the tail
+      if (chunk == tail && index < SEALED) {
+        TAIL.compareAndSet(this, chunk, chunk.successor());
+      }
+    }
+  }
+
+  /** @return the number of spans appended since the last drain, including in-flight appends */
+  @Override
+  public int size() {
+    Chunk chunk = tail;
+    return chunk.start + chunk.published();
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+
+  /** Weakly consistent view of the spans appended since the last drain, in append order. */
+  @Override
+  public Iterator<DDSpan> iterator() {
+    return new Iterator<DDSpan>() {
+      private Chunk chunk = head;
+      private int index = 0;
+      private DDSpan next = advance();
+
+      private DDSpan advance() {
+        while (null != chunk) {
+          while (index < chunk.published()) {
+            DDSpan span = chunk.get(index++);
+            if (null != span) {
+              return span;
+            }
+          }
+          chunk = chunk.next;
+          index = 0;
+        }
+        return null;
+      }
+
+      @Override
+      public boolean hasNext() {
+        return null != next;
+      }
+
+      @Override
+      public DDSpan next() {
+        if (null == next) {
+          throw new NoSuchElementException();
+        }
+        DDSpan span = next;
+        next = advance();
+        return span;
+      }
+    };
+  }
+
+  /**
+   * Takes all the spans appended so far, most recently finished first. Must not be called
+   * concurrently with itself.
+   */
+  List<DDSpan> drain() {
+    if (isEmpty()) {
+      return Collections.emptyList();
+    }
+    Chunk first = head;
+    Chunk fresh = new Chunk(0, 1 << FIRST_CHUNK_SHIFT);
+    head = fresh;
+    Chunk last = TAIL.getAndSet(this, fresh);
+    // appenders which claim a slot in the last chunk after this see it as full and retry on the
+    // fresh chunk, the others are finishing their writes now
+    int lastCount = Math.min(Chunk.CLAIMED.getAndSet(last, SEALED), last.length());
+    Chunk[] chunks = new Chunk[chunkIndex(last.start) + 1];
+    Chunk chunk = first;
+    for (int i = 0; i < chunks.length; ++i) {
+      chunks[i] = chunk;
+      awaitPublication(chunk, chunk == last ? lastCount : chunk.length());
+      chunk = chunk.next;
+    }
+    return new Batch(chunks, last.start + lastCount);
+  }
+
+  private static void awaitPublication(Chunk chunk, int count) {
+    for (int i = 0; i < count; ++i) {
+      while (null == chunk.get(i)) {
+        Thread.yield();
+      }
+    }
+  }
+
+  private static int chunkIndex(int position) {
+    return 31 - Integer.numberOfLeadingZeros((position >>> FIRST_CHUNK_SHIFT) + 1);
+  }
+
+  /** Read-only list over drained chunks, which reverses the append order. */
+  private static final class Batch extends AbstractList<DDSpan> implements RandomAccess {
+    private final Chunk[] chunks;
+    private final int size;
+
+    Batch(Chunk[] chunks, int size) {
+      this.chunks = chunks;
+      this.size = size;
+    }
+
+    @Override
+    public DDSpan get(int index) {
+      if (index < 0 || index >= size) {
+        throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+      }
+      int position = size - 1 - index;
+      Chunk chunk = chunks[chunkIndex(position)];
+      return chunk.get(position - chunk.start);
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+  }
+}
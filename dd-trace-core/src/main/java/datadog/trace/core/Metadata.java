@@ -9,7 +9,7 @@ public final class Metadata {
   private final long threadId;
   private final UTF8BytesString threadName;
   private final UTF8BytesString httpStatusCode;
-  private final Map<String, Object> tags;
+  private final TagMap tags;
   private final Map<String, String> baggage;
 
   private final int samplingPriority;
@@ -30,7 +30,7 @@ public final class Metadata {
     this.threadId = threadId;
     this.threadName = threadName;
     this.httpStatusCode = httpStatusCode;
-    this.tags = tags;
+    this.tags = tags instanceof TagMap ? (TagMap) tags : TagMap.fromMap(tags);
     this.baggage = baggage;
     this.samplingPriority = samplingPriority;
     this.measured = measured;
@@ -54,7 +54,7 @@ public final class Metadata {
     return threadName;
   }
 
-  public Map<String, Object> getTags() {
+  public TagMap getTags() {
     return tags;
   }
 
@@ -5,9 +5,8 @@ import datadog.trace.api.DDId;
 import datadog.trace.api.time.TimeSource;
 import datadog.trace.bootstrap.instrumentation.api.AgentScope;
 import datadog.trace.bootstrap.instrumentation.api.AgentTrace;
-import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
@@ -59,20 +58,13 @@ public class PendingTrace implements AgentTrace, PendingTraceBuffer.Element {
     }
   }
 
-  private static final List<DDSpan> EMPTY = new ArrayList<>(0);
-
   private final CoreTracer tracer;
   private final DDId traceId;
   private final PendingTraceBuffer pendingTraceBuffer;
   private final TimeSource timeSource;
   private final boolean strictTraceWrites;
 
-  private final ConcurrentLinkedDeque<DDSpan> finishedSpans = new ConcurrentLinkedDeque<>();
-
-  // We must maintain a separate count because ConcurrentLinkedDeque.size() is a linear operation.
-  private volatile int completedSpanCount = 0;
-  private static final AtomicIntegerFieldUpdater<PendingTrace> COMPLETED_SPAN_COUNT =
-      AtomicIntegerFieldUpdater.newUpdater(PendingTrace.class, "completedSpanCount");
+  private final FinishedSpans finishedSpans = new FinishedSpans();
 
   private volatile int pendingReferenceCount = 0;
   private static final AtomicIntegerFieldUpdater<PendingTrace> PENDING_REFERENCE_COUNT =
@@ -150,17 +142,18 @@ public class PendingTrace implements AgentTrace, PendingTraceBuffer.Element {
     return nanos < age;
   }
 
+  @Override
+  public long lastReferenced() {
+    return lastReferenced;
+  }
+
   void registerSpan(final DDSpan span) {
     ROOT_SPAN.compareAndSet(this, null, span);
     PENDING_REFERENCE_COUNT.incrementAndGet(this);
   }
 
   PublishState onPublish(final DDSpan span) {
-    finishedSpans.addFirst(span);
-    // There is a benign race here where the span added above can get written out by a writer in
-    // progress before the count has been incremented. It's being taken care of in the internal
-    // write method.
-    COMPLETED_SPAN_COUNT.incrementAndGet(this);
+    finishedSpans.add(span);
     return decrementRefAndMaybeWrite(span == getRootSpan());
   }
 
@@ -252,25 +245,14 @@ public class PendingTrace implements AgentTrace, PendingTraceBuffer.Element {
             rootSpanWritten = true;
           }
           int size = size();
-          // If we get here and size is below 0, then the writer before us wrote out at least one
-          // more trace than the size it had when it started. Those span(s) had been added to
-          // finishedSpans by some other thread(s) while the existing spans were being written, but
-          // the completedSpanCount has not yet been incremented. This means that eventually the
-          // count(s) will be incremented, and any new spans added during the period that the count
-          // was negative will be written by someone even if we don't write them right now.
           if (size > 0 && (!isPartial || size > tracer.getPartialFlushMinSpans())) {
-            trace = new ArrayList<>(size);
-            DDSpan span = finishedSpans.pollFirst();
-            while (null != span) {
-              trace.add(span);
-              span = finishedSpans.pollFirst();
-            }
+            // hands the spans over without copying, spans finishing from now on start a new batch
+            trace = finishedSpans.drain();
           } else {
-            trace = EMPTY;
+            trace = Collections.emptyList();
           }
         }
         if (!trace.isEmpty()) {
-          COMPLETED_SPAN_COUNT.addAndGet(this, -trace.size());
           tracer.write(trace);
           return trace.size();
         }
@@ -280,7 +262,7 @@ public class PendingTrace implements AgentTrace, PendingTraceBuffer.Element {
   }
 
   public int size() {
-    return completedSpanCount;
+    return finishedSpans.size();
   }
 
   public void beginEndToEnd() {
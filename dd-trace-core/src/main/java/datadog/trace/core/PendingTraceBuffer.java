@@ -20,6 +20,9 @@ public abstract class PendingTraceBuffer implements AutoCloseable {
 
     boolean lastReferencedNanosAgo(long nanos);
 
+    /** @return nano ticks when the element was last referenced */
+    long lastReferenced();
+
     void write();
 
     DDSpan getRootSpan();
@@ -38,6 +41,7 @@ public abstract class PendingTraceBuffer implements AutoCloseable {
     private static final long FORCE_SEND_DELAY_MS = TimeUnit.SECONDS.toMillis(5);
     private static final long SEND_DELAY_NS = TimeUnit.MILLISECONDS.toNanos(500);
     private static final long SLEEP_TIME_MS = 100;
+    private static final long TICK_NS = TimeUnit.MILLISECONDS.toNanos(10);
 
     private final MpscBlockingConsumerArrayQueue<Element> queue;
     private final Thread worker;
@@ -126,6 +130,11 @@ public abstract class PendingTraceBuffer implements AutoCloseable {
         return false;
       }
 
+      @Override
+      public long lastReferenced() {
+        return 0;
+      }
+
       @Override
       public void write() {}
 
@@ -183,10 +192,98 @@ public abstract class PendingTraceBuffer implements AutoCloseable {
       }
     }
 
+    /**
+     * Takes the traces off the queue and keeps them in a timing wheel until they are due to be
+     * checked, instead of cycling them through the queue. Only traces whose deadline has passed are
+     * looked at, however many are pending.
+     */
+    private final class TimerWheelWorker implements Runnable {
+      private final int capacity;
+      private final PendingTraceWheel wheel;
+
+      TimerWheelWorker(int capacity) {
+        this.capacity = capacity;
+        // the send delay must fit in the wheel
+        this.wheel =
+            new PendingTraceWheel(
+                TICK_NS, (int) (SEND_DELAY_NS / TICK_NS) + 2, timeSource.getNanoTicks());
+      }
+
+      @Override
+      public void run() {
+        try {
+          while (!closed && !Thread.currentThread().isInterrupted()) {
+            Element pendingTrace =
+                wheel.isEmpty()
+                    ? queue.take() // block until available.
+                    : queue.poll(
+                        wheel.nanosToNextTick(timeSource.getNanoTicks()), TimeUnit.NANOSECONDS);
+            while (null != pendingTrace) {
+              if (pendingTrace instanceof FlushElement) {
+                flushAll();
+              } else {
+                schedule(pendingTrace, pendingTrace.lastReferenced() + SEND_DELAY_NS);
+              }
+              pendingTrace = queue.poll();
+            }
+            long now = timeSource.getNanoTicks();
+            Element expired;
+            while (null != (expired = wheel.pollExpired(now))) {
+              check(expired, now);
+            }
+          }
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+
+      private void schedule(Element pendingTrace, long deadline) {
+        if (wheel.size() < capacity) {
+          // the trace stays marked as enqueued while it's in the wheel
+          wheel.schedule(pendingTrace, deadline);
+        } else {
+          // Wheel is full, so we can't buffer this trace, write it out directly instead.
+          pendingTrace.setEnqueued(false);
+          pendingTrace.write();
+        }
+      }
+
+      private void check(Element pendingTrace, long now) {
+        long finishTimestampMillis =
+            TimeUnit.NANOSECONDS.toMillis(pendingTrace.oldestFinishedTime());
+        if (finishTimestampMillis <= timeSource.getCurrentTimeMillis() - FORCE_SEND_DELAY_MS
+            || pendingTrace.lastReferencedNanosAgo(SEND_DELAY_NS)) {
+          // Root span is getting old, or the trace has been unmodified long enough.
+          pendingTrace.setEnqueued(false);
+          pendingTrace.write();
+        } else {
+          // Trace is too new. Check it again once it could have been idle for long enough.
+          schedule(pendingTrace, pendingTrace.lastReferenced() + SEND_DELAY_NS);
+        }
+      }
+
+      private void flushAll() {
+        Element pendingTrace;
+        while (null != (pendingTrace = wheel.poll())) {
+          pendingTrace.setEnqueued(false);
+          pendingTrace.write();
+        }
+        // Since this is an MPSC queue, the drain needs to be called on the consumer thread
+        queue.drain(WriteDrain.WRITE_DRAIN);
+        flushCounter.incrementAndGet();
+      }
+    }
+
     public DelayingPendingTraceBuffer(int bufferSize, TimeSource timeSource) {
+      this(bufferSize, timeSource, false);
+    }
+
+    public DelayingPendingTraceBuffer(int bufferSize, TimeSource timeSource, boolean timerWheel) {
       this.queue = new MpscBlockingConsumerArrayQueue<>(bufferSize);
-      this.worker = newAgentThread(TRACE_MONITOR, new Worker());
       this.timeSource = timeSource;
+      this.worker =
+          newAgentThread(
+              TRACE_MONITOR, timerWheel ? new TimerWheelWorker(bufferSize) : new Worker());
     }
   }
 
@@ -213,6 +310,14 @@ public abstract class PendingTraceBuffer implements AutoCloseable {
     return new DelayingPendingTraceBuffer(BUFFER_SIZE, timeSource);
   }
 
+  /**
+   * @param timerWheel whether pending traces are kept in a timing wheel rather than cycled through
+   *     the queue until they are due
+   */
+  public static PendingTraceBuffer delaying(TimeSource timeSource, boolean timerWheel) {
+    return new DelayingPendingTraceBuffer(BUFFER_SIZE, timeSource, timerWheel);
+  }
+
   public static PendingTraceBuffer discarding() {
     return new DiscardingPendingTraceBuffer();
   }
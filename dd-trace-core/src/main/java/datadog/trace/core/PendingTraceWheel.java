@@ -0,0 +1,110 @@
+package datadog.trace.core;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+
+/**
+ * Hashed timing wheel holding the pending traces until they are due to be checked again.
+ *
+ * <p>Deadlines are rounded up to the next tick and can't be further away than the span of the
+ * wheel, so each element sits in a single bucket and advancing the wheel only touches the elements
+ * which have expired. Not thread-safe, it's owned by the pending trace buffer's worker thread.
+ */
+final class PendingTraceWheel {
+
+  private final ArrayList<PendingTraceBuffer.Element>[] buckets;
+  private final int mask;
+  private final long tickNanos;
+  private final ArrayDeque<PendingTraceBuffer.Element> expired = new ArrayDeque<>();
+
+  // start of the tick the cursor is pointing at
+  private long cursorTime;
+  private int cursor;
+  private int size;
+
+  @SuppressWarnings("unchecked")
+  PendingTraceWheel(long tickNanos, int minBuckets, long nowNanos) {
+    int bucketCount = Integer.highestOneBit(Math.max(2, minBuckets) - 1) << 1;
+    this.buckets = new ArrayList[bucketCount];
+    for (int i = 0; i < bucketCount; ++i) {
+      buckets[i] = new ArrayList<>();
+    }
+    this.mask = bucketCount - 1;
+    this.tickNanos = tickNanos;
+    this.cursorTime = nowNanos;
+  }
+
+  /** @return how far ahead elements can be scheduled */
+  long spanNanos() {
+    return mask * tickNanos;
+  }
+
+  int size() {
+    return size;
+  }
+
+  boolean isEmpty() {
+    return size == 0;
+  }
+
+  void schedule(PendingTraceBuffer.Element element, long deadlineNanos) {
+    long delay = deadlineNanos - cursorTime;
+    // anything already due is picked up when the current tick ends
+    long ticks = delay <= 0 ? 1 : Math.min((delay + tickNanos - 1) / tickNanos, mask);
+    buckets[(int) ((cursor + ticks) & mask)].add(element);
+    ++size;
+  }
+
+  /** @return how long until the current tick ends, and expired elements may become available */
+  long nanosToNextTick(long nowNanos) {
+    return Math.max(0, cursorTime + tickNanos - nowNanos);
+  }
+
+  /** @return an element whose deadline has passed at {@code nowNanos}, or null if there is none */
+  PendingTraceBuffer.Element pollExpired(long nowNanos) {
+    while (expired.isEmpty() && size > 0 && cursorTime + tickNanos <= nowNanos) {
+      cursor = (cursor + 1) & mask;
+      cursorTime += tickNanos;
+      ArrayList<PendingTraceBuffer.Element> bucket = buckets[cursor];
+      if (!bucket.isEmpty()) {
+        expired.addAll(bucket);
+        bucket.clear();
+      }
+    }
+    if (size == 0) {
+      // nothing to expire, so catch up without walking the empty buckets
+      skipTo(nowNanos);
+    }
+    PendingTraceBuffer.Element element = expired.poll();
+    if (null != element) {
+      --size;
+    }
+    return element;
+  }
+
+  /** @return any element regardless of its deadline, or null if the wheel is empty */
+  PendingTraceBuffer.Element poll() {
+    if (expired.isEmpty()) {
+      for (int i = 0; i <= mask && expired.isEmpty(); ++i) {
+        ArrayList<PendingTraceBuffer.Element> bucket = buckets[i];
+        if (!bucket.isEmpty()) {
+          expired.addAll(bucket);
+          bucket.clear();
+        }
+      }
+    }
+    PendingTraceBuffer.Element element = expired.poll();
+    if (null != element) {
+      --size;
+    }
+    return element;
+  }
+
+  private void skipTo(long nowNanos) {
+    long ticks = (nowNanos - cursorTime) / tickNanos;
+    if (ticks > 0) {
+      cursor = (int) ((cursor + ticks) & mask);
+      cursorTime += ticks * tickNanos;
+    }
+  }
+}
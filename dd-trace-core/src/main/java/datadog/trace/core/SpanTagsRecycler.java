@@ -0,0 +1,69 @@
+package datadog.trace.core;
+
+import datadog.trace.api.Config;
+import java.util.List;
+import org.jctools.queues.MessagePassingQueue;
+import org.jctools.queues.MpmcArrayQueue;
+
+/**
+ * Pool of span tag storage which is handed back once a trace has been serialized, so that new
+ * spans can reuse it instead of allocating.
+ *
+ * <p>Only the tag storage is recycled: spans and their contexts are handed out to application code
+ * and instrumentation which can hold on to them well after they have been written. Once its tags
+ * have been recycled a context ignores tag writes and reports no tags, so a late write through a
+ * stale span reference can't leak into the tags of the span which now owns the storage.
+ *
+ * <p>Tags are released by the serializing thread(s) and acquired by application threads, so the
+ * pool is a bounded MPMC queue rather than a per-thread cache.
+ */
+public final class SpanTagsRecycler {
+
+  /**
+   * Whether tag storage may be recycled, so whether lock-free tag reads have to check that the
+   * storage still belongs to their span. This is the only switch: writers only recycle when it's
+   * on, so the check can't be skipped while storage is being recycled.
+   */
+  static final boolean ENABLED = Config.get().isSpanTagsRecyclingEnabled();
+
+  private static final int POOL_CAPACITY = 4096;
+
+  /** Storage which grew beyond this many tags is left for the GC to avoid pinning large arrays. */
+  static final int MAX_RECYCLED_SIZE = 64;
+
+  private static final MessagePassingQueue<TagMap> POOL = new MpmcArrayQueue<>(POOL_CAPACITY);
+
+  /** @return whether tag storage is recycled once traces have been serialized */
+  public static boolean isEnabled() {
+    return ENABLED;
+  }
+
+  static TagMap acquire(int capacity) {
+    TagMap tags = POOL.relaxedPoll();
+    return null != tags ? tags : new TagMap(capacity);
+  }
+
+  /**
+   * Recycles the tag storage of every span in the trace, if recycling is enabled. Must only be
+   * called once nothing will read the trace's tags anymore, i.e. after it has been serialized by
+   * its only writer.
+   */
+  public static void recycle(List<? extends CoreSpan<?>> trace) {
+    if (ENABLED) {
+      recycleTags(trace);
+    }
+  }
+
+  static void recycleTags(List<? extends CoreSpan<?>> trace) {
+    for (CoreSpan<?> span : trace) {
+      if (span instanceof DDSpan) {
+        TagMap tags = ((DDSpan) span).context().recycleTags();
+        if (null != tags) {
+          POOL.relaxedOffer(tags);
+        }
+      }
+    }
+  }
+
+  private SpanTagsRecycler() {}
+}
@@ -0,0 +1,387 @@
+package datadog.trace.core;
+
+import datadog.communication.serialization.Writable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Tag storage for a single span.
+ *
+ * <p>Entries are kept in parallel arrays in insertion order, with an open addressing index on top
+ * to look keys up. {@code int}, {@code long}, {@code float} and {@code double} values can be stored
+ * without boxing, and the entries can be walked in insertion order without allocating:
+ *
+ * <pre>
+ *   for (int i = tags.first(); i >= 0; i = tags.next(i)) {
+ *     String key = tags.keyAt(i);
+ *     ...
+ *   }
+ * </pre>
+ *
+ * <p>The {@link Map} view boxes primitive values when they are read, so it should be kept off hot
+ * paths. Like the map it replaces, this class is not thread-safe and is guarded by the span
+ * context.
+ */
+public final class TagMap extends AbstractMap<String, Object> {
+
+  public static final byte OBJECT = 0;
+  public static final byte INT = 1;
+  public static final byte LONG = 2;
+  public static final byte FLOAT = 3;
+  public static final byte DOUBLE = 4;
+
+  private static final int EMPTY = 0;
+  private static final int REMOVED = -1;
+
+  // entries in insertion order, removed entries have a null key until the next compaction
+  private String[] keys;
+  private Object[] values;
+  private long[] primitives;
+  private byte[] types;
+  private int end;
+  private int size;
+
+  // position + 1 of the entry for each hash slot, or EMPTY/REMOVED
+  private int[] index;
+
+  private EntrySet entrySet;
+
+  public TagMap() {
+    this(8);
+  }
+
+  public TagMap(int expectedSize) {
+    allocate(Math.max(4, expectedSize));
+  }
+
+  public static TagMap fromMap(Map<String, ?> map) {
+    TagMap tags = new TagMap(map.size());
+    for (Map.Entry<String, ?> entry : map.entrySet()) {
+      tags.set(entry.getKey(), entry.getValue());
+    }
+    return tags;
+  }
+
+  /** @return how many entries can be stored before the storage has to grow */
+  public int capacity() {
+    return keys.length;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /** @return the position of the first entry, or -1 if there are none */
+  public int first() {
+    return next(-1);
+  }
+
+  /** @return the position of the entry following {@code position}, or -1 if there are none */
+  public int next(int position) {
+    for (int i = position + 1; i < end; ++i) {
+      if (null != keys[i]) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  public String keyAt(int position) {
+    return keys[position];
+  }
+
+  public byte typeAt(int position) {
+    return types[position];
+  }
+
+  /** @return the value at the position, boxing it if it's a primitive */
+  public Object valueAt(int position) {
+    switch (types[position]) {
+      case INT:
+        return (int) primitives[position];
+      case LONG:
+        return primitives[position];
+      case FLOAT:
+        return Float.intBitsToFloat((int) primitives[position]);
+      case DOUBLE:
+        return Double.longBitsToDouble(primitives[position]);
+      default:
+        return values[position];
+    }
+  }
+
+  /** @return the numeric value at the position as a double, without boxing primitives */
+  public double doubleAt(int position) {
+    switch (types[position]) {
+      case INT:
+        return (int) primitives[position];
+      case LONG:
+        return primitives[position];
+      case FLOAT:
+        return Float.intBitsToFloat((int) primitives[position]);
+      case DOUBLE:
+        return Double.longBitsToDouble(primitives[position]);
+      default:
+        return ((Number) values[position]).doubleValue();
+    }
+  }
+
+  /** @return whether the value at the position is a number, and so reported as a metric */
+  public boolean isNumberAt(int position) {
+    return types[position] != OBJECT || values[position] instanceof Number;
+  }
+
+  /** Writes the numeric value at the position without boxing it. */
+  public void writeNumberAt(int position, Writable writable) {
+    switch (types[position]) {
+      case INT:
+        writable.writeInt((int) primitives[position]);
+        break;
+      case LONG:
+        writable.writeLong(primitives[position]);
+        break;
+      case FLOAT:
+        writable.writeFloat(Float.intBitsToFloat((int) primitives[position]));
+        break;
+      case DOUBLE:
+        writable.writeDouble(Double.longBitsToDouble(primitives[position]));
+        break;
+      default:
+        writable.writeObject(values[position], null);
+    }
+  }
+
+  /** Writes the value at the position as a string. */
+  public void writeStringAt(int position, Writable writable) {
+    writable.writeObjectString(valueAt(position), null);
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return key instanceof String && find((String) key) >= 0;
+  }
+
+  @Override
+  public Object get(Object key) {
+    if (!(key instanceof String)) {
+      return null;
+    }
+    int position = find((String) key);
+    return position < 0 ? null : valueAt(position);
+  }
+
+  @Override
+  public Object put(String key, Object value) {
+    int position = find(key);
+    Object previous = position < 0 ? null : valueAt(position);
+    set(key, value);
+    return previous;
+  }
+
+  /** Same as {@link #put} without looking up the previous value. */
+  public void set(String key, Object value) {
+    int position = positionForWrite(key);
+    types[position] = OBJECT;
+    values[position] = value;
+  }
+
+  public void setInt(String key, int value) {
+    setPrimitive(key, INT, value);
+  }
+
+  public void setLong(String key, long value) {
+    setPrimitive(key, LONG, value);
+  }
+
+  public void setFloat(String key, float value) {
+    setPrimitive(key, FLOAT, Float.floatToRawIntBits(value));
+  }
+
+  public void setDouble(String key, double value) {
+    setPrimitive(key, DOUBLE, Double.doubleToRawLongBits(value));
+  }
+
+  private void setPrimitive(String key, byte type, long bits) {
+    int position = positionForWrite(key);
+    types[position] = type;
+    values[position] = null;
+    primitives[position] = bits;
+  }
+
+  @Override
+  public Object remove(Object key) {
+    if (!(key instanceof String)) {
+      return null;
+    }
+    int slot = findSlot((String) key);
+    if (slot < 0) {
+      return null;
+    }
+    int position = index[slot] - 1;
+    Object previous = valueAt(position);
+    index[slot] = REMOVED;
+    removeAt(position);
+    return previous;
+  }
+
+  @Override
+  public void clear() {
+    Arrays.fill(keys, 0, end, null);
+    Arrays.fill(values, 0, end, null);
+    Arrays.fill(index, EMPTY);
+    end = 0;
+    size = 0;
+  }
+
+  @Override
+  public Set<Entry<String, Object>> entrySet() {
+    if (null == entrySet) {
+      entrySet = new EntrySet();
+    }
+    return entrySet;
+  }
+
+  private void removeAt(int position) {
+    keys[position] = null;
+    values[position] = null;
+    --size;
+  }
+
+  private int find(String key) {
+    int slot = findSlot(key);
+    return slot < 0 ? -1 : index[slot] - 1;
+  }
+
+  private int findSlot(String key) {
+    int mask = index.length - 1;
+    for (int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+      int entry = index[slot];
+      if (entry == EMPTY) {
+        return -1;
+      }
+      if (entry != REMOVED && key.equals(keys[entry - 1])) {
+        return slot;
+      }
+    }
+  }
+
+  private int positionForWrite(String key) {
+    int position = find(key);
+    if (position >= 0) {
+      return position;
+    }
+    if (end == keys.length) {
+      // compact if enough entries have been removed, otherwise grow
+      rebuild(size + (size >> 2) < keys.length ? keys.length : keys.length << 1);
+    }
+    position = end++;
+    keys[position] = key;
+    ++size;
+    insertIntoIndex(key, position);
+    return position;
+  }
+
+  private void insertIntoIndex(String key, int position) {
+    // there are always at least as many empty slots as entries, so this terminates
+    int mask = index.length - 1;
+    int slot = hash(key) & mask;
+    while (index[slot] != EMPTY) {
+      slot = (slot + 1) & mask;
+    }
+    index[slot] = position + 1;
+  }
+
+  private void rebuild(int capacity) {
+    String[] oldKeys = keys;
+    Object[] oldValues = values;
+    long[] oldPrimitives = primitives;
+    byte[] oldTypes = types;
+    int oldEnd = end;
+    allocate(capacity);
+    for (int i = 0; i < oldEnd; ++i) {
+      String key = oldKeys[i];
+      if (null != key) {
+        int position = end++;
+        keys[position] = key;
+        values[position] = oldValues[i];
+        primitives[position] = oldPrimitives[i];
+        types[position] = oldTypes[i];
+        insertIntoIndex(key, position);
+      }
+    }
+    size = end;
+  }
+
+  private void allocate(int capacity) {
+    keys = new String[capacity];
+    values = new Object[capacity];
+    primitives = new long[capacity];
+    types = new byte[capacity];
+    // keep the index at most half full so probe sequences stay short
+    index = new int[Integer.highestOneBit(capacity - 1) << 2];
+    end = 0;
+    size = 0;
+  }
+
+  private static int hash(String key) {
+    int h = key.hashCode();
+    return h ^ (h >>> 16);
+  }
+
+  private final class EntrySet extends AbstractSet<Entry<String, Object>> {
+    @Override
+    public Iterator<Entry<String, Object>> iterator() {
+      return new EntryIterator();
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+
+    @Override
+    public void clear() {
+      TagMap.this.clear();
+    }
+  }
+
+  private final class EntryIterator implements Iterator<Entry<String, Object>> {
+    private int next = first();
+    private int current = -1;
+
+    @Override
+    public boolean hasNext() {
+      return next >= 0;
+    }
+
+    @Override
+    public Entry<String, Object> next() {
+      if (next < 0) {
+        throw new NoSuchElementException();
+      }
+      current = next;
+      next = TagMap.this.next(next);
+      return new SimpleImmutableEntry<>(keys[current], valueAt(current));
+    }
+
+    @Override
+    public void remove() {
+      if (current < 0) {
+        throw new IllegalStateException();
+      }
+      TagMap.this.remove(keys[current]);
+      current = -1;
+    }
+  }
+}
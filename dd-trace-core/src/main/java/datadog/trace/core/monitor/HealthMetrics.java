@@ -156,6 +156,31 @@ public class HealthMetrics implements AutoCloseable {
     // api.errors???
   }
 
+  /** Called when serialization had to wait for a payload to be sent to free up a buffer. */
+  public void onSendBackpressure(final long blockedNanos) {
+    statsd.incrementCounter("flush.backpressure.total", NO_TAGS);
+    statsd.count("flush.backpressure.time", TimeUnit.NANOSECONDS.toMillis(blockedNanos), NO_TAGS);
+  }
+
+  /** Called when aggregates were evicted to make room for more frequent client stats keys. */
+  public void onStatsAggregatesEvicted(final int count) {
+    statsd.count("stats.aggregates.evicted", count, NO_TAGS);
+  }
+
+  /** Called when client stats were folded into their service's aggregate for rare keys. */
+  public void onStatsAggregatesFolded(final int count) {
+    statsd.count("stats.aggregates.folded", count, NO_TAGS);
+  }
+
+  /** Called when a payload was compressed before being sent. */
+  public void onCompressedSend(final int sizeInBytes, final long compressedSizeInBytes) {
+    statsd.count("flush.bytes.compressed", compressedSizeInBytes, NO_TAGS);
+    if (sizeInBytes > 0) {
+      statsd.gauge(
+          "flush.compression.ratio", (double) compressedSizeInBytes / sizeInBytes, NO_TAGS);
+    }
+  }
+
   public void onSend(
       final int traceCount, final int sizeInBytes, final RemoteApi.Response response) {
     onSendAttempt(traceCount, sizeInBytes, response);
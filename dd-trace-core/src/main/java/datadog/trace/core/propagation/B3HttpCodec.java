@@ -89,12 +89,16 @@ class B3HttpCodec {
 
   private static class B3ContextInterpreter extends ContextInterpreter {
 
+    // positions in KEYS
     private static final int TRACE_ID = 0;
     private static final int SPAN_ID = 1;
-    private static final int TAGS = 2;
-    private static final int SAMPLING_PRIORITY = 3;
-    private static final int B3_ID = 4;
-    private static final int IGNORE = -1;
+    private static final int SAMPLING_PRIORITY = 2;
+    private static final int B3_ID = 3;
+    private static final int TAGS = 4;
+    private static final int IGNORE = HeaderNameMatcher.NO_MATCH;
+
+    private static final HeaderNameMatcher KEYS =
+        new HeaderNameMatcher(TRACE_ID_KEY, SPAN_ID_KEY, SAMPLING_PRIORITY_KEY, B3_KEY);
 
     private B3ContextInterpreter(final Map<String, String> taggedHeaders) {
       super(taggedHeaders, Config.get());
@@ -108,49 +112,40 @@ class B3HttpCodec {
       if (LOG_EXTRACT_HEADER_NAMES) {
         log.debug("Header: {}", key);
       }
-      String lowerCaseKey = null;
-      int classification = IGNORE;
+      String mappedTag = null;
+      int classification = KEYS.match(key);
       // Prioritize b3 header. If b3 has already propagated traceId, spanId, and Sampling, we won't
       // overwrite those
-      if (B3_KEY.equals(key)) {
-        classification = B3_ID;
-      } else {
-        char first = Character.toLowerCase(key.charAt(0));
-        switch (first) {
-          case 'x':
-            if ((traceId == null || traceId == DDId.ZERO) && TRACE_ID_KEY.equalsIgnoreCase(key)) {
-              classification = TRACE_ID;
-            } else if ((spanId == null || spanId == DDId.ZERO)
-                && SPAN_ID_KEY.equalsIgnoreCase(key)) {
-              classification = SPAN_ID;
-            } else if (samplingPriority == defaultSamplingPriority()
-                && SAMPLING_PRIORITY_KEY.equalsIgnoreCase(key)) {
-              classification = SAMPLING_PRIORITY;
-            } else if (handledXForwarding(key, value)) {
-              return true;
-            }
-            break;
-          case 'f':
-            if (handledForwarding(key, value)) {
-              return true;
-            }
-            break;
-          case 'u':
-            if (handledUserAgent(key, value)) {
-              return true;
-            }
-            break;
-          default:
-        }
-      }
-
-      if (handledIpHeaders(key, value)) {
-        return true;
+      switch (classification) {
+        case B3_ID:
+          if (!B3_KEY.equals(key)) {
+            // only the lower case single header is recognized
+            classification = IGNORE;
+          }
+          break;
+        case TRACE_ID:
+          if (traceId != null && traceId != DDId.ZERO) {
+            classification = IGNORE;
+          }
+          break;
+        case SPAN_ID:
+          if (spanId != null && spanId != DDId.ZERO) {
+            classification = IGNORE;
+          }
+          break;
+        case SAMPLING_PRIORITY:
+          if (samplingPriority != defaultSamplingPriority()) {
+            classification = IGNORE;
+          }
+          break;
+        default:
       }
 
-      if (!taggedHeaders.isEmpty() && classification == IGNORE) {
-        lowerCaseKey = toLowerCase(key);
-        if (taggedHeaders.containsKey(lowerCaseKey)) {
+      if (classification == IGNORE) {
+        if (handledClientHeader(key, value)) {
+          return true;
+        }
+        if (null != (mappedTag = mappedTag(key))) {
           classification = TAGS;
         }
       }
@@ -179,13 +174,10 @@ class B3HttpCodec {
                 break;
               case TAGS:
                 {
-                  final String mappedKey = taggedHeaders.get(lowerCaseKey);
-                  if (null != mappedKey) {
-                    if (tags.isEmpty()) {
-                      tags = new TreeMap<>();
-                    }
-                    tags.put(mappedKey, HttpCodec.decode(firstValue));
+                  if (tags.isEmpty()) {
+                    tags = new TreeMap<>();
                   }
+                  tags.put(mappedTag, HttpCodec.decode(firstValue));
                   break;
                 }
             }
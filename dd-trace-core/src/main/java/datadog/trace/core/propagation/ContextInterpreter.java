@@ -40,6 +40,7 @@ public abstract class ContextInterpreter implements AgentPropagation.KeyClassifi
   protected long endToEndStartTime;
   protected boolean valid;
   protected DatadogTags datadogTags;
+  protected String vendorTraceState;
 
   private TagContext.HttpHeaders httpHeaders;
   private final String customIpHeaderName;
@@ -50,12 +51,54 @@ public abstract class ContextInterpreter implements AgentPropagation.KeyClassifi
   protected static final boolean LOG_EXTRACT_HEADER_NAMES = Config.get().isLogExtractHeaderNames();
   private static final DDCache<String, String> CACHE = DDCaches.newFixedSizeCache(64);
 
+  // positions in CLIENT_HEADERS, the forwarding headers come first
+  private static final int FORWARDED = 0;
+  private static final int FORWARDED_FOR = 1;
+  private static final int X_FORWARDED_PROTO = 2;
+  private static final int X_FORWARDED_HOST = 3;
+  private static final int X_FORWARDED_FOR = 4;
+  private static final int X_FORWARDED = 5;
+  private static final int X_FORWARDED_PORT = 6;
+  private static final int X_CLUSTER_CLIENT_IP = 7;
+  private static final int X_REAL_IP = 8;
+  private static final int CLIENT_IP = 9;
+  private static final int TRUE_CLIENT_IP = 10;
+  private static final int VIA = 11;
+  private static final int USER_AGENT = 12;
+
+  private static final HeaderNameMatcher CLIENT_HEADERS =
+      new HeaderNameMatcher(
+          FORWARDED_KEY,
+          FORWARDED_FOR_KEY,
+          X_FORWARDED_PROTO_KEY,
+          X_FORWARDED_HOST_KEY,
+          X_FORWARDED_FOR_KEY,
+          X_FORWARDED_KEY,
+          X_FORWARDED_PORT_KEY,
+          X_CLUSTER_CLIENT_IP_KEY,
+          X_REAL_IP_KEY,
+          CLIENT_IP_KEY,
+          TRUE_CLIENT_IP_KEY,
+          VIA_KEY,
+          USER_AGENT_KEY);
+
+  private final HeaderNameMatcher taggedHeaderNames;
+  private final String[] taggedHeaderTags;
+
   protected String toLowerCase(String key) {
     return CACHE.computeIfAbsent(key, Functions.LowerCase.INSTANCE);
   }
 
   protected ContextInterpreter(Map<String, String> taggedHeaders, Config config) {
     this.taggedHeaders = taggedHeaders;
+    String[] names = new String[taggedHeaders.size()];
+    this.taggedHeaderTags = new String[taggedHeaders.size()];
+    int i = 0;
+    for (Map.Entry<String, String> taggedHeader : taggedHeaders.entrySet()) {
+      names[i] = taggedHeader.getKey();
+      taggedHeaderTags[i++] = taggedHeader.getValue();
+    }
+    this.taggedHeaderNames = new HeaderNameMatcher(names);
     this.customIpHeaderName = config.getTraceClientIpHeader();
     this.clientIpResolutionEnabled = config.isTraceClientIpResolverEnabled();
     this.clientIpWithoutAppSec = config.isClientIpEnabled();
@@ -80,99 +123,82 @@ public abstract class ContextInterpreter implements AgentPropagation.KeyClassifi
     }
   }
 
-  protected final boolean handledForwarding(String key, String value) {
-    if (value == null || !collectIpHeaders) {
-      return false;
-    }
-
-    if (FORWARDED_KEY.equalsIgnoreCase(key)) {
-      getHeaders().forwarded = value;
-      return true;
-    }
-    if (FORWARDED_FOR_KEY.equalsIgnoreCase(key)) {
-      getHeaders().forwardedFor = value;
-      return true;
-    }
-    return false;
-  }
-
-  protected final boolean handledXForwarding(String key, String value) {
-    if (value == null || !collectIpHeaders) {
+  /**
+   * Records the headers used to resolve the client's address and user agent.
+   *
+   * @return whether the header was recorded
+   */
+  protected final boolean handledClientHeader(String key, String value) {
+    if (value == null) {
       return false;
     }
-
-    if (X_FORWARDED_PROTO_KEY.equalsIgnoreCase(key)) {
-      getHeaders().xForwardedProto = value;
-      return true;
-    }
-    if (X_FORWARDED_HOST_KEY.equalsIgnoreCase(key)) {
-      getHeaders().xForwardedHost = value;
+    int header = CLIENT_HEADERS.match(key);
+    if (header == USER_AGENT) {
+      getHeaders().userAgent = value;
       return true;
     }
-    if (X_FORWARDED_FOR_KEY.equalsIgnoreCase(key)) {
-      getHeaders().xForwardedFor = value;
+    if (collectIpHeaders && header >= FORWARDED && header <= X_FORWARDED_PORT) {
+      setClientHeader(header, value);
       return true;
     }
-    if (X_FORWARDED_PORT_KEY.equalsIgnoreCase(key)) {
-      getHeaders().xForwardedPort = value;
+    if (customIpHeaderName != null && customIpHeaderName.equalsIgnoreCase(key)) {
+      getHeaders().customIpHeader = value;
       return true;
     }
-    if (X_FORWARDED_KEY.equalsIgnoreCase(key)) {
-      getHeaders().xForwarded = value;
+    if (collectIpHeaders && header != HeaderNameMatcher.NO_MATCH) {
+      setClientHeader(header, value);
       return true;
     }
     return false;
   }
 
-  protected final boolean handledUserAgent(String key, String value) {
-    if (value == null || !USER_AGENT_KEY.equalsIgnoreCase(key)) {
-      return false;
+  private void setClientHeader(int header, String value) {
+    TagContext.HttpHeaders headers = getHeaders();
+    switch (header) {
+      case FORWARDED:
+        headers.forwarded = value;
+        break;
+      case FORWARDED_FOR:
+        headers.forwardedFor = value;
+        break;
+      case X_FORWARDED_PROTO:
+        headers.xForwardedProto = value;
+        break;
+      case X_FORWARDED_HOST:
+        headers.xForwardedHost = value;
+        break;
+      case X_FORWARDED_FOR:
+        headers.xForwardedFor = value;
+        break;
+      case X_FORWARDED_PORT:
+        headers.xForwardedPort = value;
+        break;
+      case X_FORWARDED:
+        headers.xForwarded = value;
+        break;
+      case X_CLUSTER_CLIENT_IP:
+        headers.xClusterClientIp = value;
+        break;
+      case X_REAL_IP:
+        headers.xRealIp = value;
+        break;
+      case CLIENT_IP:
+        headers.clientIp = value;
+        break;
+      case TRUE_CLIENT_IP:
+        headers.trueClientIp = value;
+        break;
+      case VIA:
+        headers.via = value;
+        break;
+      default:
     }
-
-    getHeaders().userAgent = value;
-    return true;
   }
 
-  protected final boolean handledIpHeaders(String key, String value) {
-    if (key == null || key.isEmpty()) {
-      return false;
-    }
-
-    if (null != value && customIpHeaderName != null && customIpHeaderName.equalsIgnoreCase(key)) {
-      getHeaders().customIpHeader = value;
-      return true;
-    }
-
-    if (value == null || !collectIpHeaders) {
-      return false;
-    }
-
-    // May be ends with 'ip' ?
-    char last = Character.toLowerCase(key.charAt(key.length() - 1));
-    if (last == 'p') {
-      if (X_CLUSTER_CLIENT_IP_KEY.equalsIgnoreCase(key)) {
-        getHeaders().xClusterClientIp = value;
-        return true;
-      }
-      if (X_REAL_IP_KEY.equalsIgnoreCase(key)) {
-        getHeaders().xRealIp = value;
-        return true;
-      }
-      if (CLIENT_IP_KEY.equalsIgnoreCase(key)) {
-        getHeaders().clientIp = value;
-        return true;
-      }
-      if (TRUE_CLIENT_IP_KEY.equalsIgnoreCase(key)) {
-        getHeaders().trueClientIp = value;
-        return true;
-      }
-    }
-
-    if (VIA_KEY.equalsIgnoreCase(key)) {
-      getHeaders().via = value;
-      return true;
-    }
-    return false;
+  /** @return the tag the header is mapped to, or null if it isn't one of the tagged headers */
+  protected final String mappedTag(String key) {
+    int header = taggedHeaderNames.match(key);
+    return header == HeaderNameMatcher.NO_MATCH ? null : taggedHeaderTags[header];
   }
 
   public ContextInterpreter reset() {
@@ -180,6 +206,7 @@ public abstract class ContextInterpreter implements AgentPropagation.KeyClassifi
     spanId = DDId.ZERO;
     samplingPriority = defaultSamplingPriority();
     origin = null;
+    vendorTraceState = null;
     endToEndStartTime = 0;
     tags = Collections.emptyMap();
     baggage = Collections.emptyMap();
@@ -205,7 +232,8 @@ public abstract class ContextInterpreter implements AgentPropagation.KeyClassifi
                 baggage,
                 tags,
                 httpHeaders,
-                datadogTags);
+                datadogTags,
+                vendorTraceState);
         return context;
       } else if (origin != null || !tags.isEmpty() || httpHeaders != null) {
         return new TagContext(origin, tags, httpHeaders);
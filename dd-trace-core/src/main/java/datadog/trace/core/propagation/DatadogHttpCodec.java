@@ -84,15 +84,27 @@ class DatadogHttpCodec {
 
   private static class DatadogContextInterpreter extends ContextInterpreter {
 
+    // positions in KEYS
     private static final int TRACE_ID = 0;
     private static final int SPAN_ID = 1;
     private static final int ORIGIN = 2;
     private static final int SAMPLING_PRIORITY = 3;
-    private static final int TAGS = 4;
-    private static final int OT_BAGGAGE = 5;
-    private static final int E2E_START = 6;
-    private static final int DD_TAGS = 7;
-    private static final int IGNORE = -1;
+    private static final int E2E_START = 4;
+    private static final int DD_TAGS = 5;
+    private static final int AMZN_TRACE_ID = 6;
+    private static final int TAGS = 7;
+    private static final int OT_BAGGAGE = 8;
+    private static final int IGNORE = HeaderNameMatcher.NO_MATCH;
+
+    private static final HeaderNameMatcher KEYS =
+        new HeaderNameMatcher(
+            TRACE_ID_KEY,
+            SPAN_ID_KEY,
+            ORIGIN_KEY,
+            SAMPLING_PRIORITY_KEY,
+            E2E_START_KEY,
+            DATADOG_TAGS_KEY,
+            X_AMZN_TRACE_ID);
 
     private final boolean isAwsPropagationEnabled;
     private final DatadogTags.Factory datadogTagsFactory;
@@ -111,56 +123,22 @@ class DatadogHttpCodec {
       if (LOG_EXTRACT_HEADER_NAMES) {
         log.debug("Header: {}", key);
       }
-      String lowerCaseKey = null;
-      int classification = IGNORE;
-      char first = Character.toLowerCase(key.charAt(0));
-      switch (first) {
-        case 'x':
-          if (TRACE_ID_KEY.equalsIgnoreCase(key)) {
-            classification = TRACE_ID;
-          } else if (SPAN_ID_KEY.equalsIgnoreCase(key)) {
-            classification = SPAN_ID;
-          } else if (SAMPLING_PRIORITY_KEY.equalsIgnoreCase(key)) {
-            classification = SAMPLING_PRIORITY;
-          } else if (ORIGIN_KEY.equalsIgnoreCase(key)) {
-            classification = ORIGIN;
-          } else if (isAwsPropagationEnabled && X_AMZN_TRACE_ID.equalsIgnoreCase(key)) {
-            handleXRayTraceHeader(this, value);
-            return true;
-          } else if (handledXForwarding(key, value)) {
-            return true;
-          } else if (DATADOG_TAGS_KEY.equalsIgnoreCase(key)) {
-            classification = DD_TAGS;
-          }
-          break;
-        case 'f':
-          if (handledForwarding(key, value)) {
-            return true;
-          }
-          break;
-        case 'u':
-          if (handledUserAgent(key, value)) {
-            return true;
-          }
-          break;
-        case 'o':
-          lowerCaseKey = toLowerCase(key);
-          if (E2E_START_KEY.equals(lowerCaseKey)) {
-            classification = E2E_START;
-          } else if (lowerCaseKey.startsWith(OT_BAGGAGE_PREFIX)) {
-            classification = OT_BAGGAGE;
-          }
-          break;
-        default:
-      }
-
-      if (handledIpHeaders(key, value)) {
-        return true;
+      String mappedTag = null;
+      int classification = KEYS.match(key);
+      if (classification == AMZN_TRACE_ID) {
+        if (isAwsPropagationEnabled) {
+          handleXRayTraceHeader(this, value);
+          return true;
+        }
+        classification = IGNORE;
       }
-
-      if (!taggedHeaders.isEmpty() && classification == IGNORE) {
-        lowerCaseKey = toLowerCase(key);
-        if (taggedHeaders.containsKey(lowerCaseKey)) {
+      if (classification == IGNORE) {
+        if (handledClientHeader(key, value)) {
+          return true;
+        }
+        if (key.regionMatches(true, 0, OT_BAGGAGE_PREFIX, 0, OT_BAGGAGE_PREFIX.length())) {
+          classification = OT_BAGGAGE;
+        } else if (null != (mappedTag = mappedTag(key))) {
           classification = TAGS;
         }
       }
@@ -189,13 +167,10 @@ class DatadogHttpCodec {
                 break;
               case TAGS:
                 {
-                  String mappedKey = taggedHeaders.get(lowerCaseKey);
-                  if (null != mappedKey) {
-                    if (tags.isEmpty()) {
-                      tags = new TreeMap<>();
-                    }
-                    tags.put(mappedKey, HttpCodec.decode(value));
+                  if (tags.isEmpty()) {
+                    tags = new TreeMap<>();
                   }
+                  tags.put(mappedTag, HttpCodec.decode(value));
                   break;
                 }
               case OT_BAGGAGE:
@@ -204,7 +179,8 @@ class DatadogHttpCodec {
                     baggage = new TreeMap<>();
                   }
                   baggage.put(
-                      lowerCaseKey.substring(OT_BAGGAGE_PREFIX.length()), HttpCodec.decode(value));
+                      toLowerCase(key).substring(OT_BAGGAGE_PREFIX.length()),
+                      HttpCodec.decode(value));
                 }
                 break;
               default:
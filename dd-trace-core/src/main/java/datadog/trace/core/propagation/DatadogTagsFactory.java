@@ -41,6 +41,24 @@ final class DatadogTagsFactory implements DatadogTags.Factory {
     return new ValidDatadogTags(Collections.<String>emptyList());
   }
 
+  /**
+   * Defers parsing a header value until its tags are needed, see {@link LazyDatadogTags}. Values
+   * exceeding the limit are rejected straight away.
+   *
+   * @return a DatadogTags containing only _dd.p.* tags or an error if the header value is invalid
+   */
+  public DatadogTags fromHeaderValue(String value) {
+    if (value == null || value.isEmpty()) {
+      return empty();
+    }
+    if (value.length() > datadogTagsLimit) {
+      // Incoming x-datadog-tags value length exceeds datadogTagsLimit
+      // Set _dd.propagation_error:extract_max_size
+      return new InvalidDatadogTags(PROPAGATION_ERROR_EXTRACT_MAX_SIZE);
+    }
+    return new LazyDatadogTags(value);
+  }
+
   /**
    * Parses a header value with next eBNF:
    *
@@ -55,19 +73,8 @@ final class DatadogTagsFactory implements DatadogTags.Factory {
    *
    * All tags prefixed with `_dd.p.` are extracted from tagSet except for `_dd.p.upstream_services`.
    * TagSet that doesn't respect the format will be dropped and a warning will be logged.
-   *
-   * @return a DatadogTags containing only _dd.p.* tags or an error if the header value is invalid
    */
-  public DatadogTags fromHeaderValue(String value) {
-    if (value == null) {
-      return empty();
-    }
-    if (value.length() > datadogTagsLimit) {
-      // Incoming x-datadog-tags value length exceeds datadogTagsLimit
-      // Set _dd.propagation_error:extract_max_size
-      return new InvalidDatadogTags(PROPAGATION_ERROR_EXTRACT_MAX_SIZE);
-    }
-
+  DatadogTags parse(String value) {
     List<String> tagPairs = new ArrayList<>(10);
     int len = value.length();
     int tagPos = 0;
@@ -83,32 +90,66 @@ final class DatadogTagsFactory implements DatadogTags.Factory {
       if (tagValueEndsAt < 0) {
         tagValueEndsAt = len;
       }
-      String tagKey = value.substring(tagPos, tagKeyEndsAt);
-      String tagValue = value.substring(tagValuePos, tagValueEndsAt);
-      if (!validateTagKey(tagKey)) {
+      if (!validateTagKey(value, tagPos, tagKeyEndsAt)) {
         log.warn("Invalid datadog tags header value: '{}' invalid tag key at {}", value, tagPos);
         return new InvalidDatadogTags(PROPAGATION_ERROR_DECODING_ERROR);
       }
-      if (tagKey.startsWith(ALLOWED_TAG_PREFIX)
-          && !tagKey.startsWith(UPSTREAM_SERVICES_DEPRECATED_TAG)) {
-        if (!validateTagValue(tagKey, tagValue)) {
+      if (isPropagatedTag(value, tagPos)) {
+        if (!validateTagValue(value, tagPos, tagKeyEndsAt, tagValueEndsAt)) {
           log.warn(
               "Invalid datadog tags header value: '{}' invalid tag value at {}",
               value,
               tagValuePos);
           return new InvalidDatadogTags(PROPAGATION_ERROR_DECODING_ERROR);
         }
-        tagPairs.add(tagKey);
-        tagPairs.add(tagValue);
+        tagPairs.add(value.substring(tagPos, tagKeyEndsAt));
+        tagPairs.add(value.substring(tagValuePos, tagValueEndsAt));
       }
       tagPos = tagValueEndsAt + 1;
     }
     return new ValidDatadogTags(tagPairs);
   }
 
-  private static boolean validateTagKey(String tagKey) {
-    for (int i = 0; i < tagKey.length(); i++) {
-      char c = tagKey.charAt(i);
+  /**
+   * Checks without allocating whether parsing the header value would keep all of its tags as they
+   * are, in which case it can be propagated verbatim.
+   */
+  static boolean isPropagatedVerbatim(String value) {
+    int len = value.length();
+    int tagPos = 0;
+    while (true) {
+      int tagKeyEndsAt = value.indexOf(TAG_KEY_SEPARATOR, tagPos);
+      if (tagKeyEndsAt < 0) {
+        return false;
+      }
+      int tagValueEndsAt = value.indexOf(TAGS_SEPARATOR, tagKeyEndsAt);
+      if (tagValueEndsAt < 0) {
+        tagValueEndsAt = len;
+      }
+      if (!validateTagKey(value, tagPos, tagKeyEndsAt)
+          || !isPropagatedTag(value, tagPos)
+          || !validateTagValue(value, tagPos, tagKeyEndsAt, tagValueEndsAt)) {
+        return false;
+      }
+      if (tagValueEndsAt == len) {
+        return true;
+      }
+      tagPos = tagValueEndsAt + 1;
+      if (tagPos == len) {
+        // a trailing separator is dropped when parsing
+        return false;
+      }
+    }
+  }
+
+  private static boolean isPropagatedTag(String value, int tagPos) {
+    return value.startsWith(ALLOWED_TAG_PREFIX, tagPos)
+        && !value.startsWith(UPSTREAM_SERVICES_DEPRECATED_TAG, tagPos);
+  }
+
+  private static boolean validateTagKey(String value, int start, int end) {
+    for (int i = start; i < end; i++) {
+      char c = value.charAt(i);
       if (!isAllowedKeyChar(c)) {
         return false;
       }
@@ -116,14 +157,16 @@ final class DatadogTagsFactory implements DatadogTags.Factory {
     return true;
   }
 
-  private static boolean validateTagValue(String tagKey, String tagValue) {
-    for (int i = 0; i < tagValue.length(); i++) {
-      char c = tagValue.charAt(i);
+  private static boolean validateTagValue(String value, int keyStart, int keyEnd, int end) {
+    for (int i = keyEnd + 1; i < end; i++) {
+      char c = value.charAt(i);
       if (!isAllowedValueChar(c)) {
         return false;
       }
     }
-    if (tagKey.equals(DECISION_MAKER_TAG) && !validateDecisionMakerTag(tagValue)) {
+    if (keyEnd - keyStart == DECISION_MAKER_TAG.length()
+        && value.startsWith(DECISION_MAKER_TAG, keyStart)
+        && !validateDecisionMakerTag(value, keyEnd + 1, end)) {
       return false;
     }
     return true;
@@ -151,29 +194,28 @@ final class DatadogTagsFactory implements DatadogTags.Factory {
    *   sampling mechanism = digit, { digit };
    * </pre>
    */
-  private static boolean validateDecisionMakerTag(String value) {
-    int sepPos = value.indexOf('-');
-    if (sepPos < 0) {
+  private static boolean validateDecisionMakerTag(String value, int start, int end) {
+    int sepPos = value.indexOf('-', start);
+    if (sepPos < 0 || sepPos >= end) {
       // missing separator
       return false;
     }
-    if (sepPos != 0 && sepPos != 10) {
+    if (sepPos != start && sepPos != start + 10) {
       // invalid service hash length
       return false;
     }
     int samplingMechanismPos = sepPos + 1;
-    int len = value.length();
-    if (samplingMechanismPos == len) {
+    if (samplingMechanismPos == end) {
       // missing sampling mechanism
       return false;
     }
-    for (int i = 0; i < sepPos; i++) {
+    for (int i = start; i < sepPos; i++) {
       if (!isHexDigit(value.charAt(i))) {
         // invalid service hash char
         return false;
       }
     }
-    for (int i = samplingMechanismPos; i < len; i++) {
+    for (int i = samplingMechanismPos; i < end; i++) {
       if (!isDigit(value.charAt(i))) {
         // invalid sampling mechanism
         return false;
@@ -343,4 +385,62 @@ final class DatadogTagsFactory implements DatadogTags.Factory {
       }
     }
   }
+
+  /**
+   * Keeps the extracted header value as it is until its tags are needed. Most traces propagate the
+   * tags they received without reading or changing them, in which case the header value is
+   * injected verbatim, after a check which doesn't allocate. The value is only parsed when the
+   * sampling decision is updated or the tags are added to the root span.
+   */
+  private final class LazyDatadogTags extends DatadogTags {
+    private final String headerValue;
+
+    private volatile DatadogTags parsed;
+    private volatile boolean updated;
+    // 0 if not checked yet, 1 if the header value can be propagated verbatim, -1 if not
+    private volatile int verbatim;
+
+    private LazyDatadogTags(String headerValue) {
+      this.headerValue = headerValue;
+    }
+
+    private DatadogTags parsed() {
+      DatadogTags tags = parsed;
+      if (null == tags) {
+        synchronized (this) {
+          tags = parsed;
+          if (null == tags) {
+            parsed = tags = parse(headerValue);
+          }
+        }
+      }
+      return tags;
+    }
+
+    @Override
+    public void updateTraceSamplingPriority(
+        int samplingPriority, int samplingMechanism, String serviceName) {
+      updated = true;
+      parsed().updateTraceSamplingPriority(samplingPriority, samplingMechanism, serviceName);
+    }
+
+    @Override
+    public String headerValue() {
+      if (!updated) {
+        int check = verbatim;
+        if (check == 0) {
+          verbatim = check = isPropagatedVerbatim(headerValue) ? 1 : -1;
+        }
+        if (check > 0) {
+          return headerValue;
+        }
+      }
+      return parsed().headerValue();
+    }
+
+    @Override
+    public void fillTagMap(Map<String, String> tagMap) {
+      parsed().fillTagMap(tagMap);
+    }
+  }
 }
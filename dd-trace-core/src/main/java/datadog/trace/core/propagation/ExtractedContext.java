@@ -14,6 +14,7 @@ public class ExtractedContext extends TagContext {
   private final long endToEndStartTime;
   private final Map<String, String> baggage;
   private final DatadogTags datadogTags;
+  private final String vendorTraceState;
 
   public ExtractedContext(
       final DDId traceId,
@@ -25,6 +26,30 @@ public class ExtractedContext extends TagContext {
       final Map<String, String> tags,
       final HttpHeaders httpHeaders,
       final DatadogTags datadogTags) {
+    this(
+        traceId,
+        spanId,
+        samplingPriority,
+        origin,
+        endToEndStartTime,
+        baggage,
+        tags,
+        httpHeaders,
+        datadogTags,
+        null);
+  }
+
+  public ExtractedContext(
+      final DDId traceId,
+      final DDId spanId,
+      final int samplingPriority,
+      final String origin,
+      final long endToEndStartTime,
+      final Map<String, String> baggage,
+      final Map<String, String> tags,
+      final HttpHeaders httpHeaders,
+      final DatadogTags datadogTags,
+      final String vendorTraceState) {
     super(origin, tags, httpHeaders);
     this.traceId = traceId;
     this.spanId = spanId;
@@ -32,6 +57,7 @@ public class ExtractedContext extends TagContext {
     this.endToEndStartTime = endToEndStartTime;
     this.baggage = baggage;
     this.datadogTags = datadogTags;
+    this.vendorTraceState = vendorTraceState;
   }
 
   @Override
@@ -64,4 +90,9 @@ public class ExtractedContext extends TagContext {
   public DatadogTags getDatadogTags() {
     return datadogTags;
   }
+
+  /** @return the W3C {@code tracestate} members of other vendors, or {@code null} */
+  public String getVendorTraceState() {
+    return vendorTraceState;
+  }
 }
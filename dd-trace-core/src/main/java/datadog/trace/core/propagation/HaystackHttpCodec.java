@@ -7,7 +7,6 @@ import datadog.trace.api.DDId;
 import datadog.trace.api.sampling.PrioritySampling;
 import datadog.trace.bootstrap.instrumentation.api.AgentPropagation;
 import datadog.trace.core.DDSpanContext;
-import de.thetaphi.forbiddenapis.SuppressForbidden;
 import java.util.Map;
 import java.util.TreeMap;
 import org.slf4j.Logger;
@@ -116,12 +115,16 @@ class HaystackHttpCodec {
 
     private static final String BAGGAGE_PREFIX_LC = "baggage-";
 
+    // positions in KEYS
     private static final int TRACE_ID = 0;
     private static final int SPAN_ID = 1;
     private static final int PARENT_ID = 2;
     private static final int TAGS = 3;
     private static final int BAGGAGE = 4;
-    private static final int IGNORE = -1;
+    private static final int IGNORE = HeaderNameMatcher.NO_MATCH;
+
+    private static final HeaderNameMatcher KEYS =
+        new HeaderNameMatcher(TRACE_ID_KEY, SPAN_ID_KEY, PARENT_ID_KEY);
 
     private HaystackContextInterpreter(Map<String, String> taggedHeaders) {
       super(taggedHeaders, Config.get());
@@ -135,56 +138,15 @@ class HaystackHttpCodec {
       if (LOG_EXTRACT_HEADER_NAMES) {
         log.debug("Header: {}", key);
       }
-      char first = Character.toLowerCase(key.charAt(0));
-      String lowerCaseKey = null;
-      int classification = IGNORE;
-      switch (first) {
-        case 't':
-          if (TRACE_ID_KEY.equalsIgnoreCase(key)) {
-            classification = TRACE_ID;
-          }
-          break;
-        case 's':
-          if (SPAN_ID_KEY.equalsIgnoreCase(key)) {
-            classification = SPAN_ID;
-          }
-          break;
-        case 'p':
-          if (PARENT_ID_KEY.equalsIgnoreCase(key)) {
-            classification = PARENT_ID;
-          }
-          break;
-        case 'x':
-          if (handledXForwarding(key, value)) {
-            return true;
-          }
-          break;
-        case 'f':
-          if (handledForwarding(key, value)) {
-            return true;
-          }
-          break;
-        case 'b':
-          lowerCaseKey = toLowerCase(key);
-          if (lowerCaseKey.startsWith(BAGGAGE_PREFIX_LC)) {
-            classification = BAGGAGE;
-          }
-          break;
-        case 'u':
-          if (handledUserAgent(key, value)) {
-            return true;
-          }
-          break;
-        default:
-      }
-
-      if (handledIpHeaders(key, value)) {
-        return true;
-      }
-
-      if (!taggedHeaders.isEmpty() && classification == IGNORE) {
-        lowerCaseKey = toLowerCase(key);
-        if (taggedHeaders.containsKey(lowerCaseKey)) {
+      String mappedTag = null;
+      int classification = KEYS.match(key);
+      if (classification == IGNORE) {
+        if (handledClientHeader(key, value)) {
+          return true;
+        }
+        if (key.regionMatches(true, 0, BAGGAGE_PREFIX_LC, 0, BAGGAGE_PREFIX_LC.length())) {
+          classification = BAGGAGE;
+        } else if (null != (mappedTag = mappedTag(key))) {
           classification = TAGS;
         }
       }
@@ -206,18 +168,15 @@ class HaystackHttpCodec {
                 break;
               case TAGS:
                 {
-                  String mappedKey = taggedHeaders.get(lowerCaseKey);
-                  if (null != mappedKey) {
-                    if (tags.isEmpty()) {
-                      tags = new TreeMap<>();
-                    }
-                    tags.put(mappedKey, HttpCodec.decode(value));
+                  if (tags.isEmpty()) {
+                    tags = new TreeMap<>();
                   }
+                  tags.put(mappedTag, HttpCodec.decode(value));
                   break;
                 }
               case BAGGAGE:
                 {
-                  addBaggageItem(lowerCaseKey.substring(BAGGAGE_PREFIX_LC.length()), value);
+                  addBaggageItem(toLowerCase(key).substring(BAGGAGE_PREFIX_LC.length()), value);
                   break;
                 }
               default:
@@ -255,23 +214,33 @@ class HaystackHttpCodec {
     return DATADOG + "-" + idHex.substring(0, 4) + "-" + idHex.substring(4);
   }
 
-  @SuppressForbidden
   private static DDId convertUUIDToBigInt(String value) {
     try {
-      if (value.contains("-")) {
-        String[] strings = value.split("-");
+      int firstDash = value.indexOf('-');
+      if (firstDash >= 0) {
         // We are only interested in the least significant bit component, dropping the most
         // significant one.
-        if (strings.length == 5) {
-          String idHex = strings[3] + strings[4];
-          return DDId.fromHex(idHex);
+        int secondDash = value.indexOf('-', firstDash + 1);
+        int thirdDash = secondDash < 0 ? -1 : value.indexOf('-', secondDash + 1);
+        int fourthDash = thirdDash < 0 ? -1 : value.indexOf('-', thirdDash + 1);
+        int lowDigits = value.length() - fourthDash - 1;
+        if (fourthDash < 0 || lowDigits == 0 || value.indexOf('-', fourthDash + 1) >= 0) {
+          throw new NumberFormatException("Invalid UUID format: " + value);
+        }
+        int highDigits = fourthDash - thirdDash - 1;
+        if (highDigits == 0 || highDigits + lowDigits > 16) {
+          // the components may still have leading zeros, which the concatenation handles
+          return DDId.fromHex(
+              value.substring(thirdDash + 1, fourthDash) + value.substring(fourthDash + 1));
         }
-        throw new NumberFormatException("Invalid UUID format: " + value);
+        long high = DDId.fromHex(value, thirdDash + 1, fourthDash).toLong();
+        long low = DDId.fromHex(value, fourthDash + 1, value.length()).toLong();
+        return DDId.from(high << (lowDigits << 2) | low);
       } else {
         // This could be a regular hex id without separators
         int length = value.length();
         if (length == 32) {
-          return DDId.fromHex(value.substring(16));
+          return DDId.fromHex(value, 16, 32);
         } else {
           return DDId.fromHex(value);
         }
@@ -0,0 +1,114 @@
+package datadog.trace.core.propagation;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Case insensitive lookup of header names among a fixed set of names, which doesn't allocate.
+ *
+ * <p>Header names are hashed as if they were lower case, and the multiplier used to spread the
+ * hashes over the table is picked when the matcher is built so that the known names don't collide
+ * if at all possible. A lookup then hashes the header name once and compares it with at most one
+ * of the known names.
+ */
+final class HeaderNameMatcher {
+
+  static final int NO_MATCH = -1;
+
+  private static final int SEED_ATTEMPTS = 64;
+
+  private final String[] names;
+  private final int[] ids;
+  private final int shift;
+  private final int multiplier;
+  private final int maxLength;
+
+  /** Matches each name to its position in {@code names}. */
+  HeaderNameMatcher(String... names) {
+    int bits = Math.max(3, 34 - Integer.numberOfLeadingZeros(Math.max(1, names.length) - 1));
+    int capacity = 1 << bits;
+    this.shift = 32 - bits;
+    int longest = 0;
+    for (String name : names) {
+      longest = Math.max(longest, name.length());
+    }
+    this.maxLength = longest;
+    int[] hashes = new int[names.length];
+    for (int i = 0; i < names.length; ++i) {
+      hashes[i] = hash(names[i]);
+    }
+    int seed = 0x9E3779B9;
+    boolean[] taken = new boolean[capacity];
+    for (int attempt = 1; attempt < SEED_ATTEMPTS; ++attempt) {
+      if (collisionFree(hashes, seed, taken)) {
+        break;
+      }
+      // multipliers must stay odd
+      seed += 0x3C6EF372;
+    }
+    this.multiplier = seed;
+    // if there are still collisions, the colliding names are probed linearly
+    this.names = new String[capacity];
+    this.ids = new int[capacity];
+    int mask = capacity - 1;
+    for (int i = 0; i < names.length; ++i) {
+      int slot = slot(hashes[i]);
+      while (null != this.names[slot]) {
+        slot = (slot + 1) & mask;
+      }
+      this.names[slot] = names[i];
+      this.ids[slot] = i;
+    }
+  }
+
+  HeaderNameMatcher(Collection<String> names) {
+    this(names.toArray(new String[0]));
+  }
+
+  /** @return the position of the name matching {@code key} ignoring case, or {@link #NO_MATCH} */
+  int match(String key) {
+    int length = key.length();
+    if (length > maxLength) {
+      return NO_MATCH;
+    }
+    int mask = names.length - 1;
+    for (int slot = slot(hash(key)); ; slot = (slot + 1) & mask) {
+      String name = names[slot];
+      if (null == name) {
+        return NO_MATCH;
+      }
+      if (name.length() == length && key.regionMatches(true, 0, name, 0, length)) {
+        return ids[slot];
+      }
+    }
+  }
+
+  private int slot(int hash) {
+    return (hash * multiplier) >>> shift;
+  }
+
+  private boolean collisionFree(int[] hashes, int seed, boolean[] taken) {
+    Arrays.fill(taken, false);
+    for (int hash : hashes) {
+      int slot = (hash * seed) >>> shift;
+      if (taken[slot]) {
+        return false;
+      }
+      taken[slot] = true;
+    }
+    return true;
+  }
+
+  /** Hash of the name as if it were lower case; only ASCII letters are folded. */
+  static int hash(CharSequence name) {
+    int hash = 0;
+    for (int i = 0; i < name.length(); ++i) {
+      char c = name.charAt(i);
+      if (c >= 'A' && c <= 'Z') {
+        c += 'a' - 'A';
+      }
+      hash = 31 * hash + c;
+    }
+    return hash;
+  }
+}
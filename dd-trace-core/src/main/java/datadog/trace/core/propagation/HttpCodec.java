@@ -58,6 +58,9 @@ public class HttpCodec {
       case XRAY:
         XRayHttpCodec.INJECTOR.inject(context, carrier, setter);
         break;
+      case TRACECONTEXT:
+        W3CHttpCodec.INJECTOR.inject(context, carrier, setter);
+        break;
       default:
         log.debug("No implementation found to inject propagation style: {}", style);
         break;
@@ -80,6 +83,9 @@ public class HttpCodec {
         case XRAY:
           injectors.add(XRayHttpCodec.INJECTOR);
           break;
+        case TRACECONTEXT:
+          injectors.add(W3CHttpCodec.INJECTOR);
+          break;
         default:
           log.debug("No implementation found to inject propagation style: {}", style);
           break;
@@ -105,6 +111,9 @@ public class HttpCodec {
         case XRAY:
           extractors.add(XRayHttpCodec.newExtractor(taggedHeaders));
           break;
+        case TRACECONTEXT:
+          extractors.add(W3CHttpCodec.newExtractor(taggedHeaders, config));
+          break;
         default:
           log.debug("No implementation found to extract propagation style: {}", style);
           break;
@@ -0,0 +1,416 @@
+package datadog.trace.core.propagation;
+
+import static datadog.trace.api.sampling.PrioritySampling.SAMPLER_DROP;
+import static datadog.trace.api.sampling.PrioritySampling.SAMPLER_KEEP;
+
+import datadog.trace.api.Config;
+import datadog.trace.api.DDId;
+import datadog.trace.bootstrap.instrumentation.api.AgentPropagation;
+import datadog.trace.bootstrap.instrumentation.api.TagContext;
+import datadog.trace.core.DDSpanContext;
+import java.util.Map;
+import java.util.TreeMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A codec designed for HTTP transport via headers using W3C Trace Context headers.
+ * https://www.w3.org/TR/trace-context/
+ *
+ * <p>The Datadog specific state (sampling priority, origin and propagated {@code _dd.p.*} tags) is
+ * carried in the {@code dd} member of {@code tracestate}, e.g. {@code dd=s:2;o:rum;t.dm:-4}. The
+ * members of other vendors are kept and re-emitted after the updated {@code dd} member.
+ */
+class W3CHttpCodec {
+  private static final Logger log = LoggerFactory.getLogger(W3CHttpCodec.class);
+
+  static final String TRACE_PARENT_KEY = "traceparent";
+  static final String TRACE_STATE_KEY = "tracestate";
+
+  // 00-<32 hex trace id>-<16 hex parent id>-<2 hex flags>
+  private static final int TRACE_PARENT_LENGTH = 55;
+  private static final int TRACE_ID_START = 3;
+  private static final int TRACE_ID_LOW_START = 19;
+  private static final int SPAN_ID_START = 36;
+  private static final int FLAGS_START = 53;
+  private static final int SAMPLED_FLAG = 0x01;
+
+  private static final String DD_MEMBER_PREFIX = "dd=";
+  private static final String SAMPLING_PRIORITY_PREFIX = "s:";
+  private static final String ORIGIN_PREFIX = "o:";
+  private static final String TAG_PREFIX = "t.";
+  private static final String DATADOG_TAG_PREFIX = "_dd.p.";
+  // a tracestate member value is at most 256 characters
+  private static final int MAX_MEMBER_LENGTH = 256;
+  // tracestate holds at most 32 members, one of which is kept for the dd member
+  private static final int MAX_VENDOR_MEMBERS = 31;
+
+  private W3CHttpCodec() {
+    // This class should not be created. This also makes code coverage checks happy.
+  }
+
+  public static final HttpCodec.Injector INJECTOR = new Injector();
+
+  private static class Injector implements HttpCodec.Injector {
+
+    @Override
+    public <C> void inject(
+        final DDSpanContext context, final C carrier, final AgentPropagation.Setter<C> setter) {
+      boolean sampled = false;
+      boolean hasSamplingPriority = context.lockSamplingPriority();
+      if (hasSamplingPriority) {
+        sampled = context.getSamplingPriority() > 0;
+      }
+      StringBuilder traceParent = new StringBuilder(TRACE_PARENT_LENGTH);
+      traceParent
+          .append("00-")
+          .append(traceIdHex(context.getTraceId()))
+          .append('-')
+          .append(context.getSpanId().toHexStringPadded(16))
+          .append(sampled ? "-01" : "-00");
+      setter.set(carrier, TRACE_PARENT_KEY, traceParent.toString());
+
+      StringBuilder traceState = new StringBuilder(DD_MEMBER_PREFIX);
+      if (hasSamplingPriority) {
+        traceState.append(SAMPLING_PRIORITY_PREFIX).append(context.getSamplingPriority());
+      }
+      CharSequence origin = context.getOrigin();
+      if (origin != null) {
+        separate(traceState).append(ORIGIN_PREFIX);
+        appendEncoded(traceState, origin, 0, origin.length());
+      }
+      appendDatadogTags(traceState, context.getDatadogTags().headerValue());
+      boolean hasDatadogMember = traceState.length() > DD_MEMBER_PREFIX.length();
+      // the updated dd member moves to the front, ahead of the other vendors
+      String vendorTraceState = context.getVendorTraceState();
+      if (null != vendorTraceState) {
+        if (hasDatadogMember) {
+          setter.set(
+              carrier, TRACE_STATE_KEY, traceState.append(',').append(vendorTraceState).toString());
+        } else {
+          setter.set(carrier, TRACE_STATE_KEY, vendorTraceState);
+        }
+      } else if (hasDatadogMember) {
+        setter.set(carrier, TRACE_STATE_KEY, traceState.toString());
+      }
+    }
+
+    /** Keeps the upstream 128-bit trace id when there was one, otherwise pads the 64-bit id. */
+    private static String traceIdHex(DDId traceId) {
+      String original = traceId.toHexStringOrOriginal();
+      return original.length() == 32 ? original : traceId.toHexStringPadded(32);
+    }
+
+    /** Appends the {@code _dd.p.*} tags of an {@code x-datadog-tags} header value as t.* keys. */
+    private static void appendDatadogTags(StringBuilder traceState, String datadogTags) {
+      if (null == datadogTags) {
+        return;
+      }
+      int length = datadogTags.length();
+      int tagStart = 0;
+      while (tagStart < length) {
+        int tagEnd = datadogTags.indexOf(',', tagStart);
+        if (tagEnd < 0) {
+          tagEnd = length;
+        }
+        int separator = datadogTags.indexOf('=', tagStart);
+        if (separator > tagStart
+            && separator < tagEnd
+            && datadogTags.startsWith(DATADOG_TAG_PREFIX, tagStart)) {
+          int mark = traceState.length();
+          separate(traceState)
+              .append(TAG_PREFIX)
+              .append(datadogTags, tagStart + DATADOG_TAG_PREFIX.length(), separator)
+              .append(':');
+          appendEncoded(traceState, datadogTags, separator + 1, tagEnd);
+          if (traceState.length() - DD_MEMBER_PREFIX.length() > MAX_MEMBER_LENGTH) {
+            // drop the tag rather than send a member which will be discarded
+            traceState.setLength(mark);
+          }
+        }
+        tagStart = tagEnd + 1;
+      }
+    }
+
+    private static StringBuilder separate(StringBuilder traceState) {
+      if (traceState.length() > DD_MEMBER_PREFIX.length()) {
+        traceState.append(';');
+      }
+      return traceState;
+    }
+
+    /** Escapes the characters which would otherwise end the member or the value. */
+    private static void appendEncoded(StringBuilder buf, CharSequence value, int start, int end) {
+      for (int i = start; i < end; ++i) {
+        char c = value.charAt(i);
+        if (c == '=') {
+          buf.append('~');
+        } else if (c < 0x20 || c > 0x7e || c == ',' || c == ';' || c == '~') {
+          buf.append('_');
+        } else {
+          buf.append(c);
+        }
+      }
+    }
+  }
+
+  public static HttpCodec.Extractor newExtractor(final Map<String, String> tagMapping) {
+    return newExtractor(tagMapping, Config.get());
+  }
+
+  public static HttpCodec.Extractor newExtractor(
+      final Map<String, String> tagMapping, final Config config) {
+    return new TagContextExtractor(
+        tagMapping,
+        new ContextInterpreter.Factory() {
+          @Override
+          protected ContextInterpreter construct(Map<String, String> mapping) {
+            return new W3CContextInterpreter(mapping, config);
+          }
+        });
+  }
+
+  private static class W3CContextInterpreter extends ContextInterpreter {
+
+    // positions in KEYS
+    private static final int TRACE_PARENT = 0;
+    private static final int TRACE_STATE = 1;
+
+    private static final HeaderNameMatcher KEYS =
+        new HeaderNameMatcher(TRACE_PARENT_KEY, TRACE_STATE_KEY);
+
+    private final DatadogTags.Factory datadogTagsFactory;
+
+    private boolean sampled;
+    // tracestate only applies once traceparent has been found valid, so it's parsed last
+    private String traceState;
+
+    private W3CContextInterpreter(Map<String, String> taggedHeaders, Config config) {
+      super(taggedHeaders, config);
+      datadogTagsFactory = DatadogTags.factory(config);
+    }
+
+    @Override
+    public ContextInterpreter reset() {
+      sampled = false;
+      traceState = null;
+      datadogTags = null;
+      return super.reset();
+    }
+
+    @Override
+    public boolean accept(String key, String value) {
+      if (null == key || key.isEmpty()) {
+        return true;
+      }
+      if (LOG_EXTRACT_HEADER_NAMES) {
+        log.debug("Header: {}", key);
+      }
+      switch (KEYS.match(key)) {
+        case TRACE_PARENT:
+          if (null != value && !parseTraceParent(value)) {
+            invalidateContext();
+            log.debug("Invalid traceparent header: {}", value);
+            return false;
+          }
+          return true;
+        case TRACE_STATE:
+          traceState = value;
+          return true;
+        default:
+      }
+      if (handledClientHeader(key, value)) {
+        return true;
+      }
+      String mappedTag = mappedTag(key);
+      if (null != mappedTag && null != value) {
+        if (tags.isEmpty()) {
+          tags = new TreeMap<>();
+        }
+        tags.put(mappedTag, HttpCodec.decode(value));
+      }
+      return true;
+    }
+
+    /**
+     * Parses the header in a single pass, only allocating the ids.
+     *
+     * @return whether the header is valid
+     */
+    private boolean parseTraceParent(String value) {
+      int length = value.length();
+      if (length < TRACE_PARENT_LENGTH) {
+        return false;
+      }
+      int version = hexByte(value, 0);
+      // version ff is forbidden, and version 00 has nothing after the flags
+      if (version < 0
+          || version == 0xff
+          || (version == 0 && length != TRACE_PARENT_LENGTH)
+          || (length > TRACE_PARENT_LENGTH && value.charAt(TRACE_PARENT_LENGTH) != '-')
+          || value.charAt(2) != '-'
+          || value.charAt(SPAN_ID_START - 1) != '-'
+          || value.charAt(FLAGS_START - 1) != '-') {
+        return false;
+      }
+      long traceIdHigh = 0;
+      long traceIdLow = 0;
+      long parentId = 0;
+      for (int i = TRACE_ID_START; i < FLAGS_START; ++i) {
+        if (i == SPAN_ID_START - 1) {
+          continue;
+        }
+        int digit = hexDigit(value.charAt(i));
+        if (digit < 0) {
+          return false;
+        }
+        if (i < TRACE_ID_LOW_START) {
+          traceIdHigh = (traceIdHigh << 4) | digit;
+        } else if (i < SPAN_ID_START) {
+          traceIdLow = (traceIdLow << 4) | digit;
+        } else {
+          parentId = (parentId << 4) | digit;
+        }
+      }
+      int flags = hexByte(value, FLAGS_START);
+      if ((traceIdHigh == 0 && traceIdLow == 0) || parentId == 0 || flags < 0) {
+        return false;
+      }
+      if (traceIdHigh == 0) {
+        traceId = DDId.from(traceIdLow);
+      } else {
+        // only 64 bits are used as the trace id, the full id is kept for propagation; the lower
+        // bits can be all zero in a valid id, in which case the upper bits identify the trace
+        traceId =
+            DDId.fromWithOriginal(
+                traceIdLow != 0 ? traceIdLow : traceIdHigh,
+                value.substring(TRACE_ID_START, SPAN_ID_START));
+      }
+      spanId = DDId.from(parentId);
+      sampled = (flags & SAMPLED_FLAG) != 0;
+      samplingPriority = sampled ? SAMPLER_KEEP : SAMPLER_DROP;
+      return true;
+    }
+
+    @Override
+    TagContext build() {
+      if (valid && !DDId.ZERO.equals(traceId) && null != traceState) {
+        parseTraceState(traceState);
+      }
+      return super.build();
+    }
+
+    /** Parses the dd member, and keeps the members of other vendors in their original order. */
+    private void parseTraceState(String value) {
+      boolean datadogMember = false;
+      StringBuilder vendors = null;
+      int vendorMembers = 0;
+      int length = value.length();
+      int memberStart = 0;
+      while (memberStart < length) {
+        int memberEnd = value.indexOf(',', memberStart);
+        if (memberEnd < 0) {
+          memberEnd = length;
+        }
+        int nextMember = memberEnd + 1;
+        while (memberStart < memberEnd && isWhitespace(value.charAt(memberStart))) {
+          ++memberStart;
+        }
+        while (memberEnd > memberStart && isWhitespace(value.charAt(memberEnd - 1))) {
+          --memberEnd;
+        }
+        if (memberStart == memberEnd) {
+          // empty members are allowed, and dropped
+        } else if (value.startsWith(DD_MEMBER_PREFIX, memberStart)) {
+          // a duplicate dd member is dropped, the first one wins
+          if (!datadogMember) {
+            datadogMember = true;
+            try {
+              parseDatadogMember(value, memberStart + DD_MEMBER_PREFIX.length(), memberEnd);
+            } catch (RuntimeException e) {
+              // the other vendors' members are still kept
+              log.debug("Ignoring invalid dd member of tracestate header: {}", value, e);
+            }
+          }
+        } else if (vendorMembers < MAX_VENDOR_MEMBERS) {
+          if (null == vendors) {
+            vendors = new StringBuilder(length);
+          } else {
+            vendors.append(',');
+          }
+          vendors.append(value, memberStart, memberEnd);
+          ++vendorMembers;
+        }
+        memberStart = nextMember;
+      }
+      if (null != vendors) {
+        vendorTraceState = vendors.toString();
+      }
+    }
+
+    private void parseDatadogMember(String value, int start, int end) {
+      StringBuilder datadogTagsHeader = null;
+      int partStart = start;
+      while (partStart < end) {
+        int partEnd = value.indexOf(';', partStart);
+        if (partEnd < 0 || partEnd > end) {
+          partEnd = end;
+        }
+        if (value.startsWith(SAMPLING_PRIORITY_PREFIX, partStart)) {
+          int priority =
+              Integer.parseInt(
+                  value.substring(partStart + SAMPLING_PRIORITY_PREFIX.length(), partEnd));
+          // the sampled flag wins when the two disagree
+          if ((priority > 0) == sampled) {
+            samplingPriority = priority;
+          }
+        } else if (value.startsWith(ORIGIN_PREFIX, partStart)) {
+          origin = decode(value, partStart + ORIGIN_PREFIX.length(), partEnd);
+        } else if (value.startsWith(TAG_PREFIX, partStart)) {
+          int separator = value.indexOf(':', partStart);
+          if (separator > partStart + TAG_PREFIX.length() && separator < partEnd) {
+            if (null == datadogTagsHeader) {
+              datadogTagsHeader = new StringBuilder();
+            } else {
+              datadogTagsHeader.append(',');
+            }
+            datadogTagsHeader
+                .append(DATADOG_TAG_PREFIX)
+                .append(value, partStart + TAG_PREFIX.length(), separator)
+                .append('=')
+                .append(decode(value, separator + 1, partEnd));
+          }
+        }
+        partStart = partEnd + 1;
+      }
+      if (null != datadogTagsHeader) {
+        datadogTags = datadogTagsFactory.fromHeaderValue(datadogTagsHeader.toString());
+      }
+    }
+
+    private static String decode(String value, int start, int end) {
+      return value.substring(start, end).replace('~', '=');
+    }
+
+    private static boolean isWhitespace(char c) {
+      return c == ' ' || c == '\t';
+    }
+
+    /** @return the value of the two lower case hex digits at {@code index}, or -1 */
+    private static int hexByte(String value, int index) {
+      int high = hexDigit(value.charAt(index));
+      int low = hexDigit(value.charAt(index + 1));
+      return high < 0 || low < 0 ? -1 : (high << 4) | low;
+    }
+
+    private static int hexDigit(char c) {
+      if (c >= '0' && c <= '9') {
+        return c - '0';
+      }
+      if (c >= 'a' && c <= 'f') {
+        return c - 'a' + 10;
+      }
+      return -1;
+    }
+  }
+}
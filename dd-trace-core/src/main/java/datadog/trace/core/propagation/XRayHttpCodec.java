@@ -138,41 +138,20 @@ class XRayHttpCodec {
         log.debug("Header: {}", key);
       }
       try {
-        char first = Character.toLowerCase(key.charAt(0));
-        switch (first) {
-          case 'x':
-            if (X_AMZN_TRACE_ID.equalsIgnoreCase(key)) {
-              handleXRayTraceHeader(this, value);
-              return true;
-            } else if (handledXForwarding(key, value)) {
-              return true;
-            }
-            break;
-          case 'f':
-            if (handledForwarding(key, value)) {
-              return true;
-            }
-            break;
-          case 'u':
-            if (handledUserAgent(key, value)) {
-              return true;
-            }
-            break;
-          default:
+        if (X_AMZN_TRACE_ID.equalsIgnoreCase(key)) {
+          handleXRayTraceHeader(this, value);
+          return true;
         }
-
-        if (handledIpHeaders(key, value)) {
+        if (handledClientHeader(key, value)) {
           return true;
         }
 
-        if (!taggedHeaders.isEmpty()) {
-          String mappedKey = taggedHeaders.get(toLowerCase(key));
-          if (null != mappedKey) {
-            if (tags.isEmpty()) {
-              tags = new TreeMap<>();
-            }
-            tags.put(mappedKey, HttpCodec.decode(value));
+        String mappedTag = mappedTag(key);
+        if (null != mappedTag) {
+          if (tags.isEmpty()) {
+            tags = new TreeMap<>();
           }
+          tags.put(mappedTag, HttpCodec.decode(value));
         }
         return true;
       } catch (RuntimeException e) {
@@ -197,33 +176,46 @@ class XRayHttpCodec {
           if (endPart < 0) {
             endPart = length;
           }
-          String part = value.substring(startPart, endPart).trim();
-          if (part.startsWith(ROOT_PREFIX)) {
+          // trim the part without copying it
+          int start = startPart;
+          int end = endPart;
+          while (start < end && value.charAt(start) <= ' ') {
+            ++start;
+          }
+          while (end > start && value.charAt(end - 1) <= ' ') {
+            --end;
+          }
+          if (partStartsWith(value, start, end, ROOT_PREFIX)) {
             if (interpreter.traceId == null || interpreter.traceId == DDId.ZERO) {
               interpreter.traceId =
                   DDId.fromHexWithOriginal(
-                      part.substring(ROOT_PREAMBLE + TRACE_ID_PADDING.length()));
+                      value.substring(start + ROOT_PREAMBLE + TRACE_ID_PADDING.length(), end));
             }
-          } else if (part.startsWith(PARENT_PREFIX)) {
+          } else if (partStartsWith(value, start, end, PARENT_PREFIX)) {
             if (interpreter.spanId == null || interpreter.spanId == DDId.ZERO) {
-              interpreter.spanId = DDId.fromHexWithOriginal(part.substring(PARENT_PREFIX.length()));
+              interpreter.spanId =
+                  DDId.fromHexWithOriginal(value.substring(start + PARENT_PREFIX.length(), end));
             }
-          } else if (part.startsWith(SAMPLED_PREFIX)) {
+          } else if (partStartsWith(value, start, end, SAMPLED_PREFIX)) {
             if (interpreter.samplingPriority == PrioritySampling.UNSET) {
+              if (start + SAMPLED_PREFIX.length() >= end) {
+                throw new IllegalArgumentException("Missing sampling decision in " + value);
+              }
               interpreter.samplingPriority =
-                  convertSamplingPriority(part.charAt(SAMPLED_PREFIX.length()));
+                  convertSamplingPriority(value.charAt(start + SAMPLED_PREFIX.length()));
             }
-          } else if (part.startsWith(SELF_PREFIX)) {
+          } else if (partStartsWith(value, start, end, SELF_PREFIX)) {
             // Self is added by load-balancers and should be ignored
-          } else if (part.startsWith(ORIGIN_PREFIX)) {
-            interpreter.origin = part.substring(ORIGIN_PREFIX.length());
-          } else if (part.startsWith(E2E_START_PREFIX)) {
+          } else if (partStartsWith(value, start, end, ORIGIN_PREFIX)) {
+            interpreter.origin = value.substring(start + ORIGIN_PREFIX.length(), end);
+          } else if (partStartsWith(value, start, end, E2E_START_PREFIX)) {
             interpreter.endToEndStartTime =
-                extractEndToEndStartTime(part.substring(E2E_START_PREFIX.length()));
+                extractEndToEndStartTime(value.substring(start + E2E_START_PREFIX.length(), end));
           } else {
-            int eqIndex = part.indexOf('=');
-            if (eqIndex > 0) {
-              addBaggageItem(interpreter, part.substring(0, eqIndex), part.substring(eqIndex + 1));
+            int eqIndex = value.indexOf('=', start);
+            if (eqIndex > start && eqIndex < end) {
+              addBaggageItem(
+                  interpreter, value.substring(start, eqIndex), value.substring(eqIndex + 1, end));
             }
           }
           startPart = endPart + 1;
@@ -231,6 +223,11 @@ class XRayHttpCodec {
       }
     }
 
+    private static boolean partStartsWith(String value, int start, int end, String prefix) {
+      return end - start >= prefix.length()
+          && value.regionMatches(start, prefix, 0, prefix.length());
+    }
+
     private static long extractEndToEndStartTime(String value) {
       try {
         return MILLISECONDS.toNanos(Long.parseLong(value));
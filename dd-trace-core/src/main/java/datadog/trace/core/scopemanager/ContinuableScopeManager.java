@@ -18,7 +18,8 @@ import datadog.trace.bootstrap.instrumentation.api.ContextThreadListener;
 import datadog.trace.bootstrap.instrumentation.api.ScopeSource;
 import datadog.trace.context.ScopeListener;
 import datadog.trace.util.AgentTaskScheduler;
-import java.util.ArrayDeque;
+import datadog.trace.util.VirtualThreads;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -29,6 +30,8 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 import javax.annotation.Nonnull;
+import org.jctools.queues.MessagePassingQueue;
+import org.jctools.queues.MpmcArrayQueue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -37,6 +40,15 @@ import org.slf4j.LoggerFactory;
  * currently active Scope. Such scopes can be suspended with a Continuation to prevent the trace
  * from being reported even if all related spans are finished. It also delegates to other
  * ScopeInterceptors to provide additional functionality.
+ *
+ * <p>When recycling is enabled, closed scopes are kept by their thread's stack and reused by the
+ * next activations on that thread, and single continuations are handed back to a shared pool once
+ * they've been canceled or the scope they were activated into has been closed. Each use of a
+ * recycled scope or continuation is given out through its own small handle, and the recycled
+ * object only answers to the handle of its current use. A late {@code close()}, {@code activate()}
+ * or {@code cancel()} through the handle of an earlier use is ignored. Iteration scopes and
+ * concurrent continuations are never reused, as they can still be reached from other threads after
+ * they're done with.
  */
 public final class ContinuableScopeManager implements AgentScopeManager {
 
@@ -52,15 +64,28 @@ public final class ContinuableScopeManager implements AgentScopeManager {
   final List<ExtendedScopeListener> extendedScopeListeners;
   final StatsDClient statsDClient;
 
+  private static final int CONTINUATION_POOL_CAPACITY = 1024;
+
   private final int depthLimit;
   private final boolean strictMode;
   private final boolean inheritAsyncPropagation;
+  // null unless recycling
+  private final MessagePassingQueue<SingleContinuation> continuationPool;
 
   public ContinuableScopeManager(
       final int depthLimit,
       final StatsDClient statsDClient,
       final boolean strictMode,
       final boolean inheritAsyncPropagation) {
+    this(depthLimit, statsDClient, strictMode, inheritAsyncPropagation, false);
+  }
+
+  public ContinuableScopeManager(
+      final int depthLimit,
+      final StatsDClient statsDClient,
+      final boolean strictMode,
+      final boolean inheritAsyncPropagation,
+      final boolean recycling) {
 
     this.depthLimit = depthLimit == 0 ? Integer.MAX_VALUE : depthLimit;
     this.statsDClient = statsDClient;
@@ -68,7 +93,9 @@ public final class ContinuableScopeManager implements AgentScopeManager {
     this.inheritAsyncPropagation = inheritAsyncPropagation;
     this.scopeListeners = new CopyOnWriteArrayList<>();
     this.extendedScopeListeners = new CopyOnWriteArrayList<>();
-    this.tlsScopeStack = new ScopeStackThreadLocal();
+    this.tlsScopeStack = new ScopeStackThreadLocal(recycling);
+    this.continuationPool =
+        recycling ? new MpmcArrayQueue<SingleContinuation>(CONTINUATION_POOL_CAPACITY) : null;
   }
 
   @Override
@@ -84,9 +111,26 @@ public final class ContinuableScopeManager implements AgentScopeManager {
 
   @Override
   public AgentScope.Continuation captureSpan(final AgentSpan span, final ScopeSource source) {
-    Continuation continuation = new SingleContinuation(this, span, source.id());
+    return newSingleContinuation(span, source.id());
+  }
+
+  AgentScope.Continuation newSingleContinuation(final AgentSpan span, final byte source) {
+    if (null == continuationPool) {
+      return new SingleContinuation(this, span, source).register();
+    }
+    SingleContinuation continuation = continuationPool.relaxedPoll();
+    if (null == continuation) {
+      continuation = new SingleContinuation(this, span, source);
+    } else {
+      continuation.reuse(span, source);
+    }
     continuation.register();
-    return continuation;
+    return continuation.issue(new ContinuationHandle(span, continuation));
+  }
+
+  void recycle(final SingleContinuation continuation) {
+    continuation.clear();
+    continuationPool.relaxedOffer(continuation);
   }
 
   private AgentScope activate(
@@ -99,7 +143,7 @@ public final class ContinuableScopeManager implements AgentScopeManager {
     final ContinuableScope top = scopeStack.top;
     if (top != null && top.span.equals(span)) {
       top.incrementReferences();
-      return top;
+      return top.handle();
     }
 
     // DQH - This check could go before the check above, since depth limit checking is fast
@@ -119,11 +163,11 @@ public final class ContinuableScopeManager implements AgentScopeManager {
                 ? top.isAsyncPropagating()
                 : DEFAULT_ASYNC_PROPAGATING;
 
-    final ContinuableScope scope = new ContinuableScope(this, span, source, asyncPropagation);
+    final ContinuableScope scope = scopeStack.newScope(this, span, source, asyncPropagation, null);
 
     scopeStack.push(scope);
 
-    return scope;
+    return scope.handle();
   }
 
   /**
@@ -131,19 +175,35 @@ public final class ContinuableScopeManager implements AgentScopeManager {
    *
    * @param continuation {@code null} if a continuation is re-used
    */
-  ContinuableScope continueSpan(
+  AgentScope continueSpan(
       final Continuation continuation, final AgentSpan span, final byte source) {
 
+    final ScopeStack scopeStack = scopeStack();
     final ContinuableScope scope;
     if (continuation != null) {
       scope = new ContinuingScope(this, span, source, true, continuation);
     } else {
-      scope = new ContinuableScope(this, span, source, true);
+      scope = scopeStack.newScope(this, span, source, true, null);
     }
 
-    scopeStack().push(scope);
+    scopeStack.push(scope);
 
-    return scope;
+    return scope.handle();
+  }
+
+  /**
+   * Creates a new scope when a recycled {@link SingleContinuation} is activated. The handle of the
+   * continuation becomes the handle of the scope.
+   */
+  AgentScope continueRecycledSpan(
+      final ContinuationHandle handle, final AgentSpan span, final byte source) {
+
+    final ScopeStack scopeStack = scopeStack();
+    final ContinuableScope scope = scopeStack.newScope(this, span, source, true, handle);
+
+    scopeStack.push(scope);
+
+    return handle;
   }
 
   @Override
@@ -187,6 +247,7 @@ public final class ContinuableScopeManager implements AgentScopeManager {
             ? top.isAsyncPropagating()
             : DEFAULT_ASYNC_PROPAGATING;
 
+    // iteration scopes are never recycled, they can be closed and inspected by a background task
     final ContinuableScope scope =
         new ContinuableScope(this, span, ScopeSource.ITERATION.id(), asyncPropagation);
 
@@ -202,7 +263,8 @@ public final class ContinuableScopeManager implements AgentScopeManager {
 
   @Override
   public AgentScope active() {
-    return scopeStack().active();
+    final ContinuableScope active = scopeStack().active();
+    return active == null ? null : active.handle();
   }
 
   @Override
@@ -250,15 +312,18 @@ public final class ContinuableScopeManager implements AgentScopeManager {
   private static class ContinuableScope implements AgentScope, AttachableWrapper {
     private final ContinuableScopeManager scopeManager;
 
-    final AgentSpan span; // package-private so scopeManager can access it directly
+    AgentSpan span; // package-private so scopeManager can access it directly
 
     /** Flag to propagate this scope across async boundaries. */
     private boolean isAsyncPropagating;
 
-    private final byte flags;
+    private byte flags;
 
     private short referenceCount = 1;
 
+    /** Handle of the current use of this scope, only set when it can be recycled. */
+    ScopeHandle handle;
+
     private volatile Object wrapper;
     private static final AtomicReferenceFieldUpdater<ContinuableScope, Object>
         WRAPPER_FIELD_UPDATER =
@@ -275,6 +340,25 @@ public final class ContinuableScopeManager implements AgentScopeManager {
       this.isAsyncPropagating = isAsyncPropagating;
     }
 
+    void reuse(final AgentSpan span, final byte source, final boolean isAsyncPropagating) {
+      this.span = span;
+      this.flags = source;
+      this.isAsyncPropagating = isAsyncPropagating;
+      this.referenceCount = 1;
+    }
+
+    /** Drops the references of a closed scope, which no longer answers to its handle. */
+    void clear() {
+      handle = null;
+      span = null;
+      WRAPPER_FIELD_UPDATER.lazySet(this, null);
+    }
+
+    /** @return what callers hold for the current use of this scope */
+    final AgentScope handle() {
+      return null != handle ? handle : this;
+    }
+
     @Override
     public final void close() {
       final ScopeStack scopeStack = scopeManager.scopeStack();
@@ -304,7 +388,12 @@ public final class ContinuableScopeManager implements AgentScopeManager {
     }
 
     void cleanup(final ScopeStack scopeStack) {
+      // read first, as the cleanup may recycle this scope
+      final ScopeHandle handle = this.handle;
       scopeStack.cleanup();
+      if (handle instanceof ContinuationHandle) {
+        ((ContinuationHandle) handle).continuation.cancelFromContinuedScopeClose(handle);
+      }
     }
 
     /*
@@ -373,10 +462,8 @@ public final class ContinuableScopeManager implements AgentScopeManager {
      * @return The new continuation, or null if this scope is not async propagating.
      */
     @Override
-    public final ContinuableScopeManager.Continuation capture() {
-      return isAsyncPropagating
-          ? new SingleContinuation(scopeManager, span, source()).register()
-          : null;
+    public final AgentScope.Continuation capture() {
+      return isAsyncPropagating ? scopeManager.newSingleContinuation(span, source()) : null;
     }
 
     /**
@@ -453,25 +540,147 @@ public final class ContinuableScopeManager implements AgentScopeManager {
     }
   }
 
+  /**
+   * Given out for one use of a recycled scope. Its calls are ignored once the scope has been closed
+   * and recycled, as the scope may already be in use again through another handle.
+   */
+  private static class ScopeHandle implements AgentScope, AttachableWrapper {
+    final AgentSpan span;
+    ContinuableScope scope;
+
+    ScopeHandle(final AgentSpan span) {
+      this.span = span;
+    }
+
+    /** @return the scope, or null if it's no longer used through this handle */
+    final ContinuableScope current() {
+      final ContinuableScope scope = this.scope;
+      return null != scope && scope.handle == this ? scope : null;
+    }
+
+    @Override
+    public final AgentSpan span() {
+      return span;
+    }
+
+    @Override
+    public final byte source() {
+      final ContinuableScope scope = current();
+      return null != scope ? scope.source() : ScopeSource.INSTRUMENTATION.id();
+    }
+
+    @Override
+    public final AgentScope.Continuation capture() {
+      final ContinuableScope scope = current();
+      return null != scope ? scope.capture() : null;
+    }
+
+    @Override
+    public final AgentScope.Continuation captureConcurrent() {
+      final ContinuableScope scope = current();
+      return null != scope ? scope.captureConcurrent() : null;
+    }
+
+    @Override
+    public final boolean isAsyncPropagating() {
+      final ContinuableScope scope = current();
+      return null != scope && scope.isAsyncPropagating();
+    }
+
+    @Override
+    public final void setAsyncPropagation(final boolean value) {
+      final ContinuableScope scope = current();
+      if (null != scope) {
+        scope.setAsyncPropagation(value);
+      }
+    }
+
+    @Override
+    public final void close() {
+      final ContinuableScope scope = current();
+      if (null != scope) {
+        scope.close();
+      } else {
+        log.debug("Ignoring close of {}, its scope has already been closed", this);
+      }
+    }
+
+    @Override
+    public final void attachWrapper(@Nonnull final Object wrapper) {
+      final ContinuableScope scope = current();
+      if (null != scope) {
+        scope.attachWrapper(wrapper);
+      }
+    }
+
+    @Override
+    public final Object getWrapper() {
+      final ContinuableScope scope = current();
+      return null != scope ? scope.getWrapper() : null;
+    }
+
+    @Override
+    public final String toString() {
+      return getClass().getSimpleName() + "@" + Integer.toHexString(hashCode()) + "->" + span;
+    }
+  }
+
+  /**
+   * Given out for one capture of a recycled {@link SingleContinuation}. Once activated, it is also
+   * the handle of the continued scope, so capturing and activating only allocates this handle.
+   */
+  private static final class ContinuationHandle extends ScopeHandle
+      implements AgentScope.Continuation {
+    final SingleContinuation continuation;
+
+    ContinuationHandle(final AgentSpan span, final SingleContinuation continuation) {
+      super(span);
+      this.continuation = continuation;
+    }
+
+    @Override
+    public AgentScope activate() {
+      return continuation.activate(this);
+    }
+
+    @Override
+    public void cancel() {
+      continuation.cancel(this);
+    }
+
+    @Override
+    public AgentSpan getSpan() {
+      return span;
+    }
+  }
+
   static final class ScopeStackThreadLocal extends ThreadLocal<ScopeStack> {
 
     private final List<ContextThreadListener> listeners = new CopyOnWriteArrayList<>();
+    private final boolean recycling;
+
+    ScopeStackThreadLocal(final boolean recycling) {
+      this.recycling = recycling;
+    }
 
     public void register(ContextThreadListener listener) {
       listeners.add(listener);
     }
 
+    // shared by all stacks, so that short-lived threads only allocate the stack itself
+    private final Runnable onAttach =
+        new Runnable() {
+          @Override
+          public void run() {
+            for (ContextThreadListener listener : listeners) {
+              listener.onAttach();
+            }
+          }
+        };
+
     @Override
     protected ScopeStack initialValue() {
-      return new ScopeStack(
-          new Runnable() {
-            @Override
-            public void run() {
-              for (ContextThreadListener listener : listeners) {
-                listener.onAttach();
-              }
-            }
-          });
+      return new ScopeStack(onAttach, VirtualThreads.isVirtual(Thread.currentThread()), recycling);
     }
 
     @Override
@@ -490,20 +699,79 @@ public final class ContinuableScopeManager implements AgentScopeManager {
   /**
    * The invariant is that the top of a non-empty stack is always active. Anytime a scope is closed,
    * cleanup() is called to ensure the invariant
+   *
+   * <p>Virtual threads can be created by the million and usually run a single task, so the array of
+   * previous scopes, and the pool of closed scopes when recycling, start small on their stacks.
    */
   static final class ScopeStack {
 
+    private static final ContinuableScope[] EMPTY = new ContinuableScope[0];
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int COMPACT_INITIAL_CAPACITY = 2;
+
     private final Runnable onFirstUsage;
     private boolean used = false;
-    private final ArrayDeque<ContinuableScope> stack = new ArrayDeque<>(); // previous scopes
+    private final int initialCapacity;
+    // previous scopes, only allocated once a scope is activated on top of another
+    private ContinuableScope[] stack = EMPTY;
+    private int size;
+
+    private final boolean recycling;
+    // closed scopes ready to be reused, only allocated once a scope is recycled
+    private ContinuableScope[] pool = EMPTY;
+    private int pooled;
 
     ContinuableScope top; // current scope
 
     // set by background task when a root iteration scope remains unclosed for too long
     volatile ContinuableScope overdueRootScope;
 
-    ScopeStack(Runnable onFirstUsage) {
+    ScopeStack(Runnable onFirstUsage, boolean compact, boolean recycling) {
       this.onFirstUsage = onFirstUsage;
+      this.initialCapacity = compact ? COMPACT_INITIAL_CAPACITY : INITIAL_CAPACITY;
+      this.recycling = recycling;
+    }
+
+    /**
+     * @param handle the handle to use the scope through when recycling, or {@code null} for a new
+     *     one
+     */
+    ContinuableScope newScope(
+        final ContinuableScopeManager scopeManager,
+        final AgentSpan span,
+        final byte source,
+        final boolean isAsyncPropagating,
+        ScopeHandle handle) {
+      if (!recycling) {
+        return new ContinuableScope(scopeManager, span, source, isAsyncPropagating);
+      }
+      final ContinuableScope scope;
+      if (pooled > 0) {
+        scope = pool[--pooled];
+        pool[pooled] = null;
+        scope.reuse(span, source, isAsyncPropagating);
+      } else {
+        scope = new ContinuableScope(scopeManager, span, source, isAsyncPropagating);
+      }
+      if (null == handle) {
+        handle = new ScopeHandle(span);
+      }
+      handle.scope = scope;
+      scope.handle = handle;
+      return scope;
+    }
+
+    /** Keeps a closed scope for reuse, if it was handed out through a handle. */
+    private void recycle(final ContinuableScope scope) {
+      if (null != scope.handle) {
+        scope.clear();
+        if (pooled == pool.length && pooled < initialCapacity) {
+          pool = Arrays.copyOf(pool, initialCapacity);
+        }
+        if (pooled < pool.length) {
+          pool[pooled++] = scope;
+        }
+      }
     }
 
     ContinuableScope active() {
@@ -519,7 +787,8 @@ public final class ContinuableScopeManager implements AgentScopeManager {
         // no longer alive -- trigger listener & null out
         curScope.onProperClose();
         changedTop = true;
-        curScope = stack.poll();
+        recycle(curScope);
+        curScope = pop();
       }
       if (curScope != null && curScope == overdueRootScope) {
         // we know this scope is the last on the stack and is overdue
@@ -538,7 +807,10 @@ public final class ContinuableScopeManager implements AgentScopeManager {
     void push(final ContinuableScope scope) {
       notifyOnFirstPush();
       if (top != null) {
-        stack.push(top);
+        if (size == stack.length) {
+          stack = Arrays.copyOf(stack, Math.max(initialCapacity, size << 1));
+        }
+        stack[size++] = top;
       }
       top = scope;
       scope.afterActivated();
@@ -564,7 +836,8 @@ public final class ContinuableScopeManager implements AgentScopeManager {
       top.clearReferences();
       top.span.finishWithEndToEnd();
       // now do the same for any previous iteration scopes ahead of the expected scope
-      for (ContinuableScope scope : stack) {
+      for (int i = size - 1; i >= 0; --i) {
+        ContinuableScope scope = stack[i];
         if (scope.source() != ScopeSource.ITERATION.id()) {
           return expectedScope.equals(scope);
         } else {
@@ -577,12 +850,22 @@ public final class ContinuableScopeManager implements AgentScopeManager {
 
     /** Returns the current depth, including the top scope */
     int depth() {
-      return top != null ? 1 + stack.size() : 0;
+      return top != null ? 1 + size : 0;
+    }
+
+    private ContinuableScope pop() {
+      if (size == 0) {
+        return null;
+      }
+      ContinuableScope scope = stack[--size];
+      stack[size] = null;
+      return scope;
     }
 
     // DQH - regrettably needed for pre-existing tests
     void clear() {
-      stack.clear();
+      Arrays.fill(stack, 0, size, null);
+      size = 0;
       top = null;
     }
 
@@ -601,9 +884,10 @@ public final class ContinuableScopeManager implements AgentScopeManager {
   private abstract static class Continuation implements AgentScope.Continuation {
 
     final ContinuableScopeManager scopeManager;
-    final AgentSpan spanUnderScope;
-    final byte source;
-    final AgentTrace trace;
+    // only reassigned when a single continuation is recycled
+    AgentSpan spanUnderScope;
+    byte source;
+    AgentTrace trace;
 
     public Continuation(
         ContinuableScopeManager scopeManager, AgentSpan spanUnderScope, byte source) {
@@ -626,11 +910,22 @@ public final class ContinuableScopeManager implements AgentScopeManager {
   /**
    * This class must not be a nested class of ContinuableScope to avoid an unconstrained chain of
    * references (using too much memory).
+   *
+   * <p>When recycling, the continuation is given out through a {@link ContinuationHandle} and only
+   * answers to the handle of its current capture.
    */
   private static final class SingleContinuation extends Continuation {
-    private static final AtomicIntegerFieldUpdater<SingleContinuation> USED =
-        AtomicIntegerFieldUpdater.newUpdater(SingleContinuation.class, "used");
-    private volatile int used = 0;
+    private static final AtomicReferenceFieldUpdater<SingleContinuation, Object> OWNER =
+        AtomicReferenceFieldUpdater.newUpdater(SingleContinuation.class, Object.class, "owner");
+    private static final AtomicReferenceFieldUpdater<SingleContinuation, ContinuationHandle>
+        HANDLE =
+            AtomicReferenceFieldUpdater.newUpdater(
+                SingleContinuation.class, ContinuationHandle.class, "handle");
+
+    // what may still activate or cancel the continuation, null once it's been used
+    private volatile Object owner = this;
+    // handle of the current capture, null unless recycling
+    private volatile ContinuationHandle handle;
 
     private SingleContinuation(
         final ContinuableScopeManager scopeManager,
@@ -639,23 +934,60 @@ public final class ContinuableScopeManager implements AgentScopeManager {
       super(scopeManager, spanUnderScope, source);
     }
 
+    void reuse(final AgentSpan spanUnderScope, final byte source) {
+      this.spanUnderScope = spanUnderScope;
+      this.source = source;
+      this.trace = spanUnderScope.context().getTrace();
+    }
+
+    ContinuationHandle issue(final ContinuationHandle handle) {
+      this.handle = handle;
+      this.owner = handle;
+      return handle;
+    }
+
+    void clear() {
+      spanUnderScope = null;
+      trace = null;
+      owner = null;
+    }
+
     @Override
     public AgentScope activate() {
-      if (USED.compareAndSet(this, 0, 1)) {
-        return scopeManager.continueSpan(this, spanUnderScope, source);
-      } else {
+      return activate(this);
+    }
+
+    AgentScope activate(final Object caller) {
+      if (OWNER.compareAndSet(this, caller, null)) {
+        if (caller == this) {
+          return scopeManager.continueSpan(this, spanUnderScope, source);
+        }
+        return scopeManager.continueRecycledSpan(
+            (ContinuationHandle) caller, spanUnderScope, source);
+      } else if (caller == this || caller == handle) {
         log.debug(
             "Failed to activate continuation. Reusing a continuation not allowed. Spans may be reported separately.");
-        return scopeManager.continueSpan(null, spanUnderScope, source);
+        final AgentSpan span = ((AgentScope.Continuation) caller).getSpan();
+        return scopeManager.continueSpan(null, span, source);
+      } else {
+        log.debug("Ignoring activation of {}, its continuation has been recycled", caller);
+        return AgentTracer.NoopAgentScope.INSTANCE;
       }
     }
 
     @Override
     public void cancel() {
-      if (USED.compareAndSet(this, 0, 1)) {
+      cancel(this);
+    }
+
+    void cancel(final Object caller) {
+      if (OWNER.compareAndSet(this, caller, null)) {
         trace.cancelContinuation(this);
+        if (caller != this && HANDLE.compareAndSet(this, (ContinuationHandle) caller, null)) {
+          scopeManager.recycle(this);
+        }
       } else {
-        log.debug("Failed to close continuation {}. Already used.", this);
+        log.debug("Failed to close continuation {}. Already used.", caller);
       }
     }
 
@@ -669,6 +1001,14 @@ public final class ContinuableScopeManager implements AgentScopeManager {
       trace.cancelContinuation(this);
     }
 
+    /** Called when the scope continued through the handle is closed. */
+    void cancelFromContinuedScopeClose(final ScopeHandle caller) {
+      if (HANDLE.compareAndSet(this, (ContinuationHandle) caller, null)) {
+        trace.cancelContinuation(this);
+        scopeManager.recycle(this);
+      }
+    }
+
     @Override
     public String toString() {
       return getClass().getSimpleName()
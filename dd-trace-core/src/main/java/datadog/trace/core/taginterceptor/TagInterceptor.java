@@ -1,11 +1,7 @@
 package datadog.trace.core.taginterceptor;
 
 import static datadog.trace.api.DDTags.ANALYTICS_SAMPLE_RATE;
-import static datadog.trace.api.DDTags.MEASURED;
-import static datadog.trace.api.DDTags.ORIGIN_KEY;
-import static datadog.trace.api.DDTags.SPAN_TYPE;
 import static datadog.trace.api.sampling.PrioritySampling.USER_DROP;
-import static datadog.trace.bootstrap.instrumentation.api.Tags.HTTP_STATUS;
 import static datadog.trace.core.taginterceptor.RuleFlags.Feature.FORCE_MANUAL_DROP;
 import static datadog.trace.core.taginterceptor.RuleFlags.Feature.PEER_SERVICE;
 import static datadog.trace.core.taginterceptor.RuleFlags.Feature.RESOURCE_NAME;
@@ -21,6 +17,8 @@ import datadog.trace.bootstrap.instrumentation.api.InstrumentationTags;
 import datadog.trace.bootstrap.instrumentation.api.ResourceNamePriorities;
 import datadog.trace.bootstrap.instrumentation.api.Tags;
 import datadog.trace.core.DDSpanContext;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Set;
 
 public class TagInterceptor {
@@ -51,38 +49,86 @@ public class TagInterceptor {
     splitByServletContext = splitServiceTags.contains(InstrumentationTags.SERVLET_CONTEXT);
   }
 
+  /** Tags with a dedicated interceptor, looked up by name before dispatching on them. */
+  enum InterceptedTag {
+    RESOURCE_NAME(DDTags.RESOURCE_NAME),
+    DB_STATEMENT(Tags.DB_STATEMENT),
+    SERVICE_NAME(DDTags.SERVICE_NAME),
+    SERVICE("service"),
+    PEER_SERVICE(Tags.PEER_SERVICE),
+    MANUAL_KEEP(DDTags.MANUAL_KEEP),
+    MANUAL_DROP(DDTags.MANUAL_DROP),
+    SERVLET_CONTEXT(InstrumentationTags.SERVLET_CONTEXT),
+    SPAN_TYPE(DDTags.SPAN_TYPE),
+    ANALYTICS_SAMPLE_RATE(DDTags.ANALYTICS_SAMPLE_RATE),
+    ERROR(Tags.ERROR),
+    HTTP_STATUS(Tags.HTTP_STATUS),
+    ORIGIN(DDTags.ORIGIN_KEY),
+    MEASURED(DDTags.MEASURED);
+
+    private static final Map<String, InterceptedTag> BY_TAG = new HashMap<>();
+
+    static {
+      for (InterceptedTag interceptedTag : values()) {
+        BY_TAG.put(interceptedTag.tag, interceptedTag);
+      }
+    }
+
+    final String tag;
+
+    InterceptedTag(String tag) {
+      this.tag = tag;
+    }
+
+    static InterceptedTag of(String tag) {
+      return BY_TAG.get(tag);
+    }
+  }
+
+  /**
+   * @return whether {@link #interceptTag} may act on the tag, so values can be kept unboxed when
+   *     it won't
+   */
+  public boolean needsIntercept(String tag) {
+    return null != InterceptedTag.of(tag) || splitServiceTags.contains(tag);
+  }
+
   public boolean interceptTag(DDSpanContext span, String tag, Object value) {
-    switch (tag) {
-      case DDTags.RESOURCE_NAME:
+    InterceptedTag interceptedTag = InterceptedTag.of(tag);
+    if (null == interceptedTag) {
+      return intercept(span, tag, value);
+    }
+    switch (interceptedTag) {
+      case RESOURCE_NAME:
         return interceptResourceName(span, value);
-      case Tags.DB_STATEMENT:
+      case DB_STATEMENT:
         return interceptDbStatement(span, value);
-      case DDTags.SERVICE_NAME:
-      case "service":
+      case SERVICE_NAME:
+      case SERVICE:
         return interceptServiceName(SERVICE_NAME, span, value);
-      case Tags.PEER_SERVICE:
+      case PEER_SERVICE:
         return interceptServiceName(PEER_SERVICE, span, value);
-      case DDTags.MANUAL_KEEP:
+      case MANUAL_KEEP:
         if (asBoolean(value)) {
           span.forceKeep();
           return true;
         }
         return false;
-      case DDTags.MANUAL_DROP:
+      case MANUAL_DROP:
         return interceptSamplingPriority(
             FORCE_MANUAL_DROP, USER_DROP, SamplingMechanism.MANUAL, span, value);
-      case InstrumentationTags.SERVLET_CONTEXT:
+      case SERVLET_CONTEXT:
         return interceptServletContext(span, value);
       case SPAN_TYPE:
         return interceptSpanType(span, value);
       case ANALYTICS_SAMPLE_RATE:
         return interceptAnalyticsSampleRate(span, value);
-      case Tags.ERROR:
+      case ERROR:
         return interceptError(span, value);
       case HTTP_STATUS:
         // not set internally but may come from manual instrumentation
         return interceptHttpStatusCode(span, value);
-      case ORIGIN_KEY:
+      case ORIGIN:
         return interceptOrigin(span, value);
       case MEASURED:
         return interceptMeasured(span, value);
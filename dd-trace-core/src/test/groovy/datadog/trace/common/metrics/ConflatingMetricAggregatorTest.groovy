@@ -4,6 +4,7 @@ import datadog.communication.ddagent.DDAgentFeaturesDiscovery
 import datadog.trace.api.WellKnownTags
 import datadog.trace.bootstrap.instrumentation.api.UTF8BytesString
 import datadog.trace.core.CoreSpan
+import datadog.trace.core.monitor.HealthMetrics
 import datadog.trace.test.util.DDSpecification
 import spock.lang.Requires
 import spock.lang.Shared
@@ -197,6 +198,51 @@ class ConflatingMetricAggregatorTest extends DDSpecification {
     count << [10, 100]
   }
 
+  def "spans published concurrently are all reported"() {
+    setup:
+    MetricWriter writer = Mock(MetricWriter)
+    Sink sink = Stub(Sink)
+    DDAgentFeaturesDiscovery features = Mock(DDAgentFeaturesDiscovery)
+    features.supportsMetrics() >> true
+    ConflatingMetricsAggregator aggregator = new ConflatingMetricsAggregator(empty,
+      features, sink, writer, 10, queueSize, reportingInterval, SECONDS)
+    long duration = 100
+    int hitCount = 0
+    aggregator.start()
+
+    when: "each thread fills batches in its own stripe"
+    CountDownLatch latch = new CountDownLatch(1)
+    def threads = (1..threadCount).collect {
+      Thread.start {
+        for (int i = 0; i < spansPerThread; ++i) {
+          aggregator.publish([
+            new SimpleSpan("service", "operation", "resource", "type", true, false, false, 0, duration, HTTP_OK)
+          ])
+        }
+      }
+    }
+    threads*.join()
+    aggregator.report()
+    latch.await(2, SECONDS)
+
+    then: "partially filled batches are swept up at report time"
+    1 * writer.startBucket(1, _, SECONDS.toNanos(reportingInterval))
+    1 * writer.add(new MetricKey("resource", "service", "operation", "type", HTTP_OK, false), _) >> { MetricKey key, AggregateMetric value ->
+      hitCount = value.getHitCount()
+    }
+    1 * writer.finishBucket() >> { latch.countDown() }
+    hitCount == threadCount * spansPerThread
+
+    cleanup:
+    aggregator.close()
+
+    where:
+    threadCount | spansPerThread
+    1           | 10
+    4           | 100
+    8           | 500
+  }
+
   def "test least recently written to aggregate flushed when size limit exceeded"() {
     setup:
     int maxAggregates = 10
@@ -233,6 +279,93 @@ class ConflatingMetricAggregatorTest extends DDSpecification {
     aggregator.close()
   }
 
+  def "long tail of keys is folded into a per service aggregate when the heavy hitters fill the aggregates"() {
+    setup:
+    int maxAggregates = 10
+    MetricWriter writer = Mock(MetricWriter)
+    HealthMetrics healthMetrics = Mock(HealthMetrics)
+    Sink sink = Stub(Sink)
+    DDAgentFeaturesDiscovery features = Mock(DDAgentFeaturesDiscovery)
+    features.supportsMetrics() >> true
+    ConflatingMetricsAggregator aggregator = new ConflatingMetricsAggregator(empty,
+      features, sink, writer, maxAggregates, queueSize, reportingInterval, SECONDS, healthMetrics)
+    long duration = 100
+    aggregator.start()
+
+    when:
+    CountDownLatch latch = new CountDownLatch(1)
+    for (int i = 0; i < maxAggregates; ++i) {
+      for (int j = 0; j < 5; ++j) {
+        aggregator.publish([
+          new SimpleSpan("service", "operation", "hot" + i, "type", false, true, false, 0, duration, HTTP_OK)
+        ])
+      }
+    }
+    for (int i = 0; i < 20; ++i) {
+      aggregator.publish([
+        new SimpleSpan("service", "operation", "cold" + i, "type", false, true, false, 0, duration, HTTP_OK)
+      ])
+    }
+    aggregator.report()
+    def latchTriggered = latch.await(2, SECONDS)
+
+    then: "the heavy hitters are kept and the rest is folded"
+    latchTriggered
+    1 * writer.startBucket(maxAggregates + 1, _, SECONDS.toNanos(reportingInterval))
+    for (int i = 0; i < maxAggregates; ++i) {
+      1 * writer.add(new MetricKey("hot" + i, "service", "operation", "type", HTTP_OK, false), _) >> { MetricKey key, AggregateMetric value ->
+        value.getHitCount() == 5 && value.getDuration() == 5 * duration
+      }
+    }
+    1 * writer.add(new MetricKey("other", "service", "other", null, 0, false), _) >> { MetricKey key, AggregateMetric value ->
+      value.getHitCount() == 20 && value.getDuration() == 20 * duration
+    }
+    1 * writer.finishBucket() >> { latch.countDown() }
+    1 * healthMetrics.onStatsAggregatesFolded(20)
+    0 * healthMetrics.onStatsAggregatesEvicted(_)
+
+    cleanup:
+    aggregator.close()
+  }
+
+  def "folded keys are not retained once their batches have been aggregated"() {
+    setup:
+    int maxAggregates = 10
+    MetricWriter writer = Mock(MetricWriter)
+    Sink sink = Stub(Sink)
+    DDAgentFeaturesDiscovery features = Mock(DDAgentFeaturesDiscovery)
+    features.supportsMetrics() >> true
+    ConflatingMetricsAggregator aggregator = new ConflatingMetricsAggregator(empty,
+      features, sink, writer, maxAggregates, queueSize, reportingInterval, SECONDS)
+    long duration = 100
+    aggregator.start()
+
+    when:
+    CountDownLatch latch = new CountDownLatch(1)
+    for (int i = 0; i < maxAggregates; ++i) {
+      for (int j = 0; j < 5; ++j) {
+        aggregator.publish([
+          new SimpleSpan("service", "operation", "hot" + i, "type", false, true, false, 0, duration, HTTP_OK)
+        ])
+      }
+    }
+    for (int i = 0; i < 10 * maxAggregates; ++i) {
+      aggregator.publish([
+        new SimpleSpan("service", "operation", "cold" + i, "type", false, true, false, 0, duration, HTTP_OK)
+      ])
+    }
+    aggregator.report()
+    def latchTriggered = latch.await(2, SECONDS)
+
+    then: "only the keys with an aggregate of their own are kept"
+    latchTriggered
+    1 * writer.finishBucket() >> { latch.countDown() }
+    aggregator.keys.size() <= maxAggregates
+
+    cleanup:
+    aggregator.close()
+  }
+
   def "aggregate not updated in reporting interval not reported"() {
     setup:
     int maxAggregates = 10
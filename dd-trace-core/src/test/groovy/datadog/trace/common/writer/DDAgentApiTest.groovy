@@ -10,6 +10,7 @@ import datadog.trace.bootstrap.instrumentation.api.AgentTracer.NoopPathwayContex
 import datadog.trace.bootstrap.instrumentation.api.InstrumentationTags
 import datadog.trace.common.sampling.RateByServiceSampler
 import datadog.trace.common.writer.ddagent.DDAgentApi
+import datadog.trace.common.writer.ddagent.DirectSocketTransport
 import datadog.communication.ddagent.DDAgentFeaturesDiscovery
 
 import datadog.trace.common.writer.ddagent.TraceMapperV0_4
@@ -29,8 +30,10 @@ import org.msgpack.jackson.dataformat.MessagePackFactory
 import spock.lang.Shared
 import spock.lang.Timeout
 import java.nio.ByteBuffer
+import java.nio.channels.SocketChannel
 import java.util.concurrent.RejectedExecutionException
 import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
 import java.util.concurrent.atomic.AtomicLong
 import java.util.concurrent.atomic.AtomicReference
 
@@ -187,6 +190,140 @@ class DDAgentApiTest extends DDCoreSpecification {
     agentVersion << ["v0.3/traces", "v0.4/traces", "v0.4/traces"]
   }
 
+  def "direct socket transport sends the same request and reuses its connection"() {
+    setup:
+    def agent = httpServer {
+      handlers {
+        put("v0.4/traces") {
+          response.status(200).send('{"rate_by_service":{"service:,env:":0.5}}')
+        }
+      }
+    }
+    def agentResponse = new AtomicReference<Map>(null)
+    def (discovery, client, transport) = createDirectAgentApi(agent.address.toString())
+    client.addResponseListener({ String endpoint, Map responseJson ->
+      agentResponse.set(responseJson)
+    } as RemoteResponseListener)
+    def span = buildSpan(1L, "service.name", "my-service", DatadogTags.factory().empty())
+    span.finish()
+
+    when:
+    def first = client.sendSerializedTraces(prepareTraces("v0.4/traces", [[span]]))
+    def second = client.sendSerializedTraces(prepareTraces("v0.4/traces", [[span], [span]]))
+
+    then:
+    first.success()
+    second.success()
+    second.status() == 200
+    agentResponse.get() == ["rate_by_service": ["service:,env:": 0.5]]
+    agent.lastRequest.contentType == "application/msgpack"
+    agent.lastRequest.headers.get("Datadog-Meta-Lang") == "java"
+    agent.lastRequest.headers.get("X-Datadog-Trace-Count") == "2"
+    convertList("v0.4/traces", agent.lastRequest.body).size() == 2
+
+    cleanup:
+    transport.close()
+    agent.close()
+  }
+
+  def "direct socket transport reports errors from the agent"() {
+    setup:
+    def agent = httpServer {
+      handlers {
+        put("v0.4/traces") {
+          response.status(413).send("too large")
+        }
+      }
+    }
+    def (discovery, client, transport) = createDirectAgentApi(agent.address.toString())
+
+    when:
+    def response = client.sendSerializedTraces(prepareTraces("v0.4/traces", []))
+
+    then:
+    !response.success()
+    response.status() == 413
+
+    cleanup:
+    transport.close()
+    agent.close()
+  }
+
+  def "direct socket transport does not resend a request which was fully written"() {
+    setup:
+    // answers the first request, then drops the connection without answering the second one
+    def server = new ServerSocket(0)
+    def requests = new AtomicInteger()
+    def agentThread = Thread.start {
+      while (!server.closed) {
+        try {
+          def socket = server.accept()
+          Thread.start {
+            socket.withCloseable {
+              def input = new DataInputStream(it.inputStream)
+              while (true) {
+                def contentLength = 0
+                def line
+                while ((line = readLine(input)) != null && !line.isEmpty()) {
+                  if (line.toLowerCase().startsWith("content-length:")) {
+                    contentLength = line.substring(15).trim() as int
+                  }
+                }
+                if (line == null) {
+                  return
+                }
+                input.readFully(new byte[contentLength])
+                if (requests.incrementAndGet() > 1) {
+                  return
+                }
+                it.outputStream.write("HTTP/1.1 200 OK\r\nContent-Length: 2\r\n\r\nOK".bytes)
+                it.outputStream.flush()
+              }
+            }
+          }
+        } catch (SocketException ignored) {
+          // closed
+        }
+      }
+    }
+    def agentUrl = HttpUrl.get("http://localhost:${server.localPort}")
+    def discovery = Stub(DDAgentFeaturesDiscovery) {
+      getTraceEndpoint() >> "v0.4/traces"
+    }
+    def transport = new DirectSocketTransport({
+      SocketChannel.open(new InetSocketAddress(agentUrl.host(), agentUrl.port()))
+    } as DirectSocketTransport.Connector)
+    def client = new DDAgentApi(OkHttpUtils.buildHttpClient(agentUrl, 1000), agentUrl, discovery, monitoring, false, transport)
+    def span = buildSpan(1L, "service.name", "my-service", DatadogTags.factory().empty())
+    span.finish()
+
+    when:
+    def first = client.sendSerializedTraces(prepareTraces("v0.4/traces", [[span]]))
+    def second = client.sendSerializedTraces(prepareTraces("v0.4/traces", [[span]]))
+
+    then:
+    first.success()
+    !second.success()
+    requests.get() == 2
+
+    cleanup:
+    transport.close()
+    server.close()
+    agentThread.join(1000)
+  }
+
+  static String readLine(DataInputStream input) {
+    def line = new StringBuilder()
+    int c
+    while ((c = input.read()) >= 0) {
+      if (c == 10) {
+        return line.toString().trim()
+      }
+      line.append((char) c)
+    }
+    return null
+  }
+
   def "Api ResponseListeners see 200 responses"() {
     setup:
     def agentResponse = new AtomicReference<Map>(null)
@@ -422,6 +559,17 @@ class DDAgentApiTest extends DDCoreSpecification {
     return [discovery, new DDAgentApi(client, agentUrl, discovery, monitoring, false)]
   }
 
+  def createDirectAgentApi(String url) {
+    HttpUrl agentUrl = HttpUrl.get(url)
+    OkHttpClient client = OkHttpUtils.buildHttpClient(agentUrl, 1000)
+    DDAgentFeaturesDiscovery discovery = new DDAgentFeaturesDiscovery(client, monitoring, agentUrl, false, true)
+    // the transport works over any socket channel, so a TCP one stands in for the unix domain socket
+    def transport = new DirectSocketTransport({
+      SocketChannel.open(new InetSocketAddress(agentUrl.host(), agentUrl.port()))
+    } as DirectSocketTransport.Connector)
+    return [discovery, new DDAgentApi(client, agentUrl, discovery, monitoring, false, transport), transport]
+  }
+
   DDSpan buildSpan(long timestamp, String tag, String value, DatadogTags datadogTags) {
     def tracer = tracerBuilder().writer(new ListWriter()).build()
     def context = new DDSpanContext(
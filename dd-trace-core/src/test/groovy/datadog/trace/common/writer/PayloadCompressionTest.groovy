@@ -0,0 +1,57 @@
+package datadog.trace.common.writer
+
+import datadog.trace.common.writer.ddagent.TraceMapperV0_4
+import datadog.trace.common.writer.ddagent.TraceMapperV0_5
+import datadog.trace.test.util.DDSpecification
+import okio.Buffer
+
+import java.nio.ByteBuffer
+import java.util.concurrent.ThreadLocalRandom
+import java.util.zip.GZIPInputStream
+
+class PayloadCompressionTest extends DDSpecification {
+
+  def "compressed payloads decompress to the uncompressed body"() {
+    setup:
+    PayloadCompression compression = new PayloadCompression(level, 1)
+    byte[] bytes = new byte[bodySize]
+    for (int i = 0; i < bytes.length; ++i) {
+      // compressible but not trivially so
+      bytes[i] = (byte) ('a' + ThreadLocalRandom.current().nextInt(16))
+    }
+    Payload payload = mapper.newPayload().withBody(1, ByteBuffer.wrap(bytes))
+    Buffer raw = new Buffer()
+    payload.toRequest().writeTo(raw)
+    byte[] expected = raw.readByteArray()
+
+    when: "the payload is compressed more than once, as it would be on retry"
+    Buffer first = new Buffer()
+    compression.requestBody(payload).writeTo(first)
+    Buffer second = new Buffer()
+    compression.requestBody(payload).writeTo(second)
+
+    then:
+    payload.compressedSizeInBytes() == second.size()
+    first.size() == second.size()
+    bodySize == 0 || first.size() < expected.length
+    decompress(first.readByteArray()) == expected
+    decompress(second.readByteArray()) == expected
+
+    where:
+    mapper                | level | bodySize
+    new TraceMapperV0_4() | 1     | 0
+    new TraceMapperV0_4() | 1     | 100 << 10
+    new TraceMapperV0_4() | 9     | 100 << 10
+    new TraceMapperV0_5() | 1     | 100 << 10
+    new TraceMapperV0_5() | 6     | 1 << 20
+  }
+
+  def "uncompressed payloads have no compressed size"() {
+    expect:
+    new TraceMapperV0_4().newPayload().compressedSizeInBytes() == -1
+  }
+
+  static byte[] decompress(byte[] compressed) {
+    return new GZIPInputStream(new ByteArrayInputStream(compressed)).bytes
+  }
+}
@@ -19,8 +19,10 @@ import spock.lang.Shared
 import spock.lang.Timeout
 
 import java.nio.ByteBuffer
+import java.util.concurrent.CountDownLatch
 import java.util.concurrent.TimeUnit
 import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicInteger
 
 class PayloadDispatcherTest extends DDSpecification {
 
@@ -121,6 +123,88 @@ class PayloadDispatcherTest extends DDSpecification {
     1 * healthMetrics.onFailedPublish(PrioritySampling.UNSET)
   }
 
+  @Timeout(5)
+  def "serialization carries on in a spare buffer while a payload is being sent"() {
+    setup:
+    CountDownLatch sending = new CountDownLatch(1)
+    CountDownLatch release = new CountDownLatch(1)
+    AtomicInteger sentTraces = new AtomicInteger()
+    HealthMetrics healthMetrics = Mock(HealthMetrics)
+    DDAgentFeaturesDiscovery discovery = Mock(DDAgentFeaturesDiscovery)
+    discovery.getTraceEndpoint() >> traceEndpoint
+    DDAgentApi api = Mock(DDAgentApi)
+    api.sendSerializedTraces(_) >> { Payload payload ->
+      sending.countDown()
+      release.await()
+      sentTraces.addAndGet(payload.traceCount())
+      return RemoteApi.Response.success(200)
+    }
+    PayloadDispatcher dispatcher = new PayloadDispatcher(new DDAgentMapperDiscovery(discovery), api, healthMetrics, monitoring, false, 2)
+    List<DDSpan> trace = [realSpan()]
+
+    when: "the first payload is stuck in the request to the agent"
+    dispatcher.addTrace(trace)
+    dispatcher.flush()
+    sending.await()
+    for (int i = 0; i < 10; ++i) {
+      dispatcher.addTrace(trace)
+    }
+
+    then: "traces are still serialized"
+    sentTraces.get() == 0
+
+    when: "the second payload has to wait for the first to be sent"
+    Thread.start {
+      Thread.sleep(100)
+      release.countDown()
+    }
+    dispatcher.flush()
+    dispatcher.awaitPendingSends()
+
+    then:
+    sentTraces.get() == 11
+    1 * healthMetrics.onSerialize({ it > 0 })
+    1 * healthMetrics.onSendBackpressure({ it > 0 })
+    2 * healthMetrics.onSend(_, _, _)
+
+    cleanup:
+    dispatcher.close()
+
+    where:
+    traceEndpoint << ["v0.5/traces", "v0.4/traces"]
+  }
+
+  @Timeout(5)
+  def "sender thread is named after the shard it sends for"() {
+    setup:
+    String senderThreadName = null
+    DDAgentFeaturesDiscovery discovery = Mock(DDAgentFeaturesDiscovery)
+    discovery.getTraceEndpoint() >> "v0.4/traces"
+    DDAgentApi api = Mock(DDAgentApi)
+    api.sendSerializedTraces(_) >> {
+      senderThreadName = Thread.currentThread().name
+      return RemoteApi.Response.success(200)
+    }
+    PayloadDispatcher dispatcher = new PayloadDispatcher(new DDAgentMapperDiscovery(discovery), api, Mock(HealthMetrics), monitoring, false, 2, shardIndex)
+
+    when:
+    dispatcher.addTrace([realSpan()])
+    dispatcher.flush()
+    dispatcher.awaitPendingSends()
+
+    then:
+    senderThreadName == threadName
+
+    cleanup:
+    dispatcher.close()
+
+    where:
+    shardIndex | threadName
+    -1         | "dd-trace-sender"
+    0          | "dd-trace-sender-0"
+    3          | "dd-trace-sender-3"
+  }
+
   def "trace and span counts are reset after access"() {
     setup:
     HealthMetrics healthMetrics = Mock(HealthMetrics)
@@ -1,5 +1,6 @@
 package datadog.trace.common.writer
 
+import datadog.trace.api.DDId
 import datadog.trace.api.StatsDClient
 import datadog.trace.core.DDSpan
 import datadog.trace.core.monitor.HealthMetrics
@@ -95,14 +96,14 @@ class TraceProcessingWorkerTest extends DDSpecification {
     when: "there is pending work it is completed before a flush"
     // processing this span will throw an exception, but it should be caught
     // and not disrupt the flush
-    worker.primaryQueue.offer([Mock(DDSpan)])
+    worker.shards[0].primaryQueue.offer([Mock(DDSpan)])
     worker.start()
     boolean flushed = worker.flush(10, TimeUnit.SECONDS)
 
     then: "the flush succeeds, triggers a dispatch, and the queue is empty"
     flushed
     flushCount.get() == 1
-    worker.primaryQueue.isEmpty()
+    worker.shards[0].primaryQueue.isEmpty()
 
     cleanup:
     worker.close()
@@ -214,7 +215,7 @@ class TraceProcessingWorkerTest extends DDSpecification {
     worker.start()
     worker.close()
     int queueSize = 0
-    while (worker.primaryQueue.offer([Mock(DDSpan)])) {
+    while (worker.shards[0].primaryQueue.offer([Mock(DDSpan)])) {
       queueSize++
     }
 
@@ -224,4 +225,94 @@ class TraceProcessingWorkerTest extends DDSpecification {
     !flushed
   }
 
+  def "sharded worker should route traces by trace id and flush every shard"() {
+    setup:
+    AtomicInteger flushCount = new AtomicInteger()
+    AtomicInteger acceptedCount = new AtomicInteger()
+    PayloadDispatcher[] dispatchers = new PayloadDispatcher[shards]
+    for (int i = 0; i < shards; ++i) {
+      PayloadDispatcher dispatcher = Mock(PayloadDispatcher)
+      dispatcher.addTrace(_) >> {
+        acceptedCount.getAndIncrement()
+      }
+      dispatcher.flush() >> {
+        flushCount.incrementAndGet()
+      }
+      dispatchers[i] = dispatcher
+    }
+    TraceProcessingWorker worker = new TraceProcessingWorker(100, Stub(HealthMetrics),
+      dispatchers, {
+        false
+      }, FAST_LANE, 100, TimeUnit.SECONDS)
+    worker.start()
+
+    when: "traces with different trace ids are submitted"
+    int submitted = 0
+    for (int i = 1; i <= traceCount; ++i) {
+      DDSpan root = Stub(DDSpan)
+      root.getTraceId() >> DDId.from(i)
+      submitted += worker.publish(root, SAMPLER_KEEP, [root]) ? 1 : 0
+    }
+    boolean flushed = worker.flush(10, TimeUnit.SECONDS)
+
+    then: "all accepted traces are serialized before the flush completes on every shard"
+    flushed
+    worker.getShardCount() == shards
+    submitted == acceptedCount.get()
+    flushCount.get() == shards
+    worker.shards.every { it.primaryQueue.isEmpty() }
+
+    cleanup:
+    worker.close()
+
+    where:
+    shards | traceCount
+    1      | 10
+    2      | 10
+    4      | 40
+    8      | 80
+  }
+
+  def "sharded worker should route a trace id to the same shard"() {
+    setup:
+    PayloadDispatcher[] dispatchers = [Mock(PayloadDispatcher), Mock(PayloadDispatcher), Mock(PayloadDispatcher)]
+    TraceProcessingWorker worker = new TraceProcessingWorker(30, Stub(HealthMetrics),
+      dispatchers, {
+        false
+      }, FAST_LANE, 100, TimeUnit.SECONDS)
+    DDSpan root = Stub(DDSpan)
+    root.getTraceId() >> DDId.from(12345)
+
+    when: "the same trace id is published repeatedly before the worker is started"
+    worker.publish(root, SAMPLER_KEEP, [root])
+    worker.publish(root, SAMPLER_KEEP, [root])
+    worker.publish(root, SAMPLER_KEEP, [root])
+
+    then: "it is only enqueued on one shard"
+    worker.shards.count { it.primaryQueue.size() == 3 } == 1
+    worker.shards.count { it.primaryQueue.isEmpty() } == 2
+  }
+
+  def "sharded worker should name its threads by shard and report the capacity of all shards"() {
+    setup:
+    PayloadDispatcher[] dispatchers = new PayloadDispatcher[shards]
+    for (int i = 0; i < shards; ++i) {
+      dispatchers[i] = Mock(PayloadDispatcher)
+    }
+    TraceProcessingWorker worker = new TraceProcessingWorker(capacity, Stub(HealthMetrics),
+      dispatchers, {
+        false
+      }, FAST_LANE, 100, TimeUnit.SECONDS)
+
+    expect:
+    worker.shards*.serializerThread*.name == threadNames
+    worker.getCapacity() == expectedCapacity
+
+    where:
+    shards | capacity | expectedCapacity | threadNames
+    1      | 10       | 10               | ["dd-trace-processor"]
+    2      | 10       | 10               | ["dd-trace-processor-0", "dd-trace-processor-1"]
+    3      | 10       | 9                | ["dd-trace-processor-0", "dd-trace-processor-1", "dd-trace-processor-2"]
+    4      | 4        | 8                | ["dd-trace-processor-0", "dd-trace-processor-1", "dd-trace-processor-2", "dd-trace-processor-3"]
+  }
 }
@@ -0,0 +1,68 @@
+package datadog.trace.common.writer.ddagent
+
+import datadog.trace.test.util.DDSpecification
+
+class ObjectIntMapTest extends DDSpecification {
+
+  def "values can be looked up after growing"() {
+    setup:
+    ObjectIntMap map = new ObjectIntMap(8)
+
+    when:
+    for (int i = 0; i < 1000; ++i) {
+      map.putNew("key" + i, i)
+    }
+
+    then:
+    map.size() == 1000
+    for (int i = 0; i < 1000; ++i) {
+      assert map.get("key" + i) == i
+    }
+    map.get("missing") == ObjectIntMap.ABSENT
+  }
+
+  def "clearing forgets all the keys"() {
+    setup:
+    ObjectIntMap map = new ObjectIntMap(8)
+    for (int i = 0; i < 100; ++i) {
+      map.putNew("key" + i, i)
+    }
+
+    when:
+    map.clear()
+
+    then:
+    map.size() == 0
+    for (int i = 0; i < 100; ++i) {
+      assert map.get("key" + i) == ObjectIntMap.ABSENT
+    }
+
+    when: "keys are added again after clearing"
+    for (int i = 0; i < 100; i += 2) {
+      map.putNew("key" + i, 100 - i)
+    }
+
+    then:
+    map.size() == 50
+    for (int i = 0; i < 100; ++i) {
+      assert map.get("key" + i) == (i % 2 == 0 ? 100 - i : ObjectIntMap.ABSENT)
+    }
+  }
+
+  def "generations survive many clears"() {
+    setup:
+    ObjectIntMap map = new ObjectIntMap(8)
+
+    when:
+    for (int round = 0; round < 10000; ++round) {
+      map.putNew("key" + (round % 7), round)
+      map.putNew(round, round)
+      assert map.get("key" + (round % 7)) == round
+      assert map.get(round - 1) == ObjectIntMap.ABSENT
+      map.clear()
+    }
+
+    then:
+    map.size() == 0
+  }
+}
@@ -128,10 +128,36 @@ class TraceMapperV05PayloadTest extends DDSpecification {
     100 << 10  | 100 << 10      | 1000       | false
   }
 
+  def "detached payloads are written correctly after the mapper is reset"() {
+    setup:
+    List<List<TraceGenerator.PojoSpan>> traces = generateRandomTraces(100, lowCardinality)
+    TraceMapperV0_5 traceMapper = new TraceMapperV0_5(100 << 10)
+    PayloadVerifier verifier = new PayloadVerifier(traces, traceMapper, 200 << 10, true)
+    MsgPackWriter packer = new MsgPackWriter(new FlushingBuffer(10 << 10, verifier))
+    when:
+    boolean tracesFitInBuffer = true
+    for (List<TraceGenerator.PojoSpan> trace : traces) {
+      if (!packer.format(trace, traceMapper)) {
+        verifier.skipLargeTrace()
+        tracesFitInBuffer = false
+      }
+    }
+    packer.flush()
+
+    then:
+    if (tracesFitInBuffer) {
+      verifier.verifyTracesConsumed()
+    }
+
+    where:
+    lowCardinality << [true, false]
+  }
+
   private static final class PayloadVerifier implements ByteBufferConsumer, WritableByteChannel {
 
     private final List<List<TraceGenerator.PojoSpan>> expectedTraces
     private final TraceMapperV0_5 mapper
+    private final boolean detach
     private ByteBuffer captured
 
     private int position = 0
@@ -141,8 +167,13 @@ class TraceMapperV05PayloadTest extends DDSpecification {
     }
 
     private PayloadVerifier(List<List<TraceGenerator.PojoSpan>> traces, TraceMapperV0_5 mapper, int size) {
+      this (traces, mapper, size, false)
+    }
+
+    private PayloadVerifier(List<List<TraceGenerator.PojoSpan>> traces, TraceMapperV0_5 mapper, int size, boolean detach) {
       this.expectedTraces = traces
       this.mapper = mapper
+      this.detach = detach
       this.captured = ByteBuffer.allocate(size)
     }
 
@@ -152,8 +183,13 @@ class TraceMapperV05PayloadTest extends DDSpecification {
 
     @Override
     void accept(int messageCount, ByteBuffer buffer) {
+      Payload payload = mapper.newPayload().withBody(messageCount, buffer)
+      if (detach) {
+        // detached payloads own a copy of the dictionary, recycled across flushes
+        payload = payload.detach()
+        mapper.reset()
+      }
       try {
-        Payload payload = mapper.newPayload().withBody(messageCount, buffer)
         payload.writeTo(this)
         captured.flip()
         MessageUnpacker unpacker = MessagePack.newDefaultUnpacker(captured)
@@ -269,6 +305,7 @@ class TraceMapperV05PayloadTest extends DDSpecification {
       } catch (IOException e) {
         Assert.fail(e.getMessage())
       } finally {
+        payload.release()
         mapper.reset()
         captured.position(0)
         captured.limit(captured.capacity())
@@ -0,0 +1,89 @@
+package datadog.trace.core
+
+import datadog.trace.common.writer.ListWriter
+import datadog.trace.core.test.DDCoreSpecification
+
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+
+class FinishedSpansTest extends DDCoreSpecification {
+
+  def writer = new ListWriter()
+  def tracer = tracerBuilder().writer(writer).build()
+
+  def cleanup() {
+    tracer.close()
+  }
+
+  def "drain returns spans most recently finished first"() {
+    setup:
+    def buffer = new FinishedSpans()
+    def spans = (0..<count).collect { tracer.buildSpan("span" + it).start() }
+
+    when:
+    spans.each { buffer.add(it) }
+
+    then:
+    buffer.size() == count
+    buffer.asList() == spans
+
+    when:
+    def drained = buffer.drain()
+
+    then:
+    drained == spans.reverse()
+    buffer.isEmpty()
+    buffer.size() == 0
+    buffer.drain().isEmpty()
+
+    where:
+    count << [1, 8, 9, 100]
+  }
+
+  def "appending after a drain starts a new batch"() {
+    setup:
+    def buffer = new FinishedSpans()
+    def first = tracer.buildSpan("first").start()
+    def second = tracer.buildSpan("second").start()
+
+    when:
+    buffer.add(first)
+    def drained = buffer.drain()
+    buffer.add(second)
+
+    then:
+    drained == [first]
+    buffer.asList() == [second]
+    buffer.drain() == [second]
+  }
+
+  def "concurrent appenders don't lose spans"() {
+    setup:
+    def buffer = new FinishedSpans()
+    def span = tracer.buildSpan("span").start()
+    int threads = 4
+    int perThread = 10_000
+    def executor = Executors.newFixedThreadPool(threads)
+    def done = new CountDownLatch(threads)
+
+    when:
+    threads.times {
+      executor.submit {
+        perThread.times { buffer.add(span) }
+        done.countDown()
+      }
+    }
+    int drained = 0
+    while (done.count > 0 || !buffer.isEmpty()) {
+      def batch = buffer.drain()
+      assert !batch.contains(null)
+      drained += batch.size()
+    }
+
+    then:
+    drained == threads * perThread
+
+    cleanup:
+    executor.shutdownNow()
+  }
+}
@@ -5,6 +5,7 @@ import datadog.trace.SamplingPriorityMetadataChecker
 import datadog.trace.api.DDId
 import datadog.trace.api.StatsDClient
 import datadog.trace.api.sampling.PrioritySampling
+import datadog.trace.api.time.ControllableTimeSource
 import datadog.trace.api.time.SystemTimeSource
 import datadog.trace.bootstrap.instrumentation.api.AgentTracer.NoopPathwayContext
 import datadog.trace.bootstrap.instrumentation.api.ScopeSource
@@ -299,6 +300,11 @@ class PendingTraceBufferTest extends DDSpecification {
           return false
         }
 
+        @Override
+        long lastReferenced() {
+          return System.nanoTime()
+        }
+
         @Override
         void write() {
           counter.incrementAndGet()
@@ -375,6 +381,73 @@ class PendingTraceBufferTest extends DDSpecification {
     }
   }
 
+  def "timer wheel buffer writes idle and flushed traces"() {
+    setup:
+    def wheelBuffer = PendingTraceBuffer.delaying(SystemTimeSource.INSTANCE, true)
+    wheelBuffer.start()
+    def idle = new CountDownLatch(1)
+    def flushed = new AtomicInteger(0)
+    def idleElement = Stub(PendingTraceBuffer.Element) {
+      oldestFinishedTime() >> TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis())
+      lastReferencedNanosAgo(_) >> true
+      setEnqueued(_) >> true
+      write() >> { idle.countDown() }
+    }
+    def busyElement = Stub(PendingTraceBuffer.Element) {
+      oldestFinishedTime() >> TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis())
+      lastReferencedNanosAgo(_) >> false
+      setEnqueued(_) >> true
+      write() >> { flushed.incrementAndGet() }
+    }
+
+    when:
+    wheelBuffer.enqueue(idleElement)
+    wheelBuffer.enqueue(busyElement)
+
+    then:
+    idle.await(3, TimeUnit.SECONDS)
+    flushed.get() == 0
+
+    when:
+    wheelBuffer.flush()
+
+    then:
+    flushed.get() == 1
+
+    cleanup:
+    wheelBuffer.close()
+  }
+
+  def "timer wheel buffer checks traces when they have been idle long enough"() {
+    setup:
+    def timeSource = new ControllableTimeSource()
+    timeSource.set(TimeUnit.SECONDS.toNanos(10))
+    def wheelBuffer = PendingTraceBuffer.delaying(timeSource, true)
+    wheelBuffer.start()
+    def written = new CountDownLatch(1)
+    def lastReferenced = timeSource.getNanoTicks()
+    def element = Stub(PendingTraceBuffer.Element) {
+      oldestFinishedTime() >> timeSource.getNanoTicks()
+      lastReferenced() >> lastReferenced
+      lastReferencedNanosAgo(_) >> { long nanos -> nanos < timeSource.getNanoTicks() - lastReferenced }
+      setEnqueued(_) >> true
+      write() >> { written.countDown() }
+    }
+
+    when: "the trace is enqueued 400ms after it was last referenced"
+    timeSource.advance(TimeUnit.MILLISECONDS.toNanos(400))
+    wheelBuffer.enqueue(element)
+
+    and: "it becomes idle for longer than the send delay 150ms later"
+    timeSource.advance(TimeUnit.MILLISECONDS.toNanos(150))
+
+    then: "it is written without waiting for a full send delay after it was enqueued"
+    written.await(3, TimeUnit.SECONDS)
+
+    cleanup:
+    wheelBuffer.close()
+  }
+
   def addContinuation(DDSpan span) {
     def scope = scopeManager.activate(span, ScopeSource.INSTRUMENTATION, true)
     continuations << scope.capture()
@@ -0,0 +1,66 @@
+package datadog.trace.core
+
+import datadog.trace.test.util.DDSpecification
+
+class PendingTraceWheelTest extends DDSpecification {
+
+  static final long TICK = 10
+
+  def wheel = new PendingTraceWheel(TICK, 52, 0)
+
+  def "elements expire once their deadline has passed"() {
+    setup:
+    def early = Mock(PendingTraceBuffer.Element)
+    def late = Mock(PendingTraceBuffer.Element)
+    wheel.schedule(early, 25)
+    wheel.schedule(late, 300)
+
+    expect:
+    wheel.size() == 2
+    wheel.pollExpired(20) == null
+    wheel.pollExpired(30) == early
+    wheel.pollExpired(30) == null
+    wheel.pollExpired(299) == null
+    wheel.pollExpired(300) == late
+    wheel.isEmpty()
+  }
+
+  def "deadlines beyond the wheel span are capped"() {
+    setup:
+    def element = Mock(PendingTraceBuffer.Element)
+    wheel.schedule(element, 10 * wheel.spanNanos())
+
+    expect:
+    wheel.pollExpired(wheel.spanNanos() - 1) == null
+    wheel.pollExpired(wheel.spanNanos()) == element
+  }
+
+  def "deadlines in the past expire at the end of the current tick"() {
+    setup:
+    def element = Mock(PendingTraceBuffer.Element)
+    wheel.pollExpired(1000)
+    wheel.schedule(element, 0)
+
+    expect:
+    wheel.nanosToNextTick(1005) == 5
+    wheel.pollExpired(1005) == null
+    wheel.pollExpired(1010) == element
+  }
+
+  def "poll returns elements regardless of their deadline"() {
+    setup:
+    def elements = (0..<5).collect { Mock(PendingTraceBuffer.Element) }
+    elements.eachWithIndex { element, i -> wheel.schedule(element, 100 * i) }
+
+    when:
+    def polled = []
+    def element
+    while ((element = wheel.poll()) != null) {
+      polled << element
+    }
+
+    then:
+    polled as Set == elements as Set
+    wheel.isEmpty()
+  }
+}
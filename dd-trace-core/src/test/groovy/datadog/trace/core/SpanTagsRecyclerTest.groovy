@@ -0,0 +1,84 @@
+package datadog.trace.core
+
+import datadog.trace.api.DDTags
+import datadog.trace.common.writer.ListWriter
+import datadog.trace.core.test.DDCoreSpecification
+
+class SpanTagsRecyclerTest extends DDCoreSpecification {
+
+  def writer
+  def tracer
+
+  def setup() {
+    writer = new ListWriter()
+    tracer = tracerBuilder().writer(writer).build()
+  }
+
+  def cleanup() {
+    tracer.close()
+  }
+
+  def "recycled span ignores tag writes and reports no tags"() {
+    setup:
+    def span = tracer.buildSpan("fakeOperation").start()
+    span.setTag("some.tag", "asdf")
+    span.finish()
+    writer.waitForTraces(1)
+
+    when:
+    SpanTagsRecycler.recycleTags(writer.firstTrace())
+    span.setTag("late.tag", "late")
+    span.setMetric("late.metric", 1)
+
+    then:
+    span.getTag("some.tag") == null
+    span.getTag("late.tag") == null
+    span.getTag("late.metric") == null
+    span.context().getTags().keySet() == [DDTags.THREAD_NAME, DDTags.THREAD_ID] as Set
+  }
+
+  def "late writes through a recycled span do not reach the new owner of the storage"() {
+    setup:
+    def span = tracer.buildSpan("fakeOperation").start()
+    span.finish()
+    writer.waitForTraces(1)
+    SpanTagsRecycler.recycleTags(writer.firstTrace())
+
+    when:
+    def next = tracer.buildSpan("nextOperation").start()
+    next.setTag("next.tag", "value")
+    span.setTag("late.tag", "late")
+
+    then:
+    next.getTag("next.tag") == "value"
+    next.getTag("late.tag") == null
+
+    cleanup:
+    next.finish()
+  }
+
+  def "recycling a trace twice is harmless"() {
+    setup:
+    def span = tracer.buildSpan("fakeOperation").start()
+    span.finish()
+    writer.waitForTraces(1)
+
+    expect:
+    span.context().recycleTags() != null
+    span.context().recycleTags() == null
+  }
+
+  def "large tag storage is not recycled"() {
+    setup:
+    def span = tracer.buildSpan("fakeOperation").start()
+    for (int i = 0; i <= SpanTagsRecycler.MAX_RECYCLED_SIZE; ++i) {
+      span.setTag("tag." + i, i)
+    }
+    span.finish()
+    writer.waitForTraces(1)
+
+    expect:
+    span.context().recycleTags() == null
+    span.getTag("tag.0") == 0
+  }
+}
@@ -0,0 +1,138 @@
+package datadog.trace.core
+
+import datadog.communication.serialization.Writable
+import datadog.trace.test.util.DDSpecification
+
+class TagMapTest extends DDSpecification {
+
+  def "behaves like an insertion ordered map"() {
+    setup:
+    def tags = new TagMap(4)
+    def expected = new LinkedHashMap<String, Object>()
+
+    when:
+    for (int i = 0; i < 100; i++) {
+      tags.put("key" + i, "value" + i)
+      expected.put("key" + i, "value" + i)
+      if (i % 3 == 0) {
+        tags.remove("key" + (i / 2 as int))
+        expected.remove("key" + (i / 2 as int))
+      }
+    }
+
+    then:
+    tags == expected
+    tags.size() == expected.size()
+    new ArrayList<>(tags.keySet()) == new ArrayList<>(expected.keySet())
+    tags.get("missing") == null
+    !tags.containsKey("missing")
+  }
+
+  def "put returns the previous value"() {
+    setup:
+    def tags = new TagMap()
+
+    expect:
+    tags.put("key", "first") == null
+    tags.put("key", "second") == "first"
+    tags.size() == 1
+    tags.remove("key") == "second"
+    tags.isEmpty()
+  }
+
+  def "primitive values are boxed when read through the map view"() {
+    setup:
+    def tags = new TagMap()
+
+    when:
+    tags.setInt("int", 1)
+    tags.setLong("long", 2L)
+    tags.setFloat("float", 3.5f)
+    tags.setDouble("double", 4.5d)
+    tags.set("string", "value")
+
+    then:
+    tags.get("int") == 1
+    tags.get("int") instanceof Integer
+    tags.get("long") == 2L
+    tags.get("long") instanceof Long
+    tags.get("float") == 3.5f
+    tags.get("float") instanceof Float
+    tags.get("double") == 4.5d
+    tags.get("double") instanceof Double
+    tags.get("string") == "value"
+  }
+
+  def "overwriting a primitive with an object changes its type"() {
+    setup:
+    def tags = new TagMap()
+    tags.setLong("key", 10L)
+
+    when:
+    tags.set("key", "ten")
+    int position = tags.first()
+
+    then:
+    tags.typeAt(position) == TagMap.OBJECT
+    !tags.isNumberAt(position)
+    tags.get("key") == "ten"
+  }
+
+  def "numbers are written without boxing"() {
+    setup:
+    def tags = new TagMap()
+    def writable = Mock(Writable)
+    tags.setInt("int", 1)
+    tags.setLong("long", 2L)
+    tags.setFloat("float", 3.5f)
+    tags.setDouble("double", 4.5d)
+    tags.set("boxed", 5)
+
+    when:
+    for (int i = tags.first(); i >= 0; i = tags.next(i)) {
+      assert tags.isNumberAt(i)
+      tags.writeNumberAt(i, writable)
+    }
+
+    then:
+    1 * writable.writeInt(1)
+    1 * writable.writeLong(2L)
+    1 * writable.writeFloat(3.5f)
+    1 * writable.writeDouble(4.5d)
+    1 * writable.writeObject(5, null)
+    0 * _
+  }
+
+  def "iterator remove and clear leave the map reusable"() {
+    setup:
+    def tags = new TagMap()
+    (0..<20).each { tags.setInt("key" + it, it) }
+
+    when:
+    def iterator = tags.entrySet().iterator()
+    while (iterator.hasNext()) {
+      if ((iterator.next().value as int) % 2 == 0) {
+        iterator.remove()
+      }
+    }
+
+    then:
+    tags.size() == 10
+    tags.keySet().every { (it.substring(3) as int) % 2 == 1 }
+
+    when:
+    tags.clear()
+    tags.set("other", "value")
+
+    then:
+    tags.size() == 1
+    tags.first() == 0
+    tags.next(0) == -1
+    tags == [other: "value"]
+  }
+
+  def "fromMap copies all entries"() {
+    expect:
+    TagMap.fromMap([a: 1, b: "two"]) == [a: 1, b: "two"]
+  }
+}
@@ -133,6 +133,53 @@ class HealthMetricsTest extends DDSpecification {
     0 * _
   }
 
+  def "test onSendBackpressure"() {
+    when:
+    healthMetrics.onSendBackpressure(TimeUnit.MILLISECONDS.toNanos(millis))
+
+    then:
+    1 * statsD.incrementCounter('flush.backpressure.total')
+    1 * statsD.count('flush.backpressure.time', millis)
+    0 * _
+
+    where:
+    millis = ThreadLocalRandom.current().nextInt(10000)
+  }
+
+  def "test onStatsAggregatesEvicted"() {
+    when:
+    healthMetrics.onStatsAggregatesEvicted(count)
+
+    then:
+    1 * statsD.count('stats.aggregates.evicted', count)
+    0 * _
+
+    where:
+    count = ThreadLocalRandom.current().nextInt(1, 10000)
+  }
+
+  def "test onStatsAggregatesFolded"() {
+    when:
+    healthMetrics.onStatsAggregatesFolded(count)
+
+    then:
+    1 * statsD.count('stats.aggregates.folded', count)
+    0 * _
+
+    where:
+    count = ThreadLocalRandom.current().nextInt(1, 10000)
+  }
+
+  def "test onCompressedSend"() {
+    when:
+    healthMetrics.onCompressedSend(4000, 1000)
+
+    then:
+    1 * statsD.count('flush.bytes.compressed', 1000)
+    1 * statsD.gauge('flush.compression.ratio', 0.25d)
+    0 * _
+  }
+
   def "test onSend"() {
     when:
     healthMetrics.onSend(traceCount, sendSize, response)
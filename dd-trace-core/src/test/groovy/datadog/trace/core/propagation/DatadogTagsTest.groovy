@@ -67,6 +67,23 @@ class DatadogTagsTest extends DDCoreSpecification {
     "_dd.p.dm=934086a665-12b"                                                                                                    | null                                       | ["_dd.propagation_error": "decoding_error"] // invalid dm tag value sampling mechanism contains invalid char
   }
 
+  def propagateUnchangedHeaderValueVerbatim() {
+    setup:
+    def datadogTags = DatadogTags.factory(512).fromHeaderValue(headerValue)
+
+    expect:
+    datadogTags.headerValue().is(headerValue) == verbatim
+    datadogTags.createTagMap() == tags
+    datadogTags.headerValue().is(headerValue) == verbatim
+
+    where:
+    headerValue                                     | verbatim | tags
+    "_dd.p.dm=934086a686-4"                         | true     | ["_dd.p.dm": "934086a686-4"]
+    "_dd.p.dm=934086a686-4,_dd.p.anytag=value"      | true     | ["_dd.p.dm": "934086a686-4", "_dd.p.anytag": "value"]
+    "_dd.b.somekey=value,_dd.p.anytag=value"        | false    | ["_dd.p.anytag": "value"]
+    "_dd.p.anytag=value,"                           | false    | ["_dd.p.anytag": "value"]
+  }
+
   def updateDatadogTagsSamplingMechanism() {
     setup:
     def config = Mock(Config)
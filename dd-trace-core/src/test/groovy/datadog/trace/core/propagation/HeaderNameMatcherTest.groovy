@@ -0,0 +1,51 @@
+package datadog.trace.core.propagation
+
+import datadog.trace.test.util.DDSpecification
+
+import static datadog.trace.core.propagation.HeaderNameMatcher.NO_MATCH
+
+class HeaderNameMatcherTest extends DDSpecification {
+
+  def "match header names ignoring case"() {
+    setup:
+    def matcher = new HeaderNameMatcher("x-datadog-trace-id", "x-datadog-parent-id", "user-agent")
+
+    expect:
+    matcher.match(key) == expected
+
+    where:
+    key                                        | expected
+    "x-datadog-trace-id"                       | 0
+    "X-Datadog-Trace-Id"                       | 0
+    "X-DATADOG-PARENT-ID"                      | 1
+    "User-Agent"                               | 2
+    "user-agent"                               | 2
+    "x-datadog-trace"                          | NO_MATCH
+    "x-datadog-trace-idx"                      | NO_MATCH
+    "user-agent-but-much-longer-than-any-name" | NO_MATCH
+    "x-b3-traceid"                             | NO_MATCH
+    ""                                         | NO_MATCH
+  }
+
+  def "match every name of a large set"() {
+    setup:
+    def names = (0..<200).collect { "header-$it".toString() }
+    def matcher = new HeaderNameMatcher(names)
+
+    expect:
+    names.eachWithIndex { name, i ->
+      assert matcher.match(name) == i
+      assert matcher.match(name.toUpperCase()) == i
+    }
+    matcher.match("header-200") == NO_MATCH
+  }
+
+  def "empty matcher matches nothing"() {
+    setup:
+    def matcher = new HeaderNameMatcher()
+
+    expect:
+    matcher.match("anything") == NO_MATCH
+    matcher.match("") == NO_MATCH
+  }
+}
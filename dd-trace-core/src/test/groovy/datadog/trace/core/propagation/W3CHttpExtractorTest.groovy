@@ -0,0 +1,171 @@
+package datadog.trace.core.propagation
+
+import datadog.trace.api.DDId
+import datadog.trace.bootstrap.instrumentation.api.ContextVisitors
+import datadog.trace.bootstrap.instrumentation.api.TagContext
+import datadog.trace.test.util.DDSpecification
+
+import static datadog.trace.api.sampling.PrioritySampling.*
+
+class W3CHttpExtractorTest extends DDSpecification {
+
+  HttpCodec.Extractor extractor = W3CHttpCodec.newExtractor(["SOME_HEADER": "some-tag"])
+
+  def "extract traceparent"() {
+    setup:
+    def headers = [
+      'Traceparent': "00-0000000000000000${traceId.padLeft(16, '0')}-${spanId.padLeft(16, '0')}-$flags",
+      SOME_HEADER  : "my-interesting-info"
+    ]
+
+    when:
+    final ExtractedContext context = extractor.extract(headers, ContextVisitors.stringValuesMap())
+
+    then:
+    context.traceId == DDId.fromHex(traceId)
+    context.spanId == DDId.fromHex(spanId)
+    context.samplingPriority == expectedSamplingPriority
+    context.tags == ["some-tag": "my-interesting-info"]
+    context.origin == null
+
+    where:
+    traceId        | spanId           | flags | expectedSamplingPriority
+    "1"            | "2"              | "01"  | SAMPLER_KEEP
+    "2"            | "3"              | "00"  | SAMPLER_DROP
+    "f" * 16       | "f" * 15 + "e"   | "03"  | SAMPLER_KEEP
+    "f" * 15 + "e" | "f" * 16         | "02"  | SAMPLER_DROP
+  }
+
+  def "extract 128-bit trace id while retaining the original"() {
+    setup:
+    def headers = [
+      'traceparent': "00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01"
+    ]
+
+    when:
+    final ExtractedContext context = extractor.extract(headers, ContextVisitors.stringValuesMap())
+
+    then:
+    context.traceId == DDId.fromHex("a3ce929d0e0e4736")
+    context.traceId.toHexStringOrOriginal() == "4bf92f3577b34da6a3ce929d0e0e4736"
+    context.spanId == DDId.fromHex("f067aa0ba902b7")
+  }
+
+  def "extract 128-bit trace id with all zero lower bits"() {
+    setup:
+    def headers = [
+      'traceparent': "00-4bf92f3577b34da60000000000000000-00f067aa0ba902b7-01"
+    ]
+
+    when:
+    final ExtractedContext context = extractor.extract(headers, ContextVisitors.stringValuesMap())
+
+    then:
+    context.traceId == DDId.fromHex("4bf92f3577b34da6")
+    context.traceId.toHexStringOrOriginal() == "4bf92f3577b34da60000000000000000"
+    context.spanId == DDId.fromHex("f067aa0ba902b7")
+  }
+
+  def "extract datadog state from tracestate"() {
+    setup:
+    def headers = [
+      'traceparent': "00-00000000000000000000000000000001-0000000000000002-$flags",
+      'tracestate' : tracestate
+    ]
+
+    when:
+    final ExtractedContext context = extractor.extract(headers, ContextVisitors.stringValuesMap())
+
+    then:
+    context.samplingPriority == expectedSamplingPriority
+    context.origin == expectedOrigin
+    context.datadogTags?.headerValue() == expectedDatadogTags
+
+    where:
+    flags | tracestate                                   | expectedSamplingPriority | expectedOrigin | expectedDatadogTags
+    "01"  | "dd=s:2;o:rum;t.dm:-4"                       | USER_KEEP                | "rum"          | "_dd.p.dm=-4"
+    "00"  | "dd=s:-1"                                    | USER_DROP                | null           | null
+    "00"  | "dd=s:2;o:synthetics"                        | SAMPLER_DROP             | "synthetics"   | null
+    "01"  | "congo=t61rcWkgMzE, dd=s:1;o:a~b;t.usr:xyz"  | SAMPLER_KEEP             | "a=b"          | "_dd.p.usr=xyz"
+    "01"  | "congo=t61rcWkgMzE"                          | SAMPLER_KEEP             | null           | null
+    "01"  | "dd=s:oops"                                  | SAMPLER_KEEP             | null           | null
+  }
+
+  def "keep the tracestate members of other vendors"() {
+    setup:
+    def headers = [
+      'traceparent': "00-00000000000000000000000000000001-0000000000000002-01",
+      'tracestate' : tracestate
+    ]
+
+    when:
+    final ExtractedContext context = extractor.extract(headers, ContextVisitors.stringValuesMap())
+
+    then:
+    context.vendorTraceState == expectedVendorTraceState
+
+    where:
+    tracestate                                           | expectedVendorTraceState
+    "dd=s:1"                                             | null
+    "congo=t61rcWkgMzE"                                  | "congo=t61rcWkgMzE"
+    "rojo=00f067aa0ba902b7, dd=s:1 ,\tcongo=t61rcWkgMzE" | "rojo=00f067aa0ba902b7,congo=t61rcWkgMzE"
+    "congo=t61rcWkgMzE,,dd=s:1,dd=s:2"                   | "congo=t61rcWkgMzE"
+    "dd=s:oops,congo=t61rcWkgMzE"                        | "congo=t61rcWkgMzE"
+    (1..40).collect { "v$it=x" }.join(",")               | (1..31).collect { "v$it=x" }.join(",")
+  }
+
+  def "ignore tracestate without traceparent"() {
+    expect:
+    extractor.extract(['tracestate': "dd=s:2;o:rum"], ContextVisitors.stringValuesMap()) == null
+  }
+
+  def "no context with invalid traceparent"() {
+    setup:
+    def headers = [
+      'traceparent': traceparent,
+      SOME_HEADER  : "my-interesting-info"
+    ]
+
+    when:
+    TagContext context = extractor.extract(headers, ContextVisitors.stringValuesMap())
+
+    then:
+    !(context instanceof ExtractedContext)
+
+    where:
+    traceparent                                                      | _
+    ""                                                               | _
+    "00-00000000000000000000000000000001-0000000000000002-0"         | _
+    "00-00000000000000000000000000000001-0000000000000002-01-extra"  | _
+    "ff-00000000000000000000000000000001-0000000000000002-01"        | _
+    "00-00000000000000000000000000000000-0000000000000002-01"        | _
+    "00-00000000000000000000000000000001-0000000000000000-01"        | _
+    "00-0000000000000000000000000000000A-0000000000000002-01"        | _
+    "00-00000000000000000000000000000001_0000000000000002-01"        | _
+    "00-0000000000000000000000000000000g-0000000000000002-01"        | _
+  }
+
+  def "accept future versions with more fields"() {
+    setup:
+    def headers = [
+      'traceparent': "cc-00000000000000000000000000000001-0000000000000002-01-what-the-future-will-be"
+    ]
+
+    when:
+    final ExtractedContext context = extractor.extract(headers, ContextVisitors.stringValuesMap())
+
+    then:
+    context.traceId.toLong() == 1
+    context.spanId.toLong() == 2
+    context.samplingPriority == SAMPLER_KEEP
+  }
+
+  def "extract header tags with no propagation"() {
+    when:
+    TagContext context = extractor.extract([SOME_HEADER: "my-interesting-info"], ContextVisitors.stringValuesMap())
+
+    then:
+    !(context instanceof ExtractedContext)
+    context.getTags() == ["some-tag": "my-interesting-info"]
+  }
+}
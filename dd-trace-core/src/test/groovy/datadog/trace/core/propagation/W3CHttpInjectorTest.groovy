@@ -0,0 +1,120 @@
+package datadog.trace.core.propagation
+
+import datadog.trace.api.DDId
+import datadog.trace.bootstrap.instrumentation.api.AgentTracer.NoopPathwayContext
+import datadog.trace.bootstrap.instrumentation.api.ContextVisitors
+import datadog.trace.common.writer.ListWriter
+import datadog.trace.core.DDSpanContext
+import datadog.trace.core.test.DDCoreSpecification
+
+import static datadog.trace.api.sampling.PrioritySampling.*
+import static datadog.trace.core.propagation.W3CHttpCodec.TRACE_PARENT_KEY
+import static datadog.trace.core.propagation.W3CHttpCodec.TRACE_STATE_KEY
+
+class W3CHttpInjectorTest extends DDCoreSpecification {
+
+  HttpCodec.Injector injector = W3CHttpCodec.INJECTOR
+
+  def "inject http headers"() {
+    setup:
+    def writer = new ListWriter()
+    def tracer = tracerBuilder().writer(writer).build()
+    final DDSpanContext mockedContext = context(tracer, traceId, samplingPriority, origin, datadogTags)
+    final Map<String, String> carrier = Mock()
+
+    when:
+    injector.inject(mockedContext, carrier, MapSetter.INSTANCE)
+
+    then:
+    1 * carrier.put(TRACE_PARENT_KEY, expectedTraceParent)
+    if (expectedTraceState != null) {
+      1 * carrier.put(TRACE_STATE_KEY, expectedTraceState)
+    }
+    0 * _
+
+    cleanup:
+    tracer.close()
+
+    where:
+    traceId                         | samplingPriority | origin      | datadogTags                     | expectedTraceParent                                       | expectedTraceState
+    DDId.from(1)                    | UNSET            | null        | null                            | "00-00000000000000000000000000000001-0000000000000002-00" | null
+    DDId.from(1)                    | SAMPLER_KEEP     | null        | null                            | "00-00000000000000000000000000000001-0000000000000002-01" | "dd=s:1"
+    DDId.from(1)                    | USER_DROP        | "rum"       | null                            | "00-00000000000000000000000000000001-0000000000000002-00" | "dd=s:-1;o:rum"
+    DDId.MAX                        | USER_KEEP        | "a=b,c;d"   | "_dd.p.dm=-4,_dd.p.usr=xyz"     | "00-0000000000000000ffffffffffffffff-0000000000000002-01" | "dd=s:2;o:a~b_c_d;t.dm:-4;t.usr:xyz"
+    DDId.fromHexTruncatedWithOriginal("4bf92f3577b34da6a3ce929d0e0e4736") | SAMPLER_DROP | null | null | "00-4bf92f3577b34da6a3ce929d0e0e4736-0000000000000002-00" | "dd=s:0"
+  }
+
+  def "inject what was extracted"() {
+    setup:
+    def writer = new ListWriter()
+    def tracer = tracerBuilder().writer(writer).build()
+    def headers = [
+      'traceparent': "00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01",
+      'tracestate' : "dd=s:2;o:rum;t.dm:-4"
+    ]
+    ExtractedContext extracted =
+      W3CHttpCodec.newExtractor(Collections.emptyMap()).extract(headers, ContextVisitors.stringValuesMap())
+    final DDSpanContext mockedContext =
+      context(tracer, extracted.traceId, extracted.samplingPriority, extracted.origin, extracted.datadogTags.headerValue())
+    final Map<String, String> carrier = Mock()
+
+    when:
+    injector.inject(mockedContext, carrier, MapSetter.INSTANCE)
+
+    then:
+    1 * carrier.put(TRACE_PARENT_KEY, "00-4bf92f3577b34da6a3ce929d0e0e4736-0000000000000002-01")
+    1 * carrier.put(TRACE_STATE_KEY, "dd=s:2;o:rum;t.dm:-4")
+    0 * _
+
+    cleanup:
+    tracer.close()
+  }
+
+  def "inject the tracestate members of other vendors after the dd member"() {
+    setup:
+    def writer = new ListWriter()
+    def tracer = tracerBuilder().writer(writer).build()
+    final DDSpanContext mockedContext = context(tracer, DDId.from(1), samplingPriority, null, null)
+    mockedContext.setVendorTraceState("rojo=00f067aa0ba902b7,congo=t61rcWkgMzE")
+    final Map<String, String> carrier = Mock()
+
+    when:
+    injector.inject(mockedContext, carrier, MapSetter.INSTANCE)
+
+    then:
+    1 * carrier.put(TRACE_PARENT_KEY, _)
+    1 * carrier.put(TRACE_STATE_KEY, expectedTraceState)
+    0 * _
+
+    cleanup:
+    tracer.close()
+
+    where:
+    samplingPriority | expectedTraceState
+    UNSET            | "rojo=00f067aa0ba902b7,congo=t61rcWkgMzE"
+    USER_KEEP        | "dd=s:2,rojo=00f067aa0ba902b7,congo=t61rcWkgMzE"
+  }
+
+  private static DDSpanContext context(tracer, DDId traceId, int samplingPriority, String origin, String datadogTags) {
+    return new DDSpanContext(
+      traceId,
+      DDId.from(2),
+      DDId.ZERO,
+      null,
+      "fakeService",
+      "fakeOperation",
+      "fakeResource",
+      samplingPriority,
+      origin,
+      [:],
+      false,
+      "fakeType",
+      0,
+      tracer.pendingTraceFactory.create(DDId.ONE),
+      null,
+      null,
+      NoopPathwayContext.INSTANCE,
+      false,
+      datadogTags == null ? DatadogTags.factory().empty() : DatadogTags.factory().fromHeaderValue(datadogTags))
+  }
+}
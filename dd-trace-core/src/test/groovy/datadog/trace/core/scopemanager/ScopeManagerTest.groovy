@@ -452,6 +452,32 @@ class ScopeManagerTest extends DDCoreSpecification {
     assertEvents([ACTIVATE, ACTIVATE, CLOSE, ACTIVATE, CLOSE])
   }
 
+  def "deep stacks unwind in order"() {
+    setup:
+    def spans = (0..<40).collect { tracer.buildSpan("span-$it").start() }
+
+    when:
+    def scopes = spans.collect { tracer.activateSpan(it) }
+
+    then:
+    scopeManager.scopeStack().depth() == 40
+    scopeManager.activeSpan() == spans[39]
+
+    when:
+    for (int i = 39; i > 0; --i) {
+      scopes[i].close()
+      assert scopeManager.activeSpan() == spans[i - 1]
+    }
+    scopes[0].close()
+
+    then:
+    scopeManager.scopeStack().depth() == 0
+    scopeManager.active() == null
+
+    cleanup:
+    spans.reverse().each { it.finish() }
+  }
+
   def "closing scope out of order - simple"() {
     when:
     AgentSpan firstSpan = tracer.buildSpan("foo").start()
@@ -0,0 +1,227 @@
+package datadog.trace.core.scopemanager
+
+import datadog.trace.api.StatsDClient
+import datadog.trace.bootstrap.instrumentation.api.AgentTracer.NoopAgentScope
+import datadog.trace.bootstrap.instrumentation.api.ScopeSource
+import datadog.trace.common.writer.ListWriter
+import datadog.trace.core.CoreTracer
+import datadog.trace.core.test.DDCoreSpecification
+
+class ScopeRecyclingTest extends DDCoreSpecification {
+
+  ListWriter writer
+  CoreTracer tracer
+  ContinuableScopeManager scopeManager
+
+  def setup() {
+    writer = new ListWriter()
+    scopeManager = new ContinuableScopeManager(0, StatsDClient.NO_OP, false, true, true)
+    tracer = tracerBuilder().writer(writer).scopeManager(scopeManager).build()
+  }
+
+  def cleanup() {
+    tracer.close()
+  }
+
+  def "closed scope is reused by the next activation through a new handle"() {
+    when:
+    def firstSpan = tracer.buildSpan("first").start()
+    def firstScope = tracer.activateSpan(firstSpan)
+    firstScope.close()
+    firstSpan.finish()
+    def secondSpan = tracer.buildSpan("second").start()
+    def secondScope = tracer.activateSpan(secondSpan)
+
+    then:
+    !secondScope.is(firstScope)
+    secondScope.scope.is(firstScope.scope)
+    secondScope.span() == secondSpan
+    firstScope.span() == firstSpan
+    scopeManager.active() == secondScope
+    scopeManager.activeSpan() == secondSpan
+
+    cleanup:
+    secondScope.close()
+    secondSpan.finish()
+  }
+
+  def "late close of a recycled scope is ignored"() {
+    setup:
+    def firstSpan = tracer.buildSpan("first").start()
+    def firstScope = tracer.activateSpan(firstSpan)
+    firstScope.close()
+    def secondSpan = tracer.buildSpan("second").start()
+    def secondScope = tracer.activateSpan(secondSpan)
+
+    when:
+    firstScope.close()
+
+    then:
+    scopeManager.active() == secondScope
+    scopeManager.activeSpan() == secondSpan
+    !firstScope.isAsyncPropagating()
+    firstScope.capture() == null
+
+    when:
+    secondScope.close()
+    secondScope.close()
+
+    then:
+    scopeManager.active() == null
+
+    cleanup:
+    secondSpan.finish()
+    firstSpan.finish()
+  }
+
+  def "continuation is reused once its scope is closed"() {
+    when:
+    def span = tracer.buildSpan("test").start()
+    def scope = tracer.activateSpan(span)
+    scope.setAsyncPropagation(true)
+    def continuation = scope.capture()
+    scope.close()
+    def continuedScope = continuation.activate()
+
+    then:
+    continuedScope.span() == span
+    scopeManager.active() == continuedScope
+
+    when:
+    continuedScope.close()
+    span.finish()
+    writer.waitForTraces(1)
+
+    then:
+    writer == [[span]]
+
+    when:
+    def nextSpan = tracer.buildSpan("next").start()
+    def nextScope = tracer.activateSpan(nextSpan)
+    nextScope.setAsyncPropagation(true)
+    def nextContinuation = nextScope.capture()
+
+    then:
+    !nextContinuation.is(continuation)
+    nextContinuation.continuation.is(continuation.continuation)
+    nextContinuation.span == nextSpan
+    continuation.span == span
+
+    cleanup:
+    nextContinuation.cancel()
+    nextScope.close()
+    nextSpan.finish()
+  }
+
+  def "late activate and cancel of a recycled continuation are ignored"() {
+    setup:
+    def span = tracer.buildSpan("test").start()
+    def scope = tracer.activateSpan(span)
+    scope.setAsyncPropagation(true)
+    def continuation = scope.capture()
+    continuation.activate().close()
+    def nextContinuation = scope.capture()
+
+    when:
+    def lateScope = continuation.activate()
+    continuation.cancel()
+
+    then:
+    lateScope == NoopAgentScope.INSTANCE
+    scopeManager.active() == scope
+
+    when: "the trace only completes once the live continuation is used"
+    scope.close()
+    span.finish()
+
+    then:
+    writer.isEmpty()
+
+    when:
+    nextContinuation.activate().close()
+    writer.waitForTraces(1)
+
+    then:
+    writer == [[span]]
+  }
+
+  def "canceled continuation can't be activated once recycled"() {
+    when:
+    def span = tracer.buildSpan("test").start()
+    def scope = tracer.activateSpan(span)
+    scope.setAsyncPropagation(true)
+    def continuation = scope.capture()
+    continuation.cancel()
+
+    then:
+    continuation.activate() == NoopAgentScope.INSTANCE
+    scopeManager.active() == scope
+
+    cleanup:
+    scope.close()
+    span.finish()
+  }
+
+  def "late close of a recycled continued scope is ignored"() {
+    setup:
+    def span = tracer.buildSpan("test").start()
+    def scope = tracer.activateSpan(span)
+    scope.setAsyncPropagation(true)
+    def continuedScope = scope.capture().activate()
+    continuedScope.close()
+    def nextContinuation = scope.capture()
+    def nextScope = nextContinuation.activate()
+
+    when:
+    continuedScope.close()
+
+    then:
+    scopeManager.active() == nextScope
+
+    when:
+    nextScope.close()
+    scope.close()
+    span.finish()
+    writer.waitForTraces(1)
+
+    then:
+    writer == [[span]]
+  }
+
+  def "iteration scopes are not reused"() {
+    when:
+    def firstSpan = tracer.buildSpan("first").start()
+    def firstScope = tracer.activateNext(firstSpan)
+    scopeManager.closePrevious(true)
+    def secondSpan = tracer.buildSpan("second").start()
+    def secondScope = tracer.activateSpan(secondSpan)
+
+    then:
+    !secondScope.scope.is(firstScope)
+    firstScope.span() == firstSpan
+
+    cleanup:
+    secondScope.close()
+    secondSpan.finish()
+  }
+
+  def "concurrent continuations are not reused"() {
+    when:
+    def span = tracer.buildSpan("test").start()
+    def scope = tracer.activateSpan(span)
+    scope.setAsyncPropagation(true)
+    def continuation = scope.captureConcurrent()
+    continuation.cancel()
+    def next = scope.captureConcurrent()
+
+    then:
+    !next.is(continuation)
+    scopeManager.activate(span, ScopeSource.INSTRUMENTATION).is(scope)
+
+    cleanup:
+    next.cancel()
+    scope.close()
+    scope.close()
+    span.finish()
+  }
+}
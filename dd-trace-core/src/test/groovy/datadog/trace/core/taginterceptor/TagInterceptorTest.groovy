@@ -575,4 +575,40 @@ class TagInterceptorTest extends DDCoreSpecification {
     cleanup:
     tracer.close()
   }
+
+  def "every tag handled by interceptTag needs intercept"() {
+    setup:
+    def interceptor = new TagInterceptor(false, "my-service", Collections.singleton("sn.tag1"), new RuleFlags())
+
+    expect:
+    TagInterceptor.InterceptedTag.values().every { interceptor.needsIntercept(it.tag) }
+    interceptor.needsIntercept("sn.tag1")
+    !interceptor.needsIntercept("some.tag")
+  }
+
+  def "needs intercept for #tag"() {
+    setup:
+    def interceptor = new TagInterceptor(false, "my-service", Collections.emptySet(), new RuleFlags())
+
+    expect:
+    interceptor.needsIntercept(tag)
+
+    where:
+    tag << [
+      DDTags.RESOURCE_NAME,
+      Tags.DB_STATEMENT,
+      DDTags.SERVICE_NAME,
+      "service",
+      Tags.PEER_SERVICE,
+      DDTags.MANUAL_KEEP,
+      DDTags.MANUAL_DROP,
+      InstrumentationTags.SERVLET_CONTEXT,
+      DDTags.SPAN_TYPE,
+      ANALYTICS_SAMPLE_RATE,
+      Tags.ERROR,
+      Tags.HTTP_STATUS,
+      DDTags.ORIGIN_KEY,
+      DDTags.MEASURED
+    ]
+  }
 }
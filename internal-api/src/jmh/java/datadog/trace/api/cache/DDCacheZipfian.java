@@ -0,0 +1,113 @@
+package datadog.trace.api.cache;
+
+import datadog.trace.api.function.Function;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Looks up keys drawn from a Zipfian distribution, with many more distinct keys than the cache can
+ * hold, like SQL queries or URL paths would be. The {@code hits} and {@code misses} counters give
+ * the hit rate of each cache, and the score the throughput including the cost of the misses. The
+ * lower the skew, the flatter the distribution and the harder it is to get hits.
+ */
+@State(Scope.Benchmark)
+public class DDCacheZipfian {
+
+  private static final int LOOKUPS = 1 << 20;
+
+  @Param({"fixed", "lfu"})
+  String cache;
+
+  @Param({"512"})
+  int capacity;
+
+  @Param({"100000"})
+  int distinctKeys;
+
+  @Param({"0.8", "1.0", "1.2"})
+  double skew;
+
+  private DDCache<String, String> ddCache;
+  private String[] lookups;
+
+  @Setup(Level.Trial)
+  public void init() {
+    ddCache =
+        "lfu".equals(cache)
+            ? DDCaches.<String, String>newFixedSizeLfuCache(capacity)
+            : DDCaches.<String, String>newFixedSizeCache(capacity);
+    String[] keys = new String[distinctKeys];
+    for (int i = 0; i < distinctKeys; ++i) {
+      keys[i] = "SELECT * FROM table_" + (i % 97) + " WHERE id = " + i;
+    }
+    // inverse transform sampling of the Zipfian distribution
+    double[] cumulative = new double[distinctKeys];
+    double sum = 0;
+    for (int i = 0; i < distinctKeys; ++i) {
+      sum += 1 / Math.pow(i + 1, skew);
+      cumulative[i] = sum;
+    }
+    Random random = new Random(0);
+    lookups = new String[LOOKUPS];
+    for (int i = 0; i < LOOKUPS; ++i) {
+      int rank = Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+      lookups[i] = keys[rank < 0 ? -rank - 1 : rank];
+    }
+  }
+
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class HitRate {
+    public long hits;
+    public long misses;
+    int position;
+
+    final Function<String, String> creator =
+        new Function<String, String>() {
+          @Override
+          public String apply(String key) {
+            ++misses;
+            // stands in for normalizing the key
+            return key.trim();
+          }
+        };
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      hits = 0;
+      misses = 0;
+      position = ThreadLocalRandom.current().nextInt(LOOKUPS);
+    }
+  }
+
+  @Benchmark
+  public String lookup(HitRate hitRate) {
+    return lookupNext(hitRate);
+  }
+
+  @Benchmark
+  @Threads(8)
+  public String lookupConcurrently(HitRate hitRate) {
+    return lookupNext(hitRate);
+  }
+
+  private String lookupNext(HitRate hitRate) {
+    String key = lookups[hitRate.position];
+    hitRate.position = (hitRate.position + 1) & (LOOKUPS - 1);
+    long misses = hitRate.misses;
+    String value = ddCache.computeIfAbsent(key, hitRate.creator);
+    if (misses == hitRate.misses) {
+      ++hitRate.hits;
+    }
+    return value;
+  }
+}
@@ -40,6 +40,7 @@ import static datadog.trace.api.ConfigDefaults.DEFAULT_HTTP_SERVER_ROUTE_BASED_N
 import static datadog.trace.api.ConfigDefaults.DEFAULT_HTTP_SERVER_TAG_QUERY_STRING;
 import static datadog.trace.api.ConfigDefaults.DEFAULT_IAST_DEDUPLICATION_ENABLED;
 import static datadog.trace.api.ConfigDefaults.DEFAULT_IAST_ENABLED;
+import static datadog.trace.api.ConfigDefaults.DEFAULT_IAST_ENDPOINT_SAMPLING_ENABLED;
 import static datadog.trace.api.ConfigDefaults.DEFAULT_IAST_MAX_CONCURRENT_REQUESTS;
 import static datadog.trace.api.ConfigDefaults.DEFAULT_IAST_REQUEST_SAMPLING;
 import static datadog.trace.api.ConfigDefaults.DEFAULT_IAST_VULNERABILITIES_PER_REQUEST;
@@ -81,6 +82,10 @@ import static datadog.trace.api.ConfigDefaults.DEFAULT_TRACE_ANNOTATIONS;
 import static datadog.trace.api.ConfigDefaults.DEFAULT_TRACE_ENABLED;
 import static datadog.trace.api.ConfigDefaults.DEFAULT_TRACE_EXECUTORS_ALL;
 import static datadog.trace.api.ConfigDefaults.DEFAULT_TRACE_METHODS;
+import static datadog.trace.api.ConfigDefaults.DEFAULT_TRACE_PAYLOAD_BUFFERS;
+import static datadog.trace.api.ConfigDefaults.DEFAULT_TRACE_PAYLOAD_COMPRESSION;
+import static datadog.trace.api.ConfigDefaults.DEFAULT_TRACE_PAYLOAD_COMPRESSION_LEVEL;
+import static datadog.trace.api.ConfigDefaults.DEFAULT_TRACE_PROCESSING_SHARDS;
 import static datadog.trace.api.ConfigDefaults.DEFAULT_TRACE_RATE_LIMIT;
 import static datadog.trace.api.ConfigDefaults.DEFAULT_TRACE_REPORT_HOSTNAME;
 import static datadog.trace.api.ConfigDefaults.DEFAULT_TRACE_RESOLVER_ENABLED;
@@ -160,6 +165,7 @@ import static datadog.trace.api.config.GeneralConfig.TRACER_METRICS_MAX_PENDING;
 import static datadog.trace.api.config.GeneralConfig.VERSION;
 import static datadog.trace.api.config.IastConfig.IAST_DEDUPLICATION_ENABLED;
 import static datadog.trace.api.config.IastConfig.IAST_ENABLED;
+import static datadog.trace.api.config.IastConfig.IAST_ENDPOINT_SAMPLING_ENABLED;
 import static datadog.trace.api.config.IastConfig.IAST_MAX_CONCURRENT_REQUESTS;
 import static datadog.trace.api.config.IastConfig.IAST_REQUEST_SAMPLING;
 import static datadog.trace.api.config.IastConfig.IAST_VULNERABILITIES_PER_REQUEST;
@@ -256,6 +262,7 @@ import static datadog.trace.api.config.TraceInstrumentationConfig.OBFUSCATION_QU
 import static datadog.trace.api.config.TraceInstrumentationConfig.PLAY_REPORT_HTTP_STATUS;
 import static datadog.trace.api.config.TraceInstrumentationConfig.RABBIT_PROPAGATION_DISABLED_EXCHANGES;
 import static datadog.trace.api.config.TraceInstrumentationConfig.RABBIT_PROPAGATION_DISABLED_QUEUES;
+import static datadog.trace.api.config.TraceInstrumentationConfig.RESOLVER_CACHE_DIR;
 import static datadog.trace.api.config.TraceInstrumentationConfig.RESOLVER_OUTLINE_POOL_ENABLED;
 import static datadog.trace.api.config.TraceInstrumentationConfig.RESOLVER_OUTLINE_POOL_SIZE;
 import static datadog.trace.api.config.TraceInstrumentationConfig.RESOLVER_TYPE_POOL_SIZE;
@@ -280,6 +287,7 @@ import static datadog.trace.api.config.TracerConfig.AGENT_NAMED_PIPE;
 import static datadog.trace.api.config.TracerConfig.AGENT_PORT_LEGACY;
 import static datadog.trace.api.config.TracerConfig.AGENT_TIMEOUT;
 import static datadog.trace.api.config.TracerConfig.AGENT_UNIX_DOMAIN_SOCKET;
+import static datadog.trace.api.config.TracerConfig.AGENT_UNIX_DOMAIN_SOCKET_DIRECT_TRANSPORT;
 import static datadog.trace.api.config.TracerConfig.CLIENT_IP_ENABLED;
 import static datadog.trace.api.config.TracerConfig.CLOCK_SYNC_PERIOD;
 import static datadog.trace.api.config.TracerConfig.ENABLE_TRACE_AGENT_V05;
@@ -299,9 +307,11 @@ import static datadog.trace.api.config.TracerConfig.RESPONSE_HEADER_TAGS;
 import static datadog.trace.api.config.TracerConfig.SCOPE_DEPTH_LIMIT;
 import static datadog.trace.api.config.TracerConfig.SCOPE_INHERIT_ASYNC_PROPAGATION;
 import static datadog.trace.api.config.TracerConfig.SCOPE_ITERATION_KEEP_ALIVE;
+import static datadog.trace.api.config.TracerConfig.SCOPE_RECYCLING_ENABLED;
 import static datadog.trace.api.config.TracerConfig.SCOPE_STRICT_MODE;
 import static datadog.trace.api.config.TracerConfig.SERVICE_MAPPING;
 import static datadog.trace.api.config.TracerConfig.SPAN_TAGS;
+import static datadog.trace.api.config.TracerConfig.SPAN_TAGS_RECYCLING_ENABLED;
 import static datadog.trace.api.config.TracerConfig.SPLIT_BY_TAGS;
 import static datadog.trace.api.config.TracerConfig.TRACE_AGENT_ARGS;
 import static datadog.trace.api.config.TracerConfig.TRACE_AGENT_PATH;
@@ -311,6 +321,11 @@ import static datadog.trace.api.config.TracerConfig.TRACE_ANALYTICS_ENABLED;
 import static datadog.trace.api.config.TracerConfig.TRACE_CLIENT_IP_HEADER;
 import static datadog.trace.api.config.TracerConfig.TRACE_CLIENT_IP_RESOLVER_ENABLED;
 import static datadog.trace.api.config.TracerConfig.TRACE_HTTP_SERVER_PATH_RESOURCE_NAME_MAPPING;
+import static datadog.trace.api.config.TracerConfig.TRACE_PAYLOAD_BUFFERS;
+import static datadog.trace.api.config.TracerConfig.TRACE_PAYLOAD_COMPRESSION;
+import static datadog.trace.api.config.TracerConfig.TRACE_PAYLOAD_COMPRESSION_LEVEL;
+import static datadog.trace.api.config.TracerConfig.TRACE_PENDING_BUFFER_TIMER_WHEEL_ENABLED;
+import static datadog.trace.api.config.TracerConfig.TRACE_PROCESSING_SHARDS;
 import static datadog.trace.api.config.TracerConfig.TRACE_RATE_LIMIT;
 import static datadog.trace.api.config.TracerConfig.TRACE_REPORT_HOSTNAME;
 import static datadog.trace.api.config.TracerConfig.TRACE_RESOLVER_ENABLED;
@@ -414,6 +429,7 @@ public class Config {
   private final String agentUnixDomainSocket;
   private final String agentNamedPipe;
   private final int agentTimeout;
+  private final boolean agentUnixDomainSocketDirectTransportEnabled;
   private final Set<String> noProxyHosts;
   private final boolean prioritySamplingEnabled;
   private final String prioritySamplingForce;
@@ -442,10 +458,17 @@ public class Config {
   private final Set<String> splitByTags;
   private final int scopeDepthLimit;
   private final boolean scopeStrictMode;
+  private final boolean scopeRecyclingEnabled;
   private final boolean scopeInheritAsyncPropagation;
   private final int scopeIterationKeepAlive;
   private final int partialFlushMinSpans;
   private final boolean traceStrictWritesEnabled;
+  private final boolean tracePendingBufferTimerWheelEnabled;
+  private final int traceProcessingShards;
+  private final int tracePayloadBuffers;
+  private final String tracePayloadCompression;
+  private final int tracePayloadCompressionLevel;
+  private final boolean spanTagsRecyclingEnabled;
   private final boolean runtimeContextFieldInjection;
   private final boolean serialVersionUIDFieldInjection;
   private final boolean logExtractHeaderNames;
@@ -619,6 +642,7 @@ public class Config {
   private final int resolverOutlinePoolSize;
   private final int resolverTypePoolSize;
   private final boolean resolverUseLoadClassEnabled;
+  private final String resolverCacheDir;
 
   private final String jdbcPreparedStatementClassName;
   private final String jdbcConnectionClassName;
@@ -640,6 +664,8 @@ public class Config {
 
   private final boolean iastDeduplicationEnabled;
 
+  private final boolean iastEndpointSamplingEnabled;
+
   private final boolean telemetryEnabled;
   private final int telemetryHeartbeatInterval;
 
@@ -788,6 +814,9 @@ public class Config {
 
     agentTimeout = configProvider.getInteger(AGENT_TIMEOUT, DEFAULT_AGENT_TIMEOUT);
 
+    agentUnixDomainSocketDirectTransportEnabled =
+        configProvider.getBoolean(AGENT_UNIX_DOMAIN_SOCKET_DIRECT_TRANSPORT, false);
+
     // DD_PROXY_NO_PROXY is specified as a space-separated list of hosts
     noProxyHosts = tryMakeImmutableSet(configProvider.getSpacedList(PROXY_NO_PROXY));
 
@@ -880,6 +909,8 @@ public class Config {
 
     scopeStrictMode = configProvider.getBoolean(SCOPE_STRICT_MODE, false);
 
+    scopeRecyclingEnabled = configProvider.getBoolean(SCOPE_RECYCLING_ENABLED, false);
+
     scopeInheritAsyncPropagation = configProvider.getBoolean(SCOPE_INHERIT_ASYNC_PROPAGATION, true);
 
     scopeIterationKeepAlive =
@@ -890,6 +921,30 @@ public class Config {
 
     traceStrictWritesEnabled = configProvider.getBoolean(TRACE_STRICT_WRITES_ENABLED, false);
 
+    tracePendingBufferTimerWheelEnabled =
+        configProvider.getBoolean(TRACE_PENDING_BUFFER_TIMER_WHEEL_ENABLED, false);
+
+    traceProcessingShards =
+        Math.max(
+            1, configProvider.getInteger(TRACE_PROCESSING_SHARDS, DEFAULT_TRACE_PROCESSING_SHARDS));
+
+    tracePayloadBuffers =
+        Math.max(
+            1, configProvider.getInteger(TRACE_PAYLOAD_BUFFERS, DEFAULT_TRACE_PAYLOAD_BUFFERS));
+
+    tracePayloadCompression =
+        configProvider.getString(TRACE_PAYLOAD_COMPRESSION, DEFAULT_TRACE_PAYLOAD_COMPRESSION);
+
+    tracePayloadCompressionLevel =
+        Math.max(
+            1,
+            Math.min(
+                9,
+                configProvider.getInteger(
+                    TRACE_PAYLOAD_COMPRESSION_LEVEL, DEFAULT_TRACE_PAYLOAD_COMPRESSION_LEVEL)));
+
+    spanTagsRecyclingEnabled = configProvider.getBoolean(SPAN_TAGS_RECYCLING_ENABLED, false);
+
     runtimeContextFieldInjection =
         configProvider.getBoolean(
             RUNTIME_CONTEXT_FIELD_INJECTION, DEFAULT_RUNTIME_CONTEXT_FIELD_INJECTION);
@@ -1158,6 +1213,9 @@ public class Config {
             configProvider.getString(IAST_WEAK_CIPHER_ALGORITHMS));
     iastDeduplicationEnabled =
         configProvider.getBoolean(IAST_DEDUPLICATION_ENABLED, DEFAULT_IAST_DEDUPLICATION_ENABLED);
+    iastEndpointSamplingEnabled =
+        configProvider.getBoolean(
+            IAST_ENDPOINT_SAMPLING_ENABLED, DEFAULT_IAST_ENDPOINT_SAMPLING_ENABLED);
 
     ciVisibilityEnabled =
         configProvider.getBoolean(CIVISIBILITY_ENABLED, DEFAULT_CIVISIBILITY_ENABLED);
@@ -1300,6 +1358,7 @@ public class Config {
     resolverTypePoolSize =
         configProvider.getInteger(RESOLVER_TYPE_POOL_SIZE, DEFAULT_RESOLVER_TYPE_POOL_SIZE);
     resolverUseLoadClassEnabled = configProvider.getBoolean(RESOLVER_USE_LOADCLASS, true);
+    resolverCacheDir = configProvider.getString(RESOLVER_CACHE_DIR);
 
     cwsEnabled = configProvider.getBoolean(CWS_ENABLED, DEFAULT_CWS_ENABLED);
     cwsTlsRefresh = configProvider.getInteger(CWS_TLS_REFRESH, DEFAULT_CWS_TLS_REFRESH);
@@ -1419,6 +1478,10 @@ public class Config {
     return agentTimeout;
   }
 
+  public boolean isAgentUnixDomainSocketDirectTransportEnabled() {
+    return agentUnixDomainSocketDirectTransportEnabled;
+  }
+
   public Set<String> getNoProxyHosts() {
     return noProxyHosts;
   }
@@ -1447,6 +1510,10 @@ public class Config {
     return iastDeduplicationEnabled;
   }
 
+  public boolean isIastEndpointSamplingEnabled() {
+    return iastEndpointSamplingEnabled;
+  }
+
   public Map<String, String> getServiceMapping() {
     return serviceMapping;
   }
@@ -1531,6 +1598,10 @@ public class Config {
     return scopeStrictMode;
   }
 
+  public boolean isScopeRecyclingEnabled() {
+    return scopeRecyclingEnabled;
+  }
+
   public boolean isScopeInheritAsyncPropagation() {
     return scopeInheritAsyncPropagation;
   }
@@ -1547,6 +1618,30 @@ public class Config {
     return traceStrictWritesEnabled;
   }
 
+  public boolean isTracePendingBufferTimerWheelEnabled() {
+    return tracePendingBufferTimerWheelEnabled;
+  }
+
+  public int getTraceProcessingShards() {
+    return traceProcessingShards;
+  }
+
+  public int getTracePayloadBuffers() {
+    return tracePayloadBuffers;
+  }
+
+  public String getTracePayloadCompression() {
+    return tracePayloadCompression;
+  }
+
+  public int getTracePayloadCompressionLevel() {
+    return tracePayloadCompressionLevel;
+  }
+
+  public boolean isSpanTagsRecyclingEnabled() {
+    return spanTagsRecyclingEnabled;
+  }
+
   public boolean isRuntimeContextFieldInjection() {
     return runtimeContextFieldInjection;
   }
@@ -2123,6 +2218,10 @@ public class Config {
     return resolverUseLoadClassEnabled;
   }
 
+  public String getResolverCacheDir() {
+    return resolverCacheDir;
+  }
+
   public String getJdbcPreparedStatementClassName() {
     return jdbcPreparedStatementClassName;
   }
@@ -2811,6 +2910,8 @@ public class Config {
         + '\''
         + ", agentTimeout="
         + agentTimeout
+        + ", agentUnixDomainSocketDirectTransportEnabled="
+        + agentUnixDomainSocketDirectTransportEnabled
         + ", noProxyHosts="
         + noProxyHosts
         + ", prioritySamplingEnabled="
@@ -2868,6 +2969,8 @@ public class Config {
         + scopeDepthLimit
         + ", scopeStrictMode="
         + scopeStrictMode
+        + ", scopeRecyclingEnabled="
+        + scopeRecyclingEnabled
         + ", scopeInheritAsyncPropagation="
         + scopeInheritAsyncPropagation
         + ", scopeIterationKeepAlive="
@@ -2876,6 +2979,18 @@ public class Config {
         + partialFlushMinSpans
         + ", traceStrictWritesEnabled="
         + traceStrictWritesEnabled
+        + ", tracePendingBufferTimerWheelEnabled="
+        + tracePendingBufferTimerWheelEnabled
+        + ", traceProcessingShards="
+        + traceProcessingShards
+        + ", tracePayloadBuffers="
+        + tracePayloadBuffers
+        + ", tracePayloadCompression="
+        + tracePayloadCompression
+        + ", tracePayloadCompressionLevel="
+        + tracePayloadCompressionLevel
+        + ", spanTagsRecyclingEnabled="
+        + spanTagsRecyclingEnabled
         + ", runtimeContextFieldInjection="
         + runtimeContextFieldInjection
         + ", serialVersionUIDFieldInjection="
@@ -3093,6 +3208,9 @@ public class Config {
         + resolverTypePoolSize
         + ", resolverUseLoadClassEnabled="
         + resolverUseLoadClassEnabled
+        + ", resolverCacheDir='"
+        + resolverCacheDir
+        + '\''
         + ", jdbcPreparedStatementClassName='"
         + jdbcPreparedStatementClassName
         + '\''
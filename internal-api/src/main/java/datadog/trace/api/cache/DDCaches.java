@@ -20,6 +20,22 @@ public final class DDCaches {
     return new FixedSizeCache.ObjectHash<>(capacity);
   }
 
+  /**
+   * Creates a cache which cannot grow beyond a fixed capacity, and which only keeps new keys which
+   * are looked up often enough. Prefer it to {@link #newFixedSizeCache(int)} when there are many
+   * more distinct keys than the capacity but some keys are much more common than others, such as
+   * SQL queries or URL paths, which would otherwise keep evicting each other. Lookups are
+   * lock-free, but adding a key takes a lock.
+   *
+   * @param capacity the cache's fixed capacity
+   * @param <K> the key type
+   * @param <V> the value type
+   * @return the value associated with the key
+   */
+  public static <K, V> DDCache<K, V> newFixedSizeLfuCache(final int capacity) {
+    return new TinyLfuCache<>(capacity);
+  }
+
   /**
    * Specialized fixed-size cache that uses {@link java.util.Arrays} for key hashing and equality.
    *
@@ -0,0 +1,95 @@
+package datadog.trace.api.cache;
+
+import java.util.Arrays;
+
+/**
+ * A count-min sketch of how often keys have been seen, with 4-bit counters. Each key is counted in
+ * four counters of a single 64-bit word, one per hash function, and its frequency is the smallest
+ * of the four. Once enough keys have been counted, all the counters are halved so that the sketch
+ * favours recent history over old.
+ *
+ * <p>This is not synchronized, callers which update it from several threads must hold a lock.
+ */
+final class FrequencySketch {
+
+  private static final long[] SEEDS = {
+    0x97cb3127c3a5c85cL, 0xbe98f273b492b66fL, 0x2f90404f9ae16a3bL, 0x84222325cbf29ce4L
+  };
+  private static final long HALVING_MASK = 0x7777777777777777L;
+  private static final long LOW_BITS_MASK = 0x1111111111111111L;
+  private static final int MAX_COUNT = 15;
+
+  private final long[] table;
+  private final int mask;
+  private final int sampleSize;
+  private int additions;
+
+  FrequencySketch(int capacity) {
+    int n = Integer.highestOneBit(Math.max(8, capacity) - 1) << 1;
+    this.table = new long[n];
+    this.mask = n - 1;
+    this.sampleSize = 10 * Math.max(8, capacity);
+  }
+
+  /** @return how often the key with this hash has been seen recently, up to 15 */
+  int frequency(int hash) {
+    int h = spread(hash);
+    int offset = (h & 3) << 2;
+    int frequency = MAX_COUNT;
+    for (int i = 0; i < 4; ++i) {
+      int count = (int) (table[indexOf(h, i)] >>> ((offset + i) << 2)) & MAX_COUNT;
+      frequency = Math.min(frequency, count);
+    }
+    return frequency;
+  }
+
+  /** Records one more sighting of the key with this hash. */
+  void increment(int hash) {
+    int h = spread(hash);
+    int offset = (h & 3) << 2;
+    boolean added = false;
+    for (int i = 0; i < 4; ++i) {
+      added |= incrementAt(indexOf(h, i), offset + i);
+    }
+    if (added && ++additions >= sampleSize) {
+      halve();
+    }
+  }
+
+  void clear() {
+    Arrays.fill(table, 0L);
+    additions = 0;
+  }
+
+  private boolean incrementAt(int index, int counter) {
+    int shift = counter << 2;
+    long word = table[index];
+    if (((word >>> shift) & MAX_COUNT) != MAX_COUNT) {
+      table[index] = word + (1L << shift);
+      return true;
+    }
+    return false;
+  }
+
+  private void halve() {
+    int odd = 0;
+    for (int i = 0; i < table.length; ++i) {
+      odd += Long.bitCount(table[i] & LOW_BITS_MASK);
+      table[i] = (table[i] >>> 1) & HALVING_MASK;
+    }
+    // account for what was truncated from the odd counters
+    additions = (additions >>> 1) - (odd >>> 2);
+  }
+
+  private int indexOf(int hash, int i) {
+    long h = (hash + SEEDS[i]) * SEEDS[i];
+    h += h >>> 32;
+    return (int) h & mask;
+  }
+
+  private static int spread(int hash) {
+    hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+    hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+    return (hash >>> 16) ^ hash;
+  }
+}
@@ -0,0 +1,229 @@
+package datadog.trace.api.cache;
+
+import datadog.trace.api.function.Function;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A fixed size cache which only keeps a new key if it's likely to be looked up again. Unlike
+ * {@link FixedSizeCache}, a burst of one-off keys doesn't flush out the keys which are looked up
+ * all the time.
+ *
+ * <p>New keys go into a small window, and when they leave it they have to be looked up more often
+ * than the least recently used key of the main space for it to make way for them (W-TinyLFU). How
+ * often keys are looked up is estimated by a {@link FrequencySketch}. The main space is a segmented
+ * LRU: keys which are looked up again while on probation are promoted to the protected segment,
+ * and keys which fall out of the protected segment are put back on probation.
+ *
+ * <p>Lookups don't take locks: a hit only bumps a small counter on its entry, and the entry is
+ * moved to where it belongs the next time the cache evicts. The sketch itself is only updated under
+ * the lock, with misses and with the hits buffered on the entries the eviction looks at. The hit
+ * counters are written without synchronization, so racing hits may be lost and the frequencies are
+ * approximate, which only makes the admission decisions slightly less accurate. Misses compute the
+ * value before taking the lock to add it, so the creator may be called more than once for the same
+ * key, and must be idempotent.
+ *
+ * <p>A key needs room in both the window and the main space, so a capacity of 1 is rounded up to 2.
+ *
+ * @param <K> key type
+ * @param <V> value type
+ */
+final class TinyLfuCache<K, V> implements DDCache<K, V> {
+
+  private final ConcurrentHashMap<K, Node<K, V>> nodes;
+  private final FrequencySketch sketch;
+
+  private final int windowCapacity;
+  private final int mainCapacity;
+  private final int protectedCapacity;
+
+  // guarded by this; least recently used first
+  private final Node<K, V> window = Node.sentinel();
+  private final Node<K, V> probation = Node.sentinel();
+  private final Node<K, V> protectedSegment = Node.sentinel();
+  private int windowSize;
+  private int probationSize;
+  private int protectedSize;
+
+  TinyLfuCache(int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Cache capacity must be > 0");
+    }
+    if (capacity > FixedSizeCache.MAXIMUM_CAPACITY) {
+      capacity = FixedSizeCache.MAXIMUM_CAPACITY;
+    }
+    if (capacity < 2) {
+      // one key in the window and one in the main space
+      capacity = 2;
+    }
+    this.windowCapacity = Math.max(1, capacity / 100);
+    this.mainCapacity = capacity - windowCapacity;
+    this.protectedCapacity = (int) (mainCapacity * 0.8);
+    this.nodes = new ConcurrentHashMap<>(capacity + windowCapacity + 1);
+    this.sketch = new FrequencySketch(capacity);
+  }
+
+  @Override
+  public V computeIfAbsent(K key, Function<K, ? extends V> creator) {
+    if (key == null) {
+      return null;
+    }
+    Node<K, V> node = nodes.get(key);
+    if (null != node) {
+      node.hit();
+      return node.value;
+    }
+    V value = creator.apply(key);
+    int hash = key.hashCode();
+    synchronized (this) {
+      sketch.increment(hash);
+      node = nodes.get(key);
+      if (null != node) {
+        // another thread got there first
+        return node.value;
+      }
+      add(new Node<>(key, hash, value));
+    }
+    return value;
+  }
+
+  @Override
+  public synchronized void clear() {
+    nodes.clear();
+    sketch.clear();
+    window.unlinkAll();
+    probation.unlinkAll();
+    protectedSegment.unlinkAll();
+    windowSize = 0;
+    probationSize = 0;
+    protectedSize = 0;
+  }
+
+  private void add(Node<K, V> node) {
+    nodes.put(node.key, node);
+    node.linkBefore(window);
+    if (++windowSize <= windowCapacity) {
+      return;
+    }
+    // the window's least recently used key becomes a candidate for the main space
+    Node<K, V> candidate = window.next;
+    candidate.unlink();
+    --windowSize;
+    candidate.linkBefore(probation);
+    if (++probationSize + protectedSize > mainCapacity) {
+      evict(candidate);
+    }
+  }
+
+  private void evict(Node<K, V> candidate) {
+    // catch up with the hits since the last eviction, which promote keys on probation
+    Node<K, V> victim = probation.next;
+    while (victim != candidate && drainHits(victim)) {
+      promote(victim);
+      victim = probation.next;
+    }
+    if (victim == candidate) {
+      // the keys ahead of the candidate were all promoted, try one demoted behind it instead
+      victim = candidate.next != probation ? candidate.next : candidate;
+    }
+    drainHits(candidate);
+    drainHits(victim);
+    Node<K, V> evicted =
+        sketch.frequency(candidate.hash) > sketch.frequency(victim.hash) ? victim : candidate;
+    evicted.unlink();
+    --probationSize;
+    nodes.remove(evicted.key, evicted);
+  }
+
+  private void promote(Node<K, V> node) {
+    node.unlink();
+    --probationSize;
+    node.linkBefore(protectedSegment);
+    if (++protectedSize > protectedCapacity) {
+      // give the protected keys which have been hit another round before demoting one
+      Node<K, V> demoted = protectedSegment.next;
+      for (int i = 0; drainHits(demoted) && i < protectedSize; ++i) {
+        demoted.unlink();
+        demoted.linkBefore(protectedSegment);
+        demoted = protectedSegment.next;
+      }
+      demoted.unlink();
+      --protectedSize;
+      demoted.linkBefore(probation);
+      ++probationSize;
+    }
+  }
+
+  /**
+   * Counts the hits buffered on the node in the sketch.
+   *
+   * @return whether the node was hit since it was last drained
+   */
+  private boolean drainHits(Node<K, V> node) {
+    int hits = node.hits;
+    if (hits == 0) {
+      return false;
+    }
+    node.hits = 0;
+    for (int i = 0; i < hits; ++i) {
+      sketch.increment(node.hash);
+    }
+    return true;
+  }
+
+  private static final class Node<K, V> {
+    // the sketch doesn't count higher than this
+    private static final int MAX_HITS = 15;
+
+    final K key;
+    final int hash;
+    final V value;
+
+    // hits since the node was last drained, written without synchronization by lookups, and read
+    // and cleared under the lock
+    int hits;
+
+    // guarded by the cache
+    Node<K, V> prev;
+    Node<K, V> next;
+
+    Node(K key, int hash, V value) {
+      this.key = key;
+      this.hash = hash;
+      this.value = value;
+    }
+
+    void hit() {
+      // avoid writing to hot entries over and over
+      if (hits < MAX_HITS) {
+        ++hits;
+      }
+    }
+
+    static <K, V> Node<K, V> sentinel() {
+      Node<K, V> sentinel = new Node<>(null, 0, null);
+      sentinel.prev = sentinel;
+      sentinel.next = sentinel;
+      return sentinel;
+    }
+
+    /** Links this node as the most recently used of the queue headed by {@code sentinel}. */
+    void linkBefore(Node<K, V> sentinel) {
+      prev = sentinel.prev;
+      next = sentinel;
+      prev.next = this;
+      sentinel.prev = this;
+    }
+
+    void unlink() {
+      prev.next = next;
+      next.prev = prev;
+      prev = null;
+      next = null;
+    }
+
+    void unlinkAll() {
+      prev = this;
+      next = this;
+    }
+  }
+}
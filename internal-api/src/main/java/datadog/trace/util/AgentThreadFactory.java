@@ -16,6 +16,7 @@ public final class AgentThreadFactory implements ThreadFactory {
     TRACE_STARTUP("dd-agent-startup-datadog-tracer"),
     TRACE_MONITOR("dd-trace-monitor"),
     TRACE_PROCESSOR("dd-trace-processor"),
+    TRACE_SENDER("dd-trace-sender"),
     TRACE_CASSANDRA_ASYNC_SESSION("dd-cassandra-session-executor"),
 
     METRICS_AGGREGATOR("dd-metrics-aggregator"),
@@ -73,7 +74,24 @@ public final class AgentThreadFactory implements ThreadFactory {
    * @param runnable work to run on the new thread.
    */
   public static Thread newAgentThread(final AgentThread agentThread, final Runnable runnable) {
-    final Thread thread = new Thread(AGENT_THREAD_GROUP, runnable, agentThread.threadName);
+    return createThread(agentThread.threadName, runnable);
+  }
+
+  /**
+   * Constructs a new agent {@code Thread} with an index appended to its name, for agent threads
+   * which run as several instances.
+   *
+   * @param agentThread the agent thread to create.
+   * @param index the index of this instance, appended to the thread name.
+   * @param runnable work to run on the new thread.
+   */
+  public static Thread newAgentThread(
+      final AgentThread agentThread, final int index, final Runnable runnable) {
+    return createThread(agentThread.threadName + "-" + index, runnable);
+  }
+
+  private static Thread createThread(final String threadName, final Runnable runnable) {
+    final Thread thread = new Thread(AGENT_THREAD_GROUP, runnable, threadName);
     thread.setDaemon(true);
     thread.setContextClassLoader(null);
     thread.setUncaughtExceptionHandler(
@@ -81,7 +99,7 @@ public final class AgentThreadFactory implements ThreadFactory {
           @Override
           public void uncaughtException(final Thread thread, final Throwable e) {
             LoggerFactory.getLogger(runnable.getClass())
-                .error("Uncaught exception in {}", agentThread.threadName, e);
+                .error("Uncaught exception in {}", threadName, e);
           }
         });
     return thread;
@@ -0,0 +1,40 @@
+package datadog.trace.util;
+
+import static datadog.trace.api.Platform.isJavaVersionAtLeast;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/** Support for virtual threads, which can't be referred to directly on the older JDKs we build. */
+public final class VirtualThreads {
+
+  private static final MethodHandle IS_VIRTUAL = findIsVirtual();
+
+  private VirtualThreads() {}
+
+  /**
+   * @param thread the thread to check.
+   * @return whether the thread is a virtual thread, always false before Java 21.
+   */
+  public static boolean isVirtual(Thread thread) {
+    if (null != IS_VIRTUAL) {
+      try {
+        return (boolean) IS_VIRTUAL.invokeExact(thread);
+      } catch (Throwable ignore) {
+      }
+    }
+    return false;
+  }
+
+  private static MethodHandle findIsVirtual() {
+    if (isJavaVersionAtLeast(21)) {
+      try {
+        return MethodHandles.lookup()
+            .findVirtual(Thread.class, "isVirtual", MethodType.methodType(boolean.class));
+      } catch (NoSuchMethodException | IllegalAccessException ignore) {
+      }
+    }
+    return null;
+  }
+}
@@ -128,6 +128,7 @@ class FixedSizeCacheTest extends DDSpecification {
     where:
     cacheImpl << [
       { capacity -> DDCaches.newFixedSizeCache(capacity) },
+      { capacity -> DDCaches.newFixedSizeLfuCache(capacity) },
       { capacity ->
         DDCaches.newUnboundedCache(capacity) }
     ]
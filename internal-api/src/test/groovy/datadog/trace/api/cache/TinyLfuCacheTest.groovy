@@ -0,0 +1,184 @@
+package datadog.trace.api.cache
+
+import datadog.trace.api.function.Function
+import datadog.trace.test.util.DDSpecification
+
+import java.util.concurrent.atomic.AtomicInteger
+
+class TinyLfuCacheTest extends DDSpecification {
+
+  def "should store and retrieve values"() {
+    setup:
+    def cache = DDCaches.newFixedSizeLfuCache(16)
+    def creationCount = new AtomicInteger()
+    def creator = new Counting(creationCount)
+
+    when:
+    def values = ["one", "two", "three", "two", "one"].collect { cache.computeIfAbsent(it, creator) }
+
+    then:
+    values == ["one_value", "two_value", "three_value", "two_value", "one_value"]
+    creationCount.get() == 3
+    cache.computeIfAbsent(null, creator) == null
+    creationCount.get() == 3
+  }
+
+  def "should not grow beyond its capacity"() {
+    setup:
+    def cache = new TinyLfuCache<Integer, String>(capacity)
+    def creator = new Counting(new AtomicInteger())
+
+    when:
+    for (int i = 0; i < capacity * 20; ++i) {
+      cache.computeIfAbsent(i % (capacity * 3), creator)
+    }
+
+    then:
+    cache.nodes.size() == capacity
+    cache.windowSize + cache.probationSize + cache.protectedSize == capacity
+
+    where:
+    capacity << [2, 10, 100, 1000]
+  }
+
+  def "frequently used keys survive a scan of one-off keys"() {
+    setup:
+    def cache = DDCaches.newFixedSizeLfuCache(64)
+    def creationCount = new AtomicInteger()
+    def creator = new Counting(creationCount)
+    def hot = (0..<32).collect { "hot-$it".toString() }
+
+    when:
+    3.times {
+      hot.each { cache.computeIfAbsent(it, creator) }
+    }
+    (0..<1000).each { cache.computeIfAbsent("cold-$it".toString(), creator) }
+    creationCount.set(0)
+    hot.each { cache.computeIfAbsent(it, creator) }
+
+    then:
+    creationCount.get() == 0
+  }
+
+  def "fixed size cache loses frequently used keys to a scan"() {
+    setup:
+    def cache = DDCaches.newFixedSizeCache(64)
+    def creationCount = new AtomicInteger()
+    def creator = new Counting(creationCount)
+    def hot = (0..<32).collect { "hot-$it".toString() }
+
+    when:
+    3.times {
+      hot.each { cache.computeIfAbsent(it, creator) }
+    }
+    (0..<1000).each { cache.computeIfAbsent("cold-$it".toString(), creator) }
+    creationCount.set(0)
+    hot.each { cache.computeIfAbsent(it, creator) }
+
+    then:
+    creationCount.get() > 0
+  }
+
+  def "clear should empty the cache"() {
+    setup:
+    def cache = DDCaches.newFixedSizeLfuCache(8)
+    def creationCount = new AtomicInteger()
+    def creator = new Counting(creationCount)
+    (0..<20).each { cache.computeIfAbsent(it, creator) }
+
+    when:
+    cache.clear()
+    creationCount.set(0)
+    (0..<4).each { cache.computeIfAbsent(it, creator) }
+
+    then:
+    creationCount.get() == 4
+    cache.nodes.size() == 4
+  }
+
+  def "capacity must be positive"() {
+    when:
+    DDCaches.newFixedSizeLfuCache(0)
+
+    then:
+    thrown(IllegalArgumentException)
+  }
+
+  def "capacity of one is rounded up to two"() {
+    setup:
+    def cache = new TinyLfuCache<Integer, String>(1)
+    def creator = new Counting(new AtomicInteger())
+
+    when:
+    (0..<10).each { cache.computeIfAbsent(it, creator) }
+
+    then:
+    cache.nodes.size() == 2
+    cache.windowSize + cache.probationSize + cache.protectedSize == 2
+  }
+
+  def "hits are buffered on the entry until it is drained into the sketch"() {
+    setup:
+    def cache = new TinyLfuCache<String, String>(16)
+    def creator = new Counting(new AtomicInteger())
+    def hash = "key".hashCode()
+
+    when:
+    20.times { cache.computeIfAbsent("key", creator) }
+
+    then: "the miss is counted right away and the hits saturate on the entry"
+    cache.sketch.frequency(hash) == 1
+    cache.nodes.get("key").hits == 15
+
+    when:
+    def drained = cache.drainHits(cache.nodes.get("key"))
+
+    then:
+    drained
+    cache.nodes.get("key").hits == 0
+    cache.sketch.frequency(hash) == 15
+    !cache.drainHits(cache.nodes.get("key"))
+  }
+
+  def "sketch estimates how often keys were seen"() {
+    setup:
+    def sketch = new FrequencySketch(64)
+
+    when:
+    5.times { sketch.increment(42) }
+    20.times { sketch.increment(7) }
+
+    then:
+    sketch.frequency(42) == 5
+    sketch.frequency(7) == 15 // counters saturate
+    sketch.frequency(1234) == 0
+  }
+
+  def "sketch halves its counters once enough keys were counted"() {
+    setup:
+    def sketch = new FrequencySketch(8)
+    8.times { sketch.increment(42) }
+
+    when:
+    for (int i = 0; i < 80; ++i) {
+      sketch.increment(1000 + i)
+    }
+
+    then:
+    sketch.frequency(42) <= 4
+  }
+
+  private static class Counting implements Function<Object, String> {
+    private final AtomicInteger count
+
+    Counting(AtomicInteger count) {
+      this.count = count
+    }
+
+    @Override
+    String apply(Object key) {
+      count.incrementAndGet()
+      return key.toString() + "_value"
+    }
+  }
+}
@@ -0,0 +1,34 @@
+package datadog.trace.util
+
+import datadog.trace.test.util.DDSpecification
+import spock.lang.Requires
+
+import java.util.concurrent.atomic.AtomicBoolean
+
+import static datadog.trace.api.Platform.isJavaVersionAtLeast
+import static datadog.trace.util.VirtualThreads.isVirtual
+
+class VirtualThreadsTest extends DDSpecification {
+
+  def "platform threads are not virtual"() {
+    expect:
+    !isVirtual(Thread.currentThread())
+  }
+
+  @Requires({
+    isJavaVersionAtLeast(21)
+  })
+  def "virtual threads are detected"() {
+    setup:
+    def virtual = new AtomicBoolean()
+
+    when:
+    def thread = Thread.ofVirtual().start {
+      virtual.set(isVirtual(Thread.currentThread()))
+    }
+    thread.join()
+
+    then:
+    virtual.get()
+  }
+}
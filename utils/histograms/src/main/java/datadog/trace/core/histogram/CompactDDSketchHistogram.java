@@ -0,0 +1,197 @@
+package datadog.trace.core.histogram;
+
+import static datadog.trace.core.histogram.CompactDDSketchHistogramFactory.MAX_BINS;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A DDSketch with the same accuracy as {@link DDSketchHistogram}, which only stores the bins which
+ * have been hit, as sorted pairs of primitive indexes and counts, rather than a dense array of
+ * counts for the whole range of indexes in both a positive and a negative store. Empty histograms
+ * don't allocate anything.
+ *
+ * <p>Values up to the smallest indexable value, including negative values, are counted as zeros,
+ * which is fine for durations. Not thread-safe.
+ */
+public final class CompactDDSketchHistogram implements Histogram {
+
+  private static final int INITIAL_CAPACITY = 4;
+  // storage larger than this is released on clear
+  private static final int RETAINED_CAPACITY = 64;
+
+  private final CompactDDSketchHistogramFactory factory;
+
+  private int[] indexes;
+  private int[] counts;
+  private int size;
+  private int zeroCount;
+  private long count;
+
+  CompactDDSketchHistogram(CompactDDSketchHistogramFactory factory) {
+    this.factory = factory;
+  }
+
+  @Override
+  public void accept(long value) {
+    accept((double) value);
+  }
+
+  @Override
+  public void accept(double value) {
+    ++count;
+    if (value <= factory.minIndexableValue) {
+      ++zeroCount;
+      return;
+    }
+    int index = factory.mapping.index(value);
+    if (size == 0) {
+      if (null == indexes) {
+        indexes = new int[INITIAL_CAPACITY];
+        counts = new int[INITIAL_CAPACITY];
+      }
+      indexes[0] = index;
+      counts[0] = 1;
+      size = 1;
+      return;
+    }
+    // like CollapsingLowestDenseStore, the lowest bins are merged to keep the range bounded
+    int lowest = Math.max(index, indexes[size - 1]) - (MAX_BINS - 1);
+    increment(Math.max(index, lowest));
+    if (indexes[0] < lowest) {
+      collapseBelow(lowest);
+    }
+  }
+
+  @Override
+  public double valueAtQuantile(double quantile) {
+    if (count == 0) {
+      return 0D;
+    }
+    double rank = quantile * (count - 1);
+    long n = zeroCount;
+    if (n > rank) {
+      return 0D;
+    }
+    for (int i = 0; i < size; ++i) {
+      n += counts[i];
+      if (n > rank) {
+        return factory.mapping.value(indexes[i]);
+      }
+    }
+    return max();
+  }
+
+  @Override
+  public double max() {
+    return size == 0 ? 0D : factory.mapping.value(indexes[size - 1]);
+  }
+
+  @Override
+  public void clear() {
+    if (null != indexes && indexes.length > RETAINED_CAPACITY) {
+      indexes = null;
+      counts = null;
+    }
+    size = 0;
+    zeroCount = 0;
+    count = 0;
+  }
+
+  /**
+   * Serializes the sketch in the DDSketch protobuf format, with the counts in a contiguous store.
+   * The returned buffer is reused by the next histogram from the same factory serialized on the
+   * same thread.
+   */
+  @Override
+  public ByteBuffer serialize() {
+    byte[] mappingField = factory.mappingField;
+    int range = size == 0 ? 0 : indexes[size - 1] - indexes[0] + 1;
+    int countsLength = range * 8;
+    int offset = size == 0 ? 0 : zigZag(indexes[0]);
+    int storeLength = 1 + varIntSize(countsLength) + countsLength + 1 + varIntSize(offset);
+    ByteBuffer buffer =
+        factory.buffer(mappingField.length + 1 + varIntSize(storeLength) + storeLength + 9);
+    buffer.put(mappingField);
+    if (size > 0) {
+      // positiveValues = 2
+      buffer.put((byte) 0x12);
+      putVarInt(buffer, storeLength);
+      // contiguousBinCounts = 2, packed
+      buffer.put((byte) 0x12);
+      putVarInt(buffer, countsLength);
+      int first = indexes[0];
+      int next = 0;
+      for (int i = 0; i < range; ++i) {
+        if (indexes[next] == first + i) {
+          buffer.putDouble(counts[next++]);
+        } else {
+          buffer.putDouble(0D);
+        }
+      }
+      // contiguousBinIndexOffset = 3
+      buffer.put((byte) 0x18);
+      putVarInt(buffer, offset);
+    }
+    if (zeroCount > 0) {
+      // zeroCount = 4
+      buffer.put((byte) 0x21);
+      buffer.putDouble(zeroCount);
+    }
+    buffer.flip();
+    return buffer;
+  }
+
+  private void increment(int index) {
+    int position = Arrays.binarySearch(indexes, 0, size, index);
+    if (position >= 0) {
+      ++counts[position];
+      return;
+    }
+    position = -position - 1;
+    if (size == indexes.length) {
+      indexes = Arrays.copyOf(indexes, size << 1);
+      counts = Arrays.copyOf(counts, size << 1);
+    }
+    System.arraycopy(indexes, position, indexes, position + 1, size - position);
+    System.arraycopy(counts, position, counts, position + 1, size - position);
+    indexes[position] = index;
+    counts[position] = 1;
+    ++size;
+  }
+
+  private void collapseBelow(int lowest) {
+    int collapsed = 0;
+    int removed = 0;
+    while (removed < size && indexes[removed] < lowest) {
+      collapsed += counts[removed++];
+    }
+    if (removed < size && indexes[removed] == lowest) {
+      // merge into the existing bin
+      counts[removed] += collapsed;
+    } else {
+      // reuse the slot of the last removed bin
+      indexes[--removed] = lowest;
+      counts[removed] = collapsed;
+    }
+    System.arraycopy(indexes, removed, indexes, 0, size - removed);
+    System.arraycopy(counts, removed, counts, 0, size - removed);
+    size -= removed;
+  }
+
+  private static int zigZag(int value) {
+    return (value << 1) ^ (value >> 31);
+  }
+
+  private static int varIntSize(int value) {
+    return value == 0 ? 1 : (38 - Integer.numberOfLeadingZeros(value)) / 7;
+  }
+
+  private static void putVarInt(ByteBuffer buffer, int value) {
+    while ((value & ~0x7F) != 0) {
+      buffer.put((byte) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    buffer.put((byte) value);
+  }
+}
@@ -0,0 +1,69 @@
+package datadog.trace.core.histogram;
+
+import com.datadoghq.sketch.ddsketch.DDSketch;
+import com.datadoghq.sketch.ddsketch.mapping.BitwiseLinearlyInterpolatedMapping;
+import com.datadoghq.sketch.ddsketch.mapping.IndexMapping;
+import com.datadoghq.sketch.ddsketch.store.CollapsingLowestDenseStore;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Creates {@link CompactDDSketchHistogram}s, which share this factory's index mapping and the
+ * buffers they are serialized into.
+ */
+public class CompactDDSketchHistogramFactory implements HistogramFactory {
+
+  // same relative accuracy and number of bins as DDSketchHistogram
+  static final double RELATIVE_ACCURACY = 1.0 / 128.0;
+  static final int MAX_BINS = 1024;
+
+  final IndexMapping mapping = new BitwiseLinearlyInterpolatedMapping(RELATIVE_ACCURACY);
+  final double minIndexableValue = mapping.minIndexableValue();
+  // the serialized index mapping, which is the same for all the sketches
+  final byte[] mappingField = mappingField(mapping);
+
+  private final ThreadLocal<ByteBuffer> buffers =
+      new ThreadLocal<ByteBuffer>() {
+        @Override
+        protected ByteBuffer initialValue() {
+          return ByteBuffer.allocate(1024).order(ByteOrder.LITTLE_ENDIAN);
+        }
+      };
+
+  @Override
+  public Histogram newHistogram() {
+    return new CompactDDSketchHistogram(this);
+  }
+
+  ByteBuffer buffer(int capacity) {
+    ByteBuffer buffer = buffers.get();
+    if (buffer.capacity() < capacity) {
+      buffer = ByteBuffer.allocate(Integer.highestOneBit(capacity - 1) << 1);
+      buffer.order(ByteOrder.LITTLE_ENDIAN);
+      buffers.set(buffer);
+    }
+    buffer.clear();
+    return buffer;
+  }
+
+  private static byte[] mappingField(IndexMapping mapping) {
+    ByteBuffer serialized =
+        new DDSketch(mapping, () -> new CollapsingLowestDenseStore(MAX_BINS)).serialize();
+    // field 1, length delimited
+    if (serialized.get() != 0x0A) {
+      throw new IllegalStateException("Serialized sketch doesn't start with its index mapping");
+    }
+    int length = 0;
+    int shift = 0;
+    byte b;
+    do {
+      b = serialized.get();
+      length |= (b & 0x7F) << shift;
+      shift += 7;
+    } while (b < 0);
+    byte[] field = new byte[serialized.position() + length];
+    serialized.position(0);
+    serialized.get(field);
+    return field;
+  }
+}
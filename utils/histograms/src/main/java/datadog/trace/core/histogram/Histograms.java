@@ -27,6 +27,13 @@ public final class Histograms {
     return load("datadog.trace.core.histogram.DDSketchHistogramFactory");
   }
 
+  HistogramFactory newCompactFactory() {
+    if (loadStub) {
+      return load("datadog.trace.core.histogram.StubHistogram");
+    }
+    return load("datadog.trace.core.histogram.CompactDDSketchHistogramFactory");
+  }
+
   /**
    * Load reflectively to ensure that DDSketch is never loaded on JDK7
    *
@@ -36,6 +43,16 @@ public final class Histograms {
     return INSTANCE.newFactory();
   }
 
+  /**
+   * Load reflectively to ensure that DDSketch is never loaded on JDK7
+   *
+   * @return a factory for histograms which only store the bins they use, for when many histograms
+   *     are kept alive
+   */
+  public static HistogramFactory newCompactHistogramFactory() {
+    return INSTANCE.newCompactFactory();
+  }
+
   private static HistogramFactory load(String name) {
     try {
       return (HistogramFactory) Class.forName(name).getConstructor().newInstance();
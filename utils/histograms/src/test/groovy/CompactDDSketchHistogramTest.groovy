@@ -0,0 +1,115 @@
+import com.datadoghq.sketch.ddsketch.DDSketchProtoBinding
+import com.datadoghq.sketch.ddsketch.proto.DDSketch
+import com.datadoghq.sketch.ddsketch.store.CollapsingLowestDenseStore
+import datadog.trace.core.histogram.CompactDDSketchHistogram
+import datadog.trace.core.histogram.DDSketchHistogram
+import datadog.trace.core.histogram.Histogram
+import datadog.trace.core.histogram.Histograms
+import datadog.trace.test.util.DDSpecification
+
+import java.nio.ByteBuffer
+
+class CompactDDSketchHistogramTest extends DDSpecification {
+
+  def "compact histogram factory creates compact histograms"() {
+    expect:
+    Histograms.newCompactHistogramFactory().newHistogram() instanceof CompactDDSketchHistogram
+  }
+
+  def "compact histogram agrees with DDSketch"() {
+    setup:
+    Histogram compact = Histograms.newCompactHistogramFactory().newHistogram()
+    Histogram reference = Histograms.newHistogramFactory().newHistogram()
+    SplittableRandom random = new SplittableRandom(0)
+
+    when:
+    for (int i = 0; i < size; ++i) {
+      long value = (long) (-Math.log(random.nextDouble()) / rate)
+      compact.accept(value)
+      reference.accept(value)
+    }
+
+    then:
+    compact.max() == reference.max()
+    for (double quantile : [0D, 0.5D, 0.75D, 0.9D, 0.95D, 0.99D, 1D]) {
+      assert compact.valueAtQuantile(quantile) == reference.valueAtQuantile(quantile)
+    }
+
+    when: "perform serialization round trip"
+    def sketch = deserialize(compact.serialize())
+
+    then:
+    sketch.getCount() == size
+    for (double quantile : [0D, 0.5D, 0.75D, 0.9D, 0.95D, 0.99D, 1D]) {
+      assert new DDSketchHistogram(sketch).valueAtQuantile(quantile) == reference.valueAtQuantile(quantile)
+    }
+
+    where:
+    size   | rate
+    1      | 0.01D
+    100    | 0.01D
+    10000  | 0.01D
+    10000  | 0.99D
+    10000  | 0.000001D
+  }
+
+  def "lowest bins are collapsed like DDSketch"() {
+    setup:
+    Histogram compact = Histograms.newCompactHistogramFactory().newHistogram()
+    Histogram reference = Histograms.newHistogramFactory().newHistogram()
+
+    when:
+    for (long value : [1L, 2L, 1_000_000_000_000L, 3L, 0L]) {
+      compact.accept(value)
+      reference.accept(value)
+    }
+
+    then:
+    for (double quantile : [0D, 0.25D, 0.5D, 0.75D, 1D]) {
+      assert compact.valueAtQuantile(quantile) == reference.valueAtQuantile(quantile)
+    }
+    deserialize(compact.serialize()).getCount() == 5
+  }
+
+  def "test serialization of empty histogram after clear"() {
+    setup:
+    Histogram histogram = Histograms.newCompactHistogramFactory().newHistogram()
+
+    when:
+    for (int i = 1; i <= 1000; ++i) {
+      histogram.accept(i)
+    }
+    histogram.clear()
+
+    then:
+    histogram.max() == 0
+    histogram.valueAtQuantile(0.99) == 0
+    deserialize(histogram.serialize()).isEmpty()
+
+    when:
+    histogram.accept(1)
+    histogram.accept(2)
+    histogram.accept(3)
+    def sketch = deserialize(histogram.serialize())
+
+    then:
+    sketch.getCount() == 3
+    (int) sketch.getMinValue() == 1
+    (int) sketch.getMaxValue() == 3
+  }
+
+  def "load stub"() {
+    setup:
+    Histograms histograms = new Histograms(true)
+    expect:
+    histograms.newCompactFactory().newHistogram().serialize().capacity() == 0
+  }
+
+  static deserialize(ByteBuffer buffer) {
+    byte[] bytes = new byte[buffer.remaining()]
+    buffer.get(bytes)
+    return DDSketchProtoBinding.fromProto({
+      new CollapsingLowestDenseStore(1024)
+    }, DDSketch.parseFrom(bytes))
+  }
+}
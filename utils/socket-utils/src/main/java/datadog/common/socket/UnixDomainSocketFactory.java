@@ -5,8 +5,11 @@ import java.io.IOException;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.nio.channels.SocketChannel;
 import javax.net.SocketFactory;
+import jnr.unixsocket.UnixSocketAddress;
 import jnr.unixsocket.UnixSocketChannel;
+import jnr.unixsocket.UnixSocketOptions;
 
 /**
  * Impersonate TCP-style SocketFactory over UNIX domain sockets.
@@ -28,6 +31,17 @@ public final class UnixDomainSocketFactory extends SocketFactory {
     return new TunnelingUnixSocket(path, channel);
   }
 
+  /**
+   * Opens a blocking channel connected to the socket, for callers which write {@code ByteBuffer}s
+   * to it directly rather than going through the {@link Socket} streams.
+   */
+  public SocketChannel openChannel(final int timeoutMillis) throws IOException {
+    final UnixSocketChannel channel = UnixSocketChannel.open(new UnixSocketAddress(path));
+    channel.setOption(UnixSocketOptions.SO_RCVTIMEO, timeoutMillis);
+    channel.setOption(UnixSocketOptions.SO_SNDTIMEO, timeoutMillis);
+    return channel;
+  }
+
   @Override
   public Socket createSocket(final String host, final int port) throws IOException {
     final Socket result = createSocket();